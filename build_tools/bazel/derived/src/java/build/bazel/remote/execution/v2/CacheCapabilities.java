@@ -22,6 +22,7 @@ private static final long serialVersionUID = 0L;
   private CacheCapabilities() {
     digestFunction_ = java.util.Collections.emptyList();
     symlinkAbsolutePathStrategy_ = 0;
+    supportedCompressors_ = java.util.Collections.emptyList();
   }
 
   @java.lang.Override
@@ -115,6 +116,29 @@ private static final long serialVersionUID = 0L;
             symlinkAbsolutePathStrategy_ = rawValue;
             break;
           }
+          case 48: {
+            int rawValue = input.readEnum();
+            if (!((mutable_bitField0_ & 0x00000002) != 0)) {
+              supportedCompressors_ = new java.util.ArrayList<java.lang.Integer>();
+              mutable_bitField0_ |= 0x00000002;
+            }
+            supportedCompressors_.add(rawValue);
+            break;
+          }
+          case 50: {
+            int length = input.readRawVarint32();
+            int oldLimit = input.pushLimit(length);
+            while(input.getBytesUntilLimit() > 0) {
+              int rawValue = input.readEnum();
+              if (!((mutable_bitField0_ & 0x00000002) != 0)) {
+                supportedCompressors_ = new java.util.ArrayList<java.lang.Integer>();
+                mutable_bitField0_ |= 0x00000002;
+              }
+              supportedCompressors_.add(rawValue);
+            }
+            input.popLimit(oldLimit);
+            break;
+          }
           default: {
             if (!parseUnknownField(
                 input, unknownFields, extensionRegistry, tag)) {
@@ -133,6 +157,9 @@ private static final long serialVersionUID = 0L;
       if (((mutable_bitField0_ & 0x00000001) != 0)) {
         digestFunction_ = java.util.Collections.unmodifiableList(digestFunction_);
       }
+      if (((mutable_bitField0_ & 0x00000002) != 0)) {
+        supportedCompressors_ = java.util.Collections.unmodifiableList(supportedCompressors_);
+      }
       this.unknownFields = unknownFields.build();
       makeExtensionsImmutable();
     }
@@ -342,6 +369,99 @@ private static final long serialVersionUID = 0L;
     return result == null ? build.bazel.remote.execution.v2.SymlinkAbsolutePathStrategy.Value.UNRECOGNIZED : result;
   }
 
+  public static final int SUPPORTED_COMPRESSORS_FIELD_NUMBER = 6;
+  private java.util.List<java.lang.Integer> supportedCompressors_;
+  private static final com.google.protobuf.Internal.ListAdapter.Converter<
+      java.lang.Integer, build.bazel.remote.execution.v2.Compressor.Value> supportedCompressors_converter_ =
+          new com.google.protobuf.Internal.ListAdapter.Converter<
+              java.lang.Integer, build.bazel.remote.execution.v2.Compressor.Value>() {
+            public build.bazel.remote.execution.v2.Compressor.Value convert(java.lang.Integer from) {
+              @SuppressWarnings("deprecation")
+              build.bazel.remote.execution.v2.Compressor.Value result = build.bazel.remote.execution.v2.Compressor.Value.valueOf(from);
+              return result == null ? build.bazel.remote.execution.v2.Compressor.Value.UNRECOGNIZED : result;
+            }
+          };
+  /**
+   * <pre>
+   * Compressors supported by the "compressed-blobs" bytestream resources.
+   * Servers MUST support identity/no-compression, even if it is not listed
+   * here.
+   * Note that this does not imply which if any compressors are supported by
+   * the server at the gRPC level.
+   * </pre>
+   *
+   * <code>repeated .build.bazel.remote.execution.v2.Compressor.Value supported_compressors = 6;</code>
+   * @return A list containing the supportedCompressors.
+   */
+  public java.util.List<build.bazel.remote.execution.v2.Compressor.Value> getSupportedCompressorsList() {
+    return new com.google.protobuf.Internal.ListAdapter<
+        java.lang.Integer, build.bazel.remote.execution.v2.Compressor.Value>(supportedCompressors_, supportedCompressors_converter_);
+  }
+  /**
+   * <pre>
+   * Compressors supported by the "compressed-blobs" bytestream resources.
+   * Servers MUST support identity/no-compression, even if it is not listed
+   * here.
+   * Note that this does not imply which if any compressors are supported by
+   * the server at the gRPC level.
+   * </pre>
+   *
+   * <code>repeated .build.bazel.remote.execution.v2.Compressor.Value supported_compressors = 6;</code>
+   * @return The count of supportedCompressors.
+   */
+  public int getSupportedCompressorsCount() {
+    return supportedCompressors_.size();
+  }
+  /**
+   * <pre>
+   * Compressors supported by the "compressed-blobs" bytestream resources.
+   * Servers MUST support identity/no-compression, even if it is not listed
+   * here.
+   * Note that this does not imply which if any compressors are supported by
+   * the server at the gRPC level.
+   * </pre>
+   *
+   * <code>repeated .build.bazel.remote.execution.v2.Compressor.Value supported_compressors = 6;</code>
+   * @param index The index of the element to return.
+   * @return The supportedCompressors at the given index.
+   */
+  public build.bazel.remote.execution.v2.Compressor.Value getSupportedCompressors(int index) {
+    return supportedCompressors_converter_.convert(supportedCompressors_.get(index));
+  }
+  /**
+   * <pre>
+   * Compressors supported by the "compressed-blobs" bytestream resources.
+   * Servers MUST support identity/no-compression, even if it is not listed
+   * here.
+   * Note that this does not imply which if any compressors are supported by
+   * the server at the gRPC level.
+   * </pre>
+   *
+   * <code>repeated .build.bazel.remote.execution.v2.Compressor.Value supported_compressors = 6;</code>
+   * @return A list containing the enum numeric values on the wire for supportedCompressors.
+   */
+  public java.util.List<java.lang.Integer>
+  getSupportedCompressorsValueList() {
+    return supportedCompressors_;
+  }
+  /**
+   * <pre>
+   * Compressors supported by the "compressed-blobs" bytestream resources.
+   * Servers MUST support identity/no-compression, even if it is not listed
+   * here.
+   * Note that this does not imply which if any compressors are supported by
+   * the server at the gRPC level.
+   * </pre>
+   *
+   * <code>repeated .build.bazel.remote.execution.v2.Compressor.Value supported_compressors = 6;</code>
+   * @param index The index of the value to return.
+   * @return The enum numeric value on the wire of supportedCompressors at the given index.
+   */
+  public int getSupportedCompressorsValue(int index) {
+    return supportedCompressors_.get(index);
+  }
+  private int supportedCompressorsMemoizedSerializedSize;
+
   private byte memoizedIsInitialized = -1;
   @java.lang.Override
   public final boolean isInitialized() {
@@ -376,6 +496,13 @@ private static final long serialVersionUID = 0L;
     if (symlinkAbsolutePathStrategy_ != build.bazel.remote.execution.v2.SymlinkAbsolutePathStrategy.Value.UNKNOWN.getNumber()) {
       output.writeEnum(5, symlinkAbsolutePathStrategy_);
     }
+    if (getSupportedCompressorsList().size() > 0) {
+      output.writeUInt32NoTag(50);
+      output.writeUInt32NoTag(supportedCompressorsMemoizedSerializedSize);
+    }
+    for (int i = 0; i < supportedCompressors_.size(); i++) {
+      output.writeEnumNoTag(supportedCompressors_.get(i));
+    }
     unknownFields.writeTo(output);
   }
 
@@ -413,6 +540,18 @@ private static final long serialVersionUID = 0L;
       size += com.google.protobuf.CodedOutputStream
         .computeEnumSize(5, symlinkAbsolutePathStrategy_);
     }
+    {
+      int dataSize = 0;
+      for (int i = 0; i < supportedCompressors_.size(); i++) {
+        dataSize += com.google.protobuf.CodedOutputStream
+          .computeEnumSizeNoTag(supportedCompressors_.get(i));
+      }
+      size += dataSize;
+      if (!getSupportedCompressorsList().isEmpty()) {  size += 1;
+        size += com.google.protobuf.CodedOutputStream
+          .computeUInt32SizeNoTag(dataSize);
+      }supportedCompressorsMemoizedSerializedSize = dataSize;
+    }
     size += unknownFields.getSerializedSize();
     memoizedSize = size;
     return size;
@@ -442,6 +581,7 @@ private static final long serialVersionUID = 0L;
     if (getMaxBatchTotalSizeBytes()
         != other.getMaxBatchTotalSizeBytes()) return false;
     if (symlinkAbsolutePathStrategy_ != other.symlinkAbsolutePathStrategy_) return false;
+    if (!supportedCompressors_.equals(other.supportedCompressors_)) return false;
     if (!unknownFields.equals(other.unknownFields)) return false;
     return true;
   }
@@ -470,6 +610,10 @@ private static final long serialVersionUID = 0L;
         getMaxBatchTotalSizeBytes());
     hash = (37 * hash) + SYMLINK_ABSOLUTE_PATH_STRATEGY_FIELD_NUMBER;
     hash = (53 * hash) + symlinkAbsolutePathStrategy_;
+    if (getSupportedCompressorsCount() > 0) {
+      hash = (37 * hash) + SUPPORTED_COMPRESSORS_FIELD_NUMBER;
+      hash = (53 * hash) + supportedCompressors_.hashCode();
+    }
     hash = (29 * hash) + unknownFields.hashCode();
     memoizedHashCode = hash;
     return hash;
@@ -625,6 +769,8 @@ private static final long serialVersionUID = 0L;
 
       symlinkAbsolutePathStrategy_ = 0;
 
+      supportedCompressors_ = java.util.Collections.emptyList();
+      bitField0_ = (bitField0_ & ~0x00000002);
       return this;
     }
 
@@ -669,6 +815,11 @@ private static final long serialVersionUID = 0L;
       }
       result.maxBatchTotalSizeBytes_ = maxBatchTotalSizeBytes_;
       result.symlinkAbsolutePathStrategy_ = symlinkAbsolutePathStrategy_;
+      if (((bitField0_ & 0x00000002) != 0)) {
+        supportedCompressors_ = java.util.Collections.unmodifiableList(supportedCompressors_);
+        bitField0_ = (bitField0_ & ~0x00000002);
+      }
+      result.supportedCompressors_ = supportedCompressors_;
       onBuilt();
       return result;
     }
@@ -739,6 +890,16 @@ private static final long serialVersionUID = 0L;
       if (other.symlinkAbsolutePathStrategy_ != 0) {
         setSymlinkAbsolutePathStrategyValue(other.getSymlinkAbsolutePathStrategyValue());
       }
+      if (!other.supportedCompressors_.isEmpty()) {
+        if (supportedCompressors_.isEmpty()) {
+          supportedCompressors_ = other.supportedCompressors_;
+          bitField0_ = (bitField0_ & ~0x00000002);
+        } else {
+          ensureSupportedCompressorsIsMutable();
+          supportedCompressors_.addAll(other.supportedCompressors_);
+        }
+        onChanged();
+      }
       this.mergeUnknownFields(other.unknownFields);
       onChanged();
       return this;
@@ -1401,6 +1562,242 @@ private static final long serialVersionUID = 0L;
       onChanged();
       return this;
     }
+
+    private java.util.List<java.lang.Integer> supportedCompressors_ =
+      java.util.Collections.emptyList();
+    private void ensureSupportedCompressorsIsMutable() {
+      if (!((bitField0_ & 0x00000002) != 0)) {
+        supportedCompressors_ = new java.util.ArrayList<java.lang.Integer>(supportedCompressors_);
+        bitField0_ |= 0x00000002;
+      }
+    }
+    /**
+     * <pre>
+     * Compressors supported by the "compressed-blobs" bytestream resources.
+     * Servers MUST support identity/no-compression, even if it is not listed
+     * here.
+     * Note that this does not imply which if any compressors are supported by
+     * the server at the gRPC level.
+     * </pre>
+     *
+     * <code>repeated .build.bazel.remote.execution.v2.Compressor.Value supported_compressors = 6;</code>
+     * @return A list containing the supportedCompressors.
+     */
+    public java.util.List<build.bazel.remote.execution.v2.Compressor.Value> getSupportedCompressorsList() {
+      return new com.google.protobuf.Internal.ListAdapter<
+          java.lang.Integer, build.bazel.remote.execution.v2.Compressor.Value>(supportedCompressors_, supportedCompressors_converter_);
+    }
+    /**
+     * <pre>
+     * Compressors supported by the "compressed-blobs" bytestream resources.
+     * Servers MUST support identity/no-compression, even if it is not listed
+     * here.
+     * Note that this does not imply which if any compressors are supported by
+     * the server at the gRPC level.
+     * </pre>
+     *
+     * <code>repeated .build.bazel.remote.execution.v2.Compressor.Value supported_compressors = 6;</code>
+     * @return The count of supportedCompressors.
+     */
+    public int getSupportedCompressorsCount() {
+      return supportedCompressors_.size();
+    }
+    /**
+     * <pre>
+     * Compressors supported by the "compressed-blobs" bytestream resources.
+     * Servers MUST support identity/no-compression, even if it is not listed
+     * here.
+     * Note that this does not imply which if any compressors are supported by
+     * the server at the gRPC level.
+     * </pre>
+     *
+     * <code>repeated .build.bazel.remote.execution.v2.Compressor.Value supported_compressors = 6;</code>
+     * @param index The index of the element to return.
+     * @return The supportedCompressors at the given index.
+     */
+    public build.bazel.remote.execution.v2.Compressor.Value getSupportedCompressors(int index) {
+      return supportedCompressors_converter_.convert(supportedCompressors_.get(index));
+    }
+    /**
+     * <pre>
+     * Compressors supported by the "compressed-blobs" bytestream resources.
+     * Servers MUST support identity/no-compression, even if it is not listed
+     * here.
+     * Note that this does not imply which if any compressors are supported by
+     * the server at the gRPC level.
+     * </pre>
+     *
+     * <code>repeated .build.bazel.remote.execution.v2.Compressor.Value supported_compressors = 6;</code>
+     * @param index The index to set the value at.
+     * @param value The supportedCompressors to set.
+     * @return This builder for chaining.
+     */
+    public Builder setSupportedCompressors(
+        int index, build.bazel.remote.execution.v2.Compressor.Value value) {
+      if (value == null) {
+        throw new NullPointerException();
+      }
+      ensureSupportedCompressorsIsMutable();
+      supportedCompressors_.set(index, value.getNumber());
+      onChanged();
+      return this;
+    }
+    /**
+     * <pre>
+     * Compressors supported by the "compressed-blobs" bytestream resources.
+     * Servers MUST support identity/no-compression, even if it is not listed
+     * here.
+     * Note that this does not imply which if any compressors are supported by
+     * the server at the gRPC level.
+     * </pre>
+     *
+     * <code>repeated .build.bazel.remote.execution.v2.Compressor.Value supported_compressors = 6;</code>
+     * @param value The supportedCompressors to add.
+     * @return This builder for chaining.
+     */
+    public Builder addSupportedCompressors(build.bazel.remote.execution.v2.Compressor.Value value) {
+      if (value == null) {
+        throw new NullPointerException();
+      }
+      ensureSupportedCompressorsIsMutable();
+      supportedCompressors_.add(value.getNumber());
+      onChanged();
+      return this;
+    }
+    /**
+     * <pre>
+     * Compressors supported by the "compressed-blobs" bytestream resources.
+     * Servers MUST support identity/no-compression, even if it is not listed
+     * here.
+     * Note that this does not imply which if any compressors are supported by
+     * the server at the gRPC level.
+     * </pre>
+     *
+     * <code>repeated .build.bazel.remote.execution.v2.Compressor.Value supported_compressors = 6;</code>
+     * @param values The supportedCompressors to add.
+     * @return This builder for chaining.
+     */
+    public Builder addAllSupportedCompressors(
+        java.lang.Iterable<? extends build.bazel.remote.execution.v2.Compressor.Value> values) {
+      ensureSupportedCompressorsIsMutable();
+      for (build.bazel.remote.execution.v2.Compressor.Value value : values) {
+        supportedCompressors_.add(value.getNumber());
+      }
+      onChanged();
+      return this;
+    }
+    /**
+     * <pre>
+     * Compressors supported by the "compressed-blobs" bytestream resources.
+     * Servers MUST support identity/no-compression, even if it is not listed
+     * here.
+     * Note that this does not imply which if any compressors are supported by
+     * the server at the gRPC level.
+     * </pre>
+     *
+     * <code>repeated .build.bazel.remote.execution.v2.Compressor.Value supported_compressors = 6;</code>
+     * @return This builder for chaining.
+     */
+    public Builder clearSupportedCompressors() {
+      supportedCompressors_ = java.util.Collections.emptyList();
+      bitField0_ = (bitField0_ & ~0x00000002);
+      onChanged();
+      return this;
+    }
+    /**
+     * <pre>
+     * Compressors supported by the "compressed-blobs" bytestream resources.
+     * Servers MUST support identity/no-compression, even if it is not listed
+     * here.
+     * Note that this does not imply which if any compressors are supported by
+     * the server at the gRPC level.
+     * </pre>
+     *
+     * <code>repeated .build.bazel.remote.execution.v2.Compressor.Value supported_compressors = 6;</code>
+     * @return A list containing the enum numeric values on the wire for supportedCompressors.
+     */
+    public java.util.List<java.lang.Integer>
+    getSupportedCompressorsValueList() {
+      return java.util.Collections.unmodifiableList(supportedCompressors_);
+    }
+    /**
+     * <pre>
+     * Compressors supported by the "compressed-blobs" bytestream resources.
+     * Servers MUST support identity/no-compression, even if it is not listed
+     * here.
+     * Note that this does not imply which if any compressors are supported by
+     * the server at the gRPC level.
+     * </pre>
+     *
+     * <code>repeated .build.bazel.remote.execution.v2.Compressor.Value supported_compressors = 6;</code>
+     * @param index The index of the value to return.
+     * @return The enum numeric value on the wire of supportedCompressors at the given index.
+     */
+    public int getSupportedCompressorsValue(int index) {
+      return supportedCompressors_.get(index);
+    }
+    /**
+     * <pre>
+     * Compressors supported by the "compressed-blobs" bytestream resources.
+     * Servers MUST support identity/no-compression, even if it is not listed
+     * here.
+     * Note that this does not imply which if any compressors are supported by
+     * the server at the gRPC level.
+     * </pre>
+     *
+     * <code>repeated .build.bazel.remote.execution.v2.Compressor.Value supported_compressors = 6;</code>
+     * @param index The index of the value to return.
+     * @return The enum numeric value on the wire of supportedCompressors at the given index.
+     * @return This builder for chaining.
+     */
+    public Builder setSupportedCompressorsValue(
+        int index, int value) {
+      ensureSupportedCompressorsIsMutable();
+      supportedCompressors_.set(index, value);
+      onChanged();
+      return this;
+    }
+    /**
+     * <pre>
+     * Compressors supported by the "compressed-blobs" bytestream resources.
+     * Servers MUST support identity/no-compression, even if it is not listed
+     * here.
+     * Note that this does not imply which if any compressors are supported by
+     * the server at the gRPC level.
+     * </pre>
+     *
+     * <code>repeated .build.bazel.remote.execution.v2.Compressor.Value supported_compressors = 6;</code>
+     * @param value The enum numeric value on the wire for supportedCompressors to add.
+     * @return This builder for chaining.
+     */
+    public Builder addSupportedCompressorsValue(int value) {
+      ensureSupportedCompressorsIsMutable();
+      supportedCompressors_.add(value);
+      onChanged();
+      return this;
+    }
+    /**
+     * <pre>
+     * Compressors supported by the "compressed-blobs" bytestream resources.
+     * Servers MUST support identity/no-compression, even if it is not listed
+     * here.
+     * Note that this does not imply which if any compressors are supported by
+     * the server at the gRPC level.
+     * </pre>
+     *
+     * <code>repeated .build.bazel.remote.execution.v2.Compressor.Value supported_compressors = 6;</code>
+     * @param values The enum numeric values on the wire for supportedCompressors to add.
+     * @return This builder for chaining.
+     */
+    public Builder addAllSupportedCompressorsValue(
+        java.lang.Iterable<java.lang.Integer> values) {
+      ensureSupportedCompressorsIsMutable();
+      for (int value : values) {
+        supportedCompressors_.add(value);
+      }
+      onChanged();
+      return this;
+    }
     @java.lang.Override
     public final Builder setUnknownFields(
         final com.google.protobuf.UnknownFieldSet unknownFields) {
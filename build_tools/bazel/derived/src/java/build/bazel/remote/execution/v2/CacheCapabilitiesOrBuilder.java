@@ -146,4 +146,73 @@ public interface CacheCapabilitiesOrBuilder extends
    * @return The symlinkAbsolutePathStrategy.
    */
   build.bazel.remote.execution.v2.SymlinkAbsolutePathStrategy.Value getSymlinkAbsolutePathStrategy();
+
+  /**
+   * <pre>
+   * Compressors supported by the "compressed-blobs" bytestream resources.
+   * Servers MUST support identity/no-compression, even if it is not listed
+   * here.
+   * Note that this does not imply which if any compressors are supported by
+   * the server at the gRPC level.
+   * </pre>
+   *
+   * <code>repeated .build.bazel.remote.execution.v2.Compressor.Value supported_compressors = 6;</code>
+   * @return A list containing the supportedCompressors.
+   */
+  java.util.List<build.bazel.remote.execution.v2.Compressor.Value> getSupportedCompressorsList();
+  /**
+   * <pre>
+   * Compressors supported by the "compressed-blobs" bytestream resources.
+   * Servers MUST support identity/no-compression, even if it is not listed
+   * here.
+   * Note that this does not imply which if any compressors are supported by
+   * the server at the gRPC level.
+   * </pre>
+   *
+   * <code>repeated .build.bazel.remote.execution.v2.Compressor.Value supported_compressors = 6;</code>
+   * @return The count of supportedCompressors.
+   */
+  int getSupportedCompressorsCount();
+  /**
+   * <pre>
+   * Compressors supported by the "compressed-blobs" bytestream resources.
+   * Servers MUST support identity/no-compression, even if it is not listed
+   * here.
+   * Note that this does not imply which if any compressors are supported by
+   * the server at the gRPC level.
+   * </pre>
+   *
+   * <code>repeated .build.bazel.remote.execution.v2.Compressor.Value supported_compressors = 6;</code>
+   * @param index The index of the element to return.
+   * @return The supportedCompressors at the given index.
+   */
+  build.bazel.remote.execution.v2.Compressor.Value getSupportedCompressors(int index);
+  /**
+   * <pre>
+   * Compressors supported by the "compressed-blobs" bytestream resources.
+   * Servers MUST support identity/no-compression, even if it is not listed
+   * here.
+   * Note that this does not imply which if any compressors are supported by
+   * the server at the gRPC level.
+   * </pre>
+   *
+   * <code>repeated .build.bazel.remote.execution.v2.Compressor.Value supported_compressors = 6;</code>
+   * @return A list containing the enum numeric values on the wire for supportedCompressors.
+   */
+  java.util.List<java.lang.Integer>
+  getSupportedCompressorsValueList();
+  /**
+   * <pre>
+   * Compressors supported by the "compressed-blobs" bytestream resources.
+   * Servers MUST support identity/no-compression, even if it is not listed
+   * here.
+   * Note that this does not imply which if any compressors are supported by
+   * the server at the gRPC level.
+   * </pre>
+   *
+   * <code>repeated .build.bazel.remote.execution.v2.Compressor.Value supported_compressors = 6;</code>
+   * @param index The index of the value to return.
+   * @return The enum numeric value on the wire of supportedCompressors at the given index.
+   */
+  int getSupportedCompressorsValue(int index);
 }
@@ -264,6 +264,11 @@ public final class RemoteExecutionProto {
   static final 
     com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
       internal_static_build_bazel_remote_execution_v2_RequestMetadata_fieldAccessorTable;
+  static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_build_bazel_remote_execution_v2_Compressor_descriptor;
+  static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_build_bazel_remote_execution_v2_Compressor_fieldAccessorTable;
 
   public static com.google.protobuf.Descriptors.FileDescriptor
       getDescriptor() {
@@ -455,7 +460,7 @@ public final class RemoteExecutionProto {
       "Range\022\024\n\014min_priority\030\001 \001(\005\022\024\n\014max_prior" +
       "ity\030\002 \001(\005\"P\n\033SymlinkAbsolutePathStrategy" +
       "\"1\n\005Value\022\013\n\007UNKNOWN\020\000\022\016\n\nDISALLOWED\020\001\022\013" +
-      "\n\007ALLOWED\020\002\"\271\003\n\021CacheCapabilities\022N\n\017dig" +
+      "\n\007ALLOWED\020\002\"\213\004\n\021CacheCapabilities\022N\n\017dig" +
       "est_function\030\001 \003(\01625.build.bazel.remote." +
       "execution.v2.DigestFunction.Value\022h\n act" +
       "ion_cache_update_capabilities\030\002 \001(\0132>.bu" +
@@ -466,67 +471,70 @@ public final class RemoteExecutionProto {
       "atch_total_size_bytes\030\004 \001(\003\022j\n\036symlink_a" +
       "bsolute_path_strategy\030\005 \001(\0162B.build.baze" +
       "l.remote.execution.v2.SymlinkAbsolutePat" +
-      "hStrategy.Value\"\200\002\n\025ExecutionCapabilitie" +
-      "s\022N\n\017digest_function\030\001 \001(\01625.build.bazel" +
-      ".remote.execution.v2.DigestFunction.Valu" +
-      "e\022\024\n\014exec_enabled\030\002 \001(\010\022^\n\037execution_pri" +
-      "ority_capabilities\030\003 \001(\01325.build.bazel.r" +
-      "emote.execution.v2.PriorityCapabilities\022" +
-      "!\n\031supported_node_properties\030\004 \003(\t\"6\n\013To" +
-      "olDetails\022\021\n\ttool_name\030\001 \001(\t\022\024\n\014tool_ver" +
-      "sion\030\002 \001(\t\"\247\001\n\017RequestMetadata\022B\n\014tool_d" +
-      "etails\030\001 \001(\0132,.build.bazel.remote.execut" +
-      "ion.v2.ToolDetails\022\021\n\taction_id\030\002 \001(\t\022\032\n" +
-      "\022tool_invocation_id\030\003 \001(\t\022!\n\031correlated_" +
-      "invocations_id\030\004 \001(\t2\271\002\n\tExecution\022\216\001\n\007E" +
-      "xecute\022/.build.bazel.remote.execution.v2" +
-      ".ExecuteRequest\032\035.google.longrunning.Ope" +
-      "ration\"1\202\323\344\223\002+\"&/v2/{instance_name=**}/a" +
-      "ctions:execute:\001*0\001\022\232\001\n\rWaitExecution\0225." +
-      "build.bazel.remote.execution.v2.WaitExec" +
-      "utionRequest\032\035.google.longrunning.Operat" +
-      "ion\"1\202\323\344\223\002+\"&/v2/{name=operations/**}:wa" +
-      "itExecution:\001*0\0012\326\003\n\013ActionCache\022\327\001\n\017Get" +
-      "ActionResult\0227.build.bazel.remote.execut" +
-      "ion.v2.GetActionResultRequest\032-.build.ba" +
-      "zel.remote.execution.v2.ActionResult\"\\\202\323" +
-      "\344\223\002V\022T/v2/{instance_name=**}/actionResul" +
-      "ts/{action_digest.hash}/{action_digest.s" +
-      "ize_bytes}\022\354\001\n\022UpdateActionResult\022:.buil" +
-      "d.bazel.remote.execution.v2.UpdateAction" +
-      "ResultRequest\032-.build.bazel.remote.execu" +
-      "tion.v2.ActionResult\"k\202\323\344\223\002e\032T/v2/{insta" +
-      "nce_name=**}/actionResults/{action_diges" +
-      "t.hash}/{action_digest.size_bytes}:\racti" +
-      "on_result2\233\006\n\031ContentAddressableStorage\022" +
-      "\274\001\n\020FindMissingBlobs\0228.build.bazel.remot" +
-      "e.execution.v2.FindMissingBlobsRequest\0329" +
-      ".build.bazel.remote.execution.v2.FindMis" +
-      "singBlobsResponse\"3\202\323\344\223\002-\"(/v2/{instance" +
-      "_name=**}/blobs:findMissing:\001*\022\274\001\n\020Batch" +
-      "UpdateBlobs\0228.build.bazel.remote.executi" +
-      "on.v2.BatchUpdateBlobsRequest\0329.build.ba" +
-      "zel.remote.execution.v2.BatchUpdateBlobs" +
-      "Response\"3\202\323\344\223\002-\"(/v2/{instance_name=**}" +
-      "/blobs:batchUpdate:\001*\022\264\001\n\016BatchReadBlobs" +
-      "\0226.build.bazel.remote.execution.v2.Batch" +
-      "ReadBlobsRequest\0327.build.bazel.remote.ex" +
-      "ecution.v2.BatchReadBlobsResponse\"1\202\323\344\223\002" +
-      "+\"&/v2/{instance_name=**}/blobs:batchRea" +
-      "d:\001*\022\310\001\n\007GetTree\022/.build.bazel.remote.ex" +
-      "ecution.v2.GetTreeRequest\0320.build.bazel." +
-      "remote.execution.v2.GetTreeResponse\"X\202\323\344" +
-      "\223\002R\022P/v2/{instance_name=**}/blobs/{root_" +
-      "digest.hash}/{root_digest.size_bytes}:ge" +
-      "tTree0\0012\275\001\n\014Capabilities\022\254\001\n\017GetCapabili" +
-      "ties\0227.build.bazel.remote.execution.v2.G" +
-      "etCapabilitiesRequest\0323.build.bazel.remo" +
-      "te.execution.v2.ServerCapabilities\"+\202\323\344\223" +
-      "\002%\022#/v2/{instance_name=**}/capabilitiesB" +
-      "r\n\037build.bazel.remote.execution.v2B\024Remo" +
-      "teExecutionProtoP\001Z\017remoteexecution\242\002\003RE" +
-      "X\252\002\037Build.Bazel.Remote.Execution.V2b\006pro" +
-      "to3"
+      "hStrategy.Value\022P\n\025supported_compressors" +
+      "\030\006 \003(\01621.build.bazel.remote.execution.v2" +
+      ".Compressor.Value\"\200\002\n\025ExecutionCapabilit" +
+      "ies\022N\n\017digest_function\030\001 \001(\01625.build.baz" +
+      "el.remote.execution.v2.DigestFunction.Va" +
+      "lue\022\024\n\014exec_enabled\030\002 \001(\010\022^\n\037execution_p" +
+      "riority_capabilities\030\003 \001(\01325.build.bazel" +
+      ".remote.execution.v2.PriorityCapabilitie" +
+      "s\022!\n\031supported_node_properties\030\004 \003(\t\"6\n\013" +
+      "ToolDetails\022\021\n\ttool_name\030\001 \001(\t\022\024\n\014tool_v" +
+      "ersion\030\002 \001(\t\"\247\001\n\017RequestMetadata\022B\n\014tool" +
+      "_details\030\001 \001(\0132,.build.bazel.remote.exec" +
+      "ution.v2.ToolDetails\022\021\n\taction_id\030\002 \001(\t\022" +
+      "\032\n\022tool_invocation_id\030\003 \001(\t\022!\n\031correlate" +
+      "d_invocations_id\030\004 \001(\t\":\n\nCompressor\",\n\005" +
+      "Value\022\014\n\010IDENTITY\020\000\022\010\n\004ZSTD\020\001\022\013\n\007DEFLATE" +
+      "\020\0022\271\002\n\tExecution\022\216\001\n\007Execute\022/.build.baz" +
+      "el.remote.execution.v2.ExecuteRequest\032\035." +
+      "google.longrunning.Operation\"1\202\323\344\223\002+\"&/v" +
+      "2/{instance_name=**}/actions:execute:\001*0" +
+      "\001\022\232\001\n\rWaitExecution\0225.build.bazel.remote" +
+      ".execution.v2.WaitExecutionRequest\032\035.goo" +
+      "gle.longrunning.Operation\"1\202\323\344\223\002+\"&/v2/{" +
+      "name=operations/**}:waitExecution:\001*0\0012\326" +
+      "\003\n\013ActionCache\022\327\001\n\017GetActionResult\0227.bui" +
+      "ld.bazel.remote.execution.v2.GetActionRe" +
+      "sultRequest\032-.build.bazel.remote.executi" +
+      "on.v2.ActionResult\"\\\202\323\344\223\002V\022T/v2/{instanc" +
+      "e_name=**}/actionResults/{action_digest." +
+      "hash}/{action_digest.size_bytes}\022\354\001\n\022Upd" +
+      "ateActionResult\022:.build.bazel.remote.exe" +
+      "cution.v2.UpdateActionResultRequest\032-.bu" +
+      "ild.bazel.remote.execution.v2.ActionResu" +
+      "lt\"k\202\323\344\223\002e\032T/v2/{instance_name=**}/actio" +
+      "nResults/{action_digest.hash}/{action_di" +
+      "gest.size_bytes}:\raction_result2\233\006\n\031Cont" +
+      "entAddressableStorage\022\274\001\n\020FindMissingBlo" +
+      "bs\0228.build.bazel.remote.execution.v2.Fin" +
+      "dMissingBlobsRequest\0329.build.bazel.remot" +
+      "e.execution.v2.FindMissingBlobsResponse\"" +
+      "3\202\323\344\223\002-\"(/v2/{instance_name=**}/blobs:fi" +
+      "ndMissing:\001*\022\274\001\n\020BatchUpdateBlobs\0228.buil" +
+      "d.bazel.remote.execution.v2.BatchUpdateB" +
+      "lobsRequest\0329.build.bazel.remote.executi" +
+      "on.v2.BatchUpdateBlobsResponse\"3\202\323\344\223\002-\"(" +
+      "/v2/{instance_name=**}/blobs:batchUpdate" +
+      ":\001*\022\264\001\n\016BatchReadBlobs\0226.build.bazel.rem" +
+      "ote.execution.v2.BatchReadBlobsRequest\0327" +
+      ".build.bazel.remote.execution.v2.BatchRe" +
+      "adBlobsResponse\"1\202\323\344\223\002+\"&/v2/{instance_n" +
+      "ame=**}/blobs:batchRead:\001*\022\310\001\n\007GetTree\022/" +
+      ".build.bazel.remote.execution.v2.GetTree" +
+      "Request\0320.build.bazel.remote.execution.v" +
+      "2.GetTreeResponse\"X\202\323\344\223\002R\022P/v2/{instance" +
+      "_name=**}/blobs/{root_digest.hash}/{root" +
+      "_digest.size_bytes}:getTree0\0012\275\001\n\014Capabi" +
+      "lities\022\254\001\n\017GetCapabilities\0227.build.bazel" +
+      ".remote.execution.v2.GetCapabilitiesRequ" +
+      "est\0323.build.bazel.remote.execution.v2.Se" +
+      "rverCapabilities\"+\202\323\344\223\002%\022#/v2/{instance_" +
+      "name=**}/capabilitiesBr\n\037build.bazel.rem" +
+      "ote.execution.v2B\024RemoteExecutionProtoP\001" +
+      "Z\017remoteexecution\242\002\003REX\252\002\037Build.Bazel.Re" +
+      "mote.Execution.V2b\006proto3"
     };
     descriptor = com.google.protobuf.Descriptors.FileDescriptor
       .internalBuildGeneratedFileFrom(descriptorData,
@@ -819,7 +827,7 @@ public final class RemoteExecutionProto {
     internal_static_build_bazel_remote_execution_v2_CacheCapabilities_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
         internal_static_build_bazel_remote_execution_v2_CacheCapabilities_descriptor,
-        new java.lang.String[] { "DigestFunction", "ActionCacheUpdateCapabilities", "CachePriorityCapabilities", "MaxBatchTotalSizeBytes", "SymlinkAbsolutePathStrategy", });
+        new java.lang.String[] { "DigestFunction", "ActionCacheUpdateCapabilities", "CachePriorityCapabilities", "MaxBatchTotalSizeBytes", "SymlinkAbsolutePathStrategy", "SupportedCompressors", });
     internal_static_build_bazel_remote_execution_v2_ExecutionCapabilities_descriptor =
       getDescriptor().getMessageTypes().get(40);
     internal_static_build_bazel_remote_execution_v2_ExecutionCapabilities_fieldAccessorTable = new
@@ -838,6 +846,12 @@ public final class RemoteExecutionProto {
       com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
         internal_static_build_bazel_remote_execution_v2_RequestMetadata_descriptor,
         new java.lang.String[] { "ToolDetails", "ActionId", "ToolInvocationId", "CorrelatedInvocationsId", });
+    internal_static_build_bazel_remote_execution_v2_Compressor_descriptor =
+      getDescriptor().getMessageTypes().get(43);
+    internal_static_build_bazel_remote_execution_v2_Compressor_fieldAccessorTable = new
+      com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
+        internal_static_build_bazel_remote_execution_v2_Compressor_descriptor,
+        new java.lang.String[] { });
     com.google.protobuf.ExtensionRegistry registry =
         com.google.protobuf.ExtensionRegistry.newInstance();
     registry.add(com.google.api.AnnotationsProto.http);
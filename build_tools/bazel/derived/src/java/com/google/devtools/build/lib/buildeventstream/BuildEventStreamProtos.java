@@ -52514,6 +52514,62 @@ public final class BuildEventStreamProtos {
      * <code>.build_event_stream.BuildMetrics.TimingMetrics timing_metrics = 5;</code>
      */
     com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.TimingMetricsOrBuilder getTimingMetricsOrBuilder();
+
+    /**
+     * <pre>
+     * Only set if --disk_cache was used during this build.
+     * </pre>
+     *
+     * <code>.build_event_stream.BuildMetrics.DiskCacheMetrics disk_cache_metrics = 6;</code>
+     * @return Whether the diskCacheMetrics field is set.
+     */
+    boolean hasDiskCacheMetrics();
+    /**
+     * <pre>
+     * Only set if --disk_cache was used during this build.
+     * </pre>
+     *
+     * <code>.build_event_stream.BuildMetrics.DiskCacheMetrics disk_cache_metrics = 6;</code>
+     * @return The diskCacheMetrics.
+     */
+    com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics getDiskCacheMetrics();
+    /**
+     * <pre>
+     * Only set if --disk_cache was used during this build.
+     * </pre>
+     *
+     * <code>.build_event_stream.BuildMetrics.DiskCacheMetrics disk_cache_metrics = 6;</code>
+     */
+    com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetricsOrBuilder getDiskCacheMetricsOrBuilder();
+    /**
+     * <pre>
+     * Only set if --experimental_remote_action_result_cache_size was used during
+     * this build.
+     * </pre>
+     *
+     * <code>.build_event_stream.BuildMetrics.ActionResultCacheMetrics action_result_cache_metrics = 7;</code>
+     * @return Whether the actionResultCacheMetrics field is set.
+     */
+    boolean hasActionResultCacheMetrics();
+    /**
+     * <pre>
+     * Only set if --experimental_remote_action_result_cache_size was used during
+     * this build.
+     * </pre>
+     *
+     * <code>.build_event_stream.BuildMetrics.ActionResultCacheMetrics action_result_cache_metrics = 7;</code>
+     * @return The actionResultCacheMetrics.
+     */
+    com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics getActionResultCacheMetrics();
+    /**
+     * <pre>
+     * Only set if --experimental_remote_action_result_cache_size was used during
+     * this build.
+     * </pre>
+     *
+     * <code>.build_event_stream.BuildMetrics.ActionResultCacheMetrics action_result_cache_metrics = 7;</code>
+     */
+    com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetricsOrBuilder getActionResultCacheMetricsOrBuilder();
   }
   /**
    * Protobuf type {@code build_event_stream.BuildMetrics}
@@ -52625,6 +52681,32 @@ public final class BuildEventStreamProtos {
 
               break;
             }
+            case 50: {
+              com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics.Builder subBuilder = null;
+              if (diskCacheMetrics_ != null) {
+                subBuilder = diskCacheMetrics_.toBuilder();
+              }
+              diskCacheMetrics_ = input.readMessage(com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics.parser(), extensionRegistry);
+              if (subBuilder != null) {
+                subBuilder.mergeFrom(diskCacheMetrics_);
+                diskCacheMetrics_ = subBuilder.buildPartial();
+              }
+
+              break;
+            }
+            case 58: {
+              com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics.Builder subBuilder = null;
+              if (actionResultCacheMetrics_ != null) {
+                subBuilder = actionResultCacheMetrics_.toBuilder();
+              }
+              actionResultCacheMetrics_ = input.readMessage(com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics.parser(), extensionRegistry);
+              if (subBuilder != null) {
+                subBuilder.mergeFrom(actionResultCacheMetrics_);
+                actionResultCacheMetrics_ = subBuilder.buildPartial();
+              }
+
+              break;
+            }
             default: {
               if (!parseUnknownField(
                   input, unknownFields, extensionRegistry, tag)) {
@@ -55559,35 +55641,1975 @@ public final class BuildEventStreamProtos {
       // @@protoc_insertion_point(class_scope:build_event_stream.BuildMetrics.TimingMetrics)
       private static final com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.TimingMetrics DEFAULT_INSTANCE;
       static {
-        DEFAULT_INSTANCE = new com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.TimingMetrics();
+        DEFAULT_INSTANCE = new com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.TimingMetrics();
+      }
+
+      public static com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.TimingMetrics getDefaultInstance() {
+        return DEFAULT_INSTANCE;
+      }
+
+      private static final com.google.protobuf.Parser<TimingMetrics>
+          PARSER = new com.google.protobuf.AbstractParser<TimingMetrics>() {
+        @java.lang.Override
+        public TimingMetrics parsePartialFrom(
+            com.google.protobuf.CodedInputStream input,
+            com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+          return new TimingMetrics(input, extensionRegistry);
+        }
+      };
+
+      public static com.google.protobuf.Parser<TimingMetrics> parser() {
+        return PARSER;
+      }
+
+      @java.lang.Override
+      public com.google.protobuf.Parser<TimingMetrics> getParserForType() {
+        return PARSER;
+      }
+
+      @java.lang.Override
+      public com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.TimingMetrics getDefaultInstanceForType() {
+        return DEFAULT_INSTANCE;
+      }
+
+    }
+
+    public interface DiskCacheMetricsOrBuilder extends
+        // @@protoc_insertion_point(interface_extends:build_event_stream.BuildMetrics.DiskCacheMetrics)
+        com.google.protobuf.MessageOrBuilder {
+
+      /**
+       * <pre>
+       * Number of lookups that found an entry in the --disk_cache.
+       * </pre>
+       *
+       * <code>int64 hits = 1;</code>
+       * @return The hits.
+       */
+      long getHits();
+
+      /**
+       * <pre>
+       * Number of lookups that didn't find an entry in the --disk_cache.
+       * </pre>
+       *
+       * <code>int64 misses = 2;</code>
+       * @return The misses.
+       */
+      long getMisses();
+
+      /**
+       * <pre>
+       * Number of bytes deleted from the --disk_cache by its garbage collector
+       * because the cache grew beyond --experimental_disk_cache_max_size.
+       * </pre>
+       *
+       * <code>int64 bytes_evicted = 3;</code>
+       * @return The bytesEvicted.
+       */
+      long getBytesEvicted();
+
+      /**
+       * <pre>
+       * Number of entries deleted from the --disk_cache by its garbage collector.
+       * </pre>
+       *
+       * <code>int64 entries_evicted = 4;</code>
+       * @return The entriesEvicted.
+       */
+      long getEntriesEvicted();
+
+      /**
+       * <pre>
+       * The time in milliseconds spent by the garbage collector of the
+       * --disk_cache. Garbage collection runs in the background, so this time
+       * doesn't necessarily add to the wall time of the build.
+       * </pre>
+       *
+       * <code>int64 gc_time_in_ms = 5;</code>
+       * @return The gcTimeInMs.
+       */
+      long getGcTimeInMs();
+      /**
+       * <pre>
+       * Number of uploads to the remote cache that ran in the background with
+       * --experimental_disk_cache_write_behind_queue_size.
+       * </pre>
+       *
+       * <code>int64 write_behind_uploads = 6;</code>
+       * @return The writeBehindUploads.
+       */
+      long getWriteBehindUploads();
+      /**
+       * <pre>
+       * The largest number of background uploads that were queued or in
+       * progress at the same time.
+       * </pre>
+       *
+       * <code>int64 write_behind_max_queue_depth = 7;</code>
+       * @return The writeBehindMaxQueueDepth.
+       */
+      long getWriteBehindMaxQueueDepth();
+      /**
+       * <pre>
+       * The longest time in milliseconds between queueing a background upload
+       * and its completion.
+       * </pre>
+       *
+       * <code>int64 write_behind_max_lag_in_ms = 8;</code>
+       * @return The writeBehindMaxLagInMs.
+       */
+      long getWriteBehindMaxLagInMs();
+      /**
+       * <pre>
+       * The time in milliseconds spent at the end of the build waiting for the
+       * remaining background uploads.
+       * </pre>
+       *
+       * <code>int64 write_behind_drain_time_in_ms = 9;</code>
+       * @return The writeBehindDrainTimeInMs.
+       */
+      long getWriteBehindDrainTimeInMs();
+    }
+    /**
+     * Protobuf type {@code build_event_stream.BuildMetrics.DiskCacheMetrics}
+     */
+    public  static final class DiskCacheMetrics extends
+        com.google.protobuf.GeneratedMessageV3 implements
+        // @@protoc_insertion_point(message_implements:build_event_stream.BuildMetrics.DiskCacheMetrics)
+        DiskCacheMetricsOrBuilder {
+    private static final long serialVersionUID = 0L;
+      // Use DiskCacheMetrics.newBuilder() to construct.
+      private DiskCacheMetrics(com.google.protobuf.GeneratedMessageV3.Builder<?> builder) {
+        super(builder);
+      }
+      private DiskCacheMetrics() {
+      }
+
+      @java.lang.Override
+      @SuppressWarnings({"unused"})
+      protected java.lang.Object newInstance(
+          UnusedPrivateParameter unused) {
+        return new DiskCacheMetrics();
+      }
+
+      @java.lang.Override
+      public final com.google.protobuf.UnknownFieldSet
+      getUnknownFields() {
+        return this.unknownFields;
+      }
+      private DiskCacheMetrics(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        this();
+        if (extensionRegistry == null) {
+          throw new java.lang.NullPointerException();
+        }
+        com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+            com.google.protobuf.UnknownFieldSet.newBuilder();
+        try {
+          boolean done = false;
+          while (!done) {
+            int tag = input.readTag();
+            switch (tag) {
+              case 0:
+                done = true;
+                break;
+              case 8: {
+
+                hits_ = input.readInt64();
+                break;
+              }
+              case 16: {
+
+                misses_ = input.readInt64();
+                break;
+              }
+              case 24: {
+
+                bytesEvicted_ = input.readInt64();
+                break;
+              }
+              case 32: {
+
+                entriesEvicted_ = input.readInt64();
+                break;
+              }
+              case 40: {
+
+                gcTimeInMs_ = input.readInt64();
+                break;
+              }
+              case 48: {
+
+                writeBehindUploads_ = input.readInt64();
+                break;
+              }
+              case 56: {
+
+                writeBehindMaxQueueDepth_ = input.readInt64();
+                break;
+              }
+              case 64: {
+
+                writeBehindMaxLagInMs_ = input.readInt64();
+                break;
+              }
+              case 72: {
+
+                writeBehindDrainTimeInMs_ = input.readInt64();
+                break;
+              }
+              default: {
+                if (!parseUnknownField(
+                    input, unknownFields, extensionRegistry, tag)) {
+                  done = true;
+                }
+                break;
+              }
+            }
+          }
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          throw e.setUnfinishedMessage(this);
+        } catch (java.io.IOException e) {
+          throw new com.google.protobuf.InvalidProtocolBufferException(
+              e).setUnfinishedMessage(this);
+        } finally {
+          this.unknownFields = unknownFields.build();
+          makeExtensionsImmutable();
+        }
+      }
+      public static final com.google.protobuf.Descriptors.Descriptor
+          getDescriptor() {
+        return com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.internal_static_build_event_stream_BuildMetrics_DiskCacheMetrics_descriptor;
+      }
+
+      @java.lang.Override
+      protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+          internalGetFieldAccessorTable() {
+        return com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.internal_static_build_event_stream_BuildMetrics_DiskCacheMetrics_fieldAccessorTable
+            .ensureFieldAccessorsInitialized(
+                com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics.class, com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics.Builder.class);
+      }
+
+      public static final int HITS_FIELD_NUMBER = 1;
+      private long hits_;
+      /**
+       * <pre>
+       * Number of lookups that found an entry in the --disk_cache.
+       * </pre>
+       *
+       * <code>int64 hits = 1;</code>
+       * @return The hits.
+       */
+      public long getHits() {
+        return hits_;
+      }
+
+      public static final int MISSES_FIELD_NUMBER = 2;
+      private long misses_;
+      /**
+       * <pre>
+       * Number of lookups that didn't find an entry in the --disk_cache.
+       * </pre>
+       *
+       * <code>int64 misses = 2;</code>
+       * @return The misses.
+       */
+      public long getMisses() {
+        return misses_;
+      }
+
+      public static final int BYTES_EVICTED_FIELD_NUMBER = 3;
+      private long bytesEvicted_;
+      /**
+       * <pre>
+       * Number of bytes deleted from the --disk_cache by its garbage collector
+       * because the cache grew beyond --experimental_disk_cache_max_size.
+       * </pre>
+       *
+       * <code>int64 bytes_evicted = 3;</code>
+       * @return The bytesEvicted.
+       */
+      public long getBytesEvicted() {
+        return bytesEvicted_;
+      }
+
+      public static final int ENTRIES_EVICTED_FIELD_NUMBER = 4;
+      private long entriesEvicted_;
+      /**
+       * <pre>
+       * Number of entries deleted from the --disk_cache by its garbage collector.
+       * </pre>
+       *
+       * <code>int64 entries_evicted = 4;</code>
+       * @return The entriesEvicted.
+       */
+      public long getEntriesEvicted() {
+        return entriesEvicted_;
+      }
+
+      public static final int GC_TIME_IN_MS_FIELD_NUMBER = 5;
+      private long gcTimeInMs_;
+      /**
+       * <pre>
+       * The time in milliseconds spent by the garbage collector of the
+       * --disk_cache. Garbage collection runs in the background, so this time
+       * doesn't necessarily add to the wall time of the build.
+       * </pre>
+       *
+       * <code>int64 gc_time_in_ms = 5;</code>
+       * @return The gcTimeInMs.
+       */
+      public long getGcTimeInMs() {
+        return gcTimeInMs_;
+      }
+
+      public static final int WRITE_BEHIND_UPLOADS_FIELD_NUMBER = 6;
+      private long writeBehindUploads_;
+      /**
+       * <pre>
+       * Number of uploads to the remote cache that ran in the background with
+       * --experimental_disk_cache_write_behind_queue_size.
+       * </pre>
+       *
+       * <code>int64 write_behind_uploads = 6;</code>
+       * @return The writeBehindUploads.
+       */
+      public long getWriteBehindUploads() {
+        return writeBehindUploads_;
+      }
+
+      public static final int WRITE_BEHIND_MAX_QUEUE_DEPTH_FIELD_NUMBER = 7;
+      private long writeBehindMaxQueueDepth_;
+      /**
+       * <pre>
+       * The largest number of background uploads that were queued or in
+       * progress at the same time.
+       * </pre>
+       *
+       * <code>int64 write_behind_max_queue_depth = 7;</code>
+       * @return The writeBehindMaxQueueDepth.
+       */
+      public long getWriteBehindMaxQueueDepth() {
+        return writeBehindMaxQueueDepth_;
+      }
+
+      public static final int WRITE_BEHIND_MAX_LAG_IN_MS_FIELD_NUMBER = 8;
+      private long writeBehindMaxLagInMs_;
+      /**
+       * <pre>
+       * The longest time in milliseconds between queueing a background upload
+       * and its completion.
+       * </pre>
+       *
+       * <code>int64 write_behind_max_lag_in_ms = 8;</code>
+       * @return The writeBehindMaxLagInMs.
+       */
+      public long getWriteBehindMaxLagInMs() {
+        return writeBehindMaxLagInMs_;
+      }
+
+      public static final int WRITE_BEHIND_DRAIN_TIME_IN_MS_FIELD_NUMBER = 9;
+      private long writeBehindDrainTimeInMs_;
+      /**
+       * <pre>
+       * The time in milliseconds spent at the end of the build waiting for the
+       * remaining background uploads.
+       * </pre>
+       *
+       * <code>int64 write_behind_drain_time_in_ms = 9;</code>
+       * @return The writeBehindDrainTimeInMs.
+       */
+      public long getWriteBehindDrainTimeInMs() {
+        return writeBehindDrainTimeInMs_;
+      }
+
+      private byte memoizedIsInitialized = -1;
+      @java.lang.Override
+      public final boolean isInitialized() {
+        byte isInitialized = memoizedIsInitialized;
+        if (isInitialized == 1) return true;
+        if (isInitialized == 0) return false;
+
+        memoizedIsInitialized = 1;
+        return true;
+      }
+
+      @java.lang.Override
+      public void writeTo(com.google.protobuf.CodedOutputStream output)
+                          throws java.io.IOException {
+        if (hits_ != 0L) {
+          output.writeInt64(1, hits_);
+        }
+        if (misses_ != 0L) {
+          output.writeInt64(2, misses_);
+        }
+        if (bytesEvicted_ != 0L) {
+          output.writeInt64(3, bytesEvicted_);
+        }
+        if (entriesEvicted_ != 0L) {
+          output.writeInt64(4, entriesEvicted_);
+        }
+        if (gcTimeInMs_ != 0L) {
+          output.writeInt64(5, gcTimeInMs_);
+        }
+        if (writeBehindUploads_ != 0L) {
+          output.writeInt64(6, writeBehindUploads_);
+        }
+        if (writeBehindMaxQueueDepth_ != 0L) {
+          output.writeInt64(7, writeBehindMaxQueueDepth_);
+        }
+        if (writeBehindMaxLagInMs_ != 0L) {
+          output.writeInt64(8, writeBehindMaxLagInMs_);
+        }
+        if (writeBehindDrainTimeInMs_ != 0L) {
+          output.writeInt64(9, writeBehindDrainTimeInMs_);
+        }
+        unknownFields.writeTo(output);
+      }
+
+      @java.lang.Override
+      public int getSerializedSize() {
+        int size = memoizedSize;
+        if (size != -1) return size;
+
+        size = 0;
+        if (hits_ != 0L) {
+          size += com.google.protobuf.CodedOutputStream
+            .computeInt64Size(1, hits_);
+        }
+        if (misses_ != 0L) {
+          size += com.google.protobuf.CodedOutputStream
+            .computeInt64Size(2, misses_);
+        }
+        if (bytesEvicted_ != 0L) {
+          size += com.google.protobuf.CodedOutputStream
+            .computeInt64Size(3, bytesEvicted_);
+        }
+        if (entriesEvicted_ != 0L) {
+          size += com.google.protobuf.CodedOutputStream
+            .computeInt64Size(4, entriesEvicted_);
+        }
+        if (gcTimeInMs_ != 0L) {
+          size += com.google.protobuf.CodedOutputStream
+            .computeInt64Size(5, gcTimeInMs_);
+        }
+        if (writeBehindUploads_ != 0L) {
+          size += com.google.protobuf.CodedOutputStream
+            .computeInt64Size(6, writeBehindUploads_);
+        }
+        if (writeBehindMaxQueueDepth_ != 0L) {
+          size += com.google.protobuf.CodedOutputStream
+            .computeInt64Size(7, writeBehindMaxQueueDepth_);
+        }
+        if (writeBehindMaxLagInMs_ != 0L) {
+          size += com.google.protobuf.CodedOutputStream
+            .computeInt64Size(8, writeBehindMaxLagInMs_);
+        }
+        if (writeBehindDrainTimeInMs_ != 0L) {
+          size += com.google.protobuf.CodedOutputStream
+            .computeInt64Size(9, writeBehindDrainTimeInMs_);
+        }
+        size += unknownFields.getSerializedSize();
+        memoizedSize = size;
+        return size;
+      }
+
+      @java.lang.Override
+      public boolean equals(final java.lang.Object obj) {
+        if (obj == this) {
+         return true;
+        }
+        if (!(obj instanceof com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics)) {
+          return super.equals(obj);
+        }
+        com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics other = (com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics) obj;
+
+        if (getHits()
+            != other.getHits()) return false;
+        if (getMisses()
+            != other.getMisses()) return false;
+        if (getBytesEvicted()
+            != other.getBytesEvicted()) return false;
+        if (getEntriesEvicted()
+            != other.getEntriesEvicted()) return false;
+        if (getGcTimeInMs()
+            != other.getGcTimeInMs()) return false;
+        if (getWriteBehindUploads()
+            != other.getWriteBehindUploads()) return false;
+        if (getWriteBehindMaxQueueDepth()
+            != other.getWriteBehindMaxQueueDepth()) return false;
+        if (getWriteBehindMaxLagInMs()
+            != other.getWriteBehindMaxLagInMs()) return false;
+        if (getWriteBehindDrainTimeInMs()
+            != other.getWriteBehindDrainTimeInMs()) return false;
+        if (!unknownFields.equals(other.unknownFields)) return false;
+        return true;
+      }
+
+      @java.lang.Override
+      public int hashCode() {
+        if (memoizedHashCode != 0) {
+          return memoizedHashCode;
+        }
+        int hash = 41;
+        hash = (19 * hash) + getDescriptor().hashCode();
+        hash = (37 * hash) + HITS_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+            getHits());
+        hash = (37 * hash) + MISSES_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+            getMisses());
+        hash = (37 * hash) + BYTES_EVICTED_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+            getBytesEvicted());
+        hash = (37 * hash) + ENTRIES_EVICTED_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+            getEntriesEvicted());
+        hash = (37 * hash) + GC_TIME_IN_MS_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+            getGcTimeInMs());
+        hash = (37 * hash) + WRITE_BEHIND_UPLOADS_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+            getWriteBehindUploads());
+        hash = (37 * hash) + WRITE_BEHIND_MAX_QUEUE_DEPTH_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+            getWriteBehindMaxQueueDepth());
+        hash = (37 * hash) + WRITE_BEHIND_MAX_LAG_IN_MS_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+            getWriteBehindMaxLagInMs());
+        hash = (37 * hash) + WRITE_BEHIND_DRAIN_TIME_IN_MS_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+            getWriteBehindDrainTimeInMs());
+        hash = (29 * hash) + unknownFields.hashCode();
+        memoizedHashCode = hash;
+        return hash;
+      }
+
+      public static com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics parseFrom(
+          java.nio.ByteBuffer data)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        return PARSER.parseFrom(data);
+      }
+      public static com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics parseFrom(
+          java.nio.ByteBuffer data,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        return PARSER.parseFrom(data, extensionRegistry);
+      }
+      public static com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics parseFrom(
+          com.google.protobuf.ByteString data)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        return PARSER.parseFrom(data);
+      }
+      public static com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics parseFrom(
+          com.google.protobuf.ByteString data,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        return PARSER.parseFrom(data, extensionRegistry);
+      }
+      public static com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics parseFrom(byte[] data)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        return PARSER.parseFrom(data);
+      }
+      public static com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics parseFrom(
+          byte[] data,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        return PARSER.parseFrom(data, extensionRegistry);
+      }
+      public static com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics parseFrom(java.io.InputStream input)
+          throws java.io.IOException {
+        return com.google.protobuf.GeneratedMessageV3
+            .parseWithIOException(PARSER, input);
+      }
+      public static com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics parseFrom(
+          java.io.InputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        return com.google.protobuf.GeneratedMessageV3
+            .parseWithIOException(PARSER, input, extensionRegistry);
+      }
+      public static com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics parseDelimitedFrom(java.io.InputStream input)
+          throws java.io.IOException {
+        return com.google.protobuf.GeneratedMessageV3
+            .parseDelimitedWithIOException(PARSER, input);
+      }
+      public static com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics parseDelimitedFrom(
+          java.io.InputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        return com.google.protobuf.GeneratedMessageV3
+            .parseDelimitedWithIOException(PARSER, input, extensionRegistry);
+      }
+      public static com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics parseFrom(
+          com.google.protobuf.CodedInputStream input)
+          throws java.io.IOException {
+        return com.google.protobuf.GeneratedMessageV3
+            .parseWithIOException(PARSER, input);
+      }
+      public static com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics parseFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        return com.google.protobuf.GeneratedMessageV3
+            .parseWithIOException(PARSER, input, extensionRegistry);
+      }
+
+      @java.lang.Override
+      public Builder newBuilderForType() { return newBuilder(); }
+      public static Builder newBuilder() {
+        return DEFAULT_INSTANCE.toBuilder();
+      }
+      public static Builder newBuilder(com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics prototype) {
+        return DEFAULT_INSTANCE.toBuilder().mergeFrom(prototype);
+      }
+      @java.lang.Override
+      public Builder toBuilder() {
+        return this == DEFAULT_INSTANCE
+            ? new Builder() : new Builder().mergeFrom(this);
+      }
+
+      @java.lang.Override
+      protected Builder newBuilderForType(
+          com.google.protobuf.GeneratedMessageV3.BuilderParent parent) {
+        Builder builder = new Builder(parent);
+        return builder;
+      }
+      /**
+       * Protobuf type {@code build_event_stream.BuildMetrics.DiskCacheMetrics}
+       */
+      public static final class Builder extends
+          com.google.protobuf.GeneratedMessageV3.Builder<Builder> implements
+          // @@protoc_insertion_point(builder_implements:build_event_stream.BuildMetrics.DiskCacheMetrics)
+          com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetricsOrBuilder {
+        public static final com.google.protobuf.Descriptors.Descriptor
+            getDescriptor() {
+          return com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.internal_static_build_event_stream_BuildMetrics_DiskCacheMetrics_descriptor;
+        }
+
+        @java.lang.Override
+        protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+            internalGetFieldAccessorTable() {
+          return com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.internal_static_build_event_stream_BuildMetrics_DiskCacheMetrics_fieldAccessorTable
+              .ensureFieldAccessorsInitialized(
+                  com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics.class, com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics.Builder.class);
+        }
+
+        // Construct using com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics.newBuilder()
+        private Builder() {
+          maybeForceBuilderInitialization();
+        }
+
+        private Builder(
+            com.google.protobuf.GeneratedMessageV3.BuilderParent parent) {
+          super(parent);
+          maybeForceBuilderInitialization();
+        }
+        private void maybeForceBuilderInitialization() {
+          if (com.google.protobuf.GeneratedMessageV3
+                  .alwaysUseFieldBuilders) {
+          }
+        }
+        @java.lang.Override
+        public Builder clear() {
+          super.clear();
+          hits_ = 0L;
+
+          misses_ = 0L;
+
+          bytesEvicted_ = 0L;
+
+          entriesEvicted_ = 0L;
+
+          gcTimeInMs_ = 0L;
+
+          writeBehindUploads_ = 0L;
+
+          writeBehindMaxQueueDepth_ = 0L;
+
+          writeBehindMaxLagInMs_ = 0L;
+
+          writeBehindDrainTimeInMs_ = 0L;
+
+          return this;
+        }
+
+        @java.lang.Override
+        public com.google.protobuf.Descriptors.Descriptor
+            getDescriptorForType() {
+          return com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.internal_static_build_event_stream_BuildMetrics_DiskCacheMetrics_descriptor;
+        }
+
+        @java.lang.Override
+        public com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics getDefaultInstanceForType() {
+          return com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics.getDefaultInstance();
+        }
+
+        @java.lang.Override
+        public com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics build() {
+          com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics result = buildPartial();
+          if (!result.isInitialized()) {
+            throw newUninitializedMessageException(result);
+          }
+          return result;
+        }
+
+        @java.lang.Override
+        public com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics buildPartial() {
+          com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics result = new com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics(this);
+          result.hits_ = hits_;
+          result.misses_ = misses_;
+          result.bytesEvicted_ = bytesEvicted_;
+          result.entriesEvicted_ = entriesEvicted_;
+          result.gcTimeInMs_ = gcTimeInMs_;
+          result.writeBehindUploads_ = writeBehindUploads_;
+          result.writeBehindMaxQueueDepth_ = writeBehindMaxQueueDepth_;
+          result.writeBehindMaxLagInMs_ = writeBehindMaxLagInMs_;
+          result.writeBehindDrainTimeInMs_ = writeBehindDrainTimeInMs_;
+          onBuilt();
+          return result;
+        }
+
+        @java.lang.Override
+        public Builder clone() {
+          return super.clone();
+        }
+        @java.lang.Override
+        public Builder setField(
+            com.google.protobuf.Descriptors.FieldDescriptor field,
+            java.lang.Object value) {
+          return super.setField(field, value);
+        }
+        @java.lang.Override
+        public Builder clearField(
+            com.google.protobuf.Descriptors.FieldDescriptor field) {
+          return super.clearField(field);
+        }
+        @java.lang.Override
+        public Builder clearOneof(
+            com.google.protobuf.Descriptors.OneofDescriptor oneof) {
+          return super.clearOneof(oneof);
+        }
+        @java.lang.Override
+        public Builder setRepeatedField(
+            com.google.protobuf.Descriptors.FieldDescriptor field,
+            int index, java.lang.Object value) {
+          return super.setRepeatedField(field, index, value);
+        }
+        @java.lang.Override
+        public Builder addRepeatedField(
+            com.google.protobuf.Descriptors.FieldDescriptor field,
+            java.lang.Object value) {
+          return super.addRepeatedField(field, value);
+        }
+        @java.lang.Override
+        public Builder mergeFrom(com.google.protobuf.Message other) {
+          if (other instanceof com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics) {
+            return mergeFrom((com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics)other);
+          } else {
+            super.mergeFrom(other);
+            return this;
+          }
+        }
+
+        public Builder mergeFrom(com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics other) {
+          if (other == com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics.getDefaultInstance()) return this;
+          if (other.getHits() != 0L) {
+            setHits(other.getHits());
+          }
+          if (other.getMisses() != 0L) {
+            setMisses(other.getMisses());
+          }
+          if (other.getBytesEvicted() != 0L) {
+            setBytesEvicted(other.getBytesEvicted());
+          }
+          if (other.getEntriesEvicted() != 0L) {
+            setEntriesEvicted(other.getEntriesEvicted());
+          }
+          if (other.getGcTimeInMs() != 0L) {
+            setGcTimeInMs(other.getGcTimeInMs());
+          }
+          if (other.getWriteBehindUploads() != 0L) {
+            setWriteBehindUploads(other.getWriteBehindUploads());
+          }
+          if (other.getWriteBehindMaxQueueDepth() != 0L) {
+            setWriteBehindMaxQueueDepth(other.getWriteBehindMaxQueueDepth());
+          }
+          if (other.getWriteBehindMaxLagInMs() != 0L) {
+            setWriteBehindMaxLagInMs(other.getWriteBehindMaxLagInMs());
+          }
+          if (other.getWriteBehindDrainTimeInMs() != 0L) {
+            setWriteBehindDrainTimeInMs(other.getWriteBehindDrainTimeInMs());
+          }
+          this.mergeUnknownFields(other.unknownFields);
+          onChanged();
+          return this;
+        }
+
+        @java.lang.Override
+        public final boolean isInitialized() {
+          return true;
+        }
+
+        @java.lang.Override
+        public Builder mergeFrom(
+            com.google.protobuf.CodedInputStream input,
+            com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws java.io.IOException {
+          com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics parsedMessage = null;
+          try {
+            parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+          } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+            parsedMessage = (com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics) e.getUnfinishedMessage();
+            throw e.unwrapIOException();
+          } finally {
+            if (parsedMessage != null) {
+              mergeFrom(parsedMessage);
+            }
+          }
+          return this;
+        }
+
+        private long hits_ ;
+        /**
+         * <pre>
+         * Number of lookups that found an entry in the --disk_cache.
+         * </pre>
+         *
+         * <code>int64 hits = 1;</code>
+         * @return The hits.
+         */
+        public long getHits() {
+          return hits_;
+        }
+        /**
+         * <pre>
+         * Number of lookups that found an entry in the --disk_cache.
+         * </pre>
+         *
+         * <code>int64 hits = 1;</code>
+         * @param value The hits to set.
+         * @return This builder for chaining.
+         */
+        public Builder setHits(long value) {
+          
+          hits_ = value;
+          onChanged();
+          return this;
+        }
+        /**
+         * <pre>
+         * Number of lookups that found an entry in the --disk_cache.
+         * </pre>
+         *
+         * <code>int64 hits = 1;</code>
+         * @return This builder for chaining.
+         */
+        public Builder clearHits() {
+          
+          hits_ = 0L;
+          onChanged();
+          return this;
+        }
+
+        private long misses_ ;
+        /**
+         * <pre>
+         * Number of lookups that didn't find an entry in the --disk_cache.
+         * </pre>
+         *
+         * <code>int64 misses = 2;</code>
+         * @return The misses.
+         */
+        public long getMisses() {
+          return misses_;
+        }
+        /**
+         * <pre>
+         * Number of lookups that didn't find an entry in the --disk_cache.
+         * </pre>
+         *
+         * <code>int64 misses = 2;</code>
+         * @param value The misses to set.
+         * @return This builder for chaining.
+         */
+        public Builder setMisses(long value) {
+          
+          misses_ = value;
+          onChanged();
+          return this;
+        }
+        /**
+         * <pre>
+         * Number of lookups that didn't find an entry in the --disk_cache.
+         * </pre>
+         *
+         * <code>int64 misses = 2;</code>
+         * @return This builder for chaining.
+         */
+        public Builder clearMisses() {
+          
+          misses_ = 0L;
+          onChanged();
+          return this;
+        }
+
+        private long bytesEvicted_ ;
+        /**
+         * <pre>
+         * Number of bytes deleted from the --disk_cache by its garbage collector
+         * because the cache grew beyond --experimental_disk_cache_max_size.
+         * </pre>
+         *
+         * <code>int64 bytes_evicted = 3;</code>
+         * @return The bytesEvicted.
+         */
+        public long getBytesEvicted() {
+          return bytesEvicted_;
+        }
+        /**
+         * <pre>
+         * Number of bytes deleted from the --disk_cache by its garbage collector
+         * because the cache grew beyond --experimental_disk_cache_max_size.
+         * </pre>
+         *
+         * <code>int64 bytes_evicted = 3;</code>
+         * @param value The bytesEvicted to set.
+         * @return This builder for chaining.
+         */
+        public Builder setBytesEvicted(long value) {
+          
+          bytesEvicted_ = value;
+          onChanged();
+          return this;
+        }
+        /**
+         * <pre>
+         * Number of bytes deleted from the --disk_cache by its garbage collector
+         * because the cache grew beyond --experimental_disk_cache_max_size.
+         * </pre>
+         *
+         * <code>int64 bytes_evicted = 3;</code>
+         * @return This builder for chaining.
+         */
+        public Builder clearBytesEvicted() {
+          
+          bytesEvicted_ = 0L;
+          onChanged();
+          return this;
+        }
+
+        private long entriesEvicted_ ;
+        /**
+         * <pre>
+         * Number of entries deleted from the --disk_cache by its garbage collector.
+         * </pre>
+         *
+         * <code>int64 entries_evicted = 4;</code>
+         * @return The entriesEvicted.
+         */
+        public long getEntriesEvicted() {
+          return entriesEvicted_;
+        }
+        /**
+         * <pre>
+         * Number of entries deleted from the --disk_cache by its garbage collector.
+         * </pre>
+         *
+         * <code>int64 entries_evicted = 4;</code>
+         * @param value The entriesEvicted to set.
+         * @return This builder for chaining.
+         */
+        public Builder setEntriesEvicted(long value) {
+          
+          entriesEvicted_ = value;
+          onChanged();
+          return this;
+        }
+        /**
+         * <pre>
+         * Number of entries deleted from the --disk_cache by its garbage collector.
+         * </pre>
+         *
+         * <code>int64 entries_evicted = 4;</code>
+         * @return This builder for chaining.
+         */
+        public Builder clearEntriesEvicted() {
+          
+          entriesEvicted_ = 0L;
+          onChanged();
+          return this;
+        }
+
+        private long gcTimeInMs_ ;
+        /**
+         * <pre>
+         * The time in milliseconds spent by the garbage collector of the
+         * --disk_cache. Garbage collection runs in the background, so this time
+         * doesn't necessarily add to the wall time of the build.
+         * </pre>
+         *
+         * <code>int64 gc_time_in_ms = 5;</code>
+         * @return The gcTimeInMs.
+         */
+        public long getGcTimeInMs() {
+          return gcTimeInMs_;
+        }
+        /**
+         * <pre>
+         * The time in milliseconds spent by the garbage collector of the
+         * --disk_cache. Garbage collection runs in the background, so this time
+         * doesn't necessarily add to the wall time of the build.
+         * </pre>
+         *
+         * <code>int64 gc_time_in_ms = 5;</code>
+         * @param value The gcTimeInMs to set.
+         * @return This builder for chaining.
+         */
+        public Builder setGcTimeInMs(long value) {
+          
+          gcTimeInMs_ = value;
+          onChanged();
+          return this;
+        }
+        /**
+         * <pre>
+         * The time in milliseconds spent by the garbage collector of the
+         * --disk_cache. Garbage collection runs in the background, so this time
+         * doesn't necessarily add to the wall time of the build.
+         * </pre>
+         *
+         * <code>int64 gc_time_in_ms = 5;</code>
+         * @return This builder for chaining.
+         */
+        public Builder clearGcTimeInMs() {
+          
+          gcTimeInMs_ = 0L;
+          onChanged();
+          return this;
+        }
+
+        private long writeBehindUploads_ ;
+        /**
+         * <pre>
+         * Number of uploads to the remote cache that ran in the background with
+         * --experimental_disk_cache_write_behind_queue_size.
+         * </pre>
+         *
+         * <code>int64 write_behind_uploads = 6;</code>
+         * @return The writeBehindUploads.
+         */
+        public long getWriteBehindUploads() {
+          return writeBehindUploads_;
+        }
+        /**
+         * <pre>
+         * Number of uploads to the remote cache that ran in the background with
+         * --experimental_disk_cache_write_behind_queue_size.
+         * </pre>
+         *
+         * <code>int64 write_behind_uploads = 6;</code>
+         * @param value The writeBehindUploads to set.
+         * @return This builder for chaining.
+         */
+        public Builder setWriteBehindUploads(long value) {
+          
+          writeBehindUploads_ = value;
+          onChanged();
+          return this;
+        }
+        /**
+         * <pre>
+         * Number of uploads to the remote cache that ran in the background with
+         * --experimental_disk_cache_write_behind_queue_size.
+         * </pre>
+         *
+         * <code>int64 write_behind_uploads = 6;</code>
+         * @return This builder for chaining.
+         */
+        public Builder clearWriteBehindUploads() {
+          
+          writeBehindUploads_ = 0L;
+          onChanged();
+          return this;
+        }
+
+        private long writeBehindMaxQueueDepth_ ;
+        /**
+         * <pre>
+         * The largest number of background uploads that were queued or in
+         * progress at the same time.
+         * </pre>
+         *
+         * <code>int64 write_behind_max_queue_depth = 7;</code>
+         * @return The writeBehindMaxQueueDepth.
+         */
+        public long getWriteBehindMaxQueueDepth() {
+          return writeBehindMaxQueueDepth_;
+        }
+        /**
+         * <pre>
+         * The largest number of background uploads that were queued or in
+         * progress at the same time.
+         * </pre>
+         *
+         * <code>int64 write_behind_max_queue_depth = 7;</code>
+         * @param value The writeBehindMaxQueueDepth to set.
+         * @return This builder for chaining.
+         */
+        public Builder setWriteBehindMaxQueueDepth(long value) {
+          
+          writeBehindMaxQueueDepth_ = value;
+          onChanged();
+          return this;
+        }
+        /**
+         * <pre>
+         * The largest number of background uploads that were queued or in
+         * progress at the same time.
+         * </pre>
+         *
+         * <code>int64 write_behind_max_queue_depth = 7;</code>
+         * @return This builder for chaining.
+         */
+        public Builder clearWriteBehindMaxQueueDepth() {
+          
+          writeBehindMaxQueueDepth_ = 0L;
+          onChanged();
+          return this;
+        }
+
+        private long writeBehindMaxLagInMs_ ;
+        /**
+         * <pre>
+         * The longest time in milliseconds between queueing a background upload
+         * and its completion.
+         * </pre>
+         *
+         * <code>int64 write_behind_max_lag_in_ms = 8;</code>
+         * @return The writeBehindMaxLagInMs.
+         */
+        public long getWriteBehindMaxLagInMs() {
+          return writeBehindMaxLagInMs_;
+        }
+        /**
+         * <pre>
+         * The longest time in milliseconds between queueing a background upload
+         * and its completion.
+         * </pre>
+         *
+         * <code>int64 write_behind_max_lag_in_ms = 8;</code>
+         * @param value The writeBehindMaxLagInMs to set.
+         * @return This builder for chaining.
+         */
+        public Builder setWriteBehindMaxLagInMs(long value) {
+          
+          writeBehindMaxLagInMs_ = value;
+          onChanged();
+          return this;
+        }
+        /**
+         * <pre>
+         * The longest time in milliseconds between queueing a background upload
+         * and its completion.
+         * </pre>
+         *
+         * <code>int64 write_behind_max_lag_in_ms = 8;</code>
+         * @return This builder for chaining.
+         */
+        public Builder clearWriteBehindMaxLagInMs() {
+          
+          writeBehindMaxLagInMs_ = 0L;
+          onChanged();
+          return this;
+        }
+
+        private long writeBehindDrainTimeInMs_ ;
+        /**
+         * <pre>
+         * The time in milliseconds spent at the end of the build waiting for the
+         * remaining background uploads.
+         * </pre>
+         *
+         * <code>int64 write_behind_drain_time_in_ms = 9;</code>
+         * @return The writeBehindDrainTimeInMs.
+         */
+        public long getWriteBehindDrainTimeInMs() {
+          return writeBehindDrainTimeInMs_;
+        }
+        /**
+         * <pre>
+         * The time in milliseconds spent at the end of the build waiting for the
+         * remaining background uploads.
+         * </pre>
+         *
+         * <code>int64 write_behind_drain_time_in_ms = 9;</code>
+         * @param value The writeBehindDrainTimeInMs to set.
+         * @return This builder for chaining.
+         */
+        public Builder setWriteBehindDrainTimeInMs(long value) {
+          
+          writeBehindDrainTimeInMs_ = value;
+          onChanged();
+          return this;
+        }
+        /**
+         * <pre>
+         * The time in milliseconds spent at the end of the build waiting for the
+         * remaining background uploads.
+         * </pre>
+         *
+         * <code>int64 write_behind_drain_time_in_ms = 9;</code>
+         * @return This builder for chaining.
+         */
+        public Builder clearWriteBehindDrainTimeInMs() {
+          
+          writeBehindDrainTimeInMs_ = 0L;
+          onChanged();
+          return this;
+        }
+        @java.lang.Override
+        public final Builder setUnknownFields(
+            final com.google.protobuf.UnknownFieldSet unknownFields) {
+          return super.setUnknownFields(unknownFields);
+        }
+
+        @java.lang.Override
+        public final Builder mergeUnknownFields(
+            final com.google.protobuf.UnknownFieldSet unknownFields) {
+          return super.mergeUnknownFields(unknownFields);
+        }
+
+
+        // @@protoc_insertion_point(builder_scope:build_event_stream.BuildMetrics.DiskCacheMetrics)
+      }
+
+      // @@protoc_insertion_point(class_scope:build_event_stream.BuildMetrics.DiskCacheMetrics)
+      private static final com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics DEFAULT_INSTANCE;
+      static {
+        DEFAULT_INSTANCE = new com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics();
+      }
+
+      public static com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics getDefaultInstance() {
+        return DEFAULT_INSTANCE;
+      }
+
+      private static final com.google.protobuf.Parser<DiskCacheMetrics>
+          PARSER = new com.google.protobuf.AbstractParser<DiskCacheMetrics>() {
+        @java.lang.Override
+        public DiskCacheMetrics parsePartialFrom(
+            com.google.protobuf.CodedInputStream input,
+            com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws com.google.protobuf.InvalidProtocolBufferException {
+          return new DiskCacheMetrics(input, extensionRegistry);
+        }
+      };
+
+      public static com.google.protobuf.Parser<DiskCacheMetrics> parser() {
+        return PARSER;
+      }
+
+      @java.lang.Override
+      public com.google.protobuf.Parser<DiskCacheMetrics> getParserForType() {
+        return PARSER;
+      }
+
+      @java.lang.Override
+      public com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics getDefaultInstanceForType() {
+        return DEFAULT_INSTANCE;
+      }
+
+    }
+
+    public interface ActionResultCacheMetricsOrBuilder extends
+        // @@protoc_insertion_point(interface_extends:build_event_stream.BuildMetrics.ActionResultCacheMetrics)
+        com.google.protobuf.MessageOrBuilder {
+
+      /**
+       * <pre>
+       * Number of action cache lookups that were answered from memory.
+       * </pre>
+       *
+       * <code>int64 hits = 1;</code>
+       * @return The hits.
+       */
+      long getHits();
+
+      /**
+       * <pre>
+       * Number of action cache lookups that went to the remote cache.
+       * </pre>
+       *
+       * <code>int64 misses = 2;</code>
+       * @return The misses.
+       */
+      long getMisses();
+
+      /**
+       * <pre>
+       * Number of remembered results whose outputs were checked to still be in
+       * the remote cache before they were used.
+       * </pre>
+       *
+       * <code>int64 validations = 3;</code>
+       * @return The validations.
+       */
+      long getValidations();
+    }
+    /**
+     * Protobuf type {@code build_event_stream.BuildMetrics.ActionResultCacheMetrics}
+     */
+    public  static final class ActionResultCacheMetrics extends
+        com.google.protobuf.GeneratedMessageV3 implements
+        // @@protoc_insertion_point(message_implements:build_event_stream.BuildMetrics.ActionResultCacheMetrics)
+        ActionResultCacheMetricsOrBuilder {
+    private static final long serialVersionUID = 0L;
+      // Use ActionResultCacheMetrics.newBuilder() to construct.
+      private ActionResultCacheMetrics(com.google.protobuf.GeneratedMessageV3.Builder<?> builder) {
+        super(builder);
+      }
+      private ActionResultCacheMetrics() {
+      }
+
+      @java.lang.Override
+      @SuppressWarnings({"unused"})
+      protected java.lang.Object newInstance(
+          UnusedPrivateParameter unused) {
+        return new ActionResultCacheMetrics();
+      }
+
+      @java.lang.Override
+      public final com.google.protobuf.UnknownFieldSet
+      getUnknownFields() {
+        return this.unknownFields;
+      }
+      private ActionResultCacheMetrics(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        this();
+        if (extensionRegistry == null) {
+          throw new java.lang.NullPointerException();
+        }
+        com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+            com.google.protobuf.UnknownFieldSet.newBuilder();
+        try {
+          boolean done = false;
+          while (!done) {
+            int tag = input.readTag();
+            switch (tag) {
+              case 0:
+                done = true;
+                break;
+              case 8: {
+
+                hits_ = input.readInt64();
+                break;
+              }
+              case 16: {
+
+                misses_ = input.readInt64();
+                break;
+              }
+              case 24: {
+
+                validations_ = input.readInt64();
+                break;
+              }
+              default: {
+                if (!parseUnknownField(
+                    input, unknownFields, extensionRegistry, tag)) {
+                  done = true;
+                }
+                break;
+              }
+            }
+          }
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          throw e.setUnfinishedMessage(this);
+        } catch (java.io.IOException e) {
+          throw new com.google.protobuf.InvalidProtocolBufferException(
+              e).setUnfinishedMessage(this);
+        } finally {
+          this.unknownFields = unknownFields.build();
+          makeExtensionsImmutable();
+        }
+      }
+      public static final com.google.protobuf.Descriptors.Descriptor
+          getDescriptor() {
+        return com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.internal_static_build_event_stream_BuildMetrics_ActionResultCacheMetrics_descriptor;
+      }
+
+      @java.lang.Override
+      protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+          internalGetFieldAccessorTable() {
+        return com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.internal_static_build_event_stream_BuildMetrics_ActionResultCacheMetrics_fieldAccessorTable
+            .ensureFieldAccessorsInitialized(
+                com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics.class, com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics.Builder.class);
+      }
+
+      public static final int HITS_FIELD_NUMBER = 1;
+      private long hits_;
+      /**
+       * <pre>
+       * Number of action cache lookups that were answered from memory.
+       * </pre>
+       *
+       * <code>int64 hits = 1;</code>
+       * @return The hits.
+       */
+      public long getHits() {
+        return hits_;
+      }
+
+      public static final int MISSES_FIELD_NUMBER = 2;
+      private long misses_;
+      /**
+       * <pre>
+       * Number of action cache lookups that went to the remote cache.
+       * </pre>
+       *
+       * <code>int64 misses = 2;</code>
+       * @return The misses.
+       */
+      public long getMisses() {
+        return misses_;
+      }
+
+      public static final int VALIDATIONS_FIELD_NUMBER = 3;
+      private long validations_;
+      /**
+       * <pre>
+       * Number of remembered results whose outputs were checked to still be in
+       * the remote cache before they were used.
+       * </pre>
+       *
+       * <code>int64 validations = 3;</code>
+       * @return The validations.
+       */
+      public long getValidations() {
+        return validations_;
+      }
+
+      private byte memoizedIsInitialized = -1;
+      @java.lang.Override
+      public final boolean isInitialized() {
+        byte isInitialized = memoizedIsInitialized;
+        if (isInitialized == 1) return true;
+        if (isInitialized == 0) return false;
+
+        memoizedIsInitialized = 1;
+        return true;
+      }
+
+      @java.lang.Override
+      public void writeTo(com.google.protobuf.CodedOutputStream output)
+                          throws java.io.IOException {
+        if (hits_ != 0L) {
+          output.writeInt64(1, hits_);
+        }
+        if (misses_ != 0L) {
+          output.writeInt64(2, misses_);
+        }
+        if (validations_ != 0L) {
+          output.writeInt64(3, validations_);
+        }
+        unknownFields.writeTo(output);
+      }
+
+      @java.lang.Override
+      public int getSerializedSize() {
+        int size = memoizedSize;
+        if (size != -1) return size;
+
+        size = 0;
+        if (hits_ != 0L) {
+          size += com.google.protobuf.CodedOutputStream
+            .computeInt64Size(1, hits_);
+        }
+        if (misses_ != 0L) {
+          size += com.google.protobuf.CodedOutputStream
+            .computeInt64Size(2, misses_);
+        }
+        if (validations_ != 0L) {
+          size += com.google.protobuf.CodedOutputStream
+            .computeInt64Size(3, validations_);
+        }
+        size += unknownFields.getSerializedSize();
+        memoizedSize = size;
+        return size;
+      }
+
+      @java.lang.Override
+      public boolean equals(final java.lang.Object obj) {
+        if (obj == this) {
+         return true;
+        }
+        if (!(obj instanceof com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics)) {
+          return super.equals(obj);
+        }
+        com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics other = (com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics) obj;
+
+        if (getHits()
+            != other.getHits()) return false;
+        if (getMisses()
+            != other.getMisses()) return false;
+        if (getValidations()
+            != other.getValidations()) return false;
+        if (!unknownFields.equals(other.unknownFields)) return false;
+        return true;
+      }
+
+      @java.lang.Override
+      public int hashCode() {
+        if (memoizedHashCode != 0) {
+          return memoizedHashCode;
+        }
+        int hash = 41;
+        hash = (19 * hash) + getDescriptor().hashCode();
+        hash = (37 * hash) + HITS_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+            getHits());
+        hash = (37 * hash) + MISSES_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+            getMisses());
+        hash = (37 * hash) + VALIDATIONS_FIELD_NUMBER;
+        hash = (53 * hash) + com.google.protobuf.Internal.hashLong(
+            getValidations());
+        hash = (29 * hash) + unknownFields.hashCode();
+        memoizedHashCode = hash;
+        return hash;
+      }
+
+      public static com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics parseFrom(
+          java.nio.ByteBuffer data)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        return PARSER.parseFrom(data);
+      }
+      public static com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics parseFrom(
+          java.nio.ByteBuffer data,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        return PARSER.parseFrom(data, extensionRegistry);
+      }
+      public static com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics parseFrom(
+          com.google.protobuf.ByteString data)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        return PARSER.parseFrom(data);
+      }
+      public static com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics parseFrom(
+          com.google.protobuf.ByteString data,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        return PARSER.parseFrom(data, extensionRegistry);
+      }
+      public static com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics parseFrom(byte[] data)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        return PARSER.parseFrom(data);
+      }
+      public static com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics parseFrom(
+          byte[] data,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        return PARSER.parseFrom(data, extensionRegistry);
+      }
+      public static com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics parseFrom(java.io.InputStream input)
+          throws java.io.IOException {
+        return com.google.protobuf.GeneratedMessageV3
+            .parseWithIOException(PARSER, input);
+      }
+      public static com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics parseFrom(
+          java.io.InputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        return com.google.protobuf.GeneratedMessageV3
+            .parseWithIOException(PARSER, input, extensionRegistry);
+      }
+      public static com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics parseDelimitedFrom(java.io.InputStream input)
+          throws java.io.IOException {
+        return com.google.protobuf.GeneratedMessageV3
+            .parseDelimitedWithIOException(PARSER, input);
+      }
+      public static com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics parseDelimitedFrom(
+          java.io.InputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        return com.google.protobuf.GeneratedMessageV3
+            .parseDelimitedWithIOException(PARSER, input, extensionRegistry);
+      }
+      public static com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics parseFrom(
+          com.google.protobuf.CodedInputStream input)
+          throws java.io.IOException {
+        return com.google.protobuf.GeneratedMessageV3
+            .parseWithIOException(PARSER, input);
+      }
+      public static com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics parseFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        return com.google.protobuf.GeneratedMessageV3
+            .parseWithIOException(PARSER, input, extensionRegistry);
+      }
+
+      @java.lang.Override
+      public Builder newBuilderForType() { return newBuilder(); }
+      public static Builder newBuilder() {
+        return DEFAULT_INSTANCE.toBuilder();
+      }
+      public static Builder newBuilder(com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics prototype) {
+        return DEFAULT_INSTANCE.toBuilder().mergeFrom(prototype);
+      }
+      @java.lang.Override
+      public Builder toBuilder() {
+        return this == DEFAULT_INSTANCE
+            ? new Builder() : new Builder().mergeFrom(this);
+      }
+
+      @java.lang.Override
+      protected Builder newBuilderForType(
+          com.google.protobuf.GeneratedMessageV3.BuilderParent parent) {
+        Builder builder = new Builder(parent);
+        return builder;
+      }
+      /**
+       * Protobuf type {@code build_event_stream.BuildMetrics.ActionResultCacheMetrics}
+       */
+      public static final class Builder extends
+          com.google.protobuf.GeneratedMessageV3.Builder<Builder> implements
+          // @@protoc_insertion_point(builder_implements:build_event_stream.BuildMetrics.ActionResultCacheMetrics)
+          com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetricsOrBuilder {
+        public static final com.google.protobuf.Descriptors.Descriptor
+            getDescriptor() {
+          return com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.internal_static_build_event_stream_BuildMetrics_ActionResultCacheMetrics_descriptor;
+        }
+
+        @java.lang.Override
+        protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+            internalGetFieldAccessorTable() {
+          return com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.internal_static_build_event_stream_BuildMetrics_ActionResultCacheMetrics_fieldAccessorTable
+              .ensureFieldAccessorsInitialized(
+                  com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics.class, com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics.Builder.class);
+        }
+
+        // Construct using com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics.newBuilder()
+        private Builder() {
+          maybeForceBuilderInitialization();
+        }
+
+        private Builder(
+            com.google.protobuf.GeneratedMessageV3.BuilderParent parent) {
+          super(parent);
+          maybeForceBuilderInitialization();
+        }
+        private void maybeForceBuilderInitialization() {
+          if (com.google.protobuf.GeneratedMessageV3
+                  .alwaysUseFieldBuilders) {
+          }
+        }
+        @java.lang.Override
+        public Builder clear() {
+          super.clear();
+          hits_ = 0L;
+
+          misses_ = 0L;
+
+          validations_ = 0L;
+
+          return this;
+        }
+
+        @java.lang.Override
+        public com.google.protobuf.Descriptors.Descriptor
+            getDescriptorForType() {
+          return com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.internal_static_build_event_stream_BuildMetrics_ActionResultCacheMetrics_descriptor;
+        }
+
+        @java.lang.Override
+        public com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics getDefaultInstanceForType() {
+          return com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics.getDefaultInstance();
+        }
+
+        @java.lang.Override
+        public com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics build() {
+          com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics result = buildPartial();
+          if (!result.isInitialized()) {
+            throw newUninitializedMessageException(result);
+          }
+          return result;
+        }
+
+        @java.lang.Override
+        public com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics buildPartial() {
+          com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics result = new com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics(this);
+          result.hits_ = hits_;
+          result.misses_ = misses_;
+          result.validations_ = validations_;
+          onBuilt();
+          return result;
+        }
+
+        @java.lang.Override
+        public Builder clone() {
+          return super.clone();
+        }
+        @java.lang.Override
+        public Builder setField(
+            com.google.protobuf.Descriptors.FieldDescriptor field,
+            java.lang.Object value) {
+          return super.setField(field, value);
+        }
+        @java.lang.Override
+        public Builder clearField(
+            com.google.protobuf.Descriptors.FieldDescriptor field) {
+          return super.clearField(field);
+        }
+        @java.lang.Override
+        public Builder clearOneof(
+            com.google.protobuf.Descriptors.OneofDescriptor oneof) {
+          return super.clearOneof(oneof);
+        }
+        @java.lang.Override
+        public Builder setRepeatedField(
+            com.google.protobuf.Descriptors.FieldDescriptor field,
+            int index, java.lang.Object value) {
+          return super.setRepeatedField(field, index, value);
+        }
+        @java.lang.Override
+        public Builder addRepeatedField(
+            com.google.protobuf.Descriptors.FieldDescriptor field,
+            java.lang.Object value) {
+          return super.addRepeatedField(field, value);
+        }
+        @java.lang.Override
+        public Builder mergeFrom(com.google.protobuf.Message other) {
+          if (other instanceof com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics) {
+            return mergeFrom((com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics)other);
+          } else {
+            super.mergeFrom(other);
+            return this;
+          }
+        }
+
+        public Builder mergeFrom(com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics other) {
+          if (other == com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics.getDefaultInstance()) return this;
+          if (other.getHits() != 0L) {
+            setHits(other.getHits());
+          }
+          if (other.getMisses() != 0L) {
+            setMisses(other.getMisses());
+          }
+          if (other.getValidations() != 0L) {
+            setValidations(other.getValidations());
+          }
+          this.mergeUnknownFields(other.unknownFields);
+          onChanged();
+          return this;
+        }
+
+        @java.lang.Override
+        public final boolean isInitialized() {
+          return true;
+        }
+
+        @java.lang.Override
+        public Builder mergeFrom(
+            com.google.protobuf.CodedInputStream input,
+            com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+            throws java.io.IOException {
+          com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics parsedMessage = null;
+          try {
+            parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+          } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+            parsedMessage = (com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics) e.getUnfinishedMessage();
+            throw e.unwrapIOException();
+          } finally {
+            if (parsedMessage != null) {
+              mergeFrom(parsedMessage);
+            }
+          }
+          return this;
+        }
+
+        private long hits_ ;
+        /**
+         * <pre>
+         * Number of action cache lookups that were answered from memory.
+         * </pre>
+         *
+         * <code>int64 hits = 1;</code>
+         * @return The hits.
+         */
+        public long getHits() {
+          return hits_;
+        }
+        /**
+         * <pre>
+         * Number of action cache lookups that were answered from memory.
+         * </pre>
+         *
+         * <code>int64 hits = 1;</code>
+         * @param value The hits to set.
+         * @return This builder for chaining.
+         */
+        public Builder setHits(long value) {
+          
+          hits_ = value;
+          onChanged();
+          return this;
+        }
+        /**
+         * <pre>
+         * Number of action cache lookups that were answered from memory.
+         * </pre>
+         *
+         * <code>int64 hits = 1;</code>
+         * @return This builder for chaining.
+         */
+        public Builder clearHits() {
+          
+          hits_ = 0L;
+          onChanged();
+          return this;
+        }
+
+        private long misses_ ;
+        /**
+         * <pre>
+         * Number of action cache lookups that went to the remote cache.
+         * </pre>
+         *
+         * <code>int64 misses = 2;</code>
+         * @return The misses.
+         */
+        public long getMisses() {
+          return misses_;
+        }
+        /**
+         * <pre>
+         * Number of action cache lookups that went to the remote cache.
+         * </pre>
+         *
+         * <code>int64 misses = 2;</code>
+         * @param value The misses to set.
+         * @return This builder for chaining.
+         */
+        public Builder setMisses(long value) {
+          
+          misses_ = value;
+          onChanged();
+          return this;
+        }
+        /**
+         * <pre>
+         * Number of action cache lookups that went to the remote cache.
+         * </pre>
+         *
+         * <code>int64 misses = 2;</code>
+         * @return This builder for chaining.
+         */
+        public Builder clearMisses() {
+          
+          misses_ = 0L;
+          onChanged();
+          return this;
+        }
+
+        private long validations_ ;
+        /**
+         * <pre>
+         * Number of remembered results whose outputs were checked to still be in
+         * the remote cache before they were used.
+         * </pre>
+         *
+         * <code>int64 validations = 3;</code>
+         * @return The validations.
+         */
+        public long getValidations() {
+          return validations_;
+        }
+        /**
+         * <pre>
+         * Number of remembered results whose outputs were checked to still be in
+         * the remote cache before they were used.
+         * </pre>
+         *
+         * <code>int64 validations = 3;</code>
+         * @param value The validations to set.
+         * @return This builder for chaining.
+         */
+        public Builder setValidations(long value) {
+          
+          validations_ = value;
+          onChanged();
+          return this;
+        }
+        /**
+         * <pre>
+         * Number of remembered results whose outputs were checked to still be in
+         * the remote cache before they were used.
+         * </pre>
+         *
+         * <code>int64 validations = 3;</code>
+         * @return This builder for chaining.
+         */
+        public Builder clearValidations() {
+          
+          validations_ = 0L;
+          onChanged();
+          return this;
+        }
+        @java.lang.Override
+        public final Builder setUnknownFields(
+            final com.google.protobuf.UnknownFieldSet unknownFields) {
+          return super.setUnknownFields(unknownFields);
+        }
+
+        @java.lang.Override
+        public final Builder mergeUnknownFields(
+            final com.google.protobuf.UnknownFieldSet unknownFields) {
+          return super.mergeUnknownFields(unknownFields);
+        }
+
+
+        // @@protoc_insertion_point(builder_scope:build_event_stream.BuildMetrics.ActionResultCacheMetrics)
+      }
+
+      // @@protoc_insertion_point(class_scope:build_event_stream.BuildMetrics.ActionResultCacheMetrics)
+      private static final com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics DEFAULT_INSTANCE;
+      static {
+        DEFAULT_INSTANCE = new com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics();
       }
 
-      public static com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.TimingMetrics getDefaultInstance() {
+      public static com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics getDefaultInstance() {
         return DEFAULT_INSTANCE;
       }
 
-      private static final com.google.protobuf.Parser<TimingMetrics>
-          PARSER = new com.google.protobuf.AbstractParser<TimingMetrics>() {
+      private static final com.google.protobuf.Parser<ActionResultCacheMetrics>
+          PARSER = new com.google.protobuf.AbstractParser<ActionResultCacheMetrics>() {
         @java.lang.Override
-        public TimingMetrics parsePartialFrom(
+        public ActionResultCacheMetrics parsePartialFrom(
             com.google.protobuf.CodedInputStream input,
             com.google.protobuf.ExtensionRegistryLite extensionRegistry)
             throws com.google.protobuf.InvalidProtocolBufferException {
-          return new TimingMetrics(input, extensionRegistry);
+          return new ActionResultCacheMetrics(input, extensionRegistry);
         }
       };
 
-      public static com.google.protobuf.Parser<TimingMetrics> parser() {
+      public static com.google.protobuf.Parser<ActionResultCacheMetrics> parser() {
         return PARSER;
       }
 
       @java.lang.Override
-      public com.google.protobuf.Parser<TimingMetrics> getParserForType() {
+      public com.google.protobuf.Parser<ActionResultCacheMetrics> getParserForType() {
         return PARSER;
       }
 
       @java.lang.Override
-      public com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.TimingMetrics getDefaultInstanceForType() {
+      public com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics getDefaultInstanceForType() {
         return DEFAULT_INSTANCE;
       }
 
@@ -55708,6 +57730,78 @@ public final class BuildEventStreamProtos {
       return getTimingMetrics();
     }
 
+    public static final int DISK_CACHE_METRICS_FIELD_NUMBER = 6;
+    private com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics diskCacheMetrics_;
+    /**
+     * <pre>
+     * Only set if --disk_cache was used during this build.
+     * </pre>
+     *
+     * <code>.build_event_stream.BuildMetrics.DiskCacheMetrics disk_cache_metrics = 6;</code>
+     * @return Whether the diskCacheMetrics field is set.
+     */
+    public boolean hasDiskCacheMetrics() {
+      return diskCacheMetrics_ != null;
+    }
+    /**
+     * <pre>
+     * Only set if --disk_cache was used during this build.
+     * </pre>
+     *
+     * <code>.build_event_stream.BuildMetrics.DiskCacheMetrics disk_cache_metrics = 6;</code>
+     * @return The diskCacheMetrics.
+     */
+    public com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics getDiskCacheMetrics() {
+      return diskCacheMetrics_ == null ? com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics.getDefaultInstance() : diskCacheMetrics_;
+    }
+    /**
+     * <pre>
+     * Only set if --disk_cache was used during this build.
+     * </pre>
+     *
+     * <code>.build_event_stream.BuildMetrics.DiskCacheMetrics disk_cache_metrics = 6;</code>
+     */
+    public com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetricsOrBuilder getDiskCacheMetricsOrBuilder() {
+      return getDiskCacheMetrics();
+    }
+    public static final int ACTION_RESULT_CACHE_METRICS_FIELD_NUMBER = 6;
+    private com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics actionResultCacheMetrics_;
+    /**
+     * <pre>
+     * Only set if --experimental_remote_action_result_cache_size was used during
+     * this build.
+     * </pre>
+     *
+     * <code>.build_event_stream.BuildMetrics.ActionResultCacheMetrics action_result_cache_metrics = 7;</code>
+     * @return Whether the actionResultCacheMetrics field is set.
+     */
+    public boolean hasActionResultCacheMetrics() {
+      return actionResultCacheMetrics_ != null;
+    }
+    /**
+     * <pre>
+     * Only set if --experimental_remote_action_result_cache_size was used during
+     * this build.
+     * </pre>
+     *
+     * <code>.build_event_stream.BuildMetrics.ActionResultCacheMetrics action_result_cache_metrics = 7;</code>
+     * @return The actionResultCacheMetrics.
+     */
+    public com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics getActionResultCacheMetrics() {
+      return actionResultCacheMetrics_ == null ? com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics.getDefaultInstance() : actionResultCacheMetrics_;
+    }
+    /**
+     * <pre>
+     * Only set if --experimental_remote_action_result_cache_size was used during
+     * this build.
+     * </pre>
+     *
+     * <code>.build_event_stream.BuildMetrics.ActionResultCacheMetrics action_result_cache_metrics = 7;</code>
+     */
+    public com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetricsOrBuilder getActionResultCacheMetricsOrBuilder() {
+      return getActionResultCacheMetrics();
+    }
+
     private byte memoizedIsInitialized = -1;
     @java.lang.Override
     public final boolean isInitialized() {
@@ -55737,6 +57831,12 @@ public final class BuildEventStreamProtos {
       if (timingMetrics_ != null) {
         output.writeMessage(5, getTimingMetrics());
       }
+      if (diskCacheMetrics_ != null) {
+        output.writeMessage(6, getDiskCacheMetrics());
+      }
+      if (actionResultCacheMetrics_ != null) {
+        output.writeMessage(7, getActionResultCacheMetrics());
+      }
       unknownFields.writeTo(output);
     }
 
@@ -55766,6 +57866,14 @@ public final class BuildEventStreamProtos {
         size += com.google.protobuf.CodedOutputStream
           .computeMessageSize(5, getTimingMetrics());
       }
+      if (diskCacheMetrics_ != null) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(6, getDiskCacheMetrics());
+      }
+      if (actionResultCacheMetrics_ != null) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(7, getActionResultCacheMetrics());
+      }
       size += unknownFields.getSerializedSize();
       memoizedSize = size;
       return size;
@@ -55806,6 +57914,16 @@ public final class BuildEventStreamProtos {
         if (!getTimingMetrics()
             .equals(other.getTimingMetrics())) return false;
       }
+      if (hasDiskCacheMetrics() != other.hasDiskCacheMetrics()) return false;
+      if (hasDiskCacheMetrics()) {
+        if (!getDiskCacheMetrics()
+            .equals(other.getDiskCacheMetrics())) return false;
+      }
+      if (hasActionResultCacheMetrics() != other.hasActionResultCacheMetrics()) return false;
+      if (hasActionResultCacheMetrics()) {
+        if (!getActionResultCacheMetrics()
+            .equals(other.getActionResultCacheMetrics())) return false;
+      }
       if (!unknownFields.equals(other.unknownFields)) return false;
       return true;
     }
@@ -55837,6 +57955,14 @@ public final class BuildEventStreamProtos {
         hash = (37 * hash) + TIMING_METRICS_FIELD_NUMBER;
         hash = (53 * hash) + getTimingMetrics().hashCode();
       }
+      if (hasDiskCacheMetrics()) {
+        hash = (37 * hash) + DISK_CACHE_METRICS_FIELD_NUMBER;
+        hash = (53 * hash) + getDiskCacheMetrics().hashCode();
+      }
+      if (hasActionResultCacheMetrics()) {
+        hash = (37 * hash) + ACTION_RESULT_CACHE_METRICS_FIELD_NUMBER;
+        hash = (53 * hash) + getActionResultCacheMetrics().hashCode();
+      }
       hash = (29 * hash) + unknownFields.hashCode();
       memoizedHashCode = hash;
       return hash;
@@ -56000,6 +58126,18 @@ public final class BuildEventStreamProtos {
           timingMetrics_ = null;
           timingMetricsBuilder_ = null;
         }
+        if (diskCacheMetricsBuilder_ == null) {
+          diskCacheMetrics_ = null;
+        } else {
+          diskCacheMetrics_ = null;
+          diskCacheMetricsBuilder_ = null;
+        }
+        if (actionResultCacheMetricsBuilder_ == null) {
+          actionResultCacheMetrics_ = null;
+        } else {
+          actionResultCacheMetrics_ = null;
+          actionResultCacheMetricsBuilder_ = null;
+        }
         return this;
       }
 
@@ -56051,6 +58189,16 @@ public final class BuildEventStreamProtos {
         } else {
           result.timingMetrics_ = timingMetricsBuilder_.build();
         }
+        if (diskCacheMetricsBuilder_ == null) {
+          result.diskCacheMetrics_ = diskCacheMetrics_;
+        } else {
+          result.diskCacheMetrics_ = diskCacheMetricsBuilder_.build();
+        }
+        if (actionResultCacheMetricsBuilder_ == null) {
+          result.actionResultCacheMetrics_ = actionResultCacheMetrics_;
+        } else {
+          result.actionResultCacheMetrics_ = actionResultCacheMetricsBuilder_.build();
+        }
         onBuilt();
         return result;
       }
@@ -56114,6 +58262,12 @@ public final class BuildEventStreamProtos {
         if (other.hasTimingMetrics()) {
           mergeTimingMetrics(other.getTimingMetrics());
         }
+        if (other.hasDiskCacheMetrics()) {
+          mergeDiskCacheMetrics(other.getDiskCacheMetrics());
+        }
+        if (other.hasActionResultCacheMetrics()) {
+          mergeActionResultCacheMetrics(other.getActionResultCacheMetrics());
+        }
         this.mergeUnknownFields(other.unknownFields);
         onChanged();
         return this;
@@ -56737,6 +58891,324 @@ public final class BuildEventStreamProtos {
         }
         return timingMetricsBuilder_;
       }
+
+      private com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics diskCacheMetrics_;
+      private com.google.protobuf.SingleFieldBuilderV3<
+          com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics, com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics.Builder, com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetricsOrBuilder> diskCacheMetricsBuilder_;
+      /**
+       * <pre>
+       * Only set if --disk_cache was used during this build.
+       * </pre>
+       *
+       * <code>.build_event_stream.BuildMetrics.DiskCacheMetrics disk_cache_metrics = 6;</code>
+       * @return Whether the diskCacheMetrics field is set.
+       */
+      public boolean hasDiskCacheMetrics() {
+        return diskCacheMetricsBuilder_ != null || diskCacheMetrics_ != null;
+      }
+      /**
+       * <pre>
+       * Only set if --disk_cache was used during this build.
+       * </pre>
+       *
+       * <code>.build_event_stream.BuildMetrics.DiskCacheMetrics disk_cache_metrics = 6;</code>
+       * @return The diskCacheMetrics.
+       */
+      public com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics getDiskCacheMetrics() {
+        if (diskCacheMetricsBuilder_ == null) {
+          return diskCacheMetrics_ == null ? com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics.getDefaultInstance() : diskCacheMetrics_;
+        } else {
+          return diskCacheMetricsBuilder_.getMessage();
+        }
+      }
+      /**
+       * <pre>
+       * Only set if --disk_cache was used during this build.
+       * </pre>
+       *
+       * <code>.build_event_stream.BuildMetrics.DiskCacheMetrics disk_cache_metrics = 6;</code>
+       */
+      public Builder setDiskCacheMetrics(com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics value) {
+        if (diskCacheMetricsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          diskCacheMetrics_ = value;
+          onChanged();
+        } else {
+          diskCacheMetricsBuilder_.setMessage(value);
+        }
+
+        return this;
+      }
+      /**
+       * <pre>
+       * Only set if --disk_cache was used during this build.
+       * </pre>
+       *
+       * <code>.build_event_stream.BuildMetrics.DiskCacheMetrics disk_cache_metrics = 6;</code>
+       */
+      public Builder setDiskCacheMetrics(
+          com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics.Builder builderForValue) {
+        if (diskCacheMetricsBuilder_ == null) {
+          diskCacheMetrics_ = builderForValue.build();
+          onChanged();
+        } else {
+          diskCacheMetricsBuilder_.setMessage(builderForValue.build());
+        }
+
+        return this;
+      }
+      /**
+       * <pre>
+       * Only set if --disk_cache was used during this build.
+       * </pre>
+       *
+       * <code>.build_event_stream.BuildMetrics.DiskCacheMetrics disk_cache_metrics = 6;</code>
+       */
+      public Builder mergeDiskCacheMetrics(com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics value) {
+        if (diskCacheMetricsBuilder_ == null) {
+          if (diskCacheMetrics_ != null) {
+            diskCacheMetrics_ =
+              com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics.newBuilder(diskCacheMetrics_).mergeFrom(value).buildPartial();
+          } else {
+            diskCacheMetrics_ = value;
+          }
+          onChanged();
+        } else {
+          diskCacheMetricsBuilder_.mergeFrom(value);
+        }
+
+        return this;
+      }
+      /**
+       * <pre>
+       * Only set if --disk_cache was used during this build.
+       * </pre>
+       *
+       * <code>.build_event_stream.BuildMetrics.DiskCacheMetrics disk_cache_metrics = 6;</code>
+       */
+      public Builder clearDiskCacheMetrics() {
+        if (diskCacheMetricsBuilder_ == null) {
+          diskCacheMetrics_ = null;
+          onChanged();
+        } else {
+          diskCacheMetrics_ = null;
+          diskCacheMetricsBuilder_ = null;
+        }
+
+        return this;
+      }
+      /**
+       * <pre>
+       * Only set if --disk_cache was used during this build.
+       * </pre>
+       *
+       * <code>.build_event_stream.BuildMetrics.DiskCacheMetrics disk_cache_metrics = 6;</code>
+       */
+      public com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics.Builder getDiskCacheMetricsBuilder() {
+        
+        onChanged();
+        return getDiskCacheMetricsFieldBuilder().getBuilder();
+      }
+      /**
+       * <pre>
+       * Only set if --disk_cache was used during this build.
+       * </pre>
+       *
+       * <code>.build_event_stream.BuildMetrics.DiskCacheMetrics disk_cache_metrics = 6;</code>
+       */
+      public com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetricsOrBuilder getDiskCacheMetricsOrBuilder() {
+        if (diskCacheMetricsBuilder_ != null) {
+          return diskCacheMetricsBuilder_.getMessageOrBuilder();
+        } else {
+          return diskCacheMetrics_ == null ?
+              com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics.getDefaultInstance() : diskCacheMetrics_;
+        }
+      }
+      /**
+       * <pre>
+       * Only set if --disk_cache was used during this build.
+       * </pre>
+       *
+       * <code>.build_event_stream.BuildMetrics.DiskCacheMetrics disk_cache_metrics = 6;</code>
+       */
+      private com.google.protobuf.SingleFieldBuilderV3<
+          com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics, com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics.Builder, com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetricsOrBuilder> 
+          getDiskCacheMetricsFieldBuilder() {
+        if (diskCacheMetricsBuilder_ == null) {
+          diskCacheMetricsBuilder_ = new com.google.protobuf.SingleFieldBuilderV3<
+              com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics, com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics.Builder, com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetricsOrBuilder>(
+                  getDiskCacheMetrics(),
+                  getParentForChildren(),
+                  isClean());
+          diskCacheMetrics_ = null;
+        }
+        return diskCacheMetricsBuilder_;
+      }
+      private com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics actionResultCacheMetrics_;
+      private com.google.protobuf.SingleFieldBuilderV3<
+          com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics, com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics.Builder, com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetricsOrBuilder> actionResultCacheMetricsBuilder_;
+      /**
+       * <pre>
+       * Only set if --experimental_remote_action_result_cache_size was used during
+     * this build.
+       * </pre>
+       *
+       * <code>.build_event_stream.BuildMetrics.ActionResultCacheMetrics action_result_cache_metrics = 7;</code>
+       * @return Whether the actionResultCacheMetrics field is set.
+       */
+      public boolean hasActionResultCacheMetrics() {
+        return actionResultCacheMetricsBuilder_ != null || actionResultCacheMetrics_ != null;
+      }
+      /**
+       * <pre>
+       * Only set if --experimental_remote_action_result_cache_size was used during
+     * this build.
+       * </pre>
+       *
+       * <code>.build_event_stream.BuildMetrics.ActionResultCacheMetrics action_result_cache_metrics = 7;</code>
+       * @return The actionResultCacheMetrics.
+       */
+      public com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics getActionResultCacheMetrics() {
+        if (actionResultCacheMetricsBuilder_ == null) {
+          return actionResultCacheMetrics_ == null ? com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics.getDefaultInstance() : actionResultCacheMetrics_;
+        } else {
+          return actionResultCacheMetricsBuilder_.getMessage();
+        }
+      }
+      /**
+       * <pre>
+       * Only set if --experimental_remote_action_result_cache_size was used during
+     * this build.
+       * </pre>
+       *
+       * <code>.build_event_stream.BuildMetrics.ActionResultCacheMetrics action_result_cache_metrics = 7;</code>
+       */
+      public Builder setActionResultCacheMetrics(com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics value) {
+        if (actionResultCacheMetricsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          actionResultCacheMetrics_ = value;
+          onChanged();
+        } else {
+          actionResultCacheMetricsBuilder_.setMessage(value);
+        }
+
+        return this;
+      }
+      /**
+       * <pre>
+       * Only set if --experimental_remote_action_result_cache_size was used during
+     * this build.
+       * </pre>
+       *
+       * <code>.build_event_stream.BuildMetrics.ActionResultCacheMetrics action_result_cache_metrics = 7;</code>
+       */
+      public Builder setActionResultCacheMetrics(
+          com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics.Builder builderForValue) {
+        if (actionResultCacheMetricsBuilder_ == null) {
+          actionResultCacheMetrics_ = builderForValue.build();
+          onChanged();
+        } else {
+          actionResultCacheMetricsBuilder_.setMessage(builderForValue.build());
+        }
+
+        return this;
+      }
+      /**
+       * <pre>
+       * Only set if --experimental_remote_action_result_cache_size was used during
+     * this build.
+       * </pre>
+       *
+       * <code>.build_event_stream.BuildMetrics.ActionResultCacheMetrics action_result_cache_metrics = 7;</code>
+       */
+      public Builder mergeActionResultCacheMetrics(com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics value) {
+        if (actionResultCacheMetricsBuilder_ == null) {
+          if (actionResultCacheMetrics_ != null) {
+            actionResultCacheMetrics_ =
+              com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics.newBuilder(actionResultCacheMetrics_).mergeFrom(value).buildPartial();
+          } else {
+            actionResultCacheMetrics_ = value;
+          }
+          onChanged();
+        } else {
+          actionResultCacheMetricsBuilder_.mergeFrom(value);
+        }
+
+        return this;
+      }
+      /**
+       * <pre>
+       * Only set if --experimental_remote_action_result_cache_size was used during
+     * this build.
+       * </pre>
+       *
+       * <code>.build_event_stream.BuildMetrics.ActionResultCacheMetrics action_result_cache_metrics = 7;</code>
+       */
+      public Builder clearActionResultCacheMetrics() {
+        if (actionResultCacheMetricsBuilder_ == null) {
+          actionResultCacheMetrics_ = null;
+          onChanged();
+        } else {
+          actionResultCacheMetrics_ = null;
+          actionResultCacheMetricsBuilder_ = null;
+        }
+
+        return this;
+      }
+      /**
+       * <pre>
+       * Only set if --experimental_remote_action_result_cache_size was used during
+     * this build.
+       * </pre>
+       *
+       * <code>.build_event_stream.BuildMetrics.ActionResultCacheMetrics action_result_cache_metrics = 7;</code>
+       */
+      public com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics.Builder getActionResultCacheMetricsBuilder() {
+        
+        onChanged();
+        return getActionResultCacheMetricsFieldBuilder().getBuilder();
+      }
+      /**
+       * <pre>
+       * Only set if --experimental_remote_action_result_cache_size was used during
+     * this build.
+       * </pre>
+       *
+       * <code>.build_event_stream.BuildMetrics.ActionResultCacheMetrics action_result_cache_metrics = 7;</code>
+       */
+      public com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetricsOrBuilder getActionResultCacheMetricsOrBuilder() {
+        if (actionResultCacheMetricsBuilder_ != null) {
+          return actionResultCacheMetricsBuilder_.getMessageOrBuilder();
+        } else {
+          return actionResultCacheMetrics_ == null ?
+              com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics.getDefaultInstance() : actionResultCacheMetrics_;
+        }
+      }
+      /**
+       * <pre>
+       * Only set if --experimental_remote_action_result_cache_size was used during
+     * this build.
+       * </pre>
+       *
+       * <code>.build_event_stream.BuildMetrics.ActionResultCacheMetrics action_result_cache_metrics = 7;</code>
+       */
+      private com.google.protobuf.SingleFieldBuilderV3<
+          com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics, com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics.Builder, com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetricsOrBuilder> 
+          getActionResultCacheMetricsFieldBuilder() {
+        if (actionResultCacheMetricsBuilder_ == null) {
+          actionResultCacheMetricsBuilder_ = new com.google.protobuf.SingleFieldBuilderV3<
+              com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics, com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics.Builder, com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetricsOrBuilder>(
+                  getActionResultCacheMetrics(),
+                  getParentForChildren(),
+                  isClean());
+          actionResultCacheMetrics_ = null;
+        }
+        return actionResultCacheMetricsBuilder_;
+      }
       @java.lang.Override
       public final Builder setUnknownFields(
           final com.google.protobuf.UnknownFieldSet unknownFields) {
@@ -65859,6 +68331,16 @@ public final class BuildEventStreamProtos {
   private static final 
     com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
       internal_static_build_event_stream_BuildMetrics_TimingMetrics_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_build_event_stream_BuildMetrics_DiskCacheMetrics_descriptor;
+  private static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_build_event_stream_BuildMetrics_DiskCacheMetrics_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_build_event_stream_BuildMetrics_ActionResultCacheMetrics_descriptor;
+  private static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_build_event_stream_BuildMetrics_ActionResultCacheMetrics_fieldAccessorTable;
   private static final com.google.protobuf.Descriptors.Descriptor
     internal_static_build_event_stream_BuildToolLogs_descriptor;
   private static final 
@@ -66072,7 +68554,7 @@ public final class BuildEventStreamProtos {
       "rt\030\004 \001(\0132/.build_event_stream.BuildFinis" +
       "hed.AnomalyReport\032&\n\010ExitCode\022\014\n\004name\030\001 " +
       "\001(\t\022\014\n\004code\030\002 \001(\005\032&\n\rAnomalyReport\022\025\n\rwa" +
-      "s_suspended\030\001 \001(\010\"\302\005\n\014BuildMetrics\022F\n\016ac" +
+      "s_suspended\030\001 \001(\010\"\311\t\n\014BuildMetrics\022F\n\016ac" +
       "tion_summary\030\001 \001(\0132..build_event_stream." +
       "BuildMetrics.ActionSummary\022F\n\016memory_met" +
       "rics\030\002 \001(\0132..build_event_stream.BuildMet" +
@@ -66081,69 +68563,82 @@ public final class BuildEventStreamProtos {
       "getMetrics\022H\n\017package_metrics\030\004 \001(\0132/.bu" +
       "ild_event_stream.BuildMetrics.PackageMet" +
       "rics\022F\n\016timing_metrics\030\005 \001(\0132..build_eve" +
-      "nt_stream.BuildMetrics.TimingMetrics\032B\n\r" +
-      "ActionSummary\022\027\n\017actions_created\030\001 \001(\003\022\030" +
-      "\n\020actions_executed\030\002 \001(\003\032R\n\rMemoryMetric" +
-      "s\022!\n\031used_heap_size_post_build\030\001 \001(\003\022\036\n\026" +
-      "peak_post_gc_heap_size\030\002 \001(\003\032C\n\rTargetMe" +
-      "trics\022\026\n\016targets_loaded\030\001 \001(\003\022\032\n\022targets" +
-      "_configured\030\002 \001(\003\032)\n\016PackageMetrics\022\027\n\017p" +
-      "ackages_loaded\030\001 \001(\003\032@\n\rTimingMetrics\022\026\n" +
-      "\016cpu_time_in_ms\030\001 \001(\003\022\027\n\017wall_time_in_ms" +
-      "\030\002 \001(\003\"6\n\rBuildToolLogs\022%\n\003log\030\001 \003(\0132\030.b" +
-      "uild_event_stream.File\"e\n\035ConvenienceSym" +
-      "linksIdentified\022D\n\024convenience_symlinks\030" +
-      "\001 \003(\0132&.build_event_stream.ConvenienceSy" +
-      "mlink\"\240\001\n\022ConvenienceSymlink\022\014\n\004path\030\001 \001" +
-      "(\t\022=\n\006action\030\002 \001(\0162-.build_event_stream." +
-      "ConvenienceSymlink.Action\022\016\n\006target\030\003 \001(" +
-      "\t\"-\n\006Action\022\013\n\007UNKNOWN\020\000\022\n\n\006CREATE\020\001\022\n\n\006" +
-      "DELETE\020\002\"\311\013\n\nBuildEvent\022,\n\002id\030\001 \001(\0132 .bu" +
-      "ild_event_stream.BuildEventId\0222\n\010childre" +
-      "n\030\002 \003(\0132 .build_event_stream.BuildEventI" +
-      "d\022\024\n\014last_message\030\024 \001(\010\0220\n\010progress\030\003 \001(" +
-      "\0132\034.build_event_stream.ProgressH\000\022.\n\007abo" +
-      "rted\030\004 \001(\0132\033.build_event_stream.AbortedH" +
-      "\000\0223\n\007started\030\005 \001(\0132 .build_event_stream." +
-      "BuildStartedH\000\022P\n\031unstructured_command_l" +
-      "ine\030\014 \001(\0132+.build_event_stream.Unstructu" +
-      "redCommandLineH\000\022<\n\027structured_command_l" +
-      "ine\030\026 \001(\0132\031.command_line.CommandLineH\000\022;" +
-      "\n\016options_parsed\030\r \001(\0132!.build_event_str" +
-      "eam.OptionsParsedH\000\022?\n\020workspace_status\030" +
-      "\020 \001(\0132#.build_event_stream.WorkspaceStat" +
-      "usH\000\022*\n\005fetch\030\025 \001(\0132\031.build_event_stream" +
-      ".FetchH\000\022:\n\rconfiguration\030\021 \001(\0132!.build_" +
-      "event_stream.ConfigurationH\000\0227\n\010expanded" +
-      "\030\006 \001(\0132#.build_event_stream.PatternExpan" +
-      "dedH\000\022:\n\nconfigured\030\022 \001(\0132$.build_event_" +
-      "stream.TargetConfiguredH\000\0224\n\006action\030\007 \001(" +
-      "\0132\".build_event_stream.ActionExecutedH\000\022" +
-      "A\n\022named_set_of_files\030\017 \001(\0132#.build_even" +
-      "t_stream.NamedSetOfFilesH\000\0227\n\tcompleted\030" +
-      "\010 \001(\0132\".build_event_stream.TargetComplet" +
-      "eH\000\0225\n\013test_result\030\n \001(\0132\036.build_event_s" +
-      "tream.TestResultH\000\0227\n\014test_summary\030\t \001(\013" +
-      "2\037.build_event_stream.TestSummaryH\000\0225\n\010f" +
-      "inished\030\016 \001(\0132!.build_event_stream.Build" +
-      "FinishedH\000\022<\n\017build_tool_logs\030\027 \001(\0132!.bu" +
-      "ild_event_stream.BuildToolLogsH\000\0229\n\rbuil" +
-      "d_metrics\030\030 \001(\0132 .build_event_stream.Bui" +
-      "ldMetricsH\000\022=\n\016workspace_info\030\031 \001(\0132#.bu" +
-      "ild_event_stream.WorkspaceConfigH\000\022;\n\016bu" +
-      "ild_metadata\030\032 \001(\0132!.build_event_stream." +
-      "BuildMetadataH\000\022\\\n\037convenience_symlinks_" +
-      "identified\030\033 \001(\01321.build_event_stream.Co" +
-      "nvenienceSymlinksIdentifiedH\000B\t\n\007payload" +
-      "J\004\010\013\020\014J\004\010\023\020\024*G\n\010TestSize\022\013\n\007UNKNOWN\020\000\022\t\n" +
-      "\005SMALL\020\001\022\n\n\006MEDIUM\020\002\022\t\n\005LARGE\020\003\022\014\n\010ENORM" +
-      "OUS\020\004*\244\001\n\nTestStatus\022\r\n\tNO_STATUS\020\000\022\n\n\006P" +
-      "ASSED\020\001\022\t\n\005FLAKY\020\002\022\013\n\007TIMEOUT\020\003\022\n\n\006FAILE" +
-      "D\020\004\022\016\n\nINCOMPLETE\020\005\022\022\n\016REMOTE_FAILURE\020\006\022" +
-      "\023\n\017FAILED_TO_BUILD\020\007\022\036\n\032TOOL_HALTED_BEFO" +
-      "RE_TESTING\020\010BH\n.com.google.devtools.buil" +
-      "d.lib.buildeventstreamB\026BuildEventStream" +
-      "Protosb\006proto3"
+      "nt_stream.BuildMetrics.TimingMetrics\022M\n\022" +
+      "disk_cache_metrics\030\006 \001(\01321.build_event_s" +
+      "tream.BuildMetrics.DiskCacheMetrics\022^\n\033a" +
+      "ction_result_cache_metrics\030\007 \001(\01329.build" +
+      "_event_stream.BuildMetrics.ActionResultC" +
+      "acheMetrics\032B\n\rActionSummary\022\027\n\017actions_" +
+      "created\030\001 \001(\003\022\030\n\020actions_executed\030\002 \001(\003\032" +
+      "R\n\rMemoryMetrics\022!\n\031used_heap_size_post_" +
+      "build\030\001 \001(\003\022\036\n\026peak_post_gc_heap_size\030\002 " +
+      "\001(\003\032C\n\rTargetMetrics\022\026\n\016targets_loaded\030\001" +
+      " \001(\003\022\032\n\022targets_configured\030\002 \001(\003\032)\n\016Pack" +
+      "ageMetrics\022\027\n\017packages_loaded\030\001 \001(\003\032@\n\rT" +
+      "imingMetrics\022\026\n\016cpu_time_in_ms\030\001 \001(\003\022\027\n\017" +
+      "wall_time_in_ms\030\002 \001(\003\032\206\002\n\020DiskCacheMetri" +
+      "cs\022\014\n\004hits\030\001 \001(\003\022\016\n\006misses\030\002 \001(\003\022\025\n\rbyte" +
+      "s_evicted\030\003 \001(\003\022\027\n\017entries_evicted\030\004 \001(\003" +
+      "\022\025\n\rgc_time_in_ms\030\005 \001(\003\022\034\n\024write_behind_" +
+      "uploads\030\006 \001(\003\022$\n\034write_behind_max_queue_" +
+      "depth\030\007 \001(\003\022\"\n\032write_behind_max_lag_in_m" +
+      "s\030\010 \001(\003\022%\n\035write_behind_drain_time_in_ms" +
+      "\030\t \001(\003\032M\n\030ActionResultCacheMetrics\022\014\n\004hi" +
+      "ts\030\001 \001(\003\022\016\n\006misses\030\002 \001(\003\022\023\n\013validations\030" +
+      "\003 \001(\003\"6\n\rBuildToolLogs\022%\n\003log\030\001 \003(\0132\030.bu" +
+      "ild_event_stream.File\"e\n\035ConvenienceSyml" +
+      "inksIdentified\022D\n\024convenience_symlinks\030\001" +
+      " \003(\0132&.build_event_stream.ConvenienceSym" +
+      "link\"\240\001\n\022ConvenienceSymlink\022\014\n\004path\030\001 \001(" +
+      "\t\022=\n\006action\030\002 \001(\0162-.build_event_stream.C" +
+      "onvenienceSymlink.Action\022\016\n\006target\030\003 \001(\t" +
+      "\"-\n\006Action\022\013\n\007UNKNOWN\020\000\022\n\n\006CREATE\020\001\022\n\n\006D" +
+      "ELETE\020\002\"\311\013\n\nBuildEvent\022,\n\002id\030\001 \001(\0132 .bui" +
+      "ld_event_stream.BuildEventId\0222\n\010children" +
+      "\030\002 \003(\0132 .build_event_stream.BuildEventId" +
+      "\022\024\n\014last_message\030\024 \001(\010\0220\n\010progress\030\003 \001(\013" +
+      "2\034.build_event_stream.ProgressH\000\022.\n\007abor" +
+      "ted\030\004 \001(\0132\033.build_event_stream.AbortedH\000" +
+      "\0223\n\007started\030\005 \001(\0132 .build_event_stream.B" +
+      "uildStartedH\000\022P\n\031unstructured_command_li" +
+      "ne\030\014 \001(\0132+.build_event_stream.Unstructur" +
+      "edCommandLineH\000\022<\n\027structured_command_li" +
+      "ne\030\026 \001(\0132\031.command_line.CommandLineH\000\022;\n" +
+      "\016options_parsed\030\r \001(\0132!.build_event_stre" +
+      "am.OptionsParsedH\000\022?\n\020workspace_status\030\020" +
+      " \001(\0132#.build_event_stream.WorkspaceStatu" +
+      "sH\000\022*\n\005fetch\030\025 \001(\0132\031.build_event_stream." +
+      "FetchH\000\022:\n\rconfiguration\030\021 \001(\0132!.build_e" +
+      "vent_stream.ConfigurationH\000\0227\n\010expanded\030" +
+      "\006 \001(\0132#.build_event_stream.PatternExpand" +
+      "edH\000\022:\n\nconfigured\030\022 \001(\0132$.build_event_s" +
+      "tream.TargetConfiguredH\000\0224\n\006action\030\007 \001(\013" +
+      "2\".build_event_stream.ActionExecutedH\000\022A" +
+      "\n\022named_set_of_files\030\017 \001(\0132#.build_event" +
+      "_stream.NamedSetOfFilesH\000\0227\n\tcompleted\030\010" +
+      " \001(\0132\".build_event_stream.TargetComplete" +
+      "H\000\0225\n\013test_result\030\n \001(\0132\036.build_event_st" +
+      "ream.TestResultH\000\0227\n\014test_summary\030\t \001(\0132" +
+      "\037.build_event_stream.TestSummaryH\000\0225\n\010fi" +
+      "nished\030\016 \001(\0132!.build_event_stream.BuildF" +
+      "inishedH\000\022<\n\017build_tool_logs\030\027 \001(\0132!.bui" +
+      "ld_event_stream.BuildToolLogsH\000\0229\n\rbuild" +
+      "_metrics\030\030 \001(\0132 .build_event_stream.Buil" +
+      "dMetricsH\000\022=\n\016workspace_info\030\031 \001(\0132#.bui" +
+      "ld_event_stream.WorkspaceConfigH\000\022;\n\016bui" +
+      "ld_metadata\030\032 \001(\0132!.build_event_stream.B" +
+      "uildMetadataH\000\022\\\n\037convenience_symlinks_i" +
+      "dentified\030\033 \001(\01321.build_event_stream.Con" +
+      "venienceSymlinksIdentifiedH\000B\t\n\007payloadJ" +
+      "\004\010\013\020\014J\004\010\023\020\024*G\n\010TestSize\022\013\n\007UNKNOWN\020\000\022\t\n\005" +
+      "SMALL\020\001\022\n\n\006MEDIUM\020\002\022\t\n\005LARGE\020\003\022\014\n\010ENORMO" +
+      "US\020\004*\244\001\n\nTestStatus\022\r\n\tNO_STATUS\020\000\022\n\n\006PA" +
+      "SSED\020\001\022\t\n\005FLAKY\020\002\022\013\n\007TIMEOUT\020\003\022\n\n\006FAILED" +
+      "\020\004\022\016\n\nINCOMPLETE\020\005\022\022\n\016REMOTE_FAILURE\020\006\022\023" +
+      "\n\017FAILED_TO_BUILD\020\007\022\036\n\032TOOL_HALTED_BEFOR" +
+      "E_TESTING\020\010BH\n.com.google.devtools.build" +
+      ".lib.buildeventstreamB\026BuildEventStreamP" +
+      "rotosb\006proto3"
     };
     descriptor = com.google.protobuf.Descriptors.FileDescriptor
       .internalBuildGeneratedFileFrom(descriptorData,
@@ -66475,7 +68970,7 @@ public final class BuildEventStreamProtos {
     internal_static_build_event_stream_BuildMetrics_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
         internal_static_build_event_stream_BuildMetrics_descriptor,
-        new java.lang.String[] { "ActionSummary", "MemoryMetrics", "TargetMetrics", "PackageMetrics", "TimingMetrics", });
+        new java.lang.String[] { "ActionSummary", "MemoryMetrics", "TargetMetrics", "PackageMetrics", "TimingMetrics", "DiskCacheMetrics", "ActionResultCacheMetrics", });
     internal_static_build_event_stream_BuildMetrics_ActionSummary_descriptor =
       internal_static_build_event_stream_BuildMetrics_descriptor.getNestedTypes().get(0);
     internal_static_build_event_stream_BuildMetrics_ActionSummary_fieldAccessorTable = new
@@ -66506,6 +69001,18 @@ public final class BuildEventStreamProtos {
       com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
         internal_static_build_event_stream_BuildMetrics_TimingMetrics_descriptor,
         new java.lang.String[] { "CpuTimeInMs", "WallTimeInMs", });
+    internal_static_build_event_stream_BuildMetrics_DiskCacheMetrics_descriptor =
+      internal_static_build_event_stream_BuildMetrics_descriptor.getNestedTypes().get(5);
+    internal_static_build_event_stream_BuildMetrics_DiskCacheMetrics_fieldAccessorTable = new
+      com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
+        internal_static_build_event_stream_BuildMetrics_DiskCacheMetrics_descriptor,
+        new java.lang.String[] { "Hits", "Misses", "BytesEvicted", "EntriesEvicted", "GcTimeInMs", "WriteBehindUploads", "WriteBehindMaxQueueDepth", "WriteBehindMaxLagInMs", "WriteBehindDrainTimeInMs", });
+    internal_static_build_event_stream_BuildMetrics_ActionResultCacheMetrics_descriptor =
+      internal_static_build_event_stream_BuildMetrics_descriptor.getNestedTypes().get(6);
+    internal_static_build_event_stream_BuildMetrics_ActionResultCacheMetrics_fieldAccessorTable = new
+      com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
+        internal_static_build_event_stream_BuildMetrics_ActionResultCacheMetrics_descriptor,
+        new java.lang.String[] { "Hits", "Misses", "Validations", });
     internal_static_build_event_stream_BuildToolLogs_descriptor =
       getDescriptor().getMessageTypes().get(22);
     internal_static_build_event_stream_BuildToolLogs_fieldAccessorTable = new
@@ -33,4 +33,12 @@ public interface ActionInputPrefetcher {
    */
   void prefetchFiles(Iterable<? extends ActionInput> inputs, MetadataProvider metadataProvider)
       throws IOException, InterruptedException;
+
+  /**
+   * Starts fetching the given inputs without waiting for them, so that a later call to {@link
+   * #prefetchFiles} for the same inputs completes sooner. This is a hint that may be ignored, and
+   * failures to fetch are not reported.
+   */
+  default void prefetchFilesInBackground(
+      Iterable<? extends ActionInput> inputs, MetadataProvider metadataProvider) {}
 }
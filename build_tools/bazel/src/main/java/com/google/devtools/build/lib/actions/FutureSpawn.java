@@ -13,6 +13,8 @@
 // limitations under the License.
 package com.google.devtools.build.lib.actions;
 
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+
 import com.google.common.base.Throwables;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -47,6 +49,24 @@ public class FutureSpawn {
     return new FutureSpawn(Futures.immediateFuture(f));
   }
 
+  /**
+   * Returns a future that completes when {@code future} completes, and computes its result with
+   * {@code completion} in the thread that calls {@link #get}. Lets a runner wait for remote work
+   * without a thread, and process the outcome in the Skyframe thread pool. {@code completion} is
+   * expected to get the outcome of {@code future} itself.
+   */
+  public static FutureSpawn afterFuture(
+      ListenableFuture<?> future, Callable<SpawnResult> completion) {
+    ListenableFuture<SpawnResult> done =
+        Futures.whenAllComplete(future).call(() -> null, directExecutor());
+    return new FutureSpawn(
+        done,
+        (c) -> {
+          c.get();
+          return completion.get();
+        });
+  }
+
   private final ListenableFuture<? extends SpawnResult> future;
   private final Wrapper wrapper;
 
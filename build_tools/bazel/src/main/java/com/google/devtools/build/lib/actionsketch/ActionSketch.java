@@ -43,6 +43,15 @@ public abstract class ActionSketch implements SkyValue {
   @Nullable
   public abstract BigInteger transitiveActionLookupHash();
 
+  /**
+   * Returns whether the sketch covers the contents of all transitive source files, so that the
+   * result of the action may be looked up by it. It doesn't if the contents of a source file
+   * aren't known by digest, e.g. for a source directory.
+   */
+  public final boolean coversAllSources() {
+    return transitiveSourceHash() != null;
+  }
+
   public static Builder builder() {
     return new AutoValue_ActionSketch.Builder();
   }
@@ -14,13 +14,17 @@
 
 package com.google.devtools.build.lib.actionsketch;
 
+import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
 import com.google.devtools.build.lib.actions.ActionAnalysisMetadata;
 import com.google.devtools.build.lib.actions.ActionKeyContext;
 import com.google.devtools.build.lib.actions.Artifact;
+import com.google.devtools.build.lib.vfs.PathFragment;
 import java.math.BigInteger;
+import java.util.Map;
+import java.util.SortedMap;
 
 /** Utilities for dealing with {@link ActionSketch} sketches. */
 public class Sketches {
@@ -34,13 +38,42 @@ public class Sketches {
    */
   public static BigInteger computeActionKey(
       ActionAnalysisMetadata action, ActionKeyContext keyContext) {
+    return computeActionKey(action, keyContext, ImmutableSortedMap.of());
+  }
+
+  /**
+   * Like {@link #computeActionKey(ActionAnalysisMetadata, ActionKeyContext)}, but also includes
+   * the values of the client environment variables that the action inherits, which aren't part of
+   * its action key.
+   */
+  public static BigInteger computeActionKey(
+      ActionAnalysisMetadata action,
+      ActionKeyContext keyContext,
+      SortedMap<String, String> clientEnv) {
     Hasher hasher = newHasher().putUnencodedChars(action.getKey(keyContext));
     for (Artifact output : action.getOutputs()) {
       hasher.putUnencodedChars(output.getExecPath().getPathString());
     }
+    for (Map.Entry<String, String> entry : clientEnv.entrySet()) {
+      hasher.putInt(entry.getKey().length()).putUnencodedChars(entry.getKey());
+      hasher.putInt(entry.getValue().length()).putUnencodedChars(entry.getValue());
+    }
     return fromHashCode(hasher.hash());
   }
 
+  /**
+   * Computes the hash of a source file from its exec path and the digest of its contents, so that
+   * moving contents between files changes the sketch.
+   */
+  public static BigInteger computeSourceHash(PathFragment execPath, byte[] digest) {
+    return fromHashCode(
+        newHasher()
+            .putInt(execPath.getPathString().length())
+            .putUnencodedChars(execPath.getPathString())
+            .putBytes(digest)
+            .hash());
+  }
+
   public static Hasher newHasher() {
     return Hashing.murmur3_128().newHasher();
   }
@@ -16,6 +16,7 @@ package com.google.devtools.build.lib.bazel;
 import com.google.devtools.build.lib.bazel.execlog.StableSort;
 import com.google.devtools.build.lib.buildtool.BuildRequest;
 import com.google.devtools.build.lib.events.Event;
+import com.google.devtools.build.lib.exec.CompactSpawnLogWriter;
 import com.google.devtools.build.lib.exec.ExecutionOptions;
 import com.google.devtools.build.lib.exec.ExecutorBuilder;
 import com.google.devtools.build.lib.exec.ModuleActionContextRegistry;
@@ -35,6 +36,7 @@ import com.google.devtools.build.lib.util.io.MessageOutputStreamWrapper.JsonOutp
 import com.google.devtools.build.lib.util.io.MessageOutputStreamWrapper.MessageOutputStreamCollection;
 import com.google.devtools.build.lib.vfs.FileSystem;
 import com.google.devtools.build.lib.vfs.Path;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -97,6 +99,17 @@ public final class SpawnLogModule extends BlazeModule {
                   .getOutputStream()));
     }
 
+    CompactSpawnLogWriter compactLog = null;
+    if (executionOptions.executionLogCompactFile != null
+        && !executionOptions.executionLogCompactFile.isEmpty()) {
+      compactLog =
+          new CompactSpawnLogWriter(
+              new BufferedOutputStream(
+                  workingDirectory
+                      .getRelative(executionOptions.executionLogCompactFile)
+                      .getOutputStream()));
+    }
+
     AsynchronousFileOutputStream outStream = null;
     if (executionOptions.executionLogFile != null && !executionOptions.executionLogFile.isEmpty()) {
       rawOutput = workingDirectory.getRelative(executionOptions.executionLogFile);
@@ -110,7 +123,7 @@ public final class SpawnLogModule extends BlazeModule {
       outStream = new AsynchronousFileOutputStream(rawOutput);
     }
 
-    if (outStream == null) {
+    if (outStream == null && compactLog == null) {
       // No logging needed
       clear();
       return;
@@ -118,7 +131,10 @@ public final class SpawnLogModule extends BlazeModule {
 
     spawnLogContext =
         new SpawnLogContext(
-            env.getExecRoot(), outStream, env.getOptions().getOptions(RemoteOptions.class));
+            env.getExecRoot(),
+            outStream,
+            compactLog,
+            env.getOptions().getOptions(RemoteOptions.class));
   }
 
   @Override
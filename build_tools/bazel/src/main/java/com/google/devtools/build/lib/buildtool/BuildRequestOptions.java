@@ -434,6 +434,19 @@ public class BuildRequestOptions extends OptionsBase {
       help = "If this flag is set, use a fork join pool in the abstract queue visitor.")
   public boolean useForkJoinPool;
 
+  @Option(
+      name = "experimental_critical_path_scheduling",
+      defaultValue = "false",
+      documentationCategory = OptionDocumentationCategory.UNDOCUMENTED,
+      metadataTags = OptionMetadataTag.EXPERIMENTAL,
+      effectTags = {OptionEffectTag.EXECUTION},
+      help =
+          "If this flag is set, the critical path of each build is saved in the output base, and"
+              + " the actions that were on it are executed first in the next build, along with"
+              + " the actions they depend on. Requires"
+              + " --experimental_enable_critical_path_profiling to save the critical path.")
+  public boolean criticalPathScheduling;
+
   @Option(
       name = "experimental_replay_action_out_err",
       defaultValue = "false",
@@ -17,6 +17,8 @@ package com.google.devtools.build.lib.exec;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.devtools.build.lib.actions.ActionContext;
 import com.google.devtools.build.lib.actions.ActionExecutionContext;
 import com.google.devtools.build.lib.actions.ActionExecutionMetadata;
@@ -25,6 +27,7 @@ import com.google.devtools.build.lib.actions.Artifact.ArtifactExpander;
 import com.google.devtools.build.lib.actions.ArtifactPathResolver;
 import com.google.devtools.build.lib.actions.EnvironmentalExecException;
 import com.google.devtools.build.lib.actions.ExecException;
+import com.google.devtools.build.lib.actions.FutureSpawn;
 import com.google.devtools.build.lib.actions.LostInputsActionExecutionException;
 import com.google.devtools.build.lib.actions.LostInputsExecException;
 import com.google.devtools.build.lib.actions.MetadataProvider;
@@ -32,6 +35,7 @@ import com.google.devtools.build.lib.actions.RunningActionEvent;
 import com.google.devtools.build.lib.actions.SandboxedSpawnStrategy;
 import com.google.devtools.build.lib.actions.SchedulingActionEvent;
 import com.google.devtools.build.lib.actions.Spawn;
+import com.google.devtools.build.lib.actions.SpawnContinuation;
 import com.google.devtools.build.lib.actions.SpawnExecutedEvent;
 import com.google.devtools.build.lib.actions.SpawnResult;
 import com.google.devtools.build.lib.actions.SpawnResult.Status;
@@ -141,6 +145,99 @@ public abstract class AbstractSpawnStrategy implements SandboxedSpawnStrategy {
       // Log the Spawn and re-throw.
     }
 
+    return finishExecution(spawn, actionExecutionContext, context, spawnResult, ex);
+  }
+
+  /**
+   * Executes the spawn like {@link #exec}, but without blocking the calling thread if the runner
+   * supports asynchronous execution (see {@link SpawnRunner#execAsync}). Only applies to runners
+   * that handle caching themselves, since a spawn cache lookup has to be completed in the thread
+   * that started it.
+   */
+  @Override
+  public SpawnContinuation beginExecution(
+      Spawn spawn, ActionExecutionContext actionExecutionContext) throws InterruptedException {
+    if (!spawnRunner.handlesCaching()) {
+      return SandboxedSpawnStrategy.super.beginExecution(spawn, actionExecutionContext);
+    }
+    actionExecutionContext.maybeReportSubcommand(spawn);
+    Duration timeout;
+    try {
+      timeout = Spawns.getTimeout(spawn);
+    } catch (ExecException e) {
+      return SpawnContinuation.failedWithExecException(e);
+    }
+    SpawnExecutionContext context =
+        new SpawnExecutionContextImpl(
+            spawn, actionExecutionContext, /*stopConcurrentSpawns=*/ null, timeout);
+    FutureSpawn execution;
+    try {
+      execution = spawnRunner.execAsync(spawn, context);
+    } catch (IOException e) {
+      return SpawnContinuation.failedWithExecException(new EnvironmentalExecException(e));
+    } catch (ExecException e) {
+      // Handled like a failure of the execution, e.g. to log the spawn.
+      execution = new FutureSpawn(Futures.immediateFailedFuture(e));
+    }
+    return continueExecution(spawn, actionExecutionContext, context, execution);
+  }
+
+  private SpawnContinuation continueExecution(
+      Spawn spawn,
+      ActionExecutionContext actionExecutionContext,
+      SpawnExecutionContext context,
+      FutureSpawn execution)
+      throws InterruptedException {
+    if (execution.getFuture().isDone()) {
+      try {
+        return SpawnContinuation.immediate(
+            completeExecution(spawn, actionExecutionContext, context, execution));
+      } catch (ExecException e) {
+        return SpawnContinuation.failedWithExecException(e);
+      }
+    }
+    return new SpawnContinuation() {
+      @Override
+      public ListenableFuture<?> getFuture() {
+        return execution.getFuture();
+      }
+
+      @Override
+      public SpawnContinuation execute() throws ExecException, InterruptedException {
+        return SpawnContinuation.immediate(
+            completeExecution(spawn, actionExecutionContext, context, execution));
+      }
+    };
+  }
+
+  private ImmutableList<SpawnResult> completeExecution(
+      Spawn spawn,
+      ActionExecutionContext actionExecutionContext,
+      SpawnExecutionContext context,
+      FutureSpawn futureSpawn)
+      throws ExecException, InterruptedException {
+    SpawnResult spawnResult;
+    ExecException ex = null;
+    try {
+      spawnResult = futureSpawn.get();
+      actionExecutionContext
+          .getEventHandler()
+          .post(new SpawnExecutedEvent(spawn, spawnResult, Instant.now()));
+    } catch (SpawnExecException e) {
+      ex = e;
+      spawnResult = e.getSpawnResult();
+    }
+    return finishExecution(spawn, actionExecutionContext, context, spawnResult, ex);
+  }
+
+  /** Logs the executed spawn, and throws {@code ex} or an exception for a failed spawn, if any. */
+  private static ImmutableList<SpawnResult> finishExecution(
+      Spawn spawn,
+      ActionExecutionContext actionExecutionContext,
+      SpawnExecutionContext context,
+      SpawnResult spawnResult,
+      @Nullable ExecException ex)
+      throws ExecException {
     SpawnLogContext spawnLogContext = actionExecutionContext.getContext(SpawnLogContext.class);
     if (spawnLogContext != null) {
       try {
@@ -214,6 +311,16 @@ public abstract class AbstractSpawnStrategy implements SandboxedSpawnStrategy {
       }
     }
 
+    @Override
+    public void startPrefetchingInputs(boolean expandTreeArtifactsInRunfiles) throws IOException {
+      if (Spawns.shouldPrefetchInputsForLocalExecution(spawn)) {
+        actionExecutionContext
+            .getActionInputPrefetcher()
+            .prefetchFilesInBackground(
+                getInputMapping(expandTreeArtifactsInRunfiles).values(), getMetadataProvider());
+      }
+    }
+
     @Override
     public MetadataProvider getMetadataProvider() {
       return actionExecutionContext.getMetadataProvider();
@@ -0,0 +1,316 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.lib.exec;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import com.google.common.hash.HashCode;
+import com.google.devtools.build.lib.concurrent.ThreadSafety.ThreadSafe;
+import com.google.devtools.build.lib.exec.Protos.Digest;
+import com.google.devtools.build.lib.exec.Protos.EnvironmentVariable;
+import com.google.devtools.build.lib.exec.Protos.File;
+import com.google.devtools.build.lib.exec.Protos.Platform;
+import com.google.devtools.build.lib.exec.Protos.SpawnExec;
+import com.google.protobuf.CodedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Writes the execution log in a compact format, in which everything that is shared between spawns
+ * is written only once.
+ *
+ * <p>The log consists of entries, each of which is identified by its position in the log, starting
+ * at 1. Strings, e.g. paths and arguments, are entries of their own and referred to by their
+ * identifier, as are input files. The inputs of a spawn are a tree of input sets, which mirrors the
+ * structure of the spawn's input {@code NestedSet}, so that the inputs shared by many spawns are
+ * only listed once. Entries are written in blocks that are compressed independently of each other,
+ * which allows readers to decompress them in parallel. The format is:
+ *
+ * <pre>
+ * log       := MAGIC version:varint block*
+ * block     := first_id:varint entry_count:varint size:varint compressed_size:varint
+ *              deflate(entry*)
+ * entry     := STRING value:string
+ *            | FILE path:string_id hash_function:string_id hash:bytes size:varint64
+ *            | INPUT_SET file_count:varint file_id* set_count:varint set_id*
+ *            | SPAWN ...
+ * </pre>
+ *
+ * <p>An identifier of 0 refers to the empty string or to no input set. See {@link #writeSpawn} for
+ * the fields of a spawn, all of which use the protobuf wire encoding without tags. The format must
+ * be kept in sync with the parser in {@code src/tools/execlog}.
+ */
+@ThreadSafe
+public final class CompactSpawnLogWriter implements AutoCloseable {
+
+  static final byte[] MAGIC = "BZLCXLOG".getBytes(US_ASCII);
+  static final int VERSION = 1;
+
+  static final int STRING = 1;
+  static final int FILE = 2;
+  static final int INPUT_SET = 3;
+  static final int SPAWN = 4;
+
+  /** The size of the uncompressed entries above which a block is written. */
+  private static final int BLOCK_SIZE = 1024 * 1024;
+
+  /** Computes the digest of a file that hasn't been logged yet. */
+  @FunctionalInterface
+  public interface DigestSupplier {
+    Digest get() throws IOException;
+  }
+
+  /** Encodes the payload of an entry. */
+  @FunctionalInterface
+  private interface Encoder {
+    void encode(CodedOutputStream out) throws IOException;
+  }
+
+  private final OutputStream out;
+
+  private final ConcurrentHashMap<String, Integer> strings = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Integer> files = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<Object, Integer> inputSets = new ConcurrentHashMap<>();
+
+  @GuardedBy("this")
+  private ByteArrayOutputStream block = new ByteArrayOutputStream();
+
+  @GuardedBy("this")
+  private int blockFirstId = 1;
+
+  @GuardedBy("this")
+  private int nextId = 1;
+
+  public CompactSpawnLogWriter(OutputStream out) throws IOException {
+    this.out = out;
+    CodedOutputStream header = CodedOutputStream.newInstance(out);
+    header.writeRawBytes(MAGIC);
+    header.writeUInt32NoTag(VERSION);
+    header.flush();
+  }
+
+  /** Returns the identifier of {@code s}, writing it if it wasn't written before. */
+  public int getStringId(String s) throws IOException {
+    if (s.isEmpty()) {
+      return 0;
+    }
+    Integer id = strings.get(s);
+    if (id != null) {
+      return id;
+    }
+    // Concurrent callers may write the same string twice, which is harmless.
+    int newId = append(STRING, out -> out.writeStringNoTag(s));
+    id = strings.putIfAbsent(s, newId);
+    return id != null ? id : newId;
+  }
+
+  /**
+   * Returns the identifier of the file at {@code path}, which is relative to the execution root,
+   * writing it if it wasn't written before. The contents of a file are assumed not to change while
+   * it is logged, so that {@code digest} is only called for new files.
+   */
+  public int getFileId(String path, DigestSupplier digest) throws IOException {
+    Integer id = files.get(path);
+    if (id != null) {
+      return id;
+    }
+    Digest d = digest.get();
+    int pathId = getStringId(path);
+    int hashFunctionId = getStringId(d.getHashFunctionName());
+    byte[] hash = HashCode.fromString(d.getHash()).asBytes();
+    int newId =
+        append(
+            FILE,
+            out -> {
+              out.writeUInt32NoTag(pathId);
+              out.writeUInt32NoTag(hashFunctionId);
+              out.writeByteArrayNoTag(hash);
+              out.writeUInt64NoTag(d.getSizeBytes());
+            });
+    id = files.putIfAbsent(path, newId);
+    return id != null ? id : newId;
+  }
+
+  /** Returns the identifier of the input set that was written for {@code key}, if any. */
+  @Nullable
+  public Integer getInputSetId(Object key) {
+    return inputSets.get(key);
+  }
+
+  /**
+   * Writes an input set that consists of the given files and the contents of the given input sets.
+   *
+   * @param key identifies the input set in later calls to {@link #getInputSetId}, or {@code null}
+   *     if it's specific to a single spawn
+   */
+  public int addInputSet(@Nullable Object key, int[] fileIds, int[] inputSetIds)
+      throws IOException {
+    int id =
+        append(
+            INPUT_SET,
+            out -> {
+              writeIds(out, fileIds);
+              writeIds(out, inputSetIds);
+            });
+    if (key != null) {
+      Integer existing = inputSets.putIfAbsent(key, id);
+      if (existing != null) {
+        return existing;
+      }
+    }
+    return id;
+  }
+
+  /**
+   * Writes a spawn whose inputs are the input set with the given identifier. The inputs of {@code
+   * spawn} must be empty. Its fields are written in the following order:
+   *
+   * <pre>
+   * arg_count:varint arg:string_id*
+   * env_count:varint (name:string_id value:string_id)*
+   * platform_property_count:varint (name:string_id value:string_id)*
+   * input_set:varint
+   * listed_output_count:varint listed_output:string_id*
+   * actual_output_count:varint actual_output:file_id*
+   * remotable:bool cacheable:bool timeout_millis:varint64 progress_message:string_id
+   * mnemonic:string_id runner:string_id remote_cache_hit:bool status:string_id exit_code:sint32
+   * </pre>
+   */
+  public void writeSpawn(SpawnExec spawn, int inputSetId) throws IOException {
+    checkArgument(spawn.getInputsCount() == 0, "inputs must be logged as an input set");
+    int[] args = new int[spawn.getCommandArgsCount()];
+    for (int i = 0; i < args.length; i++) {
+      args[i] = getStringId(spawn.getCommandArgs(i));
+    }
+    int[] env = new int[spawn.getEnvironmentVariablesCount() * 2];
+    for (int i = 0; i < spawn.getEnvironmentVariablesCount(); i++) {
+      EnvironmentVariable var = spawn.getEnvironmentVariables(i);
+      env[2 * i] = getStringId(var.getName());
+      env[2 * i + 1] = getStringId(var.getValue());
+    }
+    int[] platform = new int[spawn.getPlatform().getPropertiesCount() * 2];
+    for (int i = 0; i < spawn.getPlatform().getPropertiesCount(); i++) {
+      Platform.Property property = spawn.getPlatform().getProperties(i);
+      platform[2 * i] = getStringId(property.getName());
+      platform[2 * i + 1] = getStringId(property.getValue());
+    }
+    int[] listedOutputs = new int[spawn.getListedOutputsCount()];
+    for (int i = 0; i < listedOutputs.length; i++) {
+      listedOutputs[i] = getStringId(spawn.getListedOutputs(i));
+    }
+    int[] actualOutputs = new int[spawn.getActualOutputsCount()];
+    for (int i = 0; i < actualOutputs.length; i++) {
+      File output = spawn.getActualOutputs(i);
+      actualOutputs[i] = getFileId(output.getPath(), output::getDigest);
+    }
+    int progressMessageId = getStringId(spawn.getProgressMessage());
+    int mnemonicId = getStringId(spawn.getMnemonic());
+    int runnerId = getStringId(spawn.getRunner());
+    int statusId = getStringId(spawn.getStatus());
+    append(
+        SPAWN,
+        out -> {
+          writeIds(out, args);
+          out.writeUInt32NoTag(env.length / 2);
+          writeRawIds(out, env);
+          out.writeUInt32NoTag(platform.length / 2);
+          writeRawIds(out, platform);
+          out.writeUInt32NoTag(inputSetId);
+          writeIds(out, listedOutputs);
+          writeIds(out, actualOutputs);
+          out.writeBoolNoTag(spawn.getRemotable());
+          out.writeBoolNoTag(spawn.getCacheable());
+          out.writeUInt64NoTag(spawn.getTimeoutMillis());
+          out.writeUInt32NoTag(progressMessageId);
+          out.writeUInt32NoTag(mnemonicId);
+          out.writeUInt32NoTag(runnerId);
+          out.writeBoolNoTag(spawn.getRemoteCacheHit());
+          out.writeUInt32NoTag(statusId);
+          out.writeSInt32NoTag(spawn.getExitCode());
+        });
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    try {
+      flushBlock();
+    } finally {
+      out.close();
+    }
+  }
+
+  private static void writeIds(CodedOutputStream out, int[] ids) throws IOException {
+    out.writeUInt32NoTag(ids.length);
+    writeRawIds(out, ids);
+  }
+
+  private static void writeRawIds(CodedOutputStream out, int[] ids) throws IOException {
+    for (int id : ids) {
+      out.writeUInt32NoTag(id);
+    }
+  }
+
+  /** Appends an entry to the current block and returns its identifier. */
+  private int append(int kind, Encoder encoder) throws IOException {
+    // Entries are encoded outside of the lock, so that only copying them is serialized.
+    ByteArrayOutputStream entry = new ByteArrayOutputStream();
+    CodedOutputStream entryOut = CodedOutputStream.newInstance(entry);
+    entryOut.writeUInt32NoTag(kind);
+    encoder.encode(entryOut);
+    entryOut.flush();
+    synchronized (this) {
+      entry.writeTo(block);
+      int id = nextId++;
+      if (block.size() >= BLOCK_SIZE) {
+        flushBlock();
+      }
+      return id;
+    }
+  }
+
+  @GuardedBy("this")
+  private void flushBlock() throws IOException {
+    if (nextId == blockFirstId) {
+      return;
+    }
+    byte[] uncompressed = block.toByteArray();
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(uncompressed.length / 4);
+    try {
+      deflater.setInput(uncompressed);
+      deflater.finish();
+      byte[] buffer = new byte[64 * 1024];
+      while (!deflater.finished()) {
+        compressed.write(buffer, 0, deflater.deflate(buffer));
+      }
+    } finally {
+      deflater.end();
+    }
+    CodedOutputStream header = CodedOutputStream.newInstance(out);
+    header.writeUInt32NoTag(blockFirstId);
+    header.writeUInt32NoTag(nextId - blockFirstId);
+    header.writeUInt32NoTag(uncompressed.length);
+    header.writeUInt32NoTag(compressed.size());
+    header.flush();
+    compressed.writeTo(out);
+    block = new ByteArrayOutputStream();
+    blockFirstId = nextId;
+  }
+}
@@ -445,6 +445,20 @@ public class ExecutionOptions extends OptionsBase {
               + " protos.")
   public PathFragment executionLogJsonFile;
 
+  @Option(
+      name = "experimental_execution_log_compact_file",
+      defaultValue = "null",
+      category = "verbosity",
+      documentationCategory = OptionDocumentationCategory.UNCATEGORIZED,
+      effectTags = {OptionEffectTag.UNKNOWN},
+      converter = OptionsUtils.PathFragmentConverter.class,
+      help =
+          "Log the executed spawns into this file in a compact format, in which strings, files "
+              + "and sets of inputs shared between spawns are written only once. The spawns are "
+              + "not sorted. Use src/tools/execlog to convert the log to text or to compare the "
+              + "logs of two builds.")
+  public PathFragment executionLogCompactFile;
+
   @Option(
       name = "experimental_split_xml_generation",
       defaultValue = "true",
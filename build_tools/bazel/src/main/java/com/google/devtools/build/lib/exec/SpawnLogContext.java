@@ -17,8 +17,10 @@ import build.bazel.remote.execution.v2.Platform;
 import com.google.common.base.Preconditions;
 import com.google.common.flogger.GoogleLogger;
 import com.google.common.hash.HashCode;
+import com.google.common.primitives.Ints;
 import com.google.devtools.build.lib.actions.ActionContext;
 import com.google.devtools.build.lib.actions.ActionInput;
+import com.google.devtools.build.lib.actions.Artifact;
 import com.google.devtools.build.lib.actions.ExecException;
 import com.google.devtools.build.lib.actions.FileArtifactValue;
 import com.google.devtools.build.lib.actions.MetadataProvider;
@@ -27,6 +29,8 @@ import com.google.devtools.build.lib.actions.SpawnResult;
 import com.google.devtools.build.lib.actions.Spawns;
 import com.google.devtools.build.lib.actions.cache.VirtualActionInput;
 import com.google.devtools.build.lib.analysis.platform.PlatformUtils;
+import com.google.devtools.build.lib.collect.nestedset.NestedSet;
+import com.google.devtools.build.lib.collect.nestedset.NestedSetView;
 import com.google.devtools.build.lib.exec.Protos.Digest;
 import com.google.devtools.build.lib.exec.Protos.File;
 import com.google.devtools.build.lib.exec.Protos.SpawnExec;
@@ -43,8 +47,10 @@ import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
@@ -58,13 +64,27 @@ public class SpawnLogContext implements ActionContext {
 
   private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
   private final Path execRoot;
-  private final MessageOutputStream executionLog;
+  @Nullable private final MessageOutputStream executionLog;
+  @Nullable private final CompactSpawnLogWriter compactExecutionLog;
   @Nullable private final RemoteOptions remoteOptions;
 
   public SpawnLogContext(
       Path execRoot, MessageOutputStream executionLog, @Nullable RemoteOptions remoteOptions) {
+    this(execRoot, executionLog, /* compactExecutionLog= */ null, remoteOptions);
+  }
+
+  /**
+   * @param executionLog the stream to write delimited {@link SpawnExec} protos to, or {@code null}
+   * @param compactExecutionLog the writer of the compact execution log, or {@code null}
+   */
+  public SpawnLogContext(
+      Path execRoot,
+      @Nullable MessageOutputStream executionLog,
+      @Nullable CompactSpawnLogWriter compactExecutionLog,
+      @Nullable RemoteOptions remoteOptions) {
     this.execRoot = execRoot;
     this.executionLog = executionLog;
+    this.compactExecutionLog = compactExecutionLog;
     this.remoteOptions = remoteOptions;
   }
 
@@ -87,20 +107,6 @@ public class SpawnLogContext implements ActionContext {
       builder.addEnvironmentVariablesBuilder().setName(var).setValue(env.get(var));
     }
 
-    try {
-      for (Map.Entry<PathFragment, ActionInput> e : inputMap.entrySet()) {
-        ActionInput input = e.getValue();
-        Path inputPath = execRoot.getRelative(input.getExecPathString());
-        if (inputPath.isDirectory()) {
-          listDirectoryContents(inputPath, (file) -> builder.addInputs(file), metadataProvider);
-        } else {
-          Digest digest = computeDigest(input, null, metadataProvider);
-          builder.addInputsBuilder().setPath(input.getExecPathString()).setDigest(digest);
-        }
-      }
-    } catch (IOException e) {
-      logger.atWarning().withCause(e).log("Error computing spawn inputs");
-    }
     ArrayList<String> outputPaths = new ArrayList<>();
     for (ActionInput output : spawn.getOutputFiles()) {
       outputPaths.add(output.getExecPathString());
@@ -142,11 +148,144 @@ public class SpawnLogContext implements ActionContext {
       builder.setProgressMessage(progressMessage);
     }
     builder.setMnemonic(spawn.getMnemonic());
-    executionLog.write(builder.build());
+
+    if (compactExecutionLog != null) {
+      compactExecutionLog.writeSpawn(
+          builder.build(), logInputs(spawn, inputMap, metadataProvider));
+    }
+    if (executionLog != null) {
+      try {
+        for (Map.Entry<PathFragment, ActionInput> e : inputMap.entrySet()) {
+          ActionInput input = e.getValue();
+          Path inputPath = execRoot.getRelative(input.getExecPathString());
+          if (inputPath.isDirectory()) {
+            listDirectoryContents(inputPath, (file) -> builder.addInputs(file), metadataProvider);
+          } else {
+            Digest digest = computeDigest(input, null, metadataProvider);
+            builder.addInputsBuilder().setPath(input.getExecPathString()).setDigest(digest);
+          }
+        }
+      } catch (IOException e) {
+        logger.atWarning().withCause(e).log("Error computing spawn inputs");
+      }
+      executionLog.write(builder.build());
+    }
   }
 
   public void close() throws IOException {
-    executionLog.close();
+    try {
+      if (executionLog != null) {
+        executionLog.close();
+      }
+    } finally {
+      if (compactExecutionLog != null) {
+        compactExecutionLog.close();
+      }
+    }
+  }
+
+  /**
+   * Writes the inputs of {@code spawn} to the compact execution log and returns the identifier of
+   * the input set containing them.
+   *
+   * <p>The input files of the spawn are written as input sets that mirror their nested set, so
+   * that inputs shared between spawns are written once. Inputs that aren't part of the input files,
+   * e.g. runfiles, are added to an input set of their own.
+   */
+  private int logInputs(
+      Spawn spawn, SortedMap<PathFragment, ActionInput> inputMap, MetadataProvider metadataProvider)
+      throws IOException {
+    @SuppressWarnings("unchecked")
+    NestedSet<ActionInput> inputFiles = (NestedSet<ActionInput>) spawn.getInputFiles();
+    int inputFilesId = logInputSet(new NestedSetView<>(inputFiles), metadataProvider);
+    Set<PathFragment> inputFilePaths = new HashSet<>();
+    for (ActionInput input : inputFiles.toList()) {
+      inputFilePaths.add(input.getExecPath());
+    }
+    List<Integer> fileIds = new ArrayList<>();
+    List<Integer> inputSetIds = new ArrayList<>();
+    inputSetIds.add(inputFilesId);
+    for (ActionInput input : inputMap.values()) {
+      if (!isCovered(input.getExecPath(), inputFilePaths)) {
+        logInput(input, fileIds, inputSetIds, metadataProvider);
+      }
+    }
+    if (inputSetIds.size() == 1 && fileIds.isEmpty()) {
+      return inputFilesId;
+    }
+    return compactExecutionLog.addInputSet(
+        /* key= */ null, Ints.toArray(fileIds), Ints.toArray(inputSetIds));
+  }
+
+  /** Returns true if {@code path} or one of its ancestors is in {@code paths}. */
+  private static boolean isCovered(PathFragment path, Set<PathFragment> paths) {
+    for (PathFragment p = path; p != null; p = p.getParentDirectory()) {
+      if (paths.contains(p)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private int logInputSet(NestedSetView<ActionInput> view, MetadataProvider metadataProvider)
+      throws IOException {
+    Integer id = compactExecutionLog.getInputSetId(view.identifier());
+    if (id != null) {
+      return id;
+    }
+    List<Integer> fileIds = new ArrayList<>();
+    List<Integer> inputSetIds = new ArrayList<>();
+    for (NestedSetView<ActionInput> transitive : view.transitives()) {
+      inputSetIds.add(logInputSet(transitive, metadataProvider));
+    }
+    for (ActionInput input : view.directs()) {
+      if (input instanceof Artifact && ((Artifact) input).isMiddlemanArtifact()) {
+        continue;
+      }
+      logInput(input, fileIds, inputSetIds, metadataProvider);
+    }
+    return compactExecutionLog.addInputSet(
+        view.identifier(), Ints.toArray(fileIds), Ints.toArray(inputSetIds));
+  }
+
+  /**
+   * Writes {@code input} to the compact execution log, adding its identifier to {@code fileIds} if
+   * it's a file, or the identifier of the input set with its contents to {@code inputSetIds} if
+   * it's a directory.
+   */
+  private void logInput(
+      ActionInput input,
+      List<Integer> fileIds,
+      List<Integer> inputSetIds,
+      MetadataProvider metadataProvider)
+      throws IOException {
+    Path inputPath = execRoot.getRelative(input.getExecPathString());
+    if (!inputPath.isDirectory()) {
+      try {
+        fileIds.add(
+            compactExecutionLog.getFileId(
+                input.getExecPathString(), () -> computeDigest(input, null, metadataProvider)));
+      } catch (IOException e) {
+        logger.atWarning().withCause(e).log("Error computing spawn input %s", inputPath);
+      }
+      return;
+    }
+    Integer id = compactExecutionLog.getInputSetId(inputPath);
+    if (id == null) {
+      List<Integer> contents = new ArrayList<>();
+      listDirectoryContents(
+          inputPath,
+          (file) -> {
+            try {
+              contents.add(compactExecutionLog.getFileId(file.getPath(), file::getDigest));
+            } catch (IOException e) {
+              logger.atWarning().withCause(e).log("Error logging spawn input %s", file.getPath());
+            }
+          },
+          metadataProvider);
+      id = compactExecutionLog.addInputSet(inputPath, Ints.toArray(contents), new int[0]);
+    }
+    inputSetIds.add(id);
   }
 
   private static Protos.Platform buildPlatform(Platform platform) {
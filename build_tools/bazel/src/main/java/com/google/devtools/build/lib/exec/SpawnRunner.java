@@ -161,6 +161,17 @@ public interface SpawnRunner {
      */
     void prefetchInputs() throws IOException, InterruptedException;
 
+    /**
+     * Starts prefetching the Spawns input files in the background, without waiting for them. Local
+     * strategies may call this before waiting for local resources, so that the downloads overlap
+     * with the wait. {@link #prefetchInputs} must still be called before local execution.
+     *
+     * @param expandTreeArtifactsInRunfiles the value that the strategy passes to {@link
+     *     #getInputMapping}, which is computed here if it wasn't yet
+     */
+    default void startPrefetchingInputs(boolean expandTreeArtifactsInRunfiles)
+        throws IOException {}
+
     /**
      * The input file metadata cache for this specific spawn, which can be used to efficiently
      * obtain file digests and sizes.
@@ -168,6 +168,7 @@ public class LocalSpawnRunner implements SpawnRunner {
             .profile(ProfilerTask.LOCAL_EXECUTION, spawn.getResourceOwner().getMnemonic())) {
       ActionExecutionMetadata owner = spawn.getResourceOwner();
       context.report(ProgressStatus.SCHEDULING, getName());
+      context.startPrefetchingInputs(/* expandTreeArtifactsInRunfiles= */ true);
       try (ResourceHandle handle =
           resourceManager.acquireResources(owner, spawn.getLocalResources())) {
         context.report(ProgressStatus.EXECUTING, getName());
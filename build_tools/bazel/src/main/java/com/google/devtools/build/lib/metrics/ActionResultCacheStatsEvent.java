@@ -0,0 +1,46 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.lib.metrics;
+
+/**
+ * Event carrying statistics about the action cache lookups that were answered from memory during a
+ * command, see {@code --experimental_remote_action_result_cache_size}.
+ */
+public final class ActionResultCacheStatsEvent {
+
+  private final long hits;
+  private final long misses;
+  private final long validations;
+
+  public ActionResultCacheStatsEvent(long hits, long misses, long validations) {
+    this.hits = hits;
+    this.misses = misses;
+    this.validations = validations;
+  }
+
+  /** Returns the number of lookups that were answered without the remote cache. */
+  public long getHits() {
+    return hits;
+  }
+
+  /** Returns the number of lookups that had to go to the remote cache. */
+  public long getMisses() {
+    return misses;
+  }
+
+  /** Returns the number of remembered results whose outputs were checked in the remote cache. */
+  public long getValidations() {
+    return validations;
+  }
+}
@@ -0,0 +1,110 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.lib.metrics;
+
+import java.time.Duration;
+
+/** Event carrying statistics about the use of the disk cache during a command. */
+public final class DiskCacheStatsEvent {
+
+  private final long hits;
+  private final long misses;
+  private final long bytesEvicted;
+  private final long entriesEvicted;
+  private final Duration gcTime;
+  private final long writeBehindUploads;
+  private final long writeBehindMaxQueueDepth;
+  private final Duration writeBehindMaxLag;
+  private final Duration writeBehindDrainTime;
+
+  public DiskCacheStatsEvent(
+      long hits, long misses, long bytesEvicted, long entriesEvicted, Duration gcTime) {
+    this(
+        hits,
+        misses,
+        bytesEvicted,
+        entriesEvicted,
+        gcTime,
+        /* writeBehindUploads= */ 0,
+        /* writeBehindMaxQueueDepth= */ 0,
+        Duration.ZERO,
+        Duration.ZERO);
+  }
+
+  public DiskCacheStatsEvent(
+      long hits,
+      long misses,
+      long bytesEvicted,
+      long entriesEvicted,
+      Duration gcTime,
+      long writeBehindUploads,
+      long writeBehindMaxQueueDepth,
+      Duration writeBehindMaxLag,
+      Duration writeBehindDrainTime) {
+    this.hits = hits;
+    this.misses = misses;
+    this.bytesEvicted = bytesEvicted;
+    this.entriesEvicted = entriesEvicted;
+    this.gcTime = gcTime;
+    this.writeBehindUploads = writeBehindUploads;
+    this.writeBehindMaxQueueDepth = writeBehindMaxQueueDepth;
+    this.writeBehindMaxLag = writeBehindMaxLag;
+    this.writeBehindDrainTime = writeBehindDrainTime;
+  }
+
+  /** Returns the number of lookups that found an entry in the disk cache. */
+  public long getHits() {
+    return hits;
+  }
+
+  /** Returns the number of lookups that didn't find an entry in the disk cache. */
+  public long getMisses() {
+    return misses;
+  }
+
+  /** Returns the number of bytes deleted by the garbage collector. */
+  public long getBytesEvicted() {
+    return bytesEvicted;
+  }
+
+  /** Returns the number of entries deleted by the garbage collector. */
+  public long getEntriesEvicted() {
+    return entriesEvicted;
+  }
+
+  /** Returns the total time spent in garbage collection. */
+  public Duration getGcTime() {
+    return gcTime;
+  }
+
+  /** Returns the number of uploads to the remote cache that ran in the background. */
+  public long getWriteBehindUploads() {
+    return writeBehindUploads;
+  }
+
+  /** Returns the largest number of background uploads that were pending at the same time. */
+  public long getWriteBehindMaxQueueDepth() {
+    return writeBehindMaxQueueDepth;
+  }
+
+  /** Returns the longest time between queueing a background upload and its completion. */
+  public Duration getWriteBehindMaxLag() {
+    return writeBehindMaxLag;
+  }
+
+  /** Returns the time spent waiting for the remaining background uploads at the end. */
+  public Duration getWriteBehindDrainTime() {
+    return writeBehindDrainTime;
+  }
+}
@@ -19,6 +19,8 @@ import com.google.devtools.build.lib.actions.ActionCompletionEvent;
 import com.google.devtools.build.lib.analysis.AnalysisPhaseCompleteEvent;
 import com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics;
 import com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionSummary;
+import com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.ActionResultCacheMetrics;
+import com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.DiskCacheMetrics;
 import com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.MemoryMetrics;
 import com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.PackageMetrics;
 import com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildMetrics.TargetMetrics;
@@ -43,6 +45,8 @@ class MetricsCollector {
   private int targetsLoaded;
   private int targetsConfigured;
   private int packagesLoaded;
+  private DiskCacheStatsEvent diskCacheStats;
+  private ActionResultCacheStatsEvent actionResultCacheStats;
 
   MetricsCollector(CommandEnvironment env) {
     this.env = env;
@@ -70,6 +74,16 @@ class MetricsCollector {
     executedActionCount.incrementAndGet();
   }
 
+  @Subscribe
+  public void onDiskCacheStats(DiskCacheStatsEvent event) {
+    diskCacheStats = event;
+  }
+
+  @Subscribe
+  public void onActionResultCacheStats(ActionResultCacheStatsEvent event) {
+    actionResultCacheStats = event;
+  }
+
   @Subscribe
   public void onBuildComplete(BuildPrecompleteEvent event) {
     env.getEventBus().post(new BuildMetricsEvent(createBuildMetrics()));
@@ -82,6 +96,12 @@ class MetricsCollector {
     metrics.setTargetMetrics(createTargetMetrics());
     metrics.setPackageMetrics(createPackageMetrics());
     metrics.setTimingMetrics(createTimingMetrics());
+    if (diskCacheStats != null) {
+      metrics.setDiskCacheMetrics(createDiskCacheMetrics(diskCacheStats));
+    }
+    if (actionResultCacheStats != null) {
+      metrics.setActionResultCacheMetrics(createActionResultCacheMetrics(actionResultCacheStats));
+    }
     return metrics.build();
   }
 
@@ -118,6 +138,29 @@ class MetricsCollector {
     return PackageMetrics.newBuilder().setPackagesLoaded(packagesLoaded).build();
   }
 
+  private static DiskCacheMetrics createDiskCacheMetrics(DiskCacheStatsEvent stats) {
+    return DiskCacheMetrics.newBuilder()
+        .setHits(stats.getHits())
+        .setMisses(stats.getMisses())
+        .setBytesEvicted(stats.getBytesEvicted())
+        .setEntriesEvicted(stats.getEntriesEvicted())
+        .setGcTimeInMs(stats.getGcTime().toMillis())
+        .setWriteBehindUploads(stats.getWriteBehindUploads())
+        .setWriteBehindMaxQueueDepth(stats.getWriteBehindMaxQueueDepth())
+        .setWriteBehindMaxLagInMs(stats.getWriteBehindMaxLag().toMillis())
+        .setWriteBehindDrainTimeInMs(stats.getWriteBehindDrainTime().toMillis())
+        .build();
+  }
+
+  private static ActionResultCacheMetrics createActionResultCacheMetrics(
+      ActionResultCacheStatsEvent stats) {
+    return ActionResultCacheMetrics.newBuilder()
+        .setHits(stats.getHits())
+        .setMisses(stats.getMisses())
+        .setValidations(stats.getValidations())
+        .build();
+  }
+
   private static TimingMetrics createTimingMetrics() {
     TimingMetrics.Builder timingMetricsBuilder = TimingMetrics.newBuilder();
     Duration elapsedWallTime = Profiler.elapsedTimeMaybe();
@@ -74,6 +74,8 @@ public enum ProfilerTask {
   REMOTE_CACHE_CHECK("remote action cache check"),
   REMOTE_DOWNLOAD("remote output download"),
   REMOTE_NETWORK("remote network"),
+  REMOTE_CONCURRENCY_LIMIT("remote concurrency limit"),
+  REMOTE_CALL_QUEUE("Remote call queuing time", Threshold.FIFTY_MILLIS),
   UNKNOWN("Unknown event");
 
   private static class Threshold {
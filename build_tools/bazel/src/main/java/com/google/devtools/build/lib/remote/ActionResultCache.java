@@ -0,0 +1,175 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.lib.remote;
+
+import build.bazel.remote.execution.v2.ActionResult;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.devtools.build.lib.clock.Clock;
+import com.google.devtools.build.lib.concurrent.ThreadSafety.ThreadSafe;
+import com.google.devtools.build.lib.remote.common.RemoteCacheClient.ActionKey;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+/**
+ * A bounded cache of the results of recent action cache lookups, which allows to skip looking up
+ * the same action in the remote cache again, e.g. in the next incremental build.
+ *
+ * <p>Found results are kept for a bounded time, as the remote cache may evict their outputs, and
+ * may additionally be checked before they are used again. As such a check is a round trip of its
+ * own, a result that was checked or looked up recently is used without checking it again. Results
+ * that weren't found are only remembered for a short time, since another build may upload them in
+ * the meantime. An instance is meant to outlive a single command, as long as the remote cache it
+ * refers to doesn't change.
+ */
+@ThreadSafe
+public final class ActionResultCache {
+
+  /** The outcome of a lookup, i.e. a result or a miss that expires. */
+  private static final class Entry {
+    @Nullable final ActionResult result;
+    final long expirationTimeMillis;
+    /** The time after which {@link #result} must be validated again before it is used. */
+    final long validationTimeMillis;
+
+    Entry(@Nullable ActionResult result, long expirationTimeMillis, long validationTimeMillis) {
+      this.result = result;
+      this.expirationTimeMillis = expirationTimeMillis;
+      this.validationTimeMillis = validationTimeMillis;
+    }
+  }
+
+  private final Clock clock;
+  private final long ttlMillis;
+  private final long negativeTtlMillis;
+  private final long validationIntervalMillis;
+  private final Cache<ActionKey, Entry> entries;
+
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong validationCount = new AtomicLong();
+
+  /**
+   * @param validationInterval how long a result that was looked up or validated is used without
+   *     validating it again
+   */
+  public ActionResultCache(
+      Clock clock, long maxSize, Duration ttl, Duration negativeTtl, Duration validationInterval) {
+    this.clock = clock;
+    this.ttlMillis = ttl.toMillis();
+    this.negativeTtlMillis = negativeTtl.toMillis();
+    this.validationIntervalMillis = validationInterval.toMillis();
+    this.entries = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+  }
+
+  /** Looks up the result of an action in the remote cache. */
+  @FunctionalInterface
+  public interface Lookup {
+    @Nullable
+    ActionResult get() throws IOException, InterruptedException;
+  }
+
+  /** Checks whether a remembered result can still be used, e.g. whether its outputs exist. */
+  @FunctionalInterface
+  public interface Validator {
+    boolean isValid(ActionResult result) throws IOException, InterruptedException;
+  }
+
+  /**
+   * Returns the result of {@code actionKey}, or {@code null} if it isn't in the remote cache. Only
+   * calls {@code lookup} if the result isn't known yet. Results with a non-zero exit code are not
+   * remembered, as they are usually not accepted as a cache hit.
+   */
+  @Nullable
+  public ActionResult get(ActionKey actionKey, Lookup lookup)
+      throws IOException, InterruptedException {
+    return get(actionKey, lookup, result -> true);
+  }
+
+  /**
+   * Like {@link #get(ActionKey, Lookup)}, but a remembered result is only returned if {@code
+   * validator} accepts it. Otherwise it is forgotten and looked up again. The validator isn't
+   * called for results that were looked up or validated within the validation interval.
+   */
+  @Nullable
+  public ActionResult get(ActionKey actionKey, Lookup lookup, Validator validator)
+      throws IOException, InterruptedException {
+    Entry entry = entries.getIfPresent(actionKey);
+    if (entry != null
+        && entry.expirationTimeMillis > clock.currentTimeMillis()
+        && isValid(actionKey, entry, validator)) {
+      hitCount.incrementAndGet();
+      return entry.result;
+    }
+    missCount.incrementAndGet();
+    ActionResult result = lookup.get();
+    if (result == null || result.getExitCode() == 0) {
+      put(actionKey, result);
+    } else {
+      entries.invalidate(actionKey);
+    }
+    return result;
+  }
+
+  private boolean isValid(ActionKey actionKey, Entry entry, Validator validator)
+      throws IOException, InterruptedException {
+    if (entry.result == null || entry.validationTimeMillis > clock.currentTimeMillis()) {
+      return true;
+    }
+    validationCount.incrementAndGet();
+    if (!validator.isValid(entry.result)) {
+      return false;
+    }
+    long validationTimeMillis = clock.currentTimeMillis() + validationIntervalMillis;
+    Entry validated = new Entry(entry.result, entry.expirationTimeMillis, validationTimeMillis);
+    // Don't overwrite a result that was updated or invalidated in the meantime.
+    entries.asMap().replace(actionKey, entry, validated);
+    return true;
+  }
+
+  /**
+   * Records the result of {@code actionKey} in the remote cache, or that it is missing if {@code
+   * result} is {@code null}.
+   */
+  public void put(ActionKey actionKey, @Nullable ActionResult result) {
+    long now = clock.currentTimeMillis();
+    long expirationTimeMillis = now + (result != null ? ttlMillis : negativeTtlMillis);
+    entries.put(actionKey, new Entry(result, expirationTimeMillis, now + validationIntervalMillis));
+  }
+
+  /**
+   * Forgets the result of {@code actionKey}, e.g. because it was updated or some of its outputs
+   * were evicted from the remote cache.
+   */
+  public void invalidate(ActionKey actionKey) {
+    entries.invalidate(actionKey);
+  }
+
+  /** Returns the number of lookups that were answered without the remote cache. */
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  /** Returns the number of lookups that had to go to the remote cache. */
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  /** Returns the number of remembered results that were passed to a {@link Validator}. */
+  public long getValidationCount() {
+    return validationCount.get();
+  }
+}
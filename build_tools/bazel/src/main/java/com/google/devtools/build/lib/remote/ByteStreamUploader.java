@@ -63,6 +63,12 @@ import javax.annotation.concurrent.GuardedBy;
 /**
  * A client implementing the {@code Write} method of the {@code ByteStream} gRPC service.
  *
+ * <p>If a {@link Chunker} is {@linkplain Chunker#isCompressed() compressed}, the blob is uploaded
+ * to a {@code compressed-blobs/deflate} resource. Such uploads always start at write offset 0, so
+ * the offsets of the following requests are those of the compressed data, as the REAPI specifies.
+ * The committed size of a partial compressed upload has no meaning that the REAPI defines, so a
+ * failed compressed upload is retried from the beginning instead of being resumed.
+ *
  * <p>The uploader supports reference counting to easily be shared between components with
  * different lifecyles. After instantiation the reference count is {@code 1}.
  *
@@ -268,8 +274,9 @@ class ByteStreamUploader extends AbstractReferenceCounted {
   }
 
   private static String uploadResourceName(
-      String instanceName, UUID uuid, HashCode hash, long size) {
-    String resourceName = format("uploads/%s/blobs/%s/%d", uuid, hash, size);
+      String instanceName, UUID uuid, HashCode hash, long size, boolean compressed) {
+    String blobs = compressed ? "compressed-blobs/deflate" : "blobs";
+    String resourceName = format("uploads/%s/%s/%s/%d", uuid, blobs, hash, size);
     if (!Strings.isNullOrEmpty(instanceName)) {
       resourceName = instanceName + "/" + resourceName;
     }
@@ -285,7 +292,9 @@ class ByteStreamUploader extends AbstractReferenceCounted {
     }
 
     UUID uploadId = UUID.randomUUID();
-    String resourceName = uploadResourceName(instanceName, uploadId, hash, chunker.getSize());
+    String resourceName =
+        uploadResourceName(
+            instanceName, uploadId, hash, chunker.getSize(), chunker.isCompressed());
     AsyncUpload newUpload =
         new AsyncUpload(channel, callCredentials, callTimeoutSecs, retrier, resourceName, chunker);
     ListenableFuture<Void> currUpload = newUpload.start();
@@ -353,7 +362,7 @@ class ByteStreamUploader extends AbstractReferenceCounted {
       return Futures.transformAsync(
           retrier.executeAsync(
               () -> {
-                if (committedOffset.get() < chunker.getSize()) {
+                if (!isComplete(committedOffset.get())) {
                   return ctx.call(() -> callAndQueryOnFailure(committedOffset, progressiveBackoff));
                 }
                 return Futures.immediateFuture(null);
@@ -361,8 +370,8 @@ class ByteStreamUploader extends AbstractReferenceCounted {
               progressiveBackoff),
           (result) -> {
             long committedSize = committedOffset.get();
-            long expected = chunker.getSize();
-            if (committedSize != expected) {
+            if (!isComplete(committedSize)) {
+              long expected = chunker.isCompressed() ? chunker.getOffset() : chunker.getSize();
               String message =
                   format(
                       "write incomplete: committed_size %d for %d total", committedSize, expected);
@@ -373,6 +382,18 @@ class ByteStreamUploader extends AbstractReferenceCounted {
           MoreExecutors.directExecutor());
     }
 
+    /**
+     * Returns {@code true} if the server has committed the whole blob. The size of a compressed
+     * blob is only known after it has been fully read, and servers may report a committed size of
+     * -1 if a compressed blob already existed.
+     */
+    private boolean isComplete(long committedSize) {
+      if (chunker.isCompressed()) {
+        return committedSize == -1 || (!chunker.hasNext() && committedSize == chunker.getOffset());
+      }
+      return committedSize == chunker.getSize();
+    }
+
     private ByteStreamFutureStub bsFutureStub() {
       return ByteStreamGrpc.newFutureStub(channel)
           .withInterceptors(TracingMetadataUtils.attachMetadataFromContextInterceptor())
@@ -401,6 +422,12 @@ class ByteStreamUploader extends AbstractReferenceCounted {
         return exceptionFuture;
       }
 
+      if (chunker.isCompressed()) {
+        // Compressed uploads can't be resumed, restart it.
+        committedOffset.set(0);
+        return exceptionFuture;
+      }
+
       ListenableFuture<Void> suppressedQueryFuture =
           Futures.catchingAsync(
               query(committedOffset, progressiveBackoff),
@@ -29,9 +29,12 @@ import java.io.ByteArrayInputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PushbackInputStream;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.function.Supplier;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
 
 /**
  * Splits a data source into one or more {@link Chunk}s of at most {@code chunkSize} bytes.
@@ -40,6 +43,11 @@ import java.util.function.Supplier;
  * {@code false}, the chunker closes the underlying data source (i.e. file) itself. However, in
  * case of error or when a data source does not get fully consumed, a user must call
  * {@link #reset()} manually.
+ *
+ * <p>If the chunker is {@linkplain Builder#setCompressed compressed}, the data source is
+ * compressed with raw DEFLATE (RFC 1951) while it is being read, and the chunks and offsets refer
+ * to the compressed stream. The size of the compressed stream isn't known in advance, so {@link
+ * #getSize()} still returns the size of the uncompressed data.
  */
 public final class Chunker {
 
@@ -96,6 +104,7 @@ public final class Chunker {
   private final Supplier<InputStream> dataSupplier;
   private final long size;
   private final int chunkSize;
+  private final boolean compressed;
   private final Chunk emptyChunk;
 
   private InputStream data;
@@ -106,10 +115,11 @@ public final class Chunker {
   // lazily on the first call to next(), as opposed to opening it in the constructor or on reset().
   private boolean initialized;
 
-  Chunker(Supplier<InputStream> dataSupplier, long size, int chunkSize) {
+  Chunker(Supplier<InputStream> dataSupplier, long size, int chunkSize, boolean compressed) {
     this.dataSupplier = checkNotNull(dataSupplier);
     this.size = size;
     this.chunkSize = chunkSize;
+    this.compressed = compressed;
     this.emptyChunk = new Chunk(ByteString.EMPTY, 0);
   }
 
@@ -121,6 +131,11 @@ public final class Chunker {
     return size;
   }
 
+  /** Returns {@code true} if the chunks contain the compressed data. */
+  public boolean isCompressed() {
+    return compressed;
+  }
+
   /**
    * Reset the {@link Chunker} state to when it was newly constructed.
    *
@@ -173,6 +188,10 @@ public final class Chunker {
 
     maybeInitialize();
 
+    if (compressed) {
+      return nextCompressed();
+    }
+
     if (size == 0) {
       data = null;
       return emptyChunk;
@@ -214,6 +233,29 @@ public final class Chunker {
     return new Chunk(blob, offsetBefore);
   }
 
+  private Chunk nextCompressed() throws IOException {
+    if (chunkCache == null) {
+      chunkCache = new byte[chunkSize];
+    }
+    long offsetBefore = offset;
+    int bytesRead = ByteStreams.read(data, chunkCache, 0, chunkSize);
+    offset += bytesRead;
+    ByteString blob = ByteString.copyFrom(chunkCache, 0, bytesRead);
+
+    // Peek at the next byte to find out whether this was the last chunk.
+    PushbackInputStream in = (PushbackInputStream) data;
+    int next = in.read();
+    if (next == -1) {
+      data.close();
+      data = null;
+      chunkCache = null;
+    } else {
+      in.unread(next);
+    }
+
+    return new Chunk(blob, offsetBefore);
+  }
+
   public long bytesLeft() {
     return getSize() - getOffset();
   }
@@ -231,9 +273,28 @@ public final class Chunker {
       Throwables.propagateIfPossible(e.getCause(), IOException.class);
       throw e;
     }
+    if (compressed) {
+      data = new PushbackInputStream(new DeflatingInputStream(data));
+    }
     initialized = true;
   }
 
+  /** A {@link DeflaterInputStream} that produces raw DEFLATE data and owns its {@link Deflater}. */
+  private static final class DeflatingInputStream extends DeflaterInputStream {
+    DeflatingInputStream(InputStream in) {
+      super(in, new Deflater(Deflater.DEFAULT_COMPRESSION, /* nowrap= */ true));
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        def.end();
+      }
+    }
+  }
+
   public static Builder builder() {
     return new Builder();
   }
@@ -241,6 +302,7 @@ public final class Chunker {
   /** Builder class for the Chunker */
   public static class Builder {
     private int chunkSize = getDefaultChunkSize();
+    private boolean compressed;
     private long size;
     private Supplier<InputStream> inputStream;
 
@@ -303,9 +365,15 @@ public final class Chunker {
       return this;
     }
 
+    /** Whether to compress the data with raw DEFLATE while chunking it. */
+    public Builder setCompressed(boolean compressed) {
+      this.compressed = compressed;
+      return this;
+    }
+
     public Chunker build() {
       checkNotNull(inputStream);
-      return new Chunker(inputStream, size, chunkSize);
+      return new Chunker(inputStream, size, chunkSize, compressed);
     }
   }
 }
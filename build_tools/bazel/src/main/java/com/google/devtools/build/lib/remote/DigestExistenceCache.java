@@ -0,0 +1,131 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.lib.remote;
+
+import build.bazel.remote.execution.v2.Digest;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.devtools.build.lib.clock.Clock;
+import com.google.devtools.build.lib.concurrent.ThreadSafety.ThreadSafe;
+import com.google.devtools.build.lib.remote.util.DigestUtil;
+import com.google.devtools.build.lib.vfs.Path;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * A bounded set of digests that are known to be present in the remote cache, which allows to skip
+ * looking them up with {@code FindMissingBlobs} again.
+ *
+ * <p>Entries expire after a fixed time, to limit the impact of blobs being evicted from the remote
+ * cache. The set can be written to and read from a file, so that it survives server restarts.
+ */
+@ThreadSafe
+public final class DigestExistenceCache {
+
+  private static final int FILE_FORMAT_VERSION = 1;
+
+  private final Clock clock;
+  private final long ttlMillis;
+  /** Maps each digest to the time in milliseconds after which it is no longer known to exist. */
+  private final Cache<Digest, Long> expirationTimes;
+
+  public DigestExistenceCache(Clock clock, long maxSize, Duration ttl) {
+    this.clock = clock;
+    this.ttlMillis = ttl.toMillis();
+    this.expirationTimes = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+  }
+
+  /** Returns true if {@code digest} has recently been found in the remote cache. */
+  public boolean contains(Digest digest) {
+    Long expirationTime = expirationTimes.getIfPresent(digest);
+    if (expirationTime == null) {
+      return false;
+    }
+    if (expirationTime <= clock.currentTimeMillis()) {
+      expirationTimes.invalidate(digest);
+      return false;
+    }
+    return true;
+  }
+
+  /** Records that {@code digest} is present in the remote cache. */
+  public void add(Digest digest) {
+    expirationTimes.put(digest, clock.currentTimeMillis() + ttlMillis);
+  }
+
+  /** Records that {@code digest} is no longer known to be present in the remote cache. */
+  public void remove(Digest digest) {
+    expirationTimes.invalidate(digest);
+  }
+
+  /**
+   * Writes the entries that haven't expired yet to {@code file}, replacing its contents.
+   *
+   * @param cacheKey identifies the remote cache that the entries refer to
+   */
+  public void writeTo(Path file, String cacheKey) throws IOException {
+    long now = clock.currentTimeMillis();
+    Path tmp = file.getParentDirectory().getChild(file.getBaseName() + ".tmp");
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(tmp.getOutputStream()))) {
+      out.writeInt(FILE_FORMAT_VERSION);
+      out.writeUTF(cacheKey);
+      for (Map.Entry<Digest, Long> entry : expirationTimes.asMap().entrySet()) {
+        if (entry.getValue() > now) {
+          out.writeUTF(entry.getKey().getHash());
+          out.writeLong(entry.getKey().getSizeBytes());
+          out.writeLong(entry.getValue());
+        }
+      }
+    }
+    tmp.renameTo(file);
+  }
+
+  /**
+   * Adds the entries of a file written by {@link #writeTo} that haven't expired yet. Does nothing
+   * if the file doesn't exist or was written for a different remote cache.
+   *
+   * @param cacheKey identifies the remote cache that the entries must refer to
+   */
+  public void readFrom(Path file, String cacheKey) throws IOException {
+    if (!file.exists()) {
+      return;
+    }
+    long now = clock.currentTimeMillis();
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(file.getInputStream()))) {
+      if (in.readInt() != FILE_FORMAT_VERSION || !in.readUTF().equals(cacheKey)) {
+        return;
+      }
+      while (true) {
+        String hash;
+        try {
+          hash = in.readUTF();
+        } catch (EOFException e) {
+          return;
+        }
+        Digest digest = DigestUtil.buildDigest(hash, in.readLong());
+        long expirationTime = in.readLong();
+        if (expirationTime > now) {
+          expirationTimes.put(digest, Math.min(expirationTime, now + ttlMillis));
+        }
+      }
+    }
+  }
+}
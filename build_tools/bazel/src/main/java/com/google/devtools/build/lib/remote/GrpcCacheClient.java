@@ -20,12 +20,20 @@ import build.bazel.remote.execution.v2.ActionCacheGrpc;
 import build.bazel.remote.execution.v2.ActionCacheGrpc.ActionCacheBlockingStub;
 import build.bazel.remote.execution.v2.ActionCacheGrpc.ActionCacheFutureStub;
 import build.bazel.remote.execution.v2.ActionResult;
+import build.bazel.remote.execution.v2.BatchReadBlobsRequest;
+import build.bazel.remote.execution.v2.BatchReadBlobsResponse;
+import build.bazel.remote.execution.v2.BatchUpdateBlobsRequest;
+import build.bazel.remote.execution.v2.BatchUpdateBlobsResponse;
+import build.bazel.remote.execution.v2.CacheCapabilities;
+import build.bazel.remote.execution.v2.Compressor;
 import build.bazel.remote.execution.v2.ContentAddressableStorageGrpc;
 import build.bazel.remote.execution.v2.ContentAddressableStorageGrpc.ContentAddressableStorageFutureStub;
 import build.bazel.remote.execution.v2.Digest;
 import build.bazel.remote.execution.v2.FindMissingBlobsRequest;
 import build.bazel.remote.execution.v2.FindMissingBlobsResponse;
 import build.bazel.remote.execution.v2.GetActionResultRequest;
+import build.bazel.remote.execution.v2.OutputDirectory;
+import build.bazel.remote.execution.v2.OutputFile;
 import build.bazel.remote.execution.v2.UpdateActionResultRequest;
 import com.google.bytestream.ByteStreamGrpc;
 import com.google.bytestream.ByteStreamGrpc.ByteStreamStub;
@@ -34,10 +42,12 @@ import com.google.bytestream.ByteStreamProto.ReadResponse;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Ascii;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.HashingOutputStream;
+import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
@@ -45,12 +55,15 @@ import com.google.common.util.concurrent.SettableFuture;
 import com.google.devtools.build.lib.concurrent.ThreadSafety.ThreadSafe;
 import com.google.devtools.build.lib.remote.RemoteRetrier.ProgressiveBackoff;
 import com.google.devtools.build.lib.remote.common.CacheNotFoundException;
+import com.google.devtools.build.lib.remote.common.FileDownloader;
 import com.google.devtools.build.lib.remote.common.MissingDigestsFinder;
 import com.google.devtools.build.lib.remote.common.RemoteCacheClient;
 import com.google.devtools.build.lib.remote.options.RemoteOptions;
 import com.google.devtools.build.lib.remote.util.DigestUtil;
+import com.google.devtools.build.lib.remote.util.InflatingOutputStream;
 import com.google.devtools.build.lib.remote.util.TracingMetadataUtils;
 import com.google.devtools.build.lib.remote.util.Utils;
+import com.google.devtools.build.lib.vfs.FileSystemUtils;
 import com.google.devtools.build.lib.vfs.Path;
 import com.google.protobuf.ByteString;
 import io.grpc.CallCredentials;
@@ -61,6 +74,9 @@ import io.grpc.StatusRuntimeException;
 import io.grpc.stub.StreamObserver;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -71,7 +87,7 @@ import javax.annotation.Nullable;
 
 /** A RemoteActionCache implementation that uses gRPC calls to a remote cache server. */
 @ThreadSafe
-public class GrpcCacheClient implements RemoteCacheClient, MissingDigestsFinder {
+public class GrpcCacheClient implements RemoteCacheClient, MissingDigestsFinder, FileDownloader {
   private final CallCredentials credentials;
   private final ReferenceCountedChannel channel;
   private final RemoteOptions options;
@@ -79,8 +95,12 @@ public class GrpcCacheClient implements RemoteCacheClient, MissingDigestsFinder
   private final RemoteRetrier retrier;
   private final ByteStreamUploader uploader;
   private final int maxMissingBlobsDigestsPerMessage;
+  @Nullable private final SmallBlobBatcher batcher;
+  private final boolean compressionEnabled;
+  @Nullable private final DigestExistenceCache existenceCache;
 
   private AtomicBoolean closed = new AtomicBoolean();
+  private final AtomicBoolean batchCallsUnimplemented = new AtomicBoolean();
 
   @VisibleForTesting
   public GrpcCacheClient(
@@ -90,6 +110,36 @@ public class GrpcCacheClient implements RemoteCacheClient, MissingDigestsFinder
       RemoteRetrier retrier,
       DigestUtil digestUtil,
       ByteStreamUploader uploader) {
+    this(
+        channel,
+        credentials,
+        options,
+        retrier,
+        digestUtil,
+        uploader,
+        /* cacheCapabilities= */ null,
+        /* existenceCache= */ null);
+  }
+
+  /**
+   * Creates a client for the cache with the given capabilities. If {@code cacheCapabilities} is
+   * not null, blobs of at most {@code --experimental_remote_batch_blob_size} bytes are transferred
+   * with the {@code BatchUpdateBlobs} and {@code BatchReadBlobs} calls instead of ByteStream,
+   * and if the server supports it, ByteStream transfers are compressed if {@code
+   * --experimental_remote_cache_compression} is set.
+   *
+   * <p>If {@code existenceCache} is not null, it is used to skip looking up blobs that are known to
+   * exist, and it is updated with the blobs found, uploaded and downloaded by this client.
+   */
+  public GrpcCacheClient(
+      ReferenceCountedChannel channel,
+      CallCredentials credentials,
+      RemoteOptions options,
+      RemoteRetrier retrier,
+      DigestUtil digestUtil,
+      ByteStreamUploader uploader,
+      @Nullable CacheCapabilities cacheCapabilities,
+      @Nullable DigestExistenceCache existenceCache) {
     this.credentials = credentials;
     this.channel = channel;
     this.options = options;
@@ -99,6 +149,32 @@ public class GrpcCacheClient implements RemoteCacheClient, MissingDigestsFinder
     maxMissingBlobsDigestsPerMessage = computeMaxMissingBlobsDigestsPerMessage();
     Preconditions.checkState(
         maxMissingBlobsDigestsPerMessage > 0, "Error: gRPC message size too small.");
+    this.batcher =
+        cacheCapabilities != null && options.remoteBatchBlobSize > 0
+            ? new SmallBlobBatcher(
+                options.remoteInstanceName,
+                computeMaxBatchSizeBytes(cacheCapabilities),
+                this::batchUpdateBlobs,
+                this::batchReadBlobs)
+            : null;
+    this.compressionEnabled =
+        options.cacheCompression
+            && cacheCapabilities != null
+            && cacheCapabilities.getSupportedCompressorsList().contains(Compressor.Value.DEFLATE);
+    this.existenceCache = existenceCache;
+  }
+
+  /**
+   * Returns the maximum size of a batch call, which is limited both by the server and by the
+   * maximum size of a gRPC message.
+   */
+  private long computeMaxBatchSizeBytes(CacheCapabilities cacheCapabilities) {
+    long maxBatchSizeBytes = options.maxOutboundMessageSize;
+    if (cacheCapabilities.getMaxBatchTotalSizeBytes() > 0) {
+      maxBatchSizeBytes =
+          Math.min(maxBatchSizeBytes, cacheCapabilities.getMaxBatchTotalSizeBytes());
+    }
+    return maxBatchSizeBytes;
   }
 
   private int computeMaxMissingBlobsDigestsPerMessage() {
@@ -167,6 +243,26 @@ public class GrpcCacheClient implements RemoteCacheClient, MissingDigestsFinder
 
   @Override
   public ListenableFuture<ImmutableSet<Digest>> findMissingDigests(Iterable<Digest> digests) {
+    if (existenceCache == null) {
+      return findMissingDigestsRemotely(digests);
+    }
+    ImmutableList<Digest> unknownDigests =
+        ImmutableList.copyOf(Iterables.filter(digests, (d) -> !existenceCache.contains(d)));
+    return Futures.transform(
+        findMissingDigestsRemotely(unknownDigests),
+        (missingDigests) -> {
+          for (Digest digest : unknownDigests) {
+            if (!missingDigests.contains(digest)) {
+              existenceCache.add(digest);
+            }
+          }
+          return missingDigests;
+        },
+        MoreExecutors.directExecutor());
+  }
+
+  private ListenableFuture<ImmutableSet<Digest>> findMissingDigestsRemotely(
+      Iterable<Digest> digests) {
     if (Iterables.isEmpty(digests)) {
       return Futures.immediateFuture(ImmutableSet.of());
     }
@@ -212,6 +308,101 @@ public class GrpcCacheClient implements RemoteCacheClient, MissingDigestsFinder
         MoreExecutors.directExecutor());
   }
 
+  /**
+   * Records in the {@link DigestExistenceCache} whether the blob with the given {@code digest}
+   * exists once {@code transfer} completes.
+   */
+  private ListenableFuture<Void> trackExistence(Digest digest, ListenableFuture<Void> transfer) {
+    if (existenceCache == null) {
+      return transfer;
+    }
+    ListenableFuture<Void> success =
+        Futures.transform(
+            transfer,
+            (unused) -> {
+              existenceCache.add(digest);
+              return null;
+            },
+            MoreExecutors.directExecutor());
+    return Futures.catchingAsync(
+        success,
+        CacheNotFoundException.class,
+        (e) -> {
+          existenceCache.remove(digest);
+          return Futures.immediateFailedFuture(e);
+        },
+        MoreExecutors.directExecutor());
+  }
+
+  /** Records in the {@link DigestExistenceCache} that the outputs of {@code result} exist. */
+  private void trackExistence(ActionResult result) {
+    for (OutputFile file : result.getOutputFilesList()) {
+      existenceCache.add(file.getDigest());
+    }
+    for (OutputDirectory dir : result.getOutputDirectoriesList()) {
+      existenceCache.add(dir.getTreeDigest());
+    }
+    if (result.hasStdoutDigest()) {
+      existenceCache.add(result.getStdoutDigest());
+    }
+    if (result.hasStderrDigest()) {
+      existenceCache.add(result.getStderrDigest());
+    }
+  }
+
+  private ListenableFuture<BatchUpdateBlobsResponse> batchUpdateBlobs(
+      BatchUpdateBlobsRequest request) {
+    Context ctx = Context.current();
+    return retrier.executeAsync(() -> ctx.call(() -> casFutureStub().batchUpdateBlobs(request)));
+  }
+
+  private ListenableFuture<BatchReadBlobsResponse> batchReadBlobs(BatchReadBlobsRequest request) {
+    Context ctx = Context.current();
+    return retrier.executeAsync(() -> ctx.call(() -> casFutureStub().batchReadBlobs(request)));
+  }
+
+  /** Returns true if the blob with the given {@code digest} should be sent in a batch call. */
+  private boolean useBatch(Digest digest) {
+    return batcher != null
+        && !batchCallsUnimplemented.get()
+        && digest.getSizeBytes() <= options.remoteBatchBlobSize
+        && batcher.fits(digest);
+  }
+
+  /**
+   * Handles the failure of a blob transferred in a batch call, by either failing with {@code
+   * notFound} or retrying the transfer with {@code fallback}.
+   *
+   * <p>If a blob was rejected by the server, or the server doesn't support batch calls, the
+   * transfer is retried individually over ByteStream. Other failures of the batch call have already
+   * been retried by the {@link RemoteRetrier} and are propagated.
+   */
+  private <T> ListenableFuture<T> fallBackOnBatchFailure(
+      ListenableFuture<T> batchTransfer,
+      @Nullable Supplier<Exception> notFound,
+      Supplier<ListenableFuture<T>> fallback) {
+    Context ctx = Context.current();
+    return Futures.catchingAsync(
+        batchTransfer,
+        Exception.class,
+        (e) -> {
+          if (e instanceof StatusRuntimeException) {
+            // The server rejected this blob.
+            Code code = Status.fromThrowable(e).getCode();
+            if (code == Code.NOT_FOUND && notFound != null) {
+              return Futures.immediateFailedFuture(notFound.get());
+            }
+            return ctx.call(fallback::get);
+          }
+          if (Status.fromThrowable(e).getCode() == Code.UNIMPLEMENTED) {
+            batchCallsUnimplemented.set(true);
+            return ctx.call(fallback::get);
+          }
+          return Futures.immediateFailedFuture(e);
+        },
+        MoreExecutors.directExecutor());
+  }
+
   private ListenableFuture<FindMissingBlobsResponse> getMissingDigests(
       FindMissingBlobsRequest request) {
     Context ctx = Context.current();
@@ -241,8 +432,21 @@ public class GrpcCacheClient implements RemoteCacheClient, MissingDigestsFinder
             .setInlineStdout(inlineOutErr)
             .build();
     Context ctx = Context.current();
-    return retrier.executeAsync(
-        () -> ctx.call(() -> handleStatus(acFutureStub().getActionResult(request))));
+    ListenableFuture<ActionResult> download =
+        retrier.executeAsync(
+            () -> ctx.call(() -> handleStatus(acFutureStub().getActionResult(request))));
+    if (existenceCache == null) {
+      return download;
+    }
+    return Futures.transform(
+        download,
+        (result) -> {
+          if (result != null) {
+            trackExistence(result);
+          }
+          return result;
+        },
+        MoreExecutors.directExecutor());
   }
 
   @Override
@@ -268,7 +472,34 @@ public class GrpcCacheClient implements RemoteCacheClient, MissingDigestsFinder
     if (digest.getSizeBytes() == 0) {
       return Futures.immediateFuture(null);
     }
+    return trackExistence(digest, downloadBlobBatchedOrStreaming(digest, out));
+  }
+
+  private ListenableFuture<Void> downloadBlobBatchedOrStreaming(Digest digest, OutputStream out) {
+
+    if (useBatch(digest)) {
+      ListenableFuture<Void> batchRead =
+          Futures.transformAsync(
+              batcher.read(digest),
+              (data) -> {
+                if (options.remoteVerifyDownloads) {
+                  Utils.verifyBlobContents(
+                      digest.getHash(), digestUtil.compute(data.toByteArray()).getHash());
+                }
+                data.writeTo(out);
+                out.flush();
+                return Futures.immediateFuture(null);
+              },
+              MoreExecutors.directExecutor());
+      return fallBackOnBatchFailure(
+          batchRead,
+          () -> new CacheNotFoundException(digest),
+          () -> downloadBlobStreaming(digest, out));
+    }
+    return downloadBlobStreaming(digest, out);
+  }
 
+  private ListenableFuture<Void> downloadBlobStreaming(Digest digest, OutputStream out) {
     @Nullable Supplier<HashCode> hashSupplier = null;
     if (options.remoteVerifyDownloads) {
       HashingOutputStream hashOut = digestUtil.newHashingOutputStream(out);
@@ -276,20 +507,32 @@ public class GrpcCacheClient implements RemoteCacheClient, MissingDigestsFinder
       out = hashOut;
     }
 
-    return downloadBlob(digest, out, hashSupplier);
+    return downloadBlob(digest, out, hashSupplier, compressionEnabled);
   }
 
+  /**
+   * Downloads the blob with the given {@code digest} to {@code out}. If {@code compressed} is true,
+   * the blob is downloaded in compressed form and decompressed while it is written to {@code out}.
+   *
+   * <p>Retries resume after the last byte written to {@code out}. As the REAPI specifies, the read
+   * offset of a compressed read refers to the uncompressed blob, and the server starts a new
+   * compressed stream at that offset.
+   */
   private ListenableFuture<Void> downloadBlob(
       Digest digest,
       OutputStream out,
-      @Nullable Supplier<HashCode> hashSupplier) {
+      @Nullable Supplier<HashCode> hashSupplier,
+      boolean compressed) {
     Context ctx = Context.current();
     AtomicLong offset = new AtomicLong(0);
     ProgressiveBackoff progressiveBackoff = new ProgressiveBackoff(retrier::newBackoff);
     return Futures.catchingAsync(
         retrier.executeAsync(
             () ->
-                ctx.call(() -> requestRead(offset, progressiveBackoff, digest, out, hashSupplier)),
+                ctx.call(
+                    () ->
+                        requestRead(
+                            offset, progressiveBackoff, digest, out, hashSupplier, compressed)),
             progressiveBackoff),
         StatusRuntimeException.class,
         (e) -> Futures.immediateFailedFuture(new IOException(e)),
@@ -297,11 +540,20 @@ public class GrpcCacheClient implements RemoteCacheClient, MissingDigestsFinder
   }
 
   public static String getResourceName(String instanceName, Digest digest) {
+    return getResourceName(instanceName, digest, /* compressed= */ false);
+  }
+
+  /**
+   * Returns the ByteStream resource name for reading the blob with the given {@code digest}. If
+   * {@code compressed} is true, the resource name refers to the DEFLATE compressed blob.
+   */
+  public static String getResourceName(String instanceName, Digest digest, boolean compressed) {
     String resourceName = "";
     if (!instanceName.isEmpty()) {
       resourceName += instanceName + "/";
     }
-    return resourceName + "blobs/" + DigestUtil.toString(digest);
+    String blobs = compressed ? "compressed-blobs/deflate/" : "blobs/";
+    return resourceName + blobs + DigestUtil.toString(digest);
   }
 
   private ListenableFuture<Void> requestRead(
@@ -309,22 +561,38 @@ public class GrpcCacheClient implements RemoteCacheClient, MissingDigestsFinder
       ProgressiveBackoff progressiveBackoff,
       Digest digest,
       OutputStream out,
-      @Nullable Supplier<HashCode> hashSupplier) {
-    String resourceName = getResourceName(options.remoteInstanceName, digest);
+      @Nullable Supplier<HashCode> hashSupplier,
+      boolean compressed) {
+    String resourceName = getResourceName(options.remoteInstanceName, digest, compressed);
+    // Each read of a compressed blob returns a new compressed stream, so it needs a new inflater.
+    InflatingOutputStream inflatingOut = compressed ? new InflatingOutputStream(out) : null;
+    OutputStream sink = inflatingOut != null ? inflatingOut : out;
+    long readOffset = offset.get();
     SettableFuture<Void> future = SettableFuture.create();
+    future.addListener(
+        () -> {
+          if (inflatingOut != null) {
+            inflatingOut.close();
+          }
+        },
+        MoreExecutors.directExecutor());
     bsAsyncStub()
         .read(
             ReadRequest.newBuilder()
                 .setResourceName(resourceName)
-                .setReadOffset(offset.get())
+                .setReadOffset(readOffset)
                 .build(),
             new StreamObserver<ReadResponse>() {
               @Override
               public void onNext(ReadResponse readResponse) {
                 ByteString data = readResponse.getData();
                 try {
-                  data.writeTo(out);
-                  offset.addAndGet(data.size());
+                  data.writeTo(sink);
+                  if (inflatingOut != null) {
+                    offset.set(readOffset + inflatingOut.getUncompressedBytes());
+                  } else {
+                    offset.addAndGet(data.size());
+                  }
                 } catch (IOException e) {
                   future.setException(e);
                   // Cancel the call.
@@ -347,6 +615,9 @@ public class GrpcCacheClient implements RemoteCacheClient, MissingDigestsFinder
               @Override
               public void onCompleted() {
                 try {
+                  if (inflatingOut != null) {
+                    inflatingOut.finish();
+                  }
                   if (hashSupplier != null) {
                     Utils.verifyBlobContents(
                         digest.getHash(), DigestUtil.hashCodeToString(hashSupplier.get()));
@@ -361,19 +632,263 @@ public class GrpcCacheClient implements RemoteCacheClient, MissingDigestsFinder
     return future;
   }
 
+  /**
+   * Downloads the blob with the given {@code digest} into the file at {@code path}.
+   *
+   * <p>If {@code --experimental_remote_download_chunk_size} is set, blobs larger than the chunk
+   * size are downloaded as multiple ranges in parallel, which are written to their position in the
+   * file. Retries of a range resume after the last byte received.
+   */
+  @Override
+  public ListenableFuture<Void> downloadFile(Digest digest, Path path) {
+    if (options.remoteDownloadChunkSize > 0
+        && !compressionEnabled
+        && digest.getSizeBytes() > options.remoteDownloadChunkSize) {
+      return trackExistence(digest, downloadFileInChunks(digest, path));
+    }
+
+    OutputStream out;
+    try {
+      out = path.getOutputStream();
+    } catch (IOException e) {
+      return Futures.immediateFailedFuture(e);
+    }
+    SettableFuture<Void> outerF = SettableFuture.create();
+    Futures.addCallback(
+        downloadBlob(digest, out),
+        new FutureCallback<Void>() {
+          @Override
+          public void onSuccess(Void result) {
+            try {
+              out.close();
+              outerF.set(null);
+            } catch (IOException e) {
+              outerF.setException(e);
+            }
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            try {
+              out.close();
+            } catch (IOException e) {
+              t.addSuppressed(e);
+            }
+            outerF.setException(t);
+          }
+        },
+        MoreExecutors.directExecutor());
+    return outerF;
+  }
+
+  private ListenableFuture<Void> downloadFileInChunks(Digest digest, Path path) {
+    FileChannel out;
+    try {
+      out =
+          FileChannel.open(
+              path.getPathFile().toPath(),
+              StandardOpenOption.CREATE,
+              StandardOpenOption.TRUNCATE_EXISTING,
+              StandardOpenOption.WRITE);
+    } catch (IOException e) {
+      return Futures.immediateFailedFuture(e);
+    }
+    long chunkSize = options.remoteDownloadChunkSize;
+    long numChunks = (digest.getSizeBytes() + chunkSize - 1) / chunkSize;
+    long parallelism =
+        options.remoteMaxConnections > 0
+            ? Math.min(numChunks, options.remoteMaxConnections)
+            : numChunks;
+    Context ctx = Context.current();
+    AtomicLong nextChunk = new AtomicLong();
+    AtomicBoolean failed = new AtomicBoolean();
+    List<ListenableFuture<Void>> workers = new ArrayList<>();
+    for (long i = 0; i < parallelism; i++) {
+      workers.add(downloadChunks(ctx, digest, out, nextChunk, numChunks, failed));
+    }
+    // Wait for all ranges to complete, so that the file isn't written to after it's been closed.
+    return Futures.whenAllComplete(workers)
+        .call(
+            () -> {
+              try {
+                out.close();
+                for (ListenableFuture<Void> worker : workers) {
+                  Utils.getFromFuture(worker);
+                }
+              } catch (InterruptedException e) {
+                throw new IOException(e);
+              }
+              if (options.remoteVerifyDownloads) {
+                Utils.verifyBlobContents(digest.getHash(), digestUtil.compute(path).getHash());
+              }
+              return null;
+            },
+            MoreExecutors.directExecutor());
+  }
+
+  /**
+   * Downloads the chunks of a blob one after the other, until all chunks have been claimed by this
+   * or another worker, or a chunk failed to download.
+   */
+  private ListenableFuture<Void> downloadChunks(
+      Context ctx,
+      Digest digest,
+      FileChannel out,
+      AtomicLong nextChunk,
+      long numChunks,
+      AtomicBoolean failed) {
+    long chunk = nextChunk.getAndIncrement();
+    if (chunk >= numChunks || failed.get()) {
+      return Futures.immediateFuture(null);
+    }
+    long start = chunk * options.remoteDownloadChunkSize;
+    long end = Math.min(start + options.remoteDownloadChunkSize, digest.getSizeBytes());
+    ListenableFuture<Void> range = downloadRange(ctx, digest, out, start, end);
+    Futures.addCallback(
+        range,
+        new FutureCallback<Void>() {
+          @Override
+          public void onSuccess(Void result) {}
+
+          @Override
+          public void onFailure(Throwable t) {
+            failed.set(true);
+          }
+        },
+        MoreExecutors.directExecutor());
+    return Futures.transformAsync(
+        range,
+        (unused) -> downloadChunks(ctx, digest, out, nextChunk, numChunks, failed),
+        MoreExecutors.directExecutor());
+  }
+
+  /** Downloads the bytes in {@code [start, end)} of a blob to the same range of {@code out}. */
+  private ListenableFuture<Void> downloadRange(
+      Context ctx, Digest digest, FileChannel out, long start, long end) {
+    AtomicLong offset = new AtomicLong(start);
+    ProgressiveBackoff progressiveBackoff = new ProgressiveBackoff(retrier::newBackoff);
+    return Futures.catchingAsync(
+        retrier.executeAsync(
+            () -> ctx.call(() -> requestRange(offset, end, progressiveBackoff, digest, out)),
+            progressiveBackoff),
+        StatusRuntimeException.class,
+        (e) -> Futures.immediateFailedFuture(new IOException(e)),
+        MoreExecutors.directExecutor());
+  }
+
+  private ListenableFuture<Void> requestRange(
+      AtomicLong offset,
+      long end,
+      ProgressiveBackoff progressiveBackoff,
+      Digest digest,
+      FileChannel out) {
+    SettableFuture<Void> future = SettableFuture.create();
+    bsAsyncStub()
+        .read(
+            ReadRequest.newBuilder()
+                .setResourceName(getResourceName(options.remoteInstanceName, digest))
+                .setReadOffset(offset.get())
+                .setReadLimit(end - offset.get())
+                .build(),
+            new StreamObserver<ReadResponse>() {
+              @Override
+              public void onNext(ReadResponse readResponse) {
+                ByteBuffer data = readResponse.getData().asReadOnlyByteBuffer();
+                try {
+                  if (offset.get() + data.remaining() > end) {
+                    throw new IOException(
+                        String.format(
+                            "Received more data than requested for blob %s at offset %d",
+                            digest.getHash(), offset.get()));
+                  }
+                  while (data.hasRemaining()) {
+                    offset.addAndGet(out.write(data, offset.get()));
+                  }
+                } catch (IOException e) {
+                  future.setException(e);
+                  // Cancel the call.
+                  throw new RuntimeException(e);
+                }
+                // reset the stall backoff because we've made progress or been kept alive
+                progressiveBackoff.reset();
+              }
+
+              @Override
+              public void onError(Throwable t) {
+                Status status = Status.fromThrowable(t);
+                if (status.getCode() == Status.Code.NOT_FOUND) {
+                  future.setException(new CacheNotFoundException(digest));
+                } else {
+                  future.setException(t);
+                }
+              }
+
+              @Override
+              public void onCompleted() {
+                if (offset.get() != end) {
+                  future.setException(
+                      new IOException(
+                          String.format(
+                              "Read of blob %s ended at offset %d instead of %d",
+                              digest.getHash(), offset.get(), end)));
+                } else {
+                  future.set(null);
+                }
+              }
+            });
+    return future;
+  }
+
   @Override
   public ListenableFuture<Void> uploadFile(Digest digest, Path path) {
+    return trackExistence(digest, uploadFileBatchedOrStreaming(digest, path));
+  }
+
+  private ListenableFuture<Void> uploadFileBatchedOrStreaming(Digest digest, Path path) {
+    if (useBatch(digest)) {
+      ByteString data;
+      try {
+        data = ByteString.copyFrom(FileSystemUtils.readContent(path));
+      } catch (IOException e) {
+        return Futures.immediateFailedFuture(e);
+      }
+      return fallBackOnBatchFailure(
+          batcher.upload(digest, data),
+          /* notFound= */ null,
+          () -> uploadFileStreaming(digest, path));
+    }
+    return uploadFileStreaming(digest, path);
+  }
+
+  private ListenableFuture<Void> uploadFileStreaming(Digest digest, Path path) {
     return uploader.uploadBlobAsync(
         HashCode.fromString(digest.getHash()),
-        Chunker.builder().setInput(digest.getSizeBytes(), path).build(),
+        Chunker.builder()
+            .setInput(digest.getSizeBytes(), path)
+            .setCompressed(compressionEnabled)
+            .build(),
         /* forceUpload= */ true);
   }
 
   @Override
   public ListenableFuture<Void> uploadBlob(Digest digest, ByteString data) {
+    return trackExistence(digest, uploadBlobBatchedOrStreaming(digest, data));
+  }
+
+  private ListenableFuture<Void> uploadBlobBatchedOrStreaming(Digest digest, ByteString data) {
+    if (useBatch(digest)) {
+      return fallBackOnBatchFailure(
+          batcher.upload(digest, data),
+          /* notFound= */ null,
+          () -> uploadBlobStreaming(digest, data));
+    }
+    return uploadBlobStreaming(digest, data);
+  }
+
+  private ListenableFuture<Void> uploadBlobStreaming(Digest digest, ByteString data) {
     return uploader.uploadBlobAsync(
         HashCode.fromString(digest.getHash()),
-        Chunker.builder().setInput(data.toByteArray()).build(),
+        Chunker.builder().setInput(data.toByteArray()).setCompressed(compressionEnabled).build(),
         /* forceUpload= */ true);
   }
 }
@@ -14,21 +14,37 @@
 
 package com.google.devtools.build.lib.remote;
 
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+
+import build.bazel.remote.execution.v2.ExecuteOperationMetadata;
 import build.bazel.remote.execution.v2.ExecuteRequest;
 import build.bazel.remote.execution.v2.ExecuteResponse;
 import build.bazel.remote.execution.v2.ExecutionGrpc;
 import build.bazel.remote.execution.v2.ExecutionGrpc.ExecutionBlockingStub;
+import build.bazel.remote.execution.v2.ExecutionGrpc.ExecutionStub;
 import build.bazel.remote.execution.v2.WaitExecutionRequest;
+import com.google.bytestream.ByteStreamGrpc;
+import com.google.bytestream.ByteStreamProto.ReadRequest;
+import com.google.bytestream.ByteStreamProto.ReadResponse;
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.devtools.build.lib.concurrent.ThreadSafety.ThreadSafe;
+import com.google.devtools.build.lib.profiler.SilentCloseable;
 import com.google.devtools.build.lib.remote.options.RemoteOptions;
+import com.google.devtools.build.lib.remote.util.AdaptiveConcurrencyLimiter;
 import com.google.devtools.build.lib.remote.util.TracingMetadataUtils;
 import com.google.longrunning.Operation;
 import com.google.rpc.Status;
 import io.grpc.CallCredentials;
+import io.grpc.Context;
+import io.grpc.Context.CancellableContext;
 import io.grpc.Status.Code;
 import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Iterator;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
@@ -38,6 +54,16 @@ import javax.annotation.Nullable;
 @ThreadSafe
 class GrpcRemoteExecutor {
 
+  /** Receives the progress of a remote execution. */
+  interface ExecutionObserver {
+    /**
+     * Called with the metadata of each update of the operation before it's done, e.g. when the
+     * action was queued or started executing. Called from the thread that waits for the execution,
+     * or from a gRPC thread for {@link #executeRemotelyAsync}, but never concurrently.
+     */
+    void onUpdate(ExecuteOperationMetadata metadata);
+  }
+
   private final ReferenceCountedChannel channel;
   private final CallCredentials callCredentials;
   private final RemoteRetrier retrier;
@@ -62,6 +88,18 @@ class GrpcRemoteExecutor {
         .withCallCredentials(callCredentials);
   }
 
+  private ExecutionStub execAsyncStub() {
+    return ExecutionGrpc.newStub(channel)
+        .withInterceptors(TracingMetadataUtils.attachMetadataFromContextInterceptor())
+        .withCallCredentials(callCredentials);
+  }
+
+  private ByteStreamGrpc.ByteStreamStub bsAsyncStub() {
+    return ByteStreamGrpc.newStub(channel)
+        .withInterceptors(TracingMetadataUtils.attachMetadataFromContextInterceptor())
+        .withCallCredentials(callCredentials);
+  }
+
   private void handleStatus(Status statusProto, @Nullable ExecuteResponse resp) {
     if (statusProto.getCode() == Code.OK.value()) {
       return;
@@ -107,6 +145,15 @@ class GrpcRemoteExecutor {
    * */
   public ExecuteResponse executeRemotely(ExecuteRequest request)
       throws IOException, InterruptedException {
+    return executeRemotely(request, metadata -> {});
+  }
+
+  /**
+   * Executes {@code request} like {@link #executeRemotely(ExecuteRequest)}, and passes the
+   * metadata of intermediate updates of the operation to {@code observer}.
+   */
+  public ExecuteResponse executeRemotely(ExecuteRequest request, ExecutionObserver observer)
+      throws IOException, InterruptedException {
     // Execute has two components: the Execute call and (optionally) the WaitExecution call.
     // This is the simple flow without any errors:
     //
@@ -156,6 +203,9 @@ class GrpcRemoteExecutor {
                   if (r != null) {
                     return r;
                   }
+                  if (o.getMetadata().is(ExecuteOperationMetadata.class)) {
+                    observer.onUpdate(o.getMetadata().unpack(ExecuteOperationMetadata.class));
+                  }
                 }
                 // The operation completed successfully but without a result.
                 if (!waitExecution.get()) {
@@ -193,6 +243,161 @@ class GrpcRemoteExecutor {
     }
   }
 
+  /**
+   * Executes {@code request} like {@link #executeRemotely(ExecuteRequest, ExecutionObserver)}, but
+   * without blocking a thread while the action is queued or executing. The calls are made with the
+   * {@link Context} of the calling thread, and are cancelled when the returned future is cancelled.
+   * Failures are reported as {@link IOException}s, like in the blocking version.
+   */
+  public ListenableFuture<ExecuteResponse> executeRemotelyAsync(
+      ExecuteRequest request, ExecutionObserver observer) {
+    // Will be modified by the retried calls, see executeRemotely.
+    AtomicReference<Operation> operation = new AtomicReference<>(Operation.getDefaultInstance());
+    AtomicBoolean waitExecution = new AtomicBoolean(false);
+    CancellableContext withCancellation = Context.current().withCancellation();
+    ListenableFuture<ExecuteResponse> response =
+        Futures.catchingAsync(
+            retrier.executeAsync(
+                () -> executeOnce(request, observer, operation, waitExecution, withCancellation)),
+            StatusRuntimeException.class,
+            e -> Futures.immediateFailedFuture(new IOException(e)),
+            directExecutor());
+    // Once the response is done, this only cancels the calls that are still running, if any.
+    response.addListener(() -> withCancellation.cancel(/* cause= */ null), directExecutor());
+    return response;
+  }
+
+  /**
+   * Calls Execute, or WaitExecution if an operation is already running, and keeps calling
+   * WaitExecution until the operation is done. Equivalent to one attempt of the retried handler in
+   * {@link #executeRemotely(ExecuteRequest, ExecutionObserver)}.
+   */
+  private ListenableFuture<ExecuteResponse> executeOnce(
+      ExecuteRequest request,
+      ExecutionObserver observer,
+      AtomicReference<Operation> operation,
+      AtomicBoolean waitExecution,
+      CancellableContext withCancellation) {
+    SettableFuture<ExecuteResponse> result = SettableFuture.create();
+    StreamObserver<Operation> replies =
+        new StreamObserver<Operation>() {
+          @Override
+          public void onNext(Operation o) {
+            if (result.isDone()) {
+              return;
+            }
+            operation.set(o);
+            waitExecution.set(!o.getDone());
+            try {
+              ExecuteResponse r = getOperationResponse(o);
+              if (r != null) {
+                result.set(r);
+                return;
+              }
+              if (o.getMetadata().is(ExecuteOperationMetadata.class)) {
+                observer.onUpdate(o.getMetadata().unpack(ExecuteOperationMetadata.class));
+              }
+            } catch (IOException | RuntimeException e) {
+              result.setException(e);
+            }
+          }
+
+          @Override
+          public void onError(Throwable t) {
+            if (result.isDone()) {
+              return;
+            }
+            if (t instanceof StatusRuntimeException
+                && ((StatusRuntimeException) t).getStatus().getCode() == Code.NOT_FOUND) {
+              // Operation was lost on the server. Retry Execute.
+              waitExecution.set(false);
+            }
+            result.setException(t);
+          }
+
+          @Override
+          public void onCompleted() {
+            if (result.isDone()) {
+              return;
+            }
+            if (!waitExecution.get()) {
+              // The operation completed successfully but without a result.
+              result.setException(
+                  new IOException(
+                      String.format(
+                          "Remote server error: execution request for %s terminated with no"
+                              + " result.",
+                          operation.get().getName())));
+              return;
+            }
+            // The server may end a call before the operation is done, e.g. if the execution takes
+            // longer than a connection timeout. This is not an error, so keep waiting.
+            result.setFuture(
+                executeOnce(request, observer, operation, waitExecution, withCancellation));
+          }
+        };
+    withCancellation.run(
+        () -> {
+          if (waitExecution.get()) {
+            WaitExecutionRequest wr =
+                WaitExecutionRequest.newBuilder().setName(operation.get().getName()).build();
+            execAsyncStub().waitExecution(wr, replies);
+          } else {
+            execAsyncStub().execute(request, replies);
+          }
+        });
+    return result;
+  }
+
+  /**
+   * Starts copying the ByteStream resource {@code resourceName}, e.g. the standard output of a
+   * running action as announced in its {@link ExecuteOperationMetadata}, to {@code out}. Stops when
+   * the stream ends or fails, or when the returned {@link SilentCloseable} is closed, after which
+   * nothing is written to {@code out} anymore. Failures are ignored, as the complete output is part
+   * of the action result anyway.
+   */
+  public SilentCloseable streamOutput(String resourceName, OutputStream out) {
+    Object lock = new Object();
+    AtomicBoolean stopped = new AtomicBoolean();
+    CancellableContext withCancellation = Context.current().withCancellation();
+    withCancellation.run(
+        () ->
+            bsAsyncStub()
+                // The stream stays open while the action runs.
+                .withOption(AdaptiveConcurrencyLimiter.UNLIMITED, true)
+                .read(
+                    ReadRequest.newBuilder().setResourceName(resourceName).build(),
+                    new StreamObserver<ReadResponse>() {
+                      @Override
+                      public void onNext(ReadResponse response) {
+                        synchronized (lock) {
+                          if (stopped.get()) {
+                            return;
+                          }
+                          try {
+                            response.getData().writeTo(out);
+                            out.flush();
+                          } catch (IOException e) {
+                            stopped.set(true);
+                            withCancellation.cancel(e);
+                          }
+                        }
+                      }
+
+                      @Override
+                      public void onError(Throwable t) {}
+
+                      @Override
+                      public void onCompleted() {}
+                    }));
+    return () -> {
+      synchronized (lock) {
+        stopped.set(true);
+      }
+      withCancellation.cancel(/* cause= */ null);
+    };
+  }
+
   public void close() {
     if (closed.getAndSet(true)) {
       return;
@@ -23,14 +23,23 @@ import com.google.devtools.build.lib.actions.ActionGraph;
 import com.google.devtools.build.lib.actions.ActionInput;
 import com.google.devtools.build.lib.actions.ExecutorInitException;
 import com.google.devtools.build.lib.analysis.ArtifactsToOwnerLabels;
+import com.google.devtools.build.lib.buildtool.BuildRequestOptions;
+import com.google.devtools.build.lib.events.Event;
 import com.google.devtools.build.lib.exec.ExecutionOptions;
 import com.google.devtools.build.lib.exec.ExecutorLifecycleListener;
 import com.google.devtools.build.lib.exec.ModuleActionContextRegistry;
 import com.google.devtools.build.lib.exec.SpawnCache;
 import com.google.devtools.build.lib.exec.SpawnStrategyRegistry;
+import com.google.devtools.build.lib.metrics.ActionResultCacheStatsEvent;
+import com.google.devtools.build.lib.metrics.DiskCacheStatsEvent;
+import com.google.devtools.build.lib.remote.common.RemoteCacheClient;
+import com.google.devtools.build.lib.remote.disk.DiskAndRemoteCacheClient;
+import com.google.devtools.build.lib.remote.disk.DiskCacheClient;
 import com.google.devtools.build.lib.remote.options.RemoteOptions;
+import com.google.devtools.build.lib.remote.options.RemoteOutputsMode;
 import com.google.devtools.build.lib.remote.util.DigestUtil;
 import com.google.devtools.build.lib.runtime.CommandEnvironment;
+import com.google.devtools.build.lib.skyframe.TopDownActionCache;
 import com.google.devtools.build.lib.vfs.Path;
 import javax.annotation.Nullable;
 
@@ -44,6 +53,7 @@ final class RemoteActionContextProvider implements ExecutorLifecycleListener {
   private final DigestUtil digestUtil;
   @Nullable private final Path logDir;
   private ImmutableSet<ActionInput> filesToDownload = ImmutableSet.of();
+  private boolean closed;
 
   private RemoteActionContextProvider(
       CommandEnvironment env,
@@ -98,6 +108,7 @@ final class RemoteActionContextProvider implements ExecutorLifecycleListener {
             checkNotNull(env.getOptions().getOptions(RemoteOptions.class)),
             env.getOptions().getOptions(ExecutionOptions.class),
             checkNotNull(env.getOptions().getOptions(ExecutionOptions.class)).verboseFailures,
+            useAsyncExecution(),
             env.getReporter(),
             env.getBuildRequestId(),
             env.getCommandId().toString(),
@@ -111,6 +122,11 @@ final class RemoteActionContextProvider implements ExecutorLifecycleListener {
         new RemoteSpawnStrategy(env.getExecRoot(), spawnRunner), "remote");
   }
 
+  private boolean useAsyncExecution() {
+    BuildRequestOptions options = env.getOptions().getOptions(BuildRequestOptions.class);
+    return options != null && options.useAsyncExecution;
+  }
+
   /**
    * Registers a spawn cache action context
    *
@@ -135,6 +151,28 @@ final class RemoteActionContextProvider implements ExecutorLifecycleListener {
     return cache;
   }
 
+  /**
+   * Returns a top-down action cache that is backed by the remote cache, or null if it isn't
+   * enabled.
+   */
+  @Nullable
+  TopDownActionCache createTopDownActionCache() {
+    RemoteOptions remoteOptions = checkNotNull(env.getOptions().getOptions(RemoteOptions.class));
+    if (!remoteOptions.remoteTopDownCache || !remoteOptions.remoteAcceptCached) {
+      return null;
+    }
+    if (remoteOptions.remoteOutputsMode != RemoteOutputsMode.MINIMAL) {
+      env.getReporter()
+          .handle(
+              Event.warn(
+                  "--experimental_remote_top_down_cache has no effect without "
+                      + "--remote_download_minimal"));
+      return null;
+    }
+    return new RemoteTopDownActionCache(
+        cache, digestUtil, env.getBuildRequestId(), env.getCommandId().toString());
+  }
+
   void setFilesToDownload(ImmutableSet<ActionInput> topLevelOutputs) {
     this.filesToDownload = Preconditions.checkNotNull(topLevelOutputs, "filesToDownload");
   }
@@ -149,9 +187,44 @@ final class RemoteActionContextProvider implements ExecutorLifecycleListener {
 
   @Override
   public void executionPhaseEnding() {
+    close();
+    DiskCacheStatsEvent diskCacheStats = getDiskCacheStats(cache.cacheProtocol);
+    if (diskCacheStats != null) {
+      env.getEventBus().post(diskCacheStats);
+    }
+    ActionResultCacheStatsEvent actionResultCacheStats = cache.getActionResultCacheStats();
+    if (actionResultCacheStats != null) {
+      env.getEventBus().post(actionResultCacheStats);
+    }
+  }
+
+  /**
+   * Closes the cache and the executor if the command didn't have an execution phase, so that their
+   * threads don't outlive the command.
+   */
+  void afterCommand() {
+    close();
+  }
+
+  private void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
     cache.close();
     if (executor != null) {
       executor.close();
     }
   }
+
+  @Nullable
+  private static DiskCacheStatsEvent getDiskCacheStats(RemoteCacheClient cacheClient) {
+    if (cacheClient instanceof DiskCacheClient) {
+      return ((DiskCacheClient) cacheClient).getStats();
+    }
+    if (cacheClient instanceof DiskAndRemoteCacheClient) {
+      return ((DiskAndRemoteCacheClient) cacheClient).getStats();
+    }
+    return null;
+  }
 }
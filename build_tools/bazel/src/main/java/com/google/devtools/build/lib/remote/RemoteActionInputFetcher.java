@@ -65,15 +65,33 @@ class RemoteActionInputFetcher implements ActionInputPrefetcher {
   @GuardedBy("lock")
   final Map<Path, ListenableFuture<Void>> downloadsInProgress = new HashMap<>();
 
+  /** The number of bytes of downloads started by {@link #prefetchFilesInBackground} in flight. */
+  @GuardedBy("lock")
+  private long backgroundBytesInProgress;
+
   private final RemoteCache remoteCache;
   private final Path execRoot;
   private final RequestMetadata requestMetadata;
+  private final long maxBackgroundBytes;
 
   RemoteActionInputFetcher(
       RemoteCache remoteCache, Path execRoot, RequestMetadata requestMetadata) {
+    this(remoteCache, execRoot, requestMetadata, /* maxBackgroundBytes= */ 0);
+  }
+
+  /**
+   * @param maxBackgroundBytes the maximum number of bytes that {@link #prefetchFilesInBackground}
+   *     downloads at the same time, or 0 to not download in the background
+   */
+  RemoteActionInputFetcher(
+      RemoteCache remoteCache,
+      Path execRoot,
+      RequestMetadata requestMetadata,
+      long maxBackgroundBytes) {
     this.remoteCache = Preconditions.checkNotNull(remoteCache);
     this.execRoot = Preconditions.checkNotNull(execRoot);
     this.requestMetadata = Preconditions.checkNotNull(requestMetadata);
+    this.maxBackgroundBytes = maxBackgroundBytes;
   }
 
   /**
@@ -140,6 +158,56 @@ class RemoteActionInputFetcher implements ActionInputPrefetcher {
     }
   }
 
+  /**
+   * Starts downloading remotely stored inputs of a spawn that is waiting to run locally, so that
+   * the download overlaps with the wait. {@link #prefetchFiles} later waits for these downloads
+   * instead of starting new ones.
+   *
+   * <p>Inputs are started in order until the downloads in flight would exceed the byte budget
+   * passed to the constructor. The remaining inputs are left to {@link #prefetchFiles}. Failed
+   * downloads are retried by {@link #prefetchFiles}, which also reports their errors.
+   */
+  @Override
+  public void prefetchFilesInBackground(
+      Iterable<? extends ActionInput> inputs, MetadataProvider metadataProvider) {
+    if (maxBackgroundBytes <= 0) {
+      return;
+    }
+    try {
+      for (ActionInput input : inputs) {
+        if (input instanceof VirtualActionInput) {
+          continue;
+        }
+        FileArtifactValue metadata = metadataProvider.getMetadata(input);
+        if (metadata == null || !metadata.isRemote()) {
+          continue;
+        }
+
+        Path path = execRoot.getRelative(input.getExecPath());
+        long size = metadata.getSize();
+        synchronized (lock) {
+          if (downloadedPaths.contains(path) || downloadsInProgress.containsKey(path)) {
+            continue;
+          }
+          if (backgroundBytesInProgress + size > maxBackgroundBytes) {
+            return;
+          }
+          ListenableFuture<Void> download = downloadFileAsync(path, metadata);
+          backgroundBytesInProgress += size;
+          download.addListener(
+              () -> {
+                synchronized (lock) {
+                  backgroundBytesInProgress -= size;
+                }
+              },
+              MoreExecutors.directExecutor());
+        }
+      }
+    } catch (IOException e) {
+      logger.atWarning().withCause(e).log("Failed to prefetch inputs in the background");
+    }
+  }
+
   ImmutableSet<Path> downloadedFiles() {
     synchronized (lock) {
       return ImmutableSet.copyOf(downloadedPaths);
@@ -38,6 +38,7 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.devtools.build.lib.actions.ActionInput;
 import com.google.devtools.build.lib.actions.Artifact;
 import com.google.devtools.build.lib.actions.EnvironmentalExecException;
@@ -47,13 +48,17 @@ import com.google.devtools.build.lib.actions.UserExecException;
 import com.google.devtools.build.lib.actions.cache.MetadataInjector;
 import com.google.devtools.build.lib.concurrent.ThreadSafety;
 import com.google.devtools.build.lib.exec.SpawnRunner.SpawnExecutionContext;
+import com.google.devtools.build.lib.metrics.ActionResultCacheStatsEvent;
 import com.google.devtools.build.lib.profiler.Profiler;
 import com.google.devtools.build.lib.profiler.SilentCloseable;
 import com.google.devtools.build.lib.remote.RemoteCache.ActionResultMetadata.DirectoryMetadata;
 import com.google.devtools.build.lib.remote.RemoteCache.ActionResultMetadata.FileMetadata;
 import com.google.devtools.build.lib.remote.RemoteCache.ActionResultMetadata.SymlinkMetadata;
+import com.google.devtools.build.lib.remote.common.CacheNotFoundException;
+import com.google.devtools.build.lib.remote.common.FileDownloader;
 import com.google.devtools.build.lib.remote.common.RemoteCacheClient;
 import com.google.devtools.build.lib.remote.common.RemoteCacheClient.ActionKey;
+import com.google.devtools.build.lib.remote.merkletree.MerkleTreeCache;
 import com.google.devtools.build.lib.remote.options.RemoteOptions;
 import com.google.devtools.build.lib.remote.util.DigestUtil;
 import com.google.devtools.build.lib.remote.util.Utils.InMemoryOutput;
@@ -67,6 +72,7 @@ import com.google.devtools.build.lib.vfs.PathFragment;
 import com.google.devtools.build.lib.vfs.Symlinks;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
+import io.grpc.Context;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -78,9 +84,16 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
 
 /** A cache for storing artifacts (input and output) as well as the output of running an action. */
 @ThreadSafety.ThreadSafe
@@ -103,19 +116,125 @@ public class RemoteCache implements AutoCloseable {
   protected final RemoteCacheClient cacheProtocol;
   protected final RemoteOptions options;
   protected final DigestUtil digestUtil;
+  @Nullable protected final MerkleTreeCache merkleTreeCache;
+  @Nullable private final ActionResultCache actionResultCache;
+  private final long actionResultCacheHitsBefore;
+  private final long actionResultCacheMissesBefore;
+  private final long actionResultCacheValidationsBefore;
+
+  /** The downloads of blobs to files that are in progress, by digest. */
+  private final ConcurrentHashMap<Digest, SharedDownload> sharedDownloads =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Links or copies the files of completed shared downloads to their followers, so that this file
+   * system work doesn't run on the thread that completed the download, e.g. a network event loop.
+   */
+  private final ExecutorService sharedDownloadExecutor =
+      Executors.newCachedThreadPool(
+          new ThreadFactoryBuilder()
+              .setNameFormat("remote-shared-download-%d")
+              .setDaemon(true)
+              .build());
 
   public RemoteCache(
       RemoteCacheClient cacheProtocol, RemoteOptions options, DigestUtil digestUtil) {
+    this(cacheProtocol, options, digestUtil, /* actionResultCache= */ null);
+  }
+
+  /**
+   * @param actionResultCache remembers the results of action cache lookups, or {@code null} to
+   *     always look up action results in the remote cache
+   */
+  public RemoteCache(
+      RemoteCacheClient cacheProtocol,
+      RemoteOptions options,
+      DigestUtil digestUtil,
+      @Nullable ActionResultCache actionResultCache) {
     this.cacheProtocol = cacheProtocol;
     this.options = options;
     this.digestUtil = digestUtil;
+    this.merkleTreeCache =
+        options.remoteMerkleTreeCache
+            ? new MerkleTreeCache(options.remoteMerkleTreeCacheSize)
+            : null;
+    this.actionResultCache = actionResultCache;
+    // The action result cache may outlive this instance, so only the lookups made through this
+    // instance are reported.
+    this.actionResultCacheHitsBefore =
+        actionResultCache != null ? actionResultCache.getHitCount() : 0;
+    this.actionResultCacheMissesBefore =
+        actionResultCache != null ? actionResultCache.getMissCount() : 0;
+    this.actionResultCacheValidationsBefore =
+        actionResultCache != null ? actionResultCache.getValidationCount() : 0;
+  }
+
+  /**
+   * Returns the cache to use when building the input merkle trees of actions, or {@code null} if
+   * {@code --experimental_remote_merkle_tree_cache} is disabled.
+   */
+  @Nullable
+  public MerkleTreeCache getMerkleTreeCache() {
+    return merkleTreeCache;
   }
 
   public ActionResult downloadActionResult(ActionKey actionKey, boolean inlineOutErr)
       throws IOException, InterruptedException {
+    if (actionResultCache != null) {
+      // Outputs that aren't downloaded right away must still be in the remote cache when they are
+      // needed later, so remembered results are only used if none of their outputs were evicted.
+      return actionResultCache.get(
+          actionKey,
+          () -> getFromFuture(cacheProtocol.downloadActionResult(actionKey, inlineOutErr)),
+          options.remoteOutputsMode.downloadAllOutputs() ? result -> true : this::outputsExist);
+    }
     return getFromFuture(cacheProtocol.downloadActionResult(actionKey, inlineOutErr));
   }
 
+  /**
+   * Returns statistics about the action results looked up since this instance was created, or
+   * {@code null} if action results aren't remembered.
+   */
+  @Nullable
+  public ActionResultCacheStatsEvent getActionResultCacheStats() {
+    if (actionResultCache == null) {
+      return null;
+    }
+    return new ActionResultCacheStatsEvent(
+        actionResultCache.getHitCount() - actionResultCacheHitsBefore,
+        actionResultCache.getMissCount() - actionResultCacheMissesBefore,
+        actionResultCache.getValidationCount() - actionResultCacheValidationsBefore);
+  }
+
+  /** Returns whether all outputs of {@code result} are still in the remote cache. */
+  private boolean outputsExist(ActionResult result) throws IOException, InterruptedException {
+    List<Digest> digests = new ArrayList<>();
+    for (OutputFile file : result.getOutputFilesList()) {
+      digests.add(file.getDigest());
+    }
+    for (OutputDirectory directory : result.getOutputDirectoriesList()) {
+      digests.add(directory.getTreeDigest());
+    }
+    if (result.hasStdoutDigest()) {
+      digests.add(result.getStdoutDigest());
+    }
+    if (result.hasStderrDigest()) {
+      digests.add(result.getStderrDigest());
+    }
+    return digests.isEmpty() || getFromFuture(cacheProtocol.findMissingDigests(digests)).isEmpty();
+  }
+
+  /**
+   * Forgets the result of {@code actionKey} that was previously returned by {@link
+   * #downloadActionResult}, e.g. because some of its outputs are missing from the remote cache or
+   * the action was executed again.
+   */
+  public void invalidateActionResult(ActionKey actionKey) {
+    if (actionResultCache != null) {
+      actionResultCache.invalidate(actionKey);
+    }
+  }
+
   /**
    * Upload the result of a locally executed action to the remote cache.
    *
@@ -136,7 +255,11 @@ public class RemoteCache implements AutoCloseable {
     resultBuilder.setExitCode(exitCode);
     ActionResult result = resultBuilder.build();
     if (exitCode == 0 && !action.getDoNotCache()) {
+      invalidateActionResult(actionKey);
       cacheProtocol.uploadActionResult(actionKey, result);
+      if (actionResultCache != null) {
+        actionResultCache.put(actionKey, result);
+      }
     }
     return result;
   }
@@ -431,7 +554,13 @@ public class RemoteCache implements AutoCloseable {
     }
   }
 
-  /** Download a file (that is not a directory). The content is fetched from the digest. */
+  /**
+   * Download a file (that is not a directory). The content is fetched from the digest.
+   *
+   * <p>If the same digest is already being downloaded to another file, the file is hard linked, or
+   * copied if that isn't possible, from there once that download completes instead of being
+   * downloaded again.
+   */
   public ListenableFuture<Void> downloadFile(Path path, Digest digest) throws IOException {
     Preconditions.checkNotNull(path.getParentDirectory()).createDirectoryAndParents();
     if (digest.getSizeBytes() == 0) {
@@ -440,6 +569,206 @@ public class RemoteCache implements AutoCloseable {
       return COMPLETED_SUCCESS;
     }
 
+    SharedDownload shared = new SharedDownload(path);
+    SharedDownload existing = sharedDownloads.putIfAbsent(digest, shared);
+    if (existing != null) {
+      ListenableFuture<Void> copy = existing.follow(path);
+      if (copy != null) {
+        return copy;
+      }
+      // The shared download has just completed or was cancelled.
+      return downloadFileUnshared(path, digest);
+    }
+
+    ListenableFuture<Void> download;
+    try {
+      download = downloadFileUnshared(path, digest);
+    } catch (IOException | RuntimeException e) {
+      sharedDownloads.remove(digest, shared);
+      throw e;
+    }
+    SettableFuture<Void> result = SettableFuture.create();
+    download.addListener(
+        () -> {
+          sharedDownloads.remove(digest, shared);
+          List<Follower> followers = shared.finish();
+          // The followers get the file before the caller sees the download as completed and can
+          // move or delete it.
+          Runnable completion =
+              () -> {
+                shared.complete(
+                    followers, download, digest, /* deleteFile= */ result.isCancelled());
+                result.setFuture(download);
+              };
+          if (followers.isEmpty()) {
+            completion.run();
+            return;
+          }
+          try {
+            sharedDownloadExecutor.execute(completion);
+          } catch (RejectedExecutionException e) {
+            // This cache was closed in the meantime.
+            completion.run();
+          }
+        },
+        directExecutor());
+    result.addListener(
+        () -> {
+          if (result.isCancelled() && shared.cancelIfUnfollowed()) {
+            download.cancel(/* mayInterruptIfRunning= */ true);
+          }
+        },
+        directExecutor());
+    return result;
+  }
+
+  /**
+   * A download of a blob to a file that other downloads of the same blob can wait for to link or
+   * copy the file, rather than downloading the blob again.
+   */
+  private final class SharedDownload {
+    private final Path path;
+
+    @GuardedBy("this")
+    private final List<Follower> followers = new ArrayList<>();
+
+    @GuardedBy("this")
+    private boolean done;
+
+    SharedDownload(Path path) {
+      this.path = path;
+    }
+
+    /**
+     * Returns a future that completes when the blob is copied to {@code dst}, or {@code null} if
+     * it's too late to follow this download.
+     */
+    @Nullable
+    synchronized ListenableFuture<Void> follow(Path dst) {
+      if (done) {
+        return null;
+      }
+      Follower follower = new Follower(dst, Context.current());
+      followers.add(follower);
+      return follower.result;
+    }
+
+    /** Marks this download as done if nobody follows it, returning whether it was marked. */
+    synchronized boolean cancelIfUnfollowed() {
+      if (followers.isEmpty()) {
+        done = true;
+      }
+      return done;
+    }
+
+    /** Marks this download as done and returns the followers that are waiting for it. */
+    synchronized List<Follower> finish() {
+      done = true;
+      List<Follower> toComplete = new ArrayList<>(followers);
+      followers.clear();
+      return toComplete;
+    }
+
+    /**
+     * Links or copies the downloaded file to the followers. If the download or that fails, the
+     * follower downloads the blob on its own, unless the blob is missing from the remote cache.
+     *
+     * <p>Hard links are safe here because output files are never modified in place: they are
+     * deleted before an action runs again and all of them get the same permissions.
+     *
+     * @param deleteFile whether to delete the downloaded file afterwards, because the download was
+     *     only continued for the followers
+     */
+    void complete(
+        List<Follower> toComplete,
+        ListenableFuture<Void> download,
+        Digest digest,
+        boolean deleteFile) {
+      Throwable failure = getFailure(download);
+      List<Follower> linked = new ArrayList<>(toComplete.size());
+      for (Follower follower : toComplete) {
+        if (follower.result.isCancelled()) {
+          continue;
+        }
+        if (failure instanceof CacheNotFoundException) {
+          follower.result.setException(failure);
+          continue;
+        }
+        if (failure == null) {
+          try {
+            // A file may be downloaded again, e.g. after a cancelled download of it.
+            if (follower.path.equals(path)) {
+              deleteFile = false;
+            } else {
+              linkOrCopy(follower.path);
+            }
+            linked.add(follower);
+            continue;
+          } catch (IOException e) {
+            // The file may have been deleted by a cancelled caller in the meantime.
+          }
+        }
+        Context previous = follower.context.attach();
+        try {
+          follower.result.setFuture(downloadFileUnshared(follower.path, digest));
+        } catch (IOException | RuntimeException e) {
+          follower.result.setException(e);
+        } finally {
+          follower.context.detach(previous);
+        }
+      }
+      if (deleteFile && failure == null) {
+        try {
+          path.delete();
+        } catch (IOException e) {
+          // The caller cleans up after a cancelled download, too.
+        }
+      }
+      for (Follower follower : linked) {
+        follower.result.set(null);
+      }
+    }
+
+    private void linkOrCopy(Path dst) throws IOException {
+      try {
+        FileSystemUtils.createHardLink(dst, path);
+      } catch (IOException e) {
+        // E.g. the file system doesn't support hard links or dst is on another device.
+        FileSystemUtils.copyFile(path, dst);
+      }
+    }
+  }
+
+  @Nullable
+  private static Throwable getFailure(ListenableFuture<Void> download) {
+    try {
+      Futures.getDone(download);
+      return null;
+    } catch (ExecutionException e) {
+      return e.getCause();
+    } catch (CancellationException e) {
+      return e;
+    }
+  }
+
+  private static final class Follower {
+    final Path path;
+    /** The context of the follower, which carries the metadata of its requests. */
+    final Context context;
+
+    final SettableFuture<Void> result = SettableFuture.create();
+
+    Follower(Path path, Context context) {
+      this.path = path;
+      this.context = context;
+    }
+  }
+
+  private ListenableFuture<Void> downloadFileUnshared(Path path, Digest digest) throws IOException {
+    if (cacheProtocol instanceof FileDownloader) {
+      return ((FileDownloader) cacheProtocol).downloadFile(digest, path);
+    }
+
     OutputStream out = new LazyFileOutputStream(path);
     SettableFuture<Void> outerF = SettableFuture.create();
     ListenableFuture<Void> f = cacheProtocol.downloadBlob(digest, out);
@@ -966,6 +1295,7 @@ public class RemoteCache implements AutoCloseable {
   /** Release resources associated with the cache. The cache may not be used after calling this. */
   @Override
   public void close() {
+    sharedDownloadExecutor.shutdown();
     cacheProtocol.close();
   }
 
@@ -52,7 +52,14 @@ public final class RemoteCacheClientFactory {
       RemoteOptions options)
       throws IOException {
     DiskCacheClient diskCacheClient =
-        createDiskCache(workingDirectory, diskCachePath, remoteVerifyDownloads, digestUtil);
+        createDiskCache(
+            workingDirectory,
+            diskCachePath,
+            remoteVerifyDownloads,
+            digestUtil,
+            options.diskCacheMaxSize,
+            options.diskCacheFsync,
+            options.diskCacheIoThreads);
     return new DiskAndRemoteCacheClient(diskCacheClient, remoteCacheClient, options);
   }
 
@@ -82,7 +89,13 @@ public final class RemoteCacheClientFactory {
     }
     if (isDiskCache(options)) {
       return createDiskCache(
-          workingDirectory, options.diskCache, options.remoteVerifyDownloads, digestUtil);
+          workingDirectory,
+          options.diskCache,
+          options.remoteVerifyDownloads,
+          digestUtil,
+          options.diskCacheMaxSize,
+          options.diskCacheFsync,
+          options.diskCacheIoThreads);
     }
     throw new IllegalArgumentException(
         "Unrecognized RemoteOptions configuration: remote Http cache URL and/or local disk cache"
@@ -110,6 +123,7 @@ public final class RemoteCacheClientFactory {
               uri,
               options.remoteTimeout,
               options.remoteMaxConnections,
+              options.remoteCacheHttp2,
               options.remoteVerifyDownloads,
               ImmutableList.copyOf(options.remoteHeaders),
               digestUtil,
@@ -122,6 +136,7 @@ public final class RemoteCacheClientFactory {
             uri,
             options.remoteTimeout,
             options.remoteMaxConnections,
+            options.remoteCacheHttp2,
             options.remoteVerifyDownloads,
             ImmutableList.copyOf(options.remoteHeaders),
             digestUtil,
@@ -136,14 +151,18 @@ public final class RemoteCacheClientFactory {
       Path workingDirectory,
       PathFragment diskCachePath,
       boolean verifyDownloads,
-      DigestUtil digestUtil)
+      DigestUtil digestUtil,
+      long maxSizeBytes,
+      boolean fsync,
+      int ioThreads)
       throws IOException {
     Path cacheDir =
         workingDirectory.getRelative(Preconditions.checkNotNull(diskCachePath, "diskCachePath"));
     if (!cacheDir.exists()) {
       cacheDir.createDirectoryAndParents();
     }
-    return new DiskCacheClient(cacheDir, verifyDownloads, digestUtil);
+    return new DiskCacheClient(
+        cacheDir, verifyDownloads, digestUtil, maxSizeBytes, fsync, ioThreads);
   }
 
   private static RemoteCacheClient createDiskAndHttpCache(
@@ -34,13 +34,36 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import javax.annotation.Nullable;
 
 /** A {@link RemoteCache} with additional functionality needed for remote execution. */
 public class RemoteExecutionCache extends RemoteCache {
 
+  @Nullable private final DigestExistenceCache existenceCache;
+
   public RemoteExecutionCache(
       RemoteCacheClient protocolImpl, RemoteOptions options, DigestUtil digestUtil) {
-    super(protocolImpl, options, digestUtil);
+    this(
+        protocolImpl,
+        options,
+        digestUtil,
+        /* actionResultCache= */ null,
+        /* existenceCache= */ null);
+  }
+
+  /**
+   * Creates a cache that uses {@code existenceCache}, if not null, to forget about inputs that the
+   * remote execution service reports as missing. It should be the one that {@code protocolImpl}
+   * uses to skip looking up blobs.
+   */
+  public RemoteExecutionCache(
+      RemoteCacheClient protocolImpl,
+      RemoteOptions options,
+      DigestUtil digestUtil,
+      @Nullable ActionResultCache actionResultCache,
+      @Nullable DigestExistenceCache existenceCache) {
+    super(protocolImpl, options, digestUtil, actionResultCache);
+    this.existenceCache = existenceCache;
   }
 
   private void uploadMissing(Map<Digest, Path> files, Map<Digest, ByteString> blobs)
@@ -64,7 +87,8 @@ public class RemoteExecutionCache extends RemoteCache {
    * machine given the root digest.
    *
    * <p>The cache may check whether files or parts of the tree structure are already present, and do
-   * not need to be uploaded again.
+   * not need to be uploaded again. With {@code --experimental_remote_merkle_tree_cache}, subtrees
+   * that were found or uploaded for a previous action of the build aren't checked again.
    *
    * <p>Note that this method is only required for remote execution, not for caching itself.
    * However, remote execution uses a cache to store input files, and that may be a separate
@@ -72,8 +96,11 @@ public class RemoteExecutionCache extends RemoteCache {
    */
   public void ensureInputsPresent(MerkleTree merkleTree, Map<Digest, Message> additionalInputs)
       throws IOException, InterruptedException {
-    Iterable<Digest> allDigests =
-        Iterables.concat(merkleTree.getAllDigests(), additionalInputs.keySet());
+    Iterable<Digest> treeDigests =
+        merkleTreeCache != null
+            ? merkleTree.getAllDigests(merkleTreeCache::isPresent)
+            : merkleTree.getAllDigests();
+    Iterable<Digest> allDigests = Iterables.concat(treeDigests, additionalInputs.keySet());
     ImmutableSet<Digest> missingDigests =
         getFromFuture(cacheProtocol.findMissingDigests(allDigests));
     Map<Digest, Path> filesToUpload = new HashMap<>();
@@ -108,5 +135,24 @@ public class RemoteExecutionCache extends RemoteCache {
     }
 
     uploadMissing(filesToUpload, blobsToUpload);
+    if (merkleTreeCache != null) {
+      merkleTreeCache.markPresent(merkleTree);
+    }
+  }
+
+  /**
+   * Forgets that the inputs of {@code merkleTree} and the blobs {@code missingDigests} are present
+   * in the remote cache, so that the next call to {@link #ensureInputsPresent} checks all of them
+   * again. To be called if the remote execution service reports missing inputs.
+   */
+  public void invalidateInputs(MerkleTree merkleTree, Iterable<Digest> missingDigests) {
+    if (merkleTreeCache != null) {
+      merkleTreeCache.invalidate(merkleTree);
+    }
+    if (existenceCache != null) {
+      for (Digest digest : Iterables.concat(merkleTree.getAllDigests(), missingDigests)) {
+        existenceCache.remove(digest);
+      }
+    }
   }
 }
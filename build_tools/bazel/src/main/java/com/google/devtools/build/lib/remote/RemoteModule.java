@@ -54,6 +54,7 @@ import com.google.devtools.build.lib.remote.downloader.GrpcRemoteDownloader;
 import com.google.devtools.build.lib.remote.logging.LoggingInterceptor;
 import com.google.devtools.build.lib.remote.options.RemoteOptions;
 import com.google.devtools.build.lib.remote.options.RemoteOutputsMode;
+import com.google.devtools.build.lib.remote.util.AdaptiveConcurrencyLimiter;
 import com.google.devtools.build.lib.remote.util.DigestUtil;
 import com.google.devtools.build.lib.remote.util.NetworkTime;
 import com.google.devtools.build.lib.remote.util.TracingMetadataUtils;
@@ -70,6 +71,7 @@ import com.google.devtools.build.lib.server.FailureDetails.FailureDetail;
 import com.google.devtools.build.lib.server.FailureDetails.RemoteExecution;
 import com.google.devtools.build.lib.server.FailureDetails.RemoteExecution.Code;
 import com.google.devtools.build.lib.skyframe.MutableSupplier;
+import com.google.devtools.build.lib.skyframe.TopDownActionCache;
 import com.google.devtools.build.lib.util.AbruptExitException;
 import com.google.devtools.build.lib.util.DetailedExitCode;
 import com.google.devtools.build.lib.util.ExitCode;
@@ -83,9 +85,11 @@ import io.grpc.CallCredentials;
 import io.grpc.ClientInterceptor;
 import io.grpc.Context;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.Executors;
+import javax.annotation.Nullable;
 
 /** RemoteModule provides distributed cache and remote execution for Bazel. */
 public final class RemoteModule extends BlazeModule {
@@ -101,6 +105,12 @@ public final class RemoteModule extends BlazeModule {
   private RemoteActionInputFetcher actionInputFetcher;
   private RemoteOutputsMode remoteOutputsMode;
   private RemoteOutputService remoteOutputService;
+  @Nullable private DigestExistenceCache existenceCache;
+  @Nullable private Path existenceCacheFile;
+  @Nullable private String existenceCacheKey;
+  // Unlike the other caches, this one lives as long as the server, unless the remote cache changes.
+  @Nullable private ActionResultCache actionResultCache;
+  @Nullable private String actionResultCacheKey;
 
   private final BuildEventArtifactUploaderFactoryDelegate
       buildEventArtifactUploaderFactoryDelegate = new BuildEventArtifactUploaderFactoryDelegate();
@@ -128,7 +138,12 @@ public final class RemoteModule extends BlazeModule {
     return !Strings.isNullOrEmpty(options.remoteDownloader);
   }
 
-  private void verifyServerCapabilities(
+  /**
+   * Fetches the capabilities of the server behind {@code channel} and checks that they are
+   * compatible with the client. Returns the capabilities, or null if interrupted.
+   */
+  @Nullable
+  private ServerCapabilities verifyServerCapabilities(
       RemoteOptions remoteOptions,
       ReferenceCountedChannel channel,
       CallCredentials credentials,
@@ -154,10 +169,11 @@ public final class RemoteModule extends BlazeModule {
           Code.CAPABILITIES_QUERY_FAILURE);
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
-      return;
+      return null;
     }
     checkClientServerCompatibility(
         capabilities, remoteOptions, digestUtil.getDigestFunction(), env.getReporter());
+    return capabilities;
   }
 
   @Override
@@ -232,7 +248,12 @@ public final class RemoteModule extends BlazeModule {
         handleInitFailure(env, e, Code.CACHE_INIT_FAILURE);
         return;
       }
-      RemoteCache remoteCache = new RemoteCache(cacheClient, remoteOptions, digestUtil);
+      RemoteCache remoteCache =
+          new RemoteCache(
+              cacheClient,
+              remoteOptions,
+              digestUtil,
+              getActionResultCache(env, remoteOptions, hashFn));
       actionContextProvider =
           RemoteActionContextProvider.createForRemoteCaching(
               env, remoteCache, /* retryScheduler= */ null, digestUtil);
@@ -252,6 +273,17 @@ public final class RemoteModule extends BlazeModule {
       loggingInterceptor = new LoggingInterceptor(rpcLogFile, env.getRuntime().getClock());
     }
 
+    // Shared by the exec and cache channels, as they usually connect to the same service.
+    AdaptiveConcurrencyLimiter concurrencyLimiter = null;
+    if (remoteOptions.remoteAdaptiveConcurrencyLimit > 0) {
+      int initialLimit =
+          remoteOptions.remoteMaxConnections > 0 ? remoteOptions.remoteMaxConnections : 100;
+      concurrencyLimiter =
+          new AdaptiveConcurrencyLimiter(
+              Math.min(initialLimit, remoteOptions.remoteAdaptiveConcurrencyLimit),
+              remoteOptions.remoteAdaptiveConcurrencyLimit);
+    }
+
     ReferenceCountedChannel execChannel = null;
     ReferenceCountedChannel cacheChannel = null;
     ReferenceCountedChannel downloaderChannel = null;
@@ -262,6 +294,10 @@ public final class RemoteModule extends BlazeModule {
         interceptors.add(loggingInterceptor);
       }
       interceptors.add(new NetworkTime.Interceptor());
+      if (concurrencyLimiter != null) {
+        // Added last so that it runs first, and queued calls aren't accounted as network time.
+        interceptors.add(concurrencyLimiter);
+      }
       try {
         execChannel =
             RemoteCacheClientFactory.createGrpcChannel(
@@ -288,6 +324,10 @@ public final class RemoteModule extends BlazeModule {
         interceptors.add(loggingInterceptor);
       }
       interceptors.add(new NetworkTime.Interceptor());
+      if (concurrencyLimiter != null) {
+        // Added last so that it runs first, and queued calls aren't accounted as network time.
+        interceptors.add(concurrencyLimiter);
+      }
       try {
         cacheChannel =
             RemoteCacheClientFactory.createGrpcChannel(
@@ -342,11 +382,16 @@ public final class RemoteModule extends BlazeModule {
     // We always query the execution server for capabilities, if it is defined. A remote
     // execution/cache system should have all its servers to return the capabilities pertaining
     // to the system as a whole.
+    ServerCapabilities capabilities = null;
     if (execChannel != null) {
-      verifyServerCapabilities(remoteOptions, execChannel, credentials, retrier, env, digestUtil);
+      capabilities =
+          verifyServerCapabilities(
+              remoteOptions, execChannel, credentials, retrier, env, digestUtil);
     }
     if (cacheChannel != execChannel) {
-      verifyServerCapabilities(remoteOptions, cacheChannel, credentials, retrier, env, digestUtil);
+      capabilities =
+          verifyServerCapabilities(
+              remoteOptions, cacheChannel, credentials, retrier, env, digestUtil);
     }
 
     ByteStreamUploader uploader =
@@ -365,7 +410,9 @@ public final class RemoteModule extends BlazeModule {
             remoteOptions,
             retrier,
             digestUtil,
-            uploader.retain());
+            uploader.retain(),
+            capabilities != null ? capabilities.getCacheCapabilities() : null,
+            createExistenceCache(env, remoteOptions, cacheChannel.authority(), hashFn));
     uploader.release();
     Context requestContext =
         TracingMetadataUtils.contextWithMetadata(buildRequestId, invocationId, "bes-upload");
@@ -391,7 +438,12 @@ public final class RemoteModule extends BlazeModule {
           new GrpcRemoteExecutor(execChannel.retain(), credentials, execRetrier, remoteOptions);
       execChannel.release();
       RemoteExecutionCache remoteCache =
-          new RemoteExecutionCache(cacheClient, remoteOptions, digestUtil);
+          new RemoteExecutionCache(
+              cacheClient,
+              remoteOptions,
+              digestUtil,
+              getActionResultCache(env, remoteOptions, hashFn),
+              existenceCache);
       actionContextProvider =
           RemoteActionContextProvider.createForRemoteExecution(
               env, remoteCache, remoteExecutor, retryScheduler, digestUtil, logDir);
@@ -420,7 +472,12 @@ public final class RemoteModule extends BlazeModule {
         }
       }
 
-      RemoteCache remoteCache = new RemoteCache(cacheClient, remoteOptions, digestUtil);
+      RemoteCache remoteCache =
+          new RemoteCache(
+              cacheClient,
+              remoteOptions,
+              digestUtil,
+              getActionResultCache(env, remoteOptions, hashFn));
       actionContextProvider =
           RemoteActionContextProvider.createForRemoteCaching(
               env, remoteCache, retryScheduler, digestUtil);
@@ -556,12 +613,105 @@ public final class RemoteModule extends BlazeModule {
     }
   }
 
+  /**
+   * Returns the cache of digests known to exist in the remote cache, or {@code null} if {@code
+   * --experimental_remote_existence_cache_size} is 0. If {@code
+   * --experimental_remote_existence_cache_persist} is set, the entries of the previous invocation
+   * are loaded from the output base.
+   */
+  @Nullable
+  private DigestExistenceCache createExistenceCache(
+      CommandEnvironment env,
+      RemoteOptions remoteOptions,
+      String cacheAuthority,
+      DigestHashFunction hashFn) {
+    if (remoteOptions.remoteExistenceCacheSize <= 0) {
+      return null;
+    }
+    existenceCache =
+        new DigestExistenceCache(
+            env.getRuntime().getClock(),
+            remoteOptions.remoteExistenceCacheSize,
+            Duration.ofSeconds(remoteOptions.remoteExistenceCacheTtl));
+    if (remoteOptions.remoteExistenceCachePersist) {
+      existenceCacheFile =
+          env.getOutputBase()
+              .getRelative(env.getRuntime().getProductName() + "-remote-existence-cache");
+      existenceCacheKey =
+          String.join("/", cacheAuthority, remoteOptions.remoteInstanceName, hashFn.toString());
+      try {
+        existenceCache.readFrom(existenceCacheFile, existenceCacheKey);
+      } catch (IOException e) {
+        logger.atWarning().withCause(e).log(
+            "Failed to read the remote existence cache from %s", existenceCacheFile);
+      }
+    }
+    return existenceCache;
+  }
+
+  /**
+   * Returns the cache of action cache lookups, or {@code null} if {@code
+   * --experimental_remote_action_result_cache_size} is 0. The cache of the previous command is
+   * reused if the options that determine the contents of the action cache didn't change.
+   */
+  @Nullable
+  private ActionResultCache getActionResultCache(
+      CommandEnvironment env, RemoteOptions remoteOptions, DigestHashFunction hashFn) {
+    if (remoteOptions.remoteActionResultCacheSize <= 0) {
+      actionResultCache = null;
+      actionResultCacheKey = null;
+      return null;
+    }
+    String key =
+        String.join(
+            "\n",
+            Strings.nullToEmpty(remoteOptions.remoteCache),
+            Strings.nullToEmpty(remoteOptions.remoteExecutor),
+            Strings.nullToEmpty(remoteOptions.remoteProxy),
+            remoteOptions.remoteInstanceName,
+            remoteOptions.diskCache != null ? remoteOptions.diskCache.getPathString() : "",
+            hashFn.toString(),
+            Boolean.toString(remoteOptions.remoteAcceptCached),
+            Boolean.toString(remoteOptions.incompatibleRemoteResultsIgnoreDisk),
+            Long.toString(remoteOptions.remoteActionResultCacheSize),
+            Integer.toString(remoteOptions.remoteActionResultCacheTtl),
+            Integer.toString(remoteOptions.remoteActionResultCacheNegativeTtl),
+            Integer.toString(remoteOptions.remoteActionResultCacheValidationInterval));
+    if (actionResultCache == null || !key.equals(actionResultCacheKey)) {
+      actionResultCache =
+          new ActionResultCache(
+              env.getRuntime().getClock(),
+              remoteOptions.remoteActionResultCacheSize,
+              Duration.ofSeconds(remoteOptions.remoteActionResultCacheTtl),
+              Duration.ofSeconds(remoteOptions.remoteActionResultCacheNegativeTtl),
+              Duration.ofSeconds(remoteOptions.remoteActionResultCacheValidationInterval));
+      actionResultCacheKey = key;
+    }
+    return actionResultCache;
+  }
+
+  private void writeExistenceCache() {
+    if (existenceCache != null && existenceCacheFile != null) {
+      try {
+        existenceCache.writeTo(existenceCacheFile, existenceCacheKey);
+      } catch (IOException e) {
+        logger.atWarning().withCause(e).log(
+            "Failed to write the remote existence cache to %s", existenceCacheFile);
+      }
+    }
+    existenceCache = null;
+    existenceCacheFile = null;
+    existenceCacheKey = null;
+  }
+
   @Override
   public void afterCommand() throws AbruptExitException {
     IOException failure = null;
     Code failureCode = null;
     String failureMessage = null;
 
+    writeExistenceCache();
+
     try {
       closeRpcLogFile();
     } catch (IOException e) {
@@ -579,6 +729,9 @@ public final class RemoteModule extends BlazeModule {
       failureMessage = "Failed to delete downloaded inputs";
     }
 
+    if (actionContextProvider != null) {
+      actionContextProvider.afterCommand();
+    }
     buildEventArtifactUploaderFactoryDelegate.reset();
     repositoryRemoteExecutorFactoryDelegate.reset();
     remoteDownloaderSupplier.set(null);
@@ -670,7 +823,10 @@ public final class RemoteModule extends BlazeModule {
               .build();
       actionInputFetcher =
           new RemoteActionInputFetcher(
-              actionContextProvider.getRemoteCache(), env.getExecRoot(), requestMetadata);
+              actionContextProvider.getRemoteCache(),
+              env.getExecRoot(),
+              requestMetadata,
+              remoteOptions.remoteBackgroundPrefetchBytes);
       builder.setActionInputPrefetcher(actionInputFetcher);
       remoteOutputService.setActionInputFetcher(actionInputFetcher);
     }
@@ -685,6 +841,11 @@ public final class RemoteModule extends BlazeModule {
     return remoteOutputService;
   }
 
+  @Override
+  public TopDownActionCache getTopDownActionCache() {
+    return actionContextProvider != null ? actionContextProvider.createTopDownActionCache() : null;
+  }
+
   @Override
   public Iterable<Class<? extends OptionsBase>> getCommandOptions(Command command) {
     return ImmutableList.of("build", "test", "fetch").contains(command.name())
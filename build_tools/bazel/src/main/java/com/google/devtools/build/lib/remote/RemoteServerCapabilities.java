@@ -17,6 +17,7 @@ package com.google.devtools.build.lib.remote;
 import build.bazel.remote.execution.v2.CacheCapabilities;
 import build.bazel.remote.execution.v2.CapabilitiesGrpc;
 import build.bazel.remote.execution.v2.CapabilitiesGrpc.CapabilitiesBlockingStub;
+import build.bazel.remote.execution.v2.Compressor;
 import build.bazel.remote.execution.v2.DigestFunction;
 import build.bazel.remote.execution.v2.ExecutionCapabilities;
 import build.bazel.remote.execution.v2.GetCapabilitiesRequest;
@@ -183,6 +184,14 @@ class RemoteServerCapabilities {
               digestFunction, cacheCap.getDigestFunctionList()));
     }
 
+    // Check compression is supported, if requested.
+    if (remoteOptions.cacheCompression
+        && !cacheCap.getSupportedCompressorsList().contains(Compressor.Value.DEFLATE)) {
+      result.addWarning(
+          "--experimental_remote_cache_compression is set, but the remote cache doesn't support "
+              + "DEFLATE compression. Blobs will be transferred uncompressed.");
+    }
+
     if (remoteExecution) {
       // Check remote execution is enabled.
       ExecutionCapabilities execCap = capabilities.getExecutionCapabilities();
@@ -212,8 +212,10 @@ final class RemoteSpawnCache implements SpawnCache {
           return SpawnCache.success(spawnResult);
         }
       } catch (CacheNotFoundException e) {
-        // Intentionally left blank
+        remoteCache.invalidateActionResult(actionKey);
       } catch (IOException e) {
+        // Some of the outputs of a remembered result may have been evicted from the remote cache.
+        remoteCache.invalidateActionResult(actionKey);
         String errorMsg = Utils.grpcAwareErrorMessage(e);
         if (isNullOrEmpty(errorMsg)) {
           errorMsg = e.getClass().getSimpleName();
@@ -28,13 +28,16 @@ import build.bazel.remote.execution.v2.Action;
 import build.bazel.remote.execution.v2.ActionResult;
 import build.bazel.remote.execution.v2.Command;
 import build.bazel.remote.execution.v2.Digest;
+import build.bazel.remote.execution.v2.ExecuteOperationMetadata;
 import build.bazel.remote.execution.v2.ExecuteRequest;
 import build.bazel.remote.execution.v2.ExecuteResponse;
 import build.bazel.remote.execution.v2.ExecutedActionMetadata;
+import build.bazel.remote.execution.v2.ExecutionStage;
 import build.bazel.remote.execution.v2.LogFile;
 import build.bazel.remote.execution.v2.Platform;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
 import com.google.common.base.Stopwatch;
 import com.google.common.base.Strings;
 import com.google.common.base.Throwables;
@@ -42,11 +45,14 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningScheduledExecutorService;
 import com.google.devtools.build.lib.actions.ActionInput;
 import com.google.devtools.build.lib.actions.Artifact;
 import com.google.devtools.build.lib.actions.CommandLines.ParamFileActionInput;
+import com.google.devtools.build.lib.actions.EnvironmentalExecException;
 import com.google.devtools.build.lib.actions.ExecException;
+import com.google.devtools.build.lib.actions.FutureSpawn;
 import com.google.devtools.build.lib.actions.Spawn;
 import com.google.devtools.build.lib.actions.SpawnMetrics;
 import com.google.devtools.build.lib.actions.SpawnResult;
@@ -64,6 +70,7 @@ import com.google.devtools.build.lib.exec.SpawnRunner;
 import com.google.devtools.build.lib.profiler.Profiler;
 import com.google.devtools.build.lib.profiler.ProfilerTask;
 import com.google.devtools.build.lib.profiler.SilentCloseable;
+import com.google.devtools.build.lib.remote.GrpcRemoteExecutor.ExecutionObserver;
 import com.google.devtools.build.lib.remote.common.RemoteCacheClient.ActionKey;
 import com.google.devtools.build.lib.remote.merkletree.MerkleTree;
 import com.google.devtools.build.lib.remote.options.RemoteOptions;
@@ -140,10 +147,42 @@ public class RemoteSpawnRunner implements SpawnRunner {
     return true; // if *all* > 0 violations have type MISSING
   }
 
+  /**
+   * Returns the digests of the blobs that are reported as missing by the {@link
+   * PreconditionFailure} details of {@code e}. Their subjects have the form {@code
+   * blobs/<hash>/<size>}, others are ignored.
+   */
+  private static ImmutableList<Digest> getMissingDigests(Exception e) {
+    com.google.rpc.Status status = StatusProto.fromThrowable(e);
+    if (status == null) {
+      return ImmutableList.of();
+    }
+    ImmutableList.Builder<Digest> digests = ImmutableList.builder();
+    for (Any details : status.getDetailsList()) {
+      if (!details.is(PreconditionFailure.class)) {
+        continue;
+      }
+      try {
+        for (Violation v : details.unpack(PreconditionFailure.class).getViolationsList()) {
+          List<String> parts = Splitter.on('/').splitToList(v.getSubject());
+          if (v.getType().equals(VIOLATION_TYPE_MISSING)
+              && parts.size() == 3
+              && parts.get(0).equals("blobs")) {
+            digests.add(DigestUtil.buildDigest(parts.get(1), Long.parseLong(parts.get(2))));
+          }
+        }
+      } catch (InvalidProtocolBufferException | NumberFormatException ex) {
+        // Ignore malformed details, the digests of the merkle tree are invalidated anyway.
+      }
+    }
+    return digests.build();
+  }
+
   private final Path execRoot;
   private final RemoteOptions remoteOptions;
   private final ExecutionOptions executionOptions;
   private final boolean verboseFailures;
+  private final boolean asyncExecution;
 
   @Nullable private final Reporter cmdlineReporter;
   private final RemoteExecutionCache remoteCache;
@@ -168,6 +207,7 @@ public class RemoteSpawnRunner implements SpawnRunner {
       RemoteOptions remoteOptions,
       ExecutionOptions executionOptions,
       boolean verboseFailures,
+      boolean asyncExecution,
       @Nullable Reporter cmdlineReporter,
       String buildRequestId,
       String commandId,
@@ -183,6 +223,7 @@ public class RemoteSpawnRunner implements SpawnRunner {
     this.remoteCache = Preconditions.checkNotNull(remoteCache, "remoteCache");
     this.remoteExecutor = Preconditions.checkNotNull(remoteExecutor, "remoteExecutor");
     this.verboseFailures = verboseFailures;
+    this.asyncExecution = asyncExecution;
     this.cmdlineReporter = cmdlineReporter;
     this.buildRequestId = buildRequestId;
     this.commandId = commandId;
@@ -200,13 +241,202 @@ public class RemoteSpawnRunner implements SpawnRunner {
   @Override
   public SpawnResult exec(Spawn spawn, SpawnExecutionContext context)
       throws ExecException, InterruptedException, IOException {
+    RemoteAction remoteAction = prepareRemoteAction(spawn, context);
+    Context previous = remoteAction.withMetadata.attach();
+    Profiler prof = Profiler.instance();
+    try {
+      try {
+        SpawnResult cachedResult = lookupCachedResult(remoteAction);
+        if (cachedResult != null) {
+          return cachedResult;
+        }
+      } catch (IOException e) {
+        return execLocallyAndUploadOrFail(remoteAction, e);
+      }
+
+      try {
+        return retrier.execute(
+            () -> {
+              ExecuteRequest request = remoteAction.requestBuilder.build();
+              uploadInputs(remoteAction);
+              ExecuteResponse reply;
+              try (SilentCloseable c = prof.profile(REMOTE_EXECUTION, "execute remotely")) {
+                if (remoteOptions.remoteExecutionProgress) {
+                  reply = executeWithProgress(request, context);
+                } else {
+                  reply = remoteExecutor.executeRemotely(request);
+                }
+              } catch (IOException e) {
+                maybeInvalidateInputs(remoteAction, e);
+                throw e;
+              }
+              return handleExecuteResponse(remoteAction, reply);
+            });
+      } catch (IOException e) {
+        return execLocallyAndUploadOrFail(remoteAction, e);
+      }
+    } finally {
+      remoteAction.withMetadata.detach(previous);
+    }
+  }
+
+  /**
+   * Executes the spawn like {@link #exec}, but if {@code --experimental_async_execution} is set,
+   * without blocking a thread while the action runs remotely. The cache lookup and the upload of
+   * the inputs happen in the calling thread. The outputs are downloaded in the thread that calls
+   * {@link FutureSpawn#get}, which is a Skyframe thread for async actions.
+   *
+   * <p>Only the execution is attempted asynchronously. If it fails with an error that {@link #exec}
+   * would retry, the spawn is executed again with {@link #exec}, which retries and falls back to
+   * local execution as usual.
+   */
+  @Override
+  public FutureSpawn execAsync(Spawn spawn, SpawnExecutionContext context)
+      throws ExecException, InterruptedException, IOException {
+    if (!asyncExecution) {
+      return FutureSpawn.immediate(exec(spawn, context));
+    }
+    RemoteAction remoteAction = prepareRemoteAction(spawn, context);
+    Context previous = remoteAction.withMetadata.attach();
+    try {
+      try {
+        SpawnResult cachedResult = lookupCachedResult(remoteAction);
+        if (cachedResult != null) {
+          return FutureSpawn.immediate(cachedResult);
+        }
+      } catch (IOException e) {
+        return FutureSpawn.immediate(execLocallyAndUploadOrFail(remoteAction, e));
+      }
+      try {
+        uploadInputs(remoteAction);
+      } catch (IOException e) {
+        return FutureSpawn.immediate(execAgainOrFail(remoteAction, e));
+      }
+
+      ExecutionProgress progress =
+          remoteOptions.remoteExecutionProgress ? new ExecutionProgress(context) : null;
+      ListenableFuture<ExecuteResponse> reply;
+      try (SilentCloseable c =
+          Profiler.instance().profile(REMOTE_EXECUTION, "start remote execution")) {
+        reply =
+            remoteExecutor.executeRemotelyAsync(
+                remoteAction.requestBuilder.build(),
+                progress != null ? progress : metadata -> {});
+      }
+      return FutureSpawn.afterFuture(
+          reply, () -> completeAsyncExecution(remoteAction, reply, progress));
+    } finally {
+      remoteAction.withMetadata.detach(previous);
+    }
+  }
+
+  private SpawnResult completeAsyncExecution(
+      RemoteAction remoteAction,
+      ListenableFuture<ExecuteResponse> reply,
+      @Nullable ExecutionProgress progress)
+      throws ExecException, InterruptedException {
+    Context previous = remoteAction.withMetadata.attach();
+    try {
+      try {
+        ExecuteResponse response;
+        try {
+          response = getFromFuture(reply);
+        } catch (IOException e) {
+          maybeInvalidateInputs(remoteAction, e);
+          throw e;
+        } finally {
+          if (progress != null) {
+            progress.close();
+            remoteAction.context.report(ProgressStatus.EXECUTING, getName());
+          }
+        }
+        return handleExecuteResponse(remoteAction, response);
+      } catch (IOException e) {
+        return execAgainOrFail(remoteAction, e);
+      }
+    } catch (IOException e) {
+      throw new EnvironmentalExecException(e);
+    } finally {
+      remoteAction.withMetadata.detach(previous);
+    }
+  }
+
+  /**
+   * Handles a failure of an asynchronous execution: executes the spawn again with {@link #exec} if
+   * the error is one that it retries, and falls back to local execution or fails otherwise.
+   */
+  private SpawnResult execAgainOrFail(RemoteAction remoteAction, IOException cause)
+      throws ExecException, InterruptedException, IOException {
+    if (remoteOptions.remoteMaxRetryAttempts > 0 && retrier.isRetriable(cause)) {
+      return exec(remoteAction.spawn, remoteAction.context);
+    }
+    return execLocallyAndUploadOrFail(remoteAction, cause);
+  }
+
+  /** The state of the remote execution of a spawn, shared by the steps of the execution. */
+  private static final class RemoteAction {
+    final Spawn spawn;
+    final SpawnExecutionContext context;
+    final Stopwatch totalTime;
+    final boolean uploadLocalResults;
+    final SortedMap<PathFragment, ActionInput> inputMap;
+    final MerkleTree merkleTree;
+    final SpawnMetrics.Builder spawnMetrics;
+    final Command command;
+    final Digest commandHash;
+    final Action action;
+    final ActionKey actionKey;
+    final NetworkTime networkTime;
+    final Context withMetadata;
+    final ExecuteRequest.Builder requestBuilder = ExecuteRequest.newBuilder();
+    boolean acceptCachedResult;
+
+    RemoteAction(
+        Spawn spawn,
+        SpawnExecutionContext context,
+        Stopwatch totalTime,
+        boolean uploadLocalResults,
+        boolean acceptCachedResult,
+        SortedMap<PathFragment, ActionInput> inputMap,
+        MerkleTree merkleTree,
+        SpawnMetrics.Builder spawnMetrics,
+        Command command,
+        Digest commandHash,
+        Action action,
+        ActionKey actionKey,
+        NetworkTime networkTime,
+        Context withMetadata) {
+      this.spawn = spawn;
+      this.context = context;
+      this.totalTime = totalTime;
+      this.uploadLocalResults = uploadLocalResults;
+      this.acceptCachedResult = acceptCachedResult;
+      this.inputMap = inputMap;
+      this.merkleTree = merkleTree;
+      this.spawnMetrics = spawnMetrics;
+      this.command = command;
+      this.commandHash = commandHash;
+      this.action = action;
+      this.actionKey = actionKey;
+      this.networkTime = networkTime;
+      this.withMetadata = withMetadata;
+    }
+  }
+
+  private RemoteAction prepareRemoteAction(Spawn spawn, SpawnExecutionContext context)
+      throws ExecException, IOException {
     Stopwatch totalTime = Stopwatch.createStarted();
     boolean spawnCacheableRemotely = Spawns.mayBeCachedRemotely(spawn);
     boolean uploadLocalResults = remoteOptions.remoteUploadLocalResults && spawnCacheableRemotely;
     boolean acceptCachedResult = remoteOptions.remoteAcceptCached && spawnCacheableRemotely;
 
-    context.report(ProgressStatus.EXECUTING, getName());
-    RemoteOutputsMode remoteOutputsMode = remoteOptions.remoteOutputsMode;
+    // With progress reporting, the action is only shown as executing once the remote execution
+    // service reports so.
+    context.report(
+        remoteOptions.remoteExecutionProgress
+            ? ProgressStatus.SCHEDULING
+            : ProgressStatus.EXECUTING,
+        getName());
     SortedMap<PathFragment, ActionInput> inputMap = context.getInputMapping(true);
     final MerkleTree merkleTree =
         MerkleTree.build(inputMap, context.getMetadataProvider(), execRoot, digestUtil);
@@ -236,136 +466,238 @@ public class RemoteSpawnRunner implements SpawnRunner {
     Preconditions.checkArgument(
         Spawns.mayBeExecutedRemotely(spawn), "Spawn can't be executed remotely. This is a bug.");
     NetworkTime networkTime = new NetworkTime();
-    // Look up action cache, and reuse the action output if it is found.
     ActionKey actionKey = digestUtil.computeActionKey(action);
     Context withMetadata =
         TracingMetadataUtils.contextWithMetadata(buildRequestId, commandId, actionKey)
             .withValue(NetworkTime.CONTEXT_KEY, networkTime);
-    Context previous = withMetadata.attach();
-    Profiler prof = Profiler.instance();
-    try {
-      try {
-        // Try to lookup the action in the action cache.
-        ActionResult cachedResult;
-        try (SilentCloseable c = prof.profile(ProfilerTask.REMOTE_CACHE_CHECK, "check cache hit")) {
-          cachedResult =
-              acceptCachedResult
-                  ? remoteCache.downloadActionResult(actionKey, /* inlineOutErr= */ false)
-                  : null;
-        }
-        if (cachedResult != null) {
-          if (cachedResult.getExitCode() != 0) {
-            // Failed actions are treated as a cache miss mostly in order to avoid caching flaky
-            // actions (tests).
-            // Set acceptCachedResult to false in order to force the action re-execution
-            acceptCachedResult = false;
-          } else {
-            try {
-              return downloadAndFinalizeSpawnResult(
-                  actionKey.getDigest().getHash(),
-                  cachedResult,
-                  /* cacheHit= */ true,
-                  spawn,
-                  context,
-                  remoteOutputsMode,
-                  totalTime,
-                  networkTime::getDuration,
-                  spawnMetrics);
-            } catch (BulkTransferException e) {
-              if (!e.onlyCausedByCacheNotFoundException()) {
-                throw e;
-              }
-              // No cache hit, so we fall through to local or remote execution.
-              // We set acceptCachedResult to false in order to force the action re-execution.
-              acceptCachedResult = false;
-            }
+    return new RemoteAction(
+        spawn,
+        context,
+        totalTime,
+        uploadLocalResults,
+        acceptCachedResult,
+        inputMap,
+        merkleTree,
+        spawnMetrics,
+        command,
+        commandHash,
+        action,
+        actionKey,
+        networkTime,
+        withMetadata);
+  }
+
+  /**
+   * Looks up the action in the action cache, and returns the result of the spawn if it is found.
+   * Otherwise prepares the execute request of the action and returns null.
+   */
+  @Nullable
+  private SpawnResult lookupCachedResult(RemoteAction remoteAction)
+      throws ExecException, IOException, InterruptedException {
+    ActionResult cachedResult;
+    try (SilentCloseable c =
+        Profiler.instance().profile(ProfilerTask.REMOTE_CACHE_CHECK, "check cache hit")) {
+      cachedResult =
+          remoteAction.acceptCachedResult
+              ? remoteCache.downloadActionResult(remoteAction.actionKey, /* inlineOutErr= */ false)
+              : null;
+    }
+    if (cachedResult != null) {
+      if (cachedResult.getExitCode() != 0) {
+        // Failed actions are treated as a cache miss mostly in order to avoid caching flaky
+        // actions (tests).
+        // Set acceptCachedResult to false in order to force the action re-execution
+        remoteAction.acceptCachedResult = false;
+      } else {
+        try {
+          return downloadAndFinalizeSpawnResult(
+              remoteAction.actionKey.getDigest().getHash(),
+              cachedResult,
+              /* cacheHit= */ true,
+              remoteAction.spawn,
+              remoteAction.context,
+              remoteOptions.remoteOutputsMode,
+              remoteAction.totalTime,
+              remoteAction.networkTime::getDuration,
+              remoteAction.spawnMetrics);
+        } catch (BulkTransferException e) {
+          remoteCache.invalidateActionResult(remoteAction.actionKey);
+          if (!e.onlyCausedByCacheNotFoundException()) {
+            throw e;
           }
+          // No cache hit, so we fall through to local or remote execution.
+          // We set acceptCachedResult to false in order to force the action re-execution.
+          remoteAction.acceptCachedResult = false;
         }
-      } catch (IOException e) {
-        return execLocallyAndUploadOrFail(
-            spawn, context, inputMap, actionKey, action, command, uploadLocalResults, e);
       }
+    }
 
-      ExecuteRequest.Builder requestBuilder =
-          ExecuteRequest.newBuilder()
-              .setInstanceName(remoteOptions.remoteInstanceName)
-              .setActionDigest(actionKey.getDigest())
-              .setSkipCacheLookup(!acceptCachedResult);
-      if (remoteOptions.remoteResultCachePriority != 0) {
-        requestBuilder
-            .getResultsCachePolicyBuilder()
-            .setPriority(remoteOptions.remoteResultCachePriority);
-      }
-      if (remoteOptions.remoteExecutionPriority != 0) {
-        requestBuilder
-            .getExecutionPolicyBuilder()
-            .setPriority(remoteOptions.remoteExecutionPriority);
+    ExecuteRequest.Builder requestBuilder =
+        remoteAction
+            .requestBuilder
+            .setInstanceName(remoteOptions.remoteInstanceName)
+            .setActionDigest(remoteAction.actionKey.getDigest())
+            .setSkipCacheLookup(!remoteAction.acceptCachedResult);
+    if (remoteOptions.remoteResultCachePriority != 0) {
+      requestBuilder
+          .getResultsCachePolicyBuilder()
+          .setPriority(remoteOptions.remoteResultCachePriority);
+    }
+    if (remoteOptions.remoteExecutionPriority != 0) {
+      requestBuilder
+          .getExecutionPolicyBuilder()
+          .setPriority(remoteOptions.remoteExecutionPriority);
+    }
+    return null;
+  }
+
+  /** Uploads the command and all the inputs into the remote cache. */
+  private void uploadInputs(RemoteAction remoteAction) throws IOException, InterruptedException {
+    try (SilentCloseable c = Profiler.instance().profile(UPLOAD_TIME, "upload missing inputs")) {
+      Map<Digest, Message> additionalInputs = Maps.newHashMapWithExpectedSize(2);
+      additionalInputs.put(remoteAction.actionKey.getDigest(), remoteAction.action);
+      additionalInputs.put(remoteAction.commandHash, remoteAction.command);
+      Duration networkTimeStart = remoteAction.networkTime.getDuration();
+      Stopwatch uploadTime = Stopwatch.createStarted();
+      remoteCache.ensureInputsPresent(remoteAction.merkleTree, additionalInputs);
+      // subtract network time consumed here to ensure wall clock during upload is not
+      // double
+      // counted, and metrics time computation does not exceed total time
+      remoteAction.spawnMetrics.setUploadTime(
+          uploadTime
+              .elapsed()
+              .minus(remoteAction.networkTime.getDuration().minus(networkTimeStart)));
+    }
+  }
+
+  private void maybeInvalidateInputs(RemoteAction remoteAction, IOException e) {
+    if (retriableExecErrors(e)) {
+      // Inputs that we believed to be present were evicted, so check all of them again
+      // on retry.
+      remoteCache.invalidateInputs(remoteAction.merkleTree, getMissingDigests(e));
+    }
+  }
+
+  private SpawnResult handleExecuteResponse(RemoteAction remoteAction, ExecuteResponse reply)
+      throws ExecException, IOException, InterruptedException {
+    // The remote executor may have updated the result in the action cache.
+    remoteCache.invalidateActionResult(remoteAction.actionKey);
+
+    FileOutErr outErr = remoteAction.context.getFileOutErr();
+    String message = reply.getMessage();
+    ActionResult actionResult = reply.getResult();
+    if ((actionResult.getExitCode() != 0 || reply.getStatus().getCode() != Code.OK.value())
+        && !message.isEmpty()) {
+      outErr.printErr(message + "\n");
+    }
+
+    spawnMetricsAccounting(remoteAction.spawnMetrics, actionResult.getExecutionMetadata());
+
+    try (SilentCloseable c =
+        Profiler.instance().profile(REMOTE_DOWNLOAD, "download server logs")) {
+      maybeDownloadServerLogs(reply, remoteAction.actionKey);
+    }
+
+    try {
+      return downloadAndFinalizeSpawnResult(
+          remoteAction.actionKey.getDigest().getHash(),
+          actionResult,
+          reply.getCachedResult(),
+          remoteAction.spawn,
+          remoteAction.context,
+          remoteOptions.remoteOutputsMode,
+          remoteAction.totalTime,
+          remoteAction.networkTime::getDuration,
+          remoteAction.spawnMetrics);
+    } catch (BulkTransferException e) {
+      if (e.onlyCausedByCacheNotFoundException()) {
+        // No cache hit, so if we retry this execution, we must no longer accept
+        // cached results, it must be reexecuted
+        remoteAction.requestBuilder.setSkipCacheLookup(true);
       }
-      try {
-        return retrier.execute(
-            () -> {
-              ExecuteRequest request = requestBuilder.build();
-
-              // Upload the command and all the inputs into the remote cache.
-              try (SilentCloseable c = prof.profile(UPLOAD_TIME, "upload missing inputs")) {
-                Map<Digest, Message> additionalInputs = Maps.newHashMapWithExpectedSize(2);
-                additionalInputs.put(actionKey.getDigest(), action);
-                additionalInputs.put(commandHash, command);
-                Duration networkTimeStart = networkTime.getDuration();
-                Stopwatch uploadTime = Stopwatch.createStarted();
-                remoteCache.ensureInputsPresent(merkleTree, additionalInputs);
-                // subtract network time consumed here to ensure wall clock during upload is not
-                // double
-                // counted, and metrics time computation does not exceed total time
-                spawnMetrics.setUploadTime(
-                    uploadTime.elapsed().minus(networkTime.getDuration().minus(networkTimeStart)));
-              }
-              ExecuteResponse reply;
-              try (SilentCloseable c = prof.profile(REMOTE_EXECUTION, "execute remotely")) {
-                reply = remoteExecutor.executeRemotely(request);
-              }
+      throw e;
+    }
+  }
 
-              FileOutErr outErr = context.getFileOutErr();
-              String message = reply.getMessage();
-              ActionResult actionResult = reply.getResult();
-              if ((actionResult.getExitCode() != 0
-                      || reply.getStatus().getCode() != Code.OK.value())
-                  && !message.isEmpty()) {
-                outErr.printErr(message + "\n");
-              }
+  /**
+   * Executes {@code request} remotely, reporting when the action starts executing and streaming its
+   * standard output and error to the {@link FileOutErr} of the spawn while it runs. The streamed
+   * output is discarded afterwards, as the complete output is part of the action result.
+   */
+  private ExecuteResponse executeWithProgress(ExecuteRequest request, SpawnExecutionContext context)
+      throws IOException, InterruptedException {
+    ExecutionProgress progress = new ExecutionProgress(context);
+    try {
+      return remoteExecutor.executeRemotely(request, progress);
+    } finally {
+      progress.close();
+      context.report(ProgressStatus.EXECUTING, getName());
+    }
+  }
 
-              spawnMetricsAccounting(spawnMetrics, actionResult.getExecutionMetadata());
+  /** Follows the progress of a single remote execution. */
+  private final class ExecutionProgress implements ExecutionObserver {
+    private final SpawnExecutionContext context;
+    private boolean executing;
+    @Nullable private String stdoutStreamName;
+    @Nullable private SilentCloseable stdoutStream;
+    @Nullable private String stderrStreamName;
+    @Nullable private SilentCloseable stderrStream;
 
-              try (SilentCloseable c = prof.profile(REMOTE_DOWNLOAD, "download server logs")) {
-                maybeDownloadServerLogs(reply, actionKey);
-              }
+    ExecutionProgress(SpawnExecutionContext context) {
+      this.context = context;
+    }
 
-              try {
-                return downloadAndFinalizeSpawnResult(
-                    actionKey.getDigest().getHash(),
-                    actionResult,
-                    reply.getCachedResult(),
-                    spawn,
-                    context,
-                    remoteOutputsMode,
-                    totalTime,
-                    networkTime::getDuration,
-                    spawnMetrics);
-              } catch (BulkTransferException e) {
-                if (e.onlyCausedByCacheNotFoundException()) {
-                  // No cache hit, so if we retry this execution, we must no longer accept
-                  // cached results, it must be reexecuted
-                  requestBuilder.setSkipCacheLookup(true);
-                }
-                throw e;
-              }
-            });
+    @Override
+    public void onUpdate(ExecuteOperationMetadata metadata) {
+      if (!executing && metadata.getStage() == ExecutionStage.Value.EXECUTING) {
+        executing = true;
+        context.report(ProgressStatus.EXECUTING, getName());
+      }
+      try {
+        // The stream names change if the operation was lost and the action is executed again.
+        String stdout = metadata.getStdoutStreamName();
+        if (!stdout.isEmpty() && !stdout.equals(stdoutStreamName)) {
+          stopStreamingStdout();
+          stdoutStreamName = stdout;
+          stdoutStream =
+              remoteExecutor.streamOutput(stdout, context.getFileOutErr().getOutputStream());
+        }
+        String stderr = metadata.getStderrStreamName();
+        if (!stderr.isEmpty() && !stderr.equals(stderrStreamName)) {
+          stopStreamingStderr();
+          stderrStreamName = stderr;
+          stderrStream =
+              remoteExecutor.streamOutput(stderr, context.getFileOutErr().getErrorStream());
+        }
       } catch (IOException e) {
-        return execLocallyAndUploadOrFail(
-            spawn, context, inputMap, actionKey, action, command, uploadLocalResults, e);
+        report(Event.debug("Failed to discard streamed output: " + e.getMessage()));
+      }
+    }
+
+    private void stopStreamingStdout() throws IOException {
+      if (stdoutStream != null) {
+        stdoutStream.close();
+        stdoutStream = null;
+        context.getFileOutErr().clearOut();
+      }
+    }
+
+    private void stopStreamingStderr() throws IOException {
+      if (stderrStream != null) {
+        stderrStream.close();
+        stderrStream = null;
+        context.getFileOutErr().clearErr();
+      }
+    }
+
+    /** Stops streaming and discards the streamed output. */
+    void close() throws IOException {
+      try {
+        stopStreamingStdout();
+      } finally {
+        stopStreamingStderr();
       }
-    } finally {
-      withMetadata.detach(previous);
     }
   }
 
@@ -539,15 +871,7 @@ public class RemoteSpawnRunner implements SpawnRunner {
     return remoteLocalFallbackStrategy.getSpawnRunner().exec(spawn, context);
   }
 
-  private SpawnResult execLocallyAndUploadOrFail(
-      Spawn spawn,
-      SpawnExecutionContext context,
-      SortedMap<PathFragment, ActionInput> inputMap,
-      ActionKey actionKey,
-      Action action,
-      Command command,
-      boolean uploadLocalResults,
-      IOException cause)
+  private SpawnResult execLocallyAndUploadOrFail(RemoteAction remoteAction, IOException cause)
       throws ExecException, InterruptedException, IOException {
     // Regardless of cause, if we are interrupted, we should stop without displaying a user-visible
     // failure/stack trace.
@@ -556,9 +880,16 @@ public class RemoteSpawnRunner implements SpawnRunner {
     }
     if (remoteOptions.remoteLocalFallback && !RemoteRetrierUtils.causedByExecTimeout(cause)) {
       return execLocallyAndUpload(
-          spawn, context, inputMap, actionKey, action, command, uploadLocalResults);
+          remoteAction.spawn,
+          remoteAction.context,
+          remoteAction.inputMap,
+          remoteAction.actionKey,
+          remoteAction.action,
+          remoteAction.command,
+          remoteAction.uploadLocalResults);
     }
-    return handleError(cause, context.getFileOutErr(), actionKey, context);
+    return handleError(
+        cause, remoteAction.context.getFileOutErr(), remoteAction.actionKey, remoteAction.context);
   }
 
   private SpawnResult handleError(
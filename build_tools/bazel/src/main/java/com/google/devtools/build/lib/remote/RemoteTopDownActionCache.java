@@ -0,0 +1,161 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.lib.remote;
+
+import static com.google.devtools.build.lib.remote.util.Utils.getFromFuture;
+
+import build.bazel.remote.execution.v2.ActionResult;
+import build.bazel.remote.execution.v2.Digest;
+import build.bazel.remote.execution.v2.OutputFile;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.flogger.GoogleLogger;
+import com.google.devtools.build.lib.actions.Action;
+import com.google.devtools.build.lib.actions.FileArtifactValue;
+import com.google.devtools.build.lib.actions.FileArtifactValue.RemoteFileArtifactValue;
+import com.google.devtools.build.lib.actions.Spawns;
+import com.google.devtools.build.lib.actionsketch.ActionSketch;
+import com.google.devtools.build.lib.remote.common.CacheNotFoundException;
+import com.google.devtools.build.lib.remote.common.RemoteCacheClient.ActionKey;
+import com.google.devtools.build.lib.remote.util.DigestUtil;
+import com.google.devtools.build.lib.remote.util.TracingMetadataUtils;
+import com.google.devtools.build.lib.skyframe.OutputMetadataTopDownActionCache;
+import com.google.devtools.build.lib.vfs.PathFragment;
+import com.google.protobuf.ByteString;
+import io.grpc.Context;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * A top-down action cache that is backed by the remote action cache.
+ *
+ * <p>The sketch of an action is known before its inputs are built, so an action whose transitive
+ * inputs didn't change is found in the remote cache without building, or downloading, any of its
+ * inputs. The metadata of its outputs is stored as an {@link ActionResult} under a key that is
+ * derived from the sketch. Only outputs that are known to be in the remote cache are stored, and a
+ * result is only used if all of its outputs are still in the remote cache.
+ *
+ * <p>As the key is shared with other machines, actions whose results may not be cached remotely,
+ * e.g. because they are tagged {@code no-remote-cache}, are neither looked up nor stored.
+ *
+ * <p>Outputs are returned as {@link RemoteFileArtifactValue}s without being downloaded, so this
+ * must only be used with {@code --remote_download_minimal}.
+ */
+final class RemoteTopDownActionCache extends OutputMetadataTopDownActionCache {
+  private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
+
+  // Separates the keys of sketches from the keys of actions.
+  private static final ByteString KEY_PREFIX = ByteString.copyFromUtf8("top-down-action-cache:");
+
+  private final RemoteCache remoteCache;
+  private final DigestUtil digestUtil;
+  private final String buildRequestId;
+  private final String commandId;
+
+  RemoteTopDownActionCache(
+      RemoteCache remoteCache, DigestUtil digestUtil, String buildRequestId, String commandId) {
+    this.remoteCache = remoteCache;
+    this.digestUtil = digestUtil;
+    this.buildRequestId = buildRequestId;
+    this.commandId = commandId;
+  }
+
+  @Override
+  protected boolean mayBeCached(Action action) {
+    return Spawns.mayBeCachedRemotely(action.getExecutionInfo());
+  }
+
+  @Nullable
+  @Override
+  protected Map<PathFragment, FileArtifactValue> getOutputMetadata(ActionSketch sketch) {
+    ActionKey key = computeKey(sketch);
+    Context withMetadata =
+        TracingMetadataUtils.contextWithMetadata(buildRequestId, commandId, key);
+    Context previous = withMetadata.attach();
+    try {
+      ActionResult result = remoteCache.downloadActionResult(key, /* inlineOutErr= */ false);
+      if (result == null) {
+        return null;
+      }
+      List<Digest> digests = new ArrayList<>(result.getOutputFilesCount());
+      for (OutputFile file : result.getOutputFilesList()) {
+        digests.add(file.getDigest());
+      }
+      if (!getFromFuture(remoteCache.cacheProtocol.findMissingDigests(digests)).isEmpty()) {
+        // Some outputs were evicted, so the action has to be looked up or executed normally.
+        return null;
+      }
+      ImmutableMap.Builder<PathFragment, FileArtifactValue> metadata =
+          ImmutableMap.builderWithExpectedSize(result.getOutputFilesCount());
+      for (OutputFile file : result.getOutputFilesList()) {
+        Digest digest = file.getDigest();
+        metadata.put(
+            PathFragment.create(file.getPath()),
+            new RemoteFileArtifactValue(
+                DigestUtil.toBinaryDigest(digest),
+                digest.getSizeBytes(),
+                /* locationIndex= */ 1,
+                key.getDigest().getHash()));
+      }
+      return metadata.build();
+    } catch (CacheNotFoundException e) {
+      return null;
+    } catch (IOException e) {
+      logger.atWarning().withCause(e).log("Failed to look up sketch %s", key.getDigest().getHash());
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } finally {
+      withMetadata.detach(previous);
+    }
+  }
+
+  @Override
+  protected void putOutputMetadata(
+      ActionSketch sketch, ImmutableMap<PathFragment, FileArtifactValue> metadata) {
+    ActionResult.Builder result = ActionResult.newBuilder();
+    for (Map.Entry<PathFragment, FileArtifactValue> entry : metadata.entrySet()) {
+      if (!(entry.getValue() instanceof RemoteFileArtifactValue)) {
+        // Only outputs that are known to be in the remote cache can be referenced.
+        return;
+      }
+      FileArtifactValue value = entry.getValue();
+      result
+          .addOutputFilesBuilder()
+          .setPath(entry.getKey().getPathString())
+          .setDigest(DigestUtil.buildDigest(value.getDigest(), value.getSize()));
+    }
+    ActionKey key = computeKey(sketch);
+    Context withMetadata =
+        TracingMetadataUtils.contextWithMetadata(buildRequestId, commandId, key);
+    Context previous = withMetadata.attach();
+    try {
+      remoteCache.cacheProtocol.uploadActionResult(key, result.build());
+    } catch (IOException e) {
+      logger.atWarning().withCause(e).log("Failed to upload sketch %s", key.getDigest().getHash());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      withMetadata.detach(previous);
+    }
+  }
+
+  private ActionKey computeKey(ActionSketch sketch) {
+    return digestUtil.asActionKey(
+        digestUtil.compute(KEY_PREFIX.concat(sketch.toBytes()).toByteArray()));
+  }
+}
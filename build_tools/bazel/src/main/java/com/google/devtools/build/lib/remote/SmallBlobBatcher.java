@@ -0,0 +1,270 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.lib.remote;
+
+import build.bazel.remote.execution.v2.BatchReadBlobsRequest;
+import build.bazel.remote.execution.v2.BatchReadBlobsResponse;
+import build.bazel.remote.execution.v2.BatchUpdateBlobsRequest;
+import build.bazel.remote.execution.v2.BatchUpdateBlobsResponse;
+import build.bazel.remote.execution.v2.Digest;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.devtools.build.lib.concurrent.ThreadSafety.ThreadSafe;
+import com.google.protobuf.ByteString;
+import com.google.rpc.Code;
+import io.grpc.Context;
+import io.grpc.protobuf.StatusProto;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Coalesces uploads and downloads of small blobs into {@code BatchUpdateBlobs} and {@code
+ * BatchReadBlobs} calls.
+ *
+ * <p>A request is sent right away if no batch call of the same kind is in flight. Otherwise it is
+ * queued, and all queued requests are sent together as soon as the call in flight completes or
+ * the queued requests fill a whole batch. This way a burst of requests, like the outputs of an
+ * action, needs only one or two round trips without delaying requests that arrive one at a time.
+ *
+ * <p>If a batch call fails as a whole, all its requests fail with an {@link IOException}. If the
+ * server rejects individual blobs of a batch, only the requests for these blobs fail, with the
+ * {@link io.grpc.StatusRuntimeException} corresponding to the status of the blob, so that the
+ * caller can retry them individually.
+ */
+@ThreadSafe
+final class SmallBlobBatcher {
+
+  /** A conservative estimate of the encoding overhead of each blob in a batch message. */
+  private static final int PER_BLOB_OVERHEAD_BYTES = 32;
+
+  private final long maxBatchSizeBytes;
+  private final Batcher<ByteString, Void> updates;
+  private final Batcher<Void, ByteString> reads;
+
+  /**
+   * Creates a batcher that sends batches of at most {@code maxBatchSizeBytes} using the given
+   * calls. The calls are invoked in the gRPC {@link Context} of the first request of the batch.
+   */
+  SmallBlobBatcher(
+      String instanceName,
+      long maxBatchSizeBytes,
+      Function<BatchUpdateBlobsRequest, ListenableFuture<BatchUpdateBlobsResponse>> updateCall,
+      Function<BatchReadBlobsRequest, ListenableFuture<BatchReadBlobsResponse>> readCall) {
+    long overhead = instanceName.length() + PER_BLOB_OVERHEAD_BYTES;
+    this.maxBatchSizeBytes = maxBatchSizeBytes - overhead;
+    this.updates =
+        new Batcher<ByteString, Void>() {
+          @Override
+          long size(Digest digest, ByteString data) {
+            return data.size() + digest.getSerializedSize() + PER_BLOB_OVERHEAD_BYTES;
+          }
+
+          @Override
+          ListenableFuture<Map<Digest, Result<Void>>> send(Map<Digest, ByteString> batch) {
+            BatchUpdateBlobsRequest.Builder request =
+                BatchUpdateBlobsRequest.newBuilder().setInstanceName(instanceName);
+            for (Map.Entry<Digest, ByteString> blob : batch.entrySet()) {
+              request.addRequestsBuilder().setDigest(blob.getKey()).setData(blob.getValue());
+            }
+            return Futures.transform(
+                updateCall.apply(request.build()),
+                response -> {
+                  Map<Digest, Result<Void>> results = new HashMap<>();
+                  for (BatchUpdateBlobsResponse.Response r : response.getResponsesList()) {
+                    results.put(r.getDigest(), new Result<>(r.getStatus(), null));
+                  }
+                  return results;
+                },
+                MoreExecutors.directExecutor());
+          }
+        };
+    this.reads =
+        new Batcher<Void, ByteString>() {
+          @Override
+          long size(Digest digest, Void unused) {
+            return digest.getSizeBytes() + digest.getSerializedSize() + PER_BLOB_OVERHEAD_BYTES;
+          }
+
+          @Override
+          ListenableFuture<Map<Digest, Result<ByteString>>> send(Map<Digest, Void> batch) {
+            BatchReadBlobsRequest request =
+                BatchReadBlobsRequest.newBuilder()
+                    .setInstanceName(instanceName)
+                    .addAllDigests(batch.keySet())
+                    .build();
+            return Futures.transform(
+                readCall.apply(request),
+                response -> {
+                  Map<Digest, Result<ByteString>> results = new HashMap<>();
+                  for (BatchReadBlobsResponse.Response r : response.getResponsesList()) {
+                    results.put(r.getDigest(), new Result<>(r.getStatus(), r.getData()));
+                  }
+                  return results;
+                },
+                MoreExecutors.directExecutor());
+          }
+        };
+  }
+
+  /** Returns true if a blob with the given {@code digest} fits into a batch. */
+  boolean fits(Digest digest) {
+    return digest.getSizeBytes() + digest.getSerializedSize() + PER_BLOB_OVERHEAD_BYTES
+        <= maxBatchSizeBytes;
+  }
+
+  /** Uploads {@code data} as part of a {@code BatchUpdateBlobs} call. */
+  ListenableFuture<Void> upload(Digest digest, ByteString data) {
+    return updates.submit(digest, data);
+  }
+
+  /** Downloads the blob with the given {@code digest} as part of a {@code BatchReadBlobs} call. */
+  ListenableFuture<ByteString> read(Digest digest) {
+    return reads.submit(digest, null);
+  }
+
+  /** The outcome of a single blob in a batch call. */
+  private static final class Result<T> {
+    private final com.google.rpc.Status status;
+    private final T value;
+
+    private Result(com.google.rpc.Status status, T value) {
+      this.status = status;
+      this.value = value;
+    }
+  }
+
+  /**
+   * Queues requests of one kind and sends them in batches.
+   *
+   * @param <InputT> the payload of a request
+   * @param <OutputT> the payload of a response
+   */
+  private abstract class Batcher<InputT, OutputT> {
+    private Map<Digest, InputT> pendingInputs = new LinkedHashMap<>();
+    private Map<Digest, SettableFuture<OutputT>> pendingFutures = new HashMap<>();
+    private long pendingSizeBytes;
+    private Context pendingContext;
+    private boolean inFlight;
+
+    /** Returns the number of bytes that the blob adds to a batch message. */
+    abstract long size(Digest digest, InputT input);
+
+    /** Sends the given batch and returns the results by digest. */
+    abstract ListenableFuture<Map<Digest, Result<OutputT>>> send(Map<Digest, InputT> batch);
+
+    ListenableFuture<OutputT> submit(Digest digest, InputT input) {
+      long size = size(digest, input);
+      List<Runnable> toSend = new ArrayList<>(2);
+      SettableFuture<OutputT> future;
+      synchronized (this) {
+        future = pendingFutures.get(digest);
+        if (future != null) {
+          // Deduplicate concurrent requests for the same blob.
+          return future;
+        }
+        if (pendingSizeBytes + size > maxBatchSizeBytes && !pendingInputs.isEmpty()) {
+          // The queued requests fill a whole batch, so there's no point in waiting any longer.
+          toSend.add(takePending());
+        }
+        future = SettableFuture.create();
+        if (pendingInputs.isEmpty()) {
+          pendingContext = Context.current();
+        }
+        pendingInputs.put(digest, input);
+        pendingFutures.put(digest, future);
+        pendingSizeBytes += size;
+        if (!inFlight) {
+          inFlight = true;
+          toSend.add(takePending());
+        }
+      }
+      toSend.forEach(Runnable::run);
+      return future;
+    }
+
+    /** Removes all queued requests and returns a task that sends them as one batch. */
+    private Runnable takePending() {
+      Map<Digest, InputT> inputs = pendingInputs;
+      Map<Digest, SettableFuture<OutputT>> futures = pendingFutures;
+      Context ctx = pendingContext;
+      pendingInputs = new LinkedHashMap<>();
+      pendingFutures = new HashMap<>();
+      pendingSizeBytes = 0;
+      pendingContext = null;
+      return () -> sendBatch(inputs, futures, ctx);
+    }
+
+    private void sendBatch(
+        Map<Digest, InputT> inputs, Map<Digest, SettableFuture<OutputT>> futures, Context ctx) {
+      ListenableFuture<Map<Digest, Result<OutputT>>> call;
+      try {
+        call = ctx.call(() -> send(inputs));
+      } catch (Exception e) {
+        call = Futures.immediateFailedFuture(e);
+      }
+      Futures.addCallback(
+          call,
+          new FutureCallback<Map<Digest, Result<OutputT>>>() {
+            @Override
+            public void onSuccess(Map<Digest, Result<OutputT>> results) {
+              for (Map.Entry<Digest, SettableFuture<OutputT>> e : futures.entrySet()) {
+                Result<OutputT> result = results.get(e.getKey());
+                if (result == null) {
+                  e.getValue()
+                      .setException(
+                          new IOException("Missing response for blob " + e.getKey().getHash()));
+                } else if (result.status.getCode() == Code.OK.getNumber()) {
+                  e.getValue().set(result.value);
+                } else {
+                  e.getValue().setException(StatusProto.toStatusRuntimeException(result.status));
+                }
+              }
+              onBatchDone();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+              IOException e = t instanceof IOException ? (IOException) t : new IOException(t);
+              for (SettableFuture<OutputT> future : futures.values()) {
+                future.setException(e);
+              }
+              onBatchDone();
+            }
+          },
+          MoreExecutors.directExecutor());
+    }
+
+    private void onBatchDone() {
+      Runnable toSend = null;
+      synchronized (this) {
+        if (pendingInputs.isEmpty()) {
+          inFlight = false;
+        } else {
+          toSend = takePending();
+        }
+      }
+      if (toSend != null) {
+        toSend.run();
+      }
+    }
+  }
+}
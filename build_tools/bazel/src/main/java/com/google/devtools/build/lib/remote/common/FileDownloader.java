@@ -0,0 +1,33 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.lib.remote.common;
+
+import build.bazel.remote.execution.v2.Digest;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.devtools.build.lib.vfs.Path;
+
+/**
+ * Supports downloading a blob directly into a local file, which can be cheaper than streaming it
+ * through {@link RemoteCacheClient#downloadBlob} for caches that are themselves stored on disk.
+ */
+public interface FileDownloader {
+
+  /**
+   * Downloads the blob with the given {@code digest} into the file at {@code path}, replacing any
+   * existing file. The parent directory of {@code path} must exist.
+   *
+   * <p>Fails with a {@link CacheNotFoundException} if the blob is not in the cache.
+   */
+  ListenableFuture<Void> downloadFile(Digest digest, Path path);
+}
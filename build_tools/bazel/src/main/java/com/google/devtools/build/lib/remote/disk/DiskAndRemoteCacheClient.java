@@ -16,48 +16,219 @@ package com.google.devtools.build.lib.remote.disk;
 import build.bazel.remote.execution.v2.ActionResult;
 import build.bazel.remote.execution.v2.Digest;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.flogger.GoogleLogger;
+import com.google.common.util.concurrent.AsyncCallable;
+import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.devtools.build.lib.clock.BlazeClock;
+import com.google.devtools.build.lib.metrics.DiskCacheStatsEvent;
+import com.google.devtools.build.lib.remote.common.FileDownloader;
 import com.google.devtools.build.lib.remote.common.RemoteCacheClient;
 import com.google.devtools.build.lib.remote.options.RemoteOptions;
 import com.google.devtools.build.lib.vfs.Path;
 import com.google.protobuf.ByteString;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.UUID;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
 
 /**
  * A {@link RemoteCacheClient} implementation combining two blob stores. A local disk blob store and
  * a remote blob store. If a blob isn't found in the first store, the second store is used, and the
  * blob added to the first. Put puts the blob on both stores.
+ *
+ * <p>With {@link RemoteOptions#diskCacheWriteBehindQueueSize}, put only waits for the disk store,
+ * and the blob is put on the remote store in the background. At most that many background uploads
+ * are pending at any time, and callers wait for a free slot when the queue is full. Action results
+ * are only uploaded after the blobs queued before them, and not at all once any background blob
+ * upload has failed, so that the remote store never references missing blobs. {@link #close} waits
+ * for the remaining uploads.
  */
-public final class DiskAndRemoteCacheClient implements RemoteCacheClient {
+public final class DiskAndRemoteCacheClient implements RemoteCacheClient, FileDownloader {
+
+  private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
 
   private final RemoteCacheClient remoteCache;
   private final DiskCacheClient diskCache;
   private final RemoteOptions options;
 
+  /** Limits the number of pending background uploads, or {@code null} if they are disabled. */
+  @Nullable private final Semaphore writeBehindSlots;
+
+  @Nullable private final ListeningExecutorService writeBehindExecutor;
+  private final Set<ListenableFuture<Void>> pendingUploads = ConcurrentHashMap.newKeySet();
+  /**
+   * Whether a background blob upload has failed. Failed uploads are no longer pending, and it isn't
+   * known which action results reference them, so no action results are uploaded from then on.
+   */
+  private volatile boolean blobUploadFailed;
+  private final AtomicLong writeBehindUploads = new AtomicLong();
+  private final AtomicLong writeBehindMaxQueueDepth = new AtomicLong();
+  private final AtomicLong writeBehindMaxLagNanos = new AtomicLong();
+  private volatile Duration writeBehindDrainTime = Duration.ZERO;
+
   public DiskAndRemoteCacheClient(
       DiskCacheClient diskCache, RemoteCacheClient remoteCache, RemoteOptions options) {
     this.diskCache = Preconditions.checkNotNull(diskCache);
     this.remoteCache = Preconditions.checkNotNull(remoteCache);
     this.options = options;
+    if (options.diskCacheWriteBehindQueueSize > 0) {
+      this.writeBehindSlots = new Semaphore(options.diskCacheWriteBehindQueueSize);
+      // Each task holds a slot, so the number of threads is bounded by the size of the queue.
+      this.writeBehindExecutor =
+          MoreExecutors.listeningDecorator(
+              Executors.newCachedThreadPool(
+                  new ThreadFactoryBuilder()
+                      .setNameFormat("disk-cache-write-behind-%d")
+                      .setDaemon(true)
+                      .build()));
+    } else {
+      this.writeBehindSlots = null;
+      this.writeBehindExecutor = null;
+    }
+  }
+
+  /** Returns the statistics of the disk cache, including those of the background uploads. */
+  public DiskCacheStatsEvent getStats() {
+    DiskCacheStatsEvent stats = diskCache.getStats();
+    return new DiskCacheStatsEvent(
+        stats.getHits(),
+        stats.getMisses(),
+        stats.getBytesEvicted(),
+        stats.getEntriesEvicted(),
+        stats.getGcTime(),
+        writeBehindUploads.get(),
+        writeBehindMaxQueueDepth.get(),
+        Duration.ofNanos(writeBehindMaxLagNanos.get()),
+        writeBehindDrainTime);
+  }
+
+  private boolean shouldUploadToRemote() {
+    return !options.incompatibleRemoteResultsIgnoreDisk || options.remoteUploadLocalResults;
   }
 
   @Override
   public void uploadActionResult(ActionKey actionKey, ActionResult actionResult)
       throws IOException, InterruptedException {
     diskCache.uploadActionResult(actionKey, actionResult);
-    if (!options.incompatibleRemoteResultsIgnoreDisk || options.remoteUploadLocalResults) {
-      remoteCache.uploadActionResult(actionKey, actionResult);
+    if (shouldUploadToRemote()) {
+      if (writeBehindSlots != null) {
+        // Blobs queued by other actions are waited for as well, which is harmless but simpler than
+        // tracking which blobs belong to which action.
+        ImmutableList<ListenableFuture<Void>> blobUploads = ImmutableList.copyOf(pendingUploads);
+        uploadInBackground(
+            "action result " + actionKey.getDigest().getHash(),
+            blobUploads,
+            () -> {
+              if (blobUploadFailed) {
+                return Futures.immediateFailedFuture(
+                    new IOException("Not uploaded, as an earlier blob upload failed"));
+              }
+              remoteCache.uploadActionResult(actionKey, actionResult);
+              return Futures.immediateFuture(null);
+            });
+      } else {
+        remoteCache.uploadActionResult(actionKey, actionResult);
+      }
     }
   }
 
+  /**
+   * Queues {@code upload} to run once all of {@code dependencies} have succeeded, waiting while
+   * the queue is full.
+   */
+  private void uploadInBackground(
+      String description,
+      ImmutableList<ListenableFuture<Void>> dependencies,
+      AsyncCallable<Void> upload)
+      throws InterruptedException {
+    writeBehindSlots.acquire();
+    long queuedNanos = BlazeClock.nanoTime();
+    writeBehindMaxQueueDepth.accumulateAndGet(
+        options.diskCacheWriteBehindQueueSize - writeBehindSlots.availablePermits(), Math::max);
+    ListenableFuture<Void> future =
+        Futures.whenAllSucceed(dependencies).callAsync(upload, writeBehindExecutor);
+    pendingUploads.add(future);
+    Futures.addCallback(
+        future,
+        new FutureCallback<Void>() {
+          @Override
+          public void onSuccess(Void unused) {
+            writeBehindUploads.incrementAndGet();
+            finished();
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            logger.atWarning().withCause(t).log(
+                "Failed to upload %s to the remote cache in the background", description);
+            finished();
+          }
+
+          private void finished() {
+            writeBehindMaxLagNanos.accumulateAndGet(
+                BlazeClock.nanoTime() - queuedNanos, Math::max);
+            pendingUploads.remove(future);
+            writeBehindSlots.release();
+          }
+        },
+        MoreExecutors.directExecutor());
+  }
+
+  /** Queues the upload of a blob, remembering in {@link #blobUploadFailed} if it fails. */
+  private void uploadBlobInBackground(String description, AsyncCallable<Void> upload)
+      throws InterruptedException {
+    uploadInBackground(
+        description,
+        ImmutableList.of(),
+        () ->
+            Futures.catchingAsync(
+                Futures.submitAsync(upload, MoreExecutors.directExecutor()),
+                Throwable.class,
+                (t) -> {
+                  blobUploadFailed = true;
+                  return Futures.immediateFailedFuture(t);
+                },
+                MoreExecutors.directExecutor()));
+  }
+
+  /** Waits for the pending background uploads, or cancels them if interrupted. */
+  private void drainBackgroundUploads() {
+    long startNanos = BlazeClock.nanoTime();
+    try {
+      Futures.whenAllComplete(pendingUploads)
+          .call(() -> null, MoreExecutors.directExecutor())
+          .get();
+    } catch (InterruptedException e) {
+      for (ListenableFuture<Void> upload : pendingUploads) {
+        upload.cancel(/* mayInterruptIfRunning= */ true);
+      }
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      // Can't happen, failures of the individual uploads have been logged already.
+      throw new IllegalStateException(e);
+    }
+    writeBehindDrainTime = Duration.ofNanos(BlazeClock.nanoTime() - startNanos);
+    writeBehindExecutor.shutdown();
+  }
+
   @Override
   public void close() {
+    if (writeBehindSlots != null) {
+      drainBackgroundUploads();
+    }
     diskCache.close();
     remoteCache.close();
   }
@@ -66,8 +237,15 @@ public final class DiskAndRemoteCacheClient implements RemoteCacheClient {
   public ListenableFuture<Void> uploadFile(Digest digest, Path file) {
     try {
       diskCache.uploadFile(digest, file).get();
-      if (!options.incompatibleRemoteResultsIgnoreDisk || options.remoteUploadLocalResults) {
-        remoteCache.uploadFile(digest, file).get();
+      if (shouldUploadToRemote()) {
+        if (writeBehindSlots != null) {
+          // Upload the copy in the disk cache, as the output may be modified before the upload.
+          Path cachedFile = diskCache.toPath(digest.getHash(), /* actionResult= */ false);
+          uploadBlobInBackground(
+              digest.getHash(), () -> remoteCache.uploadFile(digest, cachedFile));
+        } else {
+          remoteCache.uploadFile(digest, file).get();
+        }
       }
     } catch (ExecutionException e) {
       return Futures.immediateFailedFuture(e.getCause());
@@ -81,8 +259,12 @@ public final class DiskAndRemoteCacheClient implements RemoteCacheClient {
   public ListenableFuture<Void> uploadBlob(Digest digest, ByteString data) {
     try {
       diskCache.uploadBlob(digest, data).get();
-      if (!options.incompatibleRemoteResultsIgnoreDisk || options.remoteUploadLocalResults) {
-        remoteCache.uploadBlob(digest, data).get();
+      if (shouldUploadToRemote()) {
+        if (writeBehindSlots != null) {
+          uploadBlobInBackground(digest.getHash(), () -> remoteCache.uploadBlob(digest, data));
+        } else {
+          remoteCache.uploadBlob(digest, data).get();
+        }
       }
     } catch (ExecutionException e) {
       return Futures.immediateFailedFuture(e.getCause());
@@ -106,10 +288,6 @@ public final class DiskAndRemoteCacheClient implements RemoteCacheClient {
             MoreExecutors.directExecutor());
   }
 
-  private Path newTempPath() {
-    return diskCache.toPath(UUID.randomUUID().toString(), /* actionResult= */ false);
-  }
-
   private static ListenableFuture<Void> closeStreamOnError(
       ListenableFuture<Void> f, OutputStream out) {
     return Futures.catchingAsync(
@@ -128,13 +306,30 @@ public final class DiskAndRemoteCacheClient implements RemoteCacheClient {
 
   @Override
   public ListenableFuture<Void> downloadBlob(Digest digest, OutputStream out) {
+    return downloadThroughDiskCache(digest, () -> diskCache.readBlob(digest, out));
+  }
+
+  @Override
+  public ListenableFuture<Void> downloadFile(Digest digest, Path path) {
+    return downloadThroughDiskCache(digest, () -> diskCache.readFile(digest, path));
+  }
+
+  /**
+   * Reads a blob from the disk cache using {@code readFromDisk}. If the disk cache doesn't contain
+   * the blob, it is first downloaded from the remote cache and stored in the disk cache. The disk
+   * cache lookup is counted once, by {@link DiskCacheClient#contains}, so {@code readFromDisk} must
+   * not count it again.
+   */
+  private ListenableFuture<Void> downloadThroughDiskCache(
+      Digest digest, AsyncCallable<Void> readFromDisk) {
     if (diskCache.contains(digest)) {
-      return diskCache.downloadBlob(digest, out);
+      return Futures.submitAsync(readFromDisk, MoreExecutors.directExecutor());
     }
 
-    Path tempPath = newTempPath();
+    final Path tempPath;
     final OutputStream tempOut;
     try {
+      tempPath = diskCache.newTempPath();
       tempOut = tempPath.getOutputStream();
     } catch (IOException e) {
       return Futures.immediateFailedFuture(e);
@@ -143,6 +338,8 @@ public final class DiskAndRemoteCacheClient implements RemoteCacheClient {
     if (!options.incompatibleRemoteResultsIgnoreDisk || options.remoteAcceptCached) {
       ListenableFuture<Void> download =
           closeStreamOnError(remoteCache.downloadBlob(digest, tempOut), tempOut);
+      // Capturing the file may wait for an fsync, which must not block the thread that completed
+      // the download, typically a network thread shared by all calls to the remote cache.
       ListenableFuture<Void> saveToDiskAndTarget =
           Futures.transformAsync(
               download,
@@ -153,9 +350,9 @@ public final class DiskAndRemoteCacheClient implements RemoteCacheClient {
                 } catch (IOException e) {
                   return Futures.immediateFailedFuture(e);
                 }
-                return diskCache.downloadBlob(digest, out);
+                return readFromDisk.call();
               },
-              MoreExecutors.directExecutor());
+              diskCache.getIoExecutor());
       return saveToDiskAndTarget;
     } else {
       return Futures.immediateFuture(null);
@@ -166,7 +363,7 @@ public final class DiskAndRemoteCacheClient implements RemoteCacheClient {
   public ListenableFuture<ActionResult> downloadActionResult(
       ActionKey actionKey, boolean inlineOutErr) {
     if (diskCache.containsActionResult(actionKey)) {
-      return diskCache.downloadActionResult(actionKey, inlineOutErr);
+      return diskCache.readActionResult(actionKey);
     }
 
     if (!options.incompatibleRemoteResultsIgnoreDisk || options.remoteAcceptCached) {
@@ -180,7 +377,7 @@ public final class DiskAndRemoteCacheClient implements RemoteCacheClient {
               return Futures.immediateFuture(actionResult);
             }
           },
-          MoreExecutors.directExecutor());
+          diskCache.getIoExecutor());
     } else {
       return Futures.immediateFuture(null);
     }
@@ -15,74 +15,275 @@ package com.google.devtools.build.lib.remote.disk;
 
 import build.bazel.remote.execution.v2.ActionResult;
 import build.bazel.remote.execution.v2.Digest;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.flogger.GoogleLogger;
 import com.google.common.hash.HashingOutputStream;
 import com.google.common.io.ByteStreams;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.devtools.build.lib.clock.BlazeClock;
+import com.google.devtools.build.lib.metrics.DiskCacheStatsEvent;
 import com.google.devtools.build.lib.remote.common.CacheNotFoundException;
+import com.google.devtools.build.lib.remote.common.FileDownloader;
 import com.google.devtools.build.lib.remote.common.RemoteCacheClient;
 import com.google.devtools.build.lib.remote.util.DigestUtil;
 import com.google.devtools.build.lib.remote.util.Utils;
 import com.google.devtools.build.lib.vfs.Path;
+import com.google.devtools.build.lib.vfs.Symlinks;
 import com.google.protobuf.ByteString;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 
-/** A on-disk store for the remote action cache. */
-public class DiskCacheClient implements RemoteCacheClient {
+/**
+ * A on-disk store for the remote action cache.
+ *
+ * <p>Entries are fanned out over subdirectories named after the first two characters of their
+ * hash, i.e. CAS entries are stored as {@code cas/ab/abcdef...} and action results as {@code
+ * ac/ab/abcdef...}, so that no single directory grows large enough to slow down lookups. Caches
+ * written with the previous flat layout are migrated when the client is created.
+ *
+ * <p>All reads and writes of entries run on a bounded pool of I/O threads owned by the client, so
+ * that the futures returned by its methods complete asynchronously and callers can overlap the
+ * transfers of many blobs.
+ */
+public class DiskCacheClient implements RemoteCacheClient, FileDownloader {
 
-  private static final String ACTION_KEY_PREFIX = "ac_";
+  private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
+
+  static final String CAS_DIRECTORY = "cas";
+  static final String ACTION_CACHE_DIRECTORY = "ac";
+  static final String TEMP_DIRECTORY = "tmp";
+
+  /** The prefix of action results in the legacy flat layout. */
+  private static final String LEGACY_ACTION_KEY_PREFIX = "ac_";
+
+  private static final int DEFAULT_IO_THREADS = 16;
+
+  /** How long {@link #close} waits for the pending reads and writes. */
+  private static final Duration CLOSE_TIMEOUT = Duration.ofMinutes(1);
+
+  /**
+   * Temporary files that haven't been modified for this long are left over from a crash and are
+   * deleted. Younger files may still be written by another server sharing the cache.
+   */
+  private static final Duration STALE_TEMP_FILE_AGE = Duration.ofHours(1);
+
+  private static final Pattern LEGACY_CAS_KEY = Pattern.compile("[0-9a-f]+");
+  private static final Pattern LEGACY_TEMP_FILE =
+      Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
 
   private final Path root;
   private final boolean verifyDownloads;
   private final DigestUtil digestUtil;
+  private final DiskCacheCommitter committer;
+  private final ListeningExecutorService ioExecutor;
+  @Nullable private final DiskCacheGarbageCollector gc;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
 
   public DiskCacheClient(Path root, boolean verifyDownloads, DigestUtil digestUtil) {
+    this(
+        root,
+        verifyDownloads,
+        digestUtil,
+        /* maxSizeBytes= */ 0,
+        /* fsync= */ false,
+        DEFAULT_IO_THREADS);
+  }
+
+  /**
+   * Creates a disk cache at {@code root}. If {@code maxSizeBytes} is positive, the least recently
+   * used entries are deleted in the background whenever the cache grows beyond that size. If {@code
+   * fsync} is true, new entries are flushed to disk before they become visible in the cache. At
+   * most {@code ioThreads} entries are read or written concurrently.
+   */
+  public DiskCacheClient(
+      Path root,
+      boolean verifyDownloads,
+      DigestUtil digestUtil,
+      long maxSizeBytes,
+      boolean fsync,
+      int ioThreads) {
+    Preconditions.checkArgument(ioThreads > 0, "ioThreads must be positive");
     this.root = root;
     this.verifyDownloads = verifyDownloads;
     this.digestUtil = digestUtil;
+    this.committer = new DiskCacheCommitter(fsync);
+    this.ioExecutor =
+        MoreExecutors.listeningDecorator(
+            Executors.newFixedThreadPool(
+                ioThreads,
+                new ThreadFactoryBuilder()
+                    .setNameFormat("disk-cache-io-%d")
+                    .setDaemon(true)
+                    .build()));
+    migrateLegacyLayout();
+    ioExecutor.execute(this::deleteStaleTempFiles);
+    this.gc =
+        maxSizeBytes > 0
+            ? DiskCacheGarbageCollector.create(root, maxSizeBytes, BlazeClock.instance())
+            : null;
   }
 
   /** Returns {@code true} if the provided {@code key} is stored in the CAS. */
   public boolean contains(Digest digest) {
-    return toPath(digest.getHash(), /* actionResult= */ false).exists();
+    return recordLookup(digest.getHash(), /* actionResult= */ false);
   }
 
   /** Returns {@code true} if the provided {@code key} is stored in the Action Cache. */
   public boolean containsActionResult(ActionKey actionKey) {
-    return toPath(actionKey.getDigest().getHash(), /* actionResult= */ true).exists();
+    return recordLookup(actionKey.getDigest().getHash(), /* actionResult= */ true);
   }
 
-  public void captureFile(Path src, Digest digest, boolean isActionCache) throws IOException {
+  public void captureFile(Path src, Digest digest, boolean isActionCache)
+      throws IOException, InterruptedException {
     Path target = toPath(digest.getHash(), isActionCache);
-    src.renameTo(target);
+    target.getParentDirectory().createDirectoryAndParents();
+    committer.commit(src, target);
+    if (gc != null) {
+      gc.recordInsertion(getDiskKey(digest.getHash(), isActionCache), target.getFileSize());
+    }
   }
 
-  private ListenableFuture<Void> download(Digest digest, OutputStream out, boolean isActionCache) {
-    Path p = toPath(digest.getHash(), isActionCache);
-    if (!p.exists()) {
-      return Futures.immediateFailedFuture(new CacheNotFoundException(digest));
-    } else {
-      try (InputStream in = p.getInputStream()) {
-        ByteStreams.copy(in, out);
-        return Futures.immediateFuture(null);
-      } catch (IOException e) {
-        return Futures.immediateFailedFuture(e);
-      }
+  /**
+   * Returns the executor that runs the reads and writes of this cache, for callers that need to
+   * run blocking work on the cache, such as {@link #captureFile}, off their own threads.
+   */
+  ListeningExecutorService getIoExecutor() {
+    return ioExecutor;
+  }
+
+  /** Returns statistics about the lookups and garbage collections performed by this cache. */
+  public DiskCacheStatsEvent getStats() {
+    return new DiskCacheStatsEvent(
+        hits.get(),
+        misses.get(),
+        gc != null ? gc.getBytesEvicted() : 0,
+        gc != null ? gc.getEntriesEvicted() : 0,
+        gc != null ? gc.getGcTime() : Duration.ZERO);
+  }
+
+  /**
+   * Returns whether the entry with the given {@code key} exists, counting the lookup as a hit or a
+   * miss and recording the access of a hit with the garbage collector.
+   */
+  private boolean recordLookup(String key, boolean actionResult) {
+    if (!toPath(key, actionResult).exists()) {
+      misses.incrementAndGet();
+      return false;
+    }
+    hits.incrementAndGet();
+    if (gc != null) {
+      gc.recordAccess(getDiskKey(key, actionResult));
     }
+    return true;
+  }
+
+  /**
+   * Returns the path of the entry with the given {@code digest}, or throws {@link
+   * CacheNotFoundException} if there is no such entry. If {@code countLookup} is true, the lookup
+   * is counted as a hit or a miss and the access is recorded with the garbage collector.
+   */
+  private Path lookup(Digest digest, boolean isActionCache, boolean countLookup)
+      throws CacheNotFoundException {
+    boolean found =
+        countLookup
+            ? recordLookup(digest.getHash(), isActionCache)
+            : toPath(digest.getHash(), isActionCache).exists();
+    if (!found) {
+      throw new CacheNotFoundException(digest);
+    }
+    return toPath(digest.getHash(), isActionCache);
+  }
+
+  private ListenableFuture<Void> download(
+      Digest digest, OutputStream out, boolean isActionCache, boolean countLookup) {
+    return ioExecutor.submit(
+        () -> {
+          try (InputStream in = lookup(digest, isActionCache, countLookup).getInputStream()) {
+            ByteStreams.copy(in, out);
+          }
+          return null;
+        });
+  }
+
+  /**
+   * Copies the CAS entry with the given {@code digest} to {@code path}. The copy is done with
+   * {@link FileChannel#transferTo}, which lets the kernel copy the data without passing it through
+   * user space.
+   */
+  @Override
+  public ListenableFuture<Void> downloadFile(Digest digest, Path path) {
+    return downloadFile(digest, path, /* countLookup= */ true);
+  }
+
+  /**
+   * Like {@link #downloadFile}, but doesn't count the lookup. Used by {@link
+   * DiskAndRemoteCacheClient} to read entries that it already looked up with {@link #contains} or
+   * stored with {@link #captureFile}.
+   */
+  ListenableFuture<Void> readFile(Digest digest, Path path) {
+    return downloadFile(digest, path, /* countLookup= */ false);
+  }
+
+  private ListenableFuture<Void> downloadFile(Digest digest, Path path, boolean countLookup) {
+    return ioExecutor.submit(
+        () -> {
+          Path src = lookup(digest, /* isActionCache= */ false, countLookup);
+          try (FileChannel in =
+                  FileChannel.open(src.getPathFile().toPath(), StandardOpenOption.READ);
+              FileChannel out =
+                  FileChannel.open(
+                      path.getPathFile().toPath(),
+                      StandardOpenOption.CREATE,
+                      StandardOpenOption.TRUNCATE_EXISTING,
+                      StandardOpenOption.WRITE)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+              position += in.transferTo(position, size - position, out);
+            }
+          }
+          if (verifyDownloads) {
+            Utils.verifyBlobContents(digest.getHash(), digestUtil.compute(path).getHash());
+          }
+          return null;
+        });
   }
 
   @Override
   public ListenableFuture<Void> downloadBlob(Digest digest, OutputStream out) {
+    return downloadBlob(digest, out, /* countLookup= */ true);
+  }
+
+  /** Like {@link #downloadBlob}, but doesn't count the lookup. See {@link #readFile}. */
+  ListenableFuture<Void> readBlob(Digest digest, OutputStream out) {
+    return downloadBlob(digest, out, /* countLookup= */ false);
+  }
+
+  private ListenableFuture<Void> downloadBlob(
+      Digest digest, OutputStream out, boolean countLookup) {
     @Nullable
     HashingOutputStream hashOut = verifyDownloads ? digestUtil.newHashingOutputStream(out) : null;
     return Futures.transformAsync(
-        download(digest, hashOut != null ? hashOut : out, /* isActionCache= */ false),
+        download(
+            digest, hashOut != null ? hashOut : out, /* isActionCache= */ false, countLookup),
         (v) -> {
           try {
             if (hashOut != null) {
@@ -101,39 +302,67 @@ public class DiskCacheClient implements RemoteCacheClient {
   @Override
   public ListenableFuture<ActionResult> downloadActionResult(
       ActionKey actionKey, boolean inlineOutErr) {
+    return getActionResult(actionKey, /* countLookup= */ true);
+  }
+
+  /** Like {@link #downloadActionResult}, but doesn't count the lookup. See {@link #readFile}. */
+  ListenableFuture<ActionResult> readActionResult(ActionKey actionKey) {
+    return getActionResult(actionKey, /* countLookup= */ false);
+  }
+
+  private ListenableFuture<ActionResult> getActionResult(
+      ActionKey actionKey, boolean countLookup) {
     return Utils.downloadAsActionResult(
-        actionKey, (digest, out) -> download(digest, out, /* isActionCache= */ true));
+        actionKey, (digest, out) -> download(digest, out, /* isActionCache= */ true, countLookup));
   }
 
   @Override
   public void uploadActionResult(ActionKey actionKey, ActionResult actionResult)
-      throws IOException {
+      throws IOException, InterruptedException {
     try (InputStream data = actionResult.toByteString().newInput()) {
-      saveFile(getDiskKey(actionKey.getDigest().getHash(), /* actionResult= */ true), data);
+      saveFile(actionKey.getDigest().getHash(), /* actionResult= */ true, data);
     }
   }
 
   @Override
-  public void close() {}
+  public void close() {
+    ioExecutor.shutdown();
+    try {
+      if (!ioExecutor.awaitTermination(CLOSE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+        logger.atWarning().log(
+            "Disk cache I/O didn't finish within %s, cancelling it", CLOSE_TIMEOUT);
+        ioExecutor.shutdownNow();
+      }
+      if (gc != null) {
+        gc.shutdown();
+      }
+    } catch (IOException e) {
+      logger.atWarning().withCause(e).log("Failed to write the disk cache index");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
 
   @Override
   public ListenableFuture<Void> uploadFile(Digest digest, Path file) {
-    try (InputStream in = file.getInputStream()) {
-      saveFile(digest.getHash(), in);
-    } catch (IOException e) {
-      return Futures.immediateFailedFuture(e);
-    }
-    return Futures.immediateFuture(null);
+    return ioExecutor.submit(
+        () -> {
+          try (InputStream in = file.getInputStream()) {
+            saveFile(digest.getHash(), /* actionResult= */ false, in);
+          }
+          return null;
+        });
   }
 
   @Override
   public ListenableFuture<Void> uploadBlob(Digest digest, ByteString data) {
-    try (InputStream in = data.newInput()) {
-      saveFile(digest.getHash(), in);
-    } catch (IOException e) {
-      return Futures.immediateFailedFuture(e);
-    }
-    return Futures.immediateFuture(null);
+    return ioExecutor.submit(
+        () -> {
+          try (InputStream in = data.newInput()) {
+            saveFile(digest.getHash(), /* actionResult= */ false, in);
+          }
+          return null;
+        });
   }
 
   @Override
@@ -144,26 +373,118 @@ public class DiskCacheClient implements RemoteCacheClient {
   }
 
   protected Path toPath(String key, boolean actionResult) {
-    return root.getChild(getDiskKey(key, actionResult));
+    return root.getRelative(getDiskKey(key, actionResult));
   }
 
+  /**
+   * Returns a fresh path for a temporary file in the cache directory, which can later be moved into
+   * the cache with {@link #captureFile}.
+   */
+  public Path newTempPath() throws IOException {
+    Path tempDir = root.getChild(TEMP_DIRECTORY);
+    tempDir.createDirectory();
+    return tempDir.getChild(UUID.randomUUID().toString());
+  }
+
+  /** Returns the path of an entry relative to the cache root. */
   private static String getDiskKey(String key, boolean actionResult) {
-    return actionResult ? ACTION_KEY_PREFIX + key : key;
+    return (actionResult ? ACTION_CACHE_DIRECTORY : CAS_DIRECTORY)
+        + "/"
+        + key.substring(0, Math.min(2, key.length()))
+        + "/"
+        + key;
   }
 
-  private void saveFile(String key, InputStream in) throws IOException {
-    Path target = toPath(key, /* actionResult= */ false);
+  private void saveFile(String key, boolean actionResult, InputStream in)
+      throws IOException, InterruptedException {
+    Path target = toPath(key, actionResult);
     if (target.exists()) {
+      if (gc != null) {
+        gc.recordAccess(getDiskKey(key, actionResult));
+      }
       return;
     }
 
     // Write a temporary file first, and then rename, to avoid data corruption in case of a crash.
-    Path temp = toPath(UUID.randomUUID().toString(), /* actionResult= */ false);
+    Path temp = newTempPath();
     try (OutputStream out = temp.getOutputStream()) {
       ByteStreams.copy(in, out);
     }
-    // TODO(ulfjack): Fsync temp here before we rename it to avoid data loss in the case of machine
-    // crashes (the OS may reorder the writes and the rename).
-    temp.renameTo(target);
+    target.getParentDirectory().createDirectoryAndParents();
+    committer.commit(temp, target);
+    if (gc != null) {
+      gc.recordInsertion(getDiskKey(key, actionResult), target.getFileSize());
+    }
+  }
+
+  /** Deletes the temporary files left behind in the temporary directory by a crash. */
+  private void deleteStaleTempFiles() {
+    Path tempDir = root.getChild(TEMP_DIRECTORY);
+    long cutoffMillis = BlazeClock.instance().currentTimeMillis() - STALE_TEMP_FILE_AGE.toMillis();
+    try {
+      if (!tempDir.isDirectory()) {
+        return;
+      }
+      for (Path entry : tempDir.getDirectoryEntries()) {
+        try {
+          if (entry.getLastModifiedTime(Symlinks.NOFOLLOW) < cutoffMillis) {
+            entry.delete();
+          }
+        } catch (IOException e) {
+          // Already renamed into the cache or deleted by another server.
+        }
+      }
+    } catch (IOException e) {
+      logger.atWarning().withCause(e).log(
+          "Failed to clean up the disk cache directory %s", tempDir);
+    }
+  }
+
+  /**
+   * Moves entries written with the legacy flat layout, where all entries were stored directly in
+   * the cache root, into their sharded directories. Leftover temporary files are deleted.
+   */
+  private void migrateLegacyLayout() {
+    Collection<Path> entries;
+    try {
+      entries = root.getDirectoryEntries();
+    } catch (IOException e) {
+      logger.atWarning().withCause(e).log("Failed to list the disk cache directory %s", root);
+      return;
+    }
+    boolean migrated = false;
+    for (Path entry : entries) {
+      String name = entry.getBaseName();
+      try {
+        if (!entry.isFile(Symlinks.NOFOLLOW)) {
+          continue;
+        }
+        Path target;
+        if (name.startsWith(LEGACY_ACTION_KEY_PREFIX)) {
+          String key = name.substring(LEGACY_ACTION_KEY_PREFIX.length());
+          target = toPath(key, /* actionResult= */ true);
+        } else if (LEGACY_TEMP_FILE.matcher(name).matches()) {
+          entry.delete();
+          continue;
+        } else if (LEGACY_CAS_KEY.matcher(name).matches()) {
+          target = toPath(name, /* actionResult= */ false);
+        } else {
+          continue;
+        }
+        target.getParentDirectory().createDirectoryAndParents();
+        entry.renameTo(target);
+        migrated = true;
+      } catch (IOException e) {
+        logger.atWarning().withCause(e).log("Failed to migrate disk cache entry %s", entry);
+      }
+    }
+    if (migrated) {
+      // The keys of the index refer to the legacy layout, so it has to be rebuilt.
+      try {
+        root.getChild(DiskCacheGarbageCollector.INDEX_FILE_NAME).delete();
+      } catch (IOException e) {
+        logger.atWarning().withCause(e).log("Failed to delete the legacy disk cache index");
+      }
+    }
   }
 }
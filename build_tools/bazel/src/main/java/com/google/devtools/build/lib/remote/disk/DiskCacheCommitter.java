@@ -0,0 +1,157 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.lib.remote.disk;
+
+import com.google.common.base.Throwables;
+import com.google.common.flogger.GoogleLogger;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.devtools.build.lib.vfs.Path;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Moves fully written temporary files to their final location in a {@link DiskCacheClient}.
+ *
+ * <p>If fsync is enabled, the contents of each file are flushed to disk before it is renamed, and
+ * the directories containing the renamed files are flushed afterwards, so that a machine crash
+ * never leaves a truncated entry behind in the cache. Each file is flushed by the thread that
+ * wrote it, so those flushes run in parallel. To amortize the cost of flushing directories, the
+ * renames that are requested concurrently are grouped: the first thread to request one performs
+ * the renames of all threads that arrive while it is flushing, and every parent directory is
+ * flushed only once per group.
+ *
+ * <p>This class is thread-safe.
+ */
+final class DiskCacheCommitter {
+
+  private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
+
+  private static final class PendingCommit {
+    private final Path temp;
+    private final Path target;
+    private final SettableFuture<Void> done = SettableFuture.create();
+
+    private PendingCommit(Path temp, Path target) {
+      this.temp = temp;
+      this.target = target;
+    }
+  }
+
+  private final boolean fsync;
+
+  private List<PendingCommit> pending = new ArrayList<>();
+  private boolean committing;
+
+  DiskCacheCommitter(boolean fsync) {
+    this.fsync = fsync;
+  }
+
+  /**
+   * Atomically moves {@code temp} to {@code target}. If fsync is enabled, returns only once both
+   * the contents of the file and the rename are durable.
+   */
+  void commit(Path temp, Path target) throws IOException, InterruptedException {
+    if (!fsync) {
+      temp.renameTo(target);
+      return;
+    }
+
+    force(temp, StandardOpenOption.WRITE);
+    PendingCommit commit = new PendingCommit(temp, target);
+    boolean leader;
+    synchronized (this) {
+      pending.add(commit);
+      leader = !committing;
+      committing = true;
+    }
+    if (leader) {
+      commitPending();
+    }
+    try {
+      commit.done.get();
+    } catch (ExecutionException e) {
+      Throwables.throwIfInstanceOf(e.getCause(), IOException.class);
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new IOException(e.getCause());
+    }
+  }
+
+  /** Commits batches of pending files until no more commits are requested. */
+  private void commitPending() {
+    List<PendingCommit> batch = new ArrayList<>();
+    try {
+      while (true) {
+        synchronized (this) {
+          if (pending.isEmpty()) {
+            committing = false;
+            return;
+          }
+          batch = pending;
+          pending = new ArrayList<>();
+        }
+        commitBatch(batch);
+      }
+    } catch (RuntimeException | Error e) {
+      for (PendingCommit commit : batch) {
+        commit.done.setException(e);
+      }
+      synchronized (this) {
+        committing = false;
+        for (PendingCommit commit : pending) {
+          commit.done.setException(e);
+        }
+        pending = new ArrayList<>();
+      }
+      throw e;
+    }
+  }
+
+  private static void commitBatch(List<PendingCommit> batch) {
+    Set<Path> directories = new LinkedHashSet<>();
+    List<PendingCommit> renamed = new ArrayList<>(batch.size());
+    for (PendingCommit commit : batch) {
+      try {
+        commit.temp.renameTo(commit.target);
+        directories.add(commit.target.getParentDirectory());
+        renamed.add(commit);
+      } catch (IOException e) {
+        commit.done.setException(e);
+      }
+    }
+    for (Path directory : directories) {
+      try {
+        force(directory, StandardOpenOption.READ);
+      } catch (IOException e) {
+        // Not all platforms support flushing directories. The rename is still atomic, it just
+        // might not survive a machine crash.
+        logger.atFine().withCause(e).log("Failed to fsync %s", directory);
+      }
+    }
+    for (PendingCommit commit : renamed) {
+      commit.done.set(null);
+    }
+  }
+
+  private static void force(Path path, StandardOpenOption mode) throws IOException {
+    try (FileChannel channel = FileChannel.open(path.getPathFile().toPath(), mode)) {
+      channel.force(/* metaData= */ true);
+    }
+  }
+}
@@ -0,0 +1,231 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.lib.remote.disk;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.flogger.GoogleLogger;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.devtools.build.lib.clock.Clock;
+import com.google.devtools.build.lib.vfs.Path;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the size of a {@link DiskCacheClient} below a configured limit by deleting the least
+ * recently used entries.
+ *
+ * <p>Garbage collection runs on a background thread and never blocks reads or writes to the cache.
+ * Whenever an insertion makes the cache exceed its maximum size, entries are deleted until the
+ * cache has shrunk to {@link #TARGET_SIZE_RATIO} of the maximum size, so that a cache that is close
+ * to the limit doesn't trigger a collection on every insertion.
+ *
+ * <p>The index of the cache entries is loaded when the collector is created and saved by {@link
+ * #shutdown}, i.e. once per command. Several servers may share a cache directory: each one merges
+ * the index saved by the others into its own before saving it, keeping the entries that still
+ * exist. A server doesn't see the entries inserted by the others while a command runs, so a shared
+ * cache can exceed its maximum size by that much until the next command collects it.
+ */
+final class DiskCacheGarbageCollector {
+
+  private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
+
+  /** The name of the file in the cache root that the {@link DiskCacheIndex} is persisted to. */
+  static final String INDEX_FILE_NAME = "disk_cache.index";
+
+  @VisibleForTesting static final double TARGET_SIZE_RATIO = 0.9;
+
+  /** How long {@link #shutdown} waits for a running collection before stopping it. */
+  private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+
+  private final Path root;
+  private final DiskCacheIndex index;
+  private final long maxSizeBytes;
+  private final long targetSizeBytes;
+  private final Clock clock;
+  private final ExecutorService executor;
+
+  private final AtomicBoolean collectionScheduled = new AtomicBoolean();
+  private final AtomicLong bytesEvicted = new AtomicLong();
+  private final AtomicLong entriesEvicted = new AtomicLong();
+  private final AtomicLong gcTimeNanos = new AtomicLong();
+
+  private DiskCacheGarbageCollector(
+      Path root, DiskCacheIndex index, long maxSizeBytes, Clock clock) {
+    this.root = root;
+    this.index = index;
+    this.maxSizeBytes = maxSizeBytes;
+    this.targetSizeBytes = (long) (maxSizeBytes * TARGET_SIZE_RATIO);
+    this.clock = clock;
+    this.executor =
+        Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("disk-cache-gc-%d")
+                .setDaemon(true)
+                .build());
+  }
+
+  /**
+   * Creates a garbage collector for the disk cache at {@code root}. The index persisted in the
+   * cache root is loaded if it exists, otherwise it is rebuilt in the background by scanning the
+   * cache directory.
+   */
+  static DiskCacheGarbageCollector create(Path root, long maxSizeBytes, Clock clock) {
+    checkArgument(maxSizeBytes > 0, "maxSizeBytes must be positive");
+    Path indexFile = root.getChild(INDEX_FILE_NAME);
+    DiskCacheIndex index = null;
+    if (indexFile.exists()) {
+      try {
+        index = DiskCacheIndex.load(indexFile);
+      } catch (IOException e) {
+        logger.atWarning().withCause(e).log("Failed to load disk cache index, rebuilding it");
+      }
+    }
+    if (index != null) {
+      DiskCacheGarbageCollector gc =
+          new DiskCacheGarbageCollector(root, index, maxSizeBytes, clock);
+      gc.maybeScheduleCollection();
+      return gc;
+    }
+    DiskCacheGarbageCollector gc =
+        new DiskCacheGarbageCollector(root, new DiskCacheIndex(), maxSizeBytes, clock);
+    gc.executor.execute(gc::rebuildIndex);
+    return gc;
+  }
+
+  /** Records that the entry stored under {@code key} was read. */
+  void recordAccess(String key) {
+    index.touch(key, clock.currentTimeMillis());
+  }
+
+  /** Records that an entry of {@code size} bytes was stored under {@code key}. */
+  void recordInsertion(String key, long size) {
+    index.put(key, size, clock.currentTimeMillis());
+    maybeScheduleCollection();
+  }
+
+  long getBytesEvicted() {
+    return bytesEvicted.get();
+  }
+
+  long getEntriesEvicted() {
+    return entriesEvicted.get();
+  }
+
+  Duration getGcTime() {
+    return Duration.ofNanos(gcTimeNanos.get());
+  }
+
+  @VisibleForTesting
+  long getTotalSize() {
+    return index.getTotalSize();
+  }
+
+  /**
+   * Waits for a running garbage collection to finish, or stops it if it takes too long, and
+   * persists the index in the cache root, merged with the index saved by other servers sharing the
+   * cache.
+   */
+  void shutdown() throws IOException, InterruptedException {
+    executor.shutdown();
+    if (!executor.awaitTermination(SHUTDOWN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+      logger.atWarning().log(
+          "Disk cache garbage collection didn't finish within %s, stopping it", SHUTDOWN_TIMEOUT);
+      executor.shutdownNow();
+    }
+    Path indexFile = root.getChild(INDEX_FILE_NAME);
+    if (indexFile.exists()) {
+      try {
+        index.merge(DiskCacheIndex.load(indexFile), key -> root.getRelative(key).exists());
+      } catch (IOException e) {
+        logger.atWarning().withCause(e).log("Failed to merge the saved disk cache index");
+      }
+    }
+    index.save(indexFile);
+  }
+
+  private void maybeScheduleCollection() {
+    if (index.getTotalSize() <= maxSizeBytes || !collectionScheduled.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      executor.execute(this::collect);
+    } catch (RejectedExecutionException e) {
+      // The cache is shutting down. The next command will collect the garbage.
+      collectionScheduled.set(false);
+    }
+  }
+
+  private void collect() {
+    long startNanos = clock.nanoTime();
+    try {
+      long bytesToFree = index.getTotalSize() - targetSizeBytes;
+      if (bytesToFree <= 0) {
+        return;
+      }
+      for (String key : index.getEvictionCandidates(bytesToFree)) {
+        if (Thread.currentThread().isInterrupted()) {
+          // Stopped by shutdown(). The next command continues the collection.
+          return;
+        }
+        try {
+          root.getRelative(key).delete();
+        } catch (IOException e) {
+          logger.atWarning().withCause(e).log("Failed to evict '%s' from the disk cache", key);
+          continue;
+        }
+        long size = index.remove(key);
+        if (size >= 0) {
+          bytesEvicted.addAndGet(size);
+          entriesEvicted.incrementAndGet();
+        }
+      }
+    } finally {
+      gcTimeNanos.addAndGet(clock.nanoTime() - startNanos);
+      collectionScheduled.set(false);
+    }
+  }
+
+  private void rebuildIndex() {
+    for (String directory :
+        new String[] {DiskCacheClient.CAS_DIRECTORY, DiskCacheClient.ACTION_CACHE_DIRECTORY}) {
+      Path dir = root.getChild(directory);
+      try {
+        if (!dir.isDirectory()) {
+          continue;
+        }
+        for (Path shard : dir.getDirectoryEntries()) {
+          for (Path entry : shard.getDirectoryEntries()) {
+            if (entry.isFile()) {
+              index.putIfAbsent(
+                  entry.relativeTo(root).getPathString(),
+                  entry.getFileSize(),
+                  entry.getLastModifiedTime());
+            }
+          }
+        }
+      } catch (IOException e) {
+        logger.atWarning().withCause(e).log("Failed to scan the disk cache directory %s", dir);
+      }
+    }
+    maybeScheduleCollection();
+  }
+}
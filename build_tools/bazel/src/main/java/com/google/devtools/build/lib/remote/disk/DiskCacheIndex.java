@@ -0,0 +1,207 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.lib.remote.disk;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+import com.google.common.collect.ImmutableList;
+import com.google.devtools.build.lib.vfs.Path;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * An index of the entries stored in a {@link DiskCacheClient}, recording the size and the time of
+ * the last access of every entry.
+ *
+ * <p>The index is persisted in a compact binary format that is memory-mapped when loaded, so that
+ * the disk cache doesn't need to stat every entry at the beginning of each command.
+ *
+ * <p>This class is thread-safe.
+ */
+final class DiskCacheIndex {
+
+  private static final int MAGIC = 0x44434958; // "DCIX"
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 3 * Integer.BYTES;
+  private static final int ENTRY_FIXED_SIZE = Short.BYTES + 2 * Long.BYTES;
+
+  /** The size and time of last access of a single cache entry. */
+  private static final class Entry {
+    private final long size;
+    private volatile long lastAccessMillis;
+
+    private Entry(long size, long lastAccessMillis) {
+      this.size = size;
+      this.lastAccessMillis = lastAccessMillis;
+    }
+  }
+
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private final AtomicLong totalSize = new AtomicLong();
+
+  /** Returns the sum of the sizes of all entries in the index. */
+  long getTotalSize() {
+    return totalSize.get();
+  }
+
+  /**
+   * Adds an entry with the given {@code key} and {@code size}. If the entry is already present only
+   * its access time is updated.
+   */
+  void put(String key, long size, long nowMillis) {
+    Entry existing = entries.putIfAbsent(key, new Entry(size, nowMillis));
+    if (existing == null) {
+      totalSize.addAndGet(size);
+    } else {
+      existing.lastAccessMillis = nowMillis;
+    }
+  }
+
+  /**
+   * Adds an entry with the given {@code key}, {@code size} and time of last access, unless an entry
+   * with the same key is already present.
+   */
+  void putIfAbsent(String key, long size, long lastAccessMillis) {
+    if (entries.putIfAbsent(key, new Entry(size, lastAccessMillis)) == null) {
+      totalSize.addAndGet(size);
+    }
+  }
+
+  /**
+   * Adds the entries of {@code other}, typically saved by another server sharing the cache, that
+   * are missing from this index and for which {@code isPresent} returns true. For entries in both
+   * indexes, the later access time is kept.
+   */
+  void merge(DiskCacheIndex other, Predicate<String> isPresent) {
+    for (Map.Entry<String, Entry> e : other.entries.entrySet()) {
+      Entry entry = entries.get(e.getKey());
+      if (entry != null) {
+        entry.lastAccessMillis = Math.max(entry.lastAccessMillis, e.getValue().lastAccessMillis);
+      } else if (isPresent.test(e.getKey())) {
+        putIfAbsent(e.getKey(), e.getValue().size, e.getValue().lastAccessMillis);
+      }
+    }
+  }
+
+  /** Records an access to the entry with the given {@code key}, if present. */
+  void touch(String key, long nowMillis) {
+    Entry entry = entries.get(key);
+    if (entry != null) {
+      entry.lastAccessMillis = nowMillis;
+    }
+  }
+
+  /** Removes the entry with the given {@code key} and returns its size, or -1 if not present. */
+  long remove(String key) {
+    Entry entry = entries.remove(key);
+    if (entry == null) {
+      return -1;
+    }
+    totalSize.addAndGet(-entry.size);
+    return entry.size;
+  }
+
+  /**
+   * Returns the keys of the least recently used entries whose combined size is at least {@code
+   * bytesToFree}, ordered from the least to the most recently used.
+   */
+  ImmutableList<String> getEvictionCandidates(long bytesToFree) {
+    List<Map.Entry<String, Entry>> snapshot = new ArrayList<>(entries.entrySet());
+    snapshot.sort(Comparator.comparingLong(e -> e.getValue().lastAccessMillis));
+    ImmutableList.Builder<String> candidates = ImmutableList.builder();
+    long freed = 0;
+    for (Map.Entry<String, Entry> e : snapshot) {
+      if (freed >= bytesToFree) {
+        break;
+      }
+      candidates.add(e.getKey());
+      freed += e.getValue().size;
+    }
+    return candidates.build();
+  }
+
+  /**
+   * Loads an index previously written by {@link #save}.
+   *
+   * @throws IOException if the file doesn't exist or is not a valid index file.
+   */
+  static DiskCacheIndex load(Path file) throws IOException {
+    DiskCacheIndex index = new DiskCacheIndex();
+    try (FileChannel channel =
+        FileChannel.open(file.getPathFile().toPath(), StandardOpenOption.READ)) {
+      MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+        throw new IOException(String.format("%s is not a valid disk cache index", file));
+      }
+      int count = buf.getInt();
+      for (int i = 0; i < count; i++) {
+        byte[] key = new byte[buf.getShort()];
+        buf.get(key);
+        long size = buf.getLong();
+        long lastAccessMillis = buf.getLong();
+        index.putIfAbsent(new String(key, ISO_8859_1), size, lastAccessMillis);
+      }
+    } catch (BufferUnderflowException e) {
+      throw new IOException(String.format("Disk cache index %s is truncated", file), e);
+    }
+    return index;
+  }
+
+  /**
+   * Writes the index to {@code file}. The index is written to a temporary file first, which is then
+   * renamed, so that a crash, or another server saving the index at the same time, never leaves
+   * behind a partially written index.
+   */
+  void save(Path file) throws IOException {
+    List<Map.Entry<String, Entry>> snapshot = new ArrayList<>(entries.entrySet());
+    long fileSize = HEADER_SIZE;
+    for (Map.Entry<String, Entry> e : snapshot) {
+      fileSize += ENTRY_FIXED_SIZE + e.getKey().length();
+    }
+    Path temp =
+        file.getParentDirectory().getChild(file.getBaseName() + "." + UUID.randomUUID() + ".tmp");
+    try (FileChannel channel =
+        FileChannel.open(
+            temp.getPathFile().toPath(),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+      buf.putInt(MAGIC);
+      buf.putInt(VERSION);
+      buf.putInt(snapshot.size());
+      for (Map.Entry<String, Entry> e : snapshot) {
+        byte[] key = e.getKey().getBytes(ISO_8859_1);
+        buf.putShort((short) key.length);
+        buf.put(key);
+        buf.putLong(e.getValue().size);
+        buf.putLong(e.getValue().lastAccessMillis);
+      }
+      buf.force();
+    }
+    temp.renameTo(file);
+  }
+}
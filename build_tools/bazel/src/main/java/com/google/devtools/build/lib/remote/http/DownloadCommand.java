@@ -25,12 +25,19 @@ final class DownloadCommand {
   private final boolean casDownload;
   private final Digest digest;
   private final OutputStream out;
+  private final boolean existenceCheck;
 
   protected DownloadCommand(URI uri, boolean casDownload, Digest digest, OutputStream out) {
+    this(uri, casDownload, digest, out, /* existenceCheck= */ false);
+  }
+
+  protected DownloadCommand(
+      URI uri, boolean casDownload, Digest digest, OutputStream out, boolean existenceCheck) {
     this.uri = Preconditions.checkNotNull(uri);
     this.casDownload = casDownload;
     this.digest = Preconditions.checkNotNull(digest);
     this.out = Preconditions.checkNotNull(out);
+    this.existenceCheck = existenceCheck;
   }
 
   public URI uri() {
@@ -48,4 +55,9 @@ final class DownloadCommand {
   public OutputStream out() {
     return out;
   }
+
+  /** Whether to only check that the blob exists with a {@code HEAD} request. */
+  public boolean existenceCheck() {
+    return existenceCheck;
+  }
 }
@@ -0,0 +1,241 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.lib.remote.http;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.pool.ChannelPool;
+import io.netty.handler.codec.http2.Http2Connection;
+import io.netty.handler.codec.http2.Http2LocalFlowController;
+import io.netty.handler.codec.http2.Http2MultiplexCodec;
+import io.netty.handler.codec.http2.Http2MultiplexCodecBuilder;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamChannelBootstrap;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * A {@link ChannelPool} that multiplexes all requests over a single HTTP/2 connection.
+ *
+ * <p>Each acquired channel is a new HTTP/2 stream, which is closed when it's released. The
+ * connection is established on first use, using ALPN over TLS and prior knowledge otherwise, and
+ * reestablished when it was closed. Streams beyond the server's limit of concurrent streams are
+ * queued until earlier streams complete.
+ */
+final class Http2ChannelPool implements ChannelPool {
+
+  /**
+   * The flow control windows of the connection and of each stream, in bytes. The HTTP/2 default of
+   * 64KiB limits the throughput of a whole connection to 64KiB per round trip.
+   */
+  private static final int CONNECTION_WINDOW_SIZE = 16 * 1024 * 1024;
+
+  private static final int STREAM_WINDOW_SIZE = 1024 * 1024;
+
+  private final Bootstrap bootstrap;
+
+  @GuardedBy("this")
+  private Future<Channel> connection;
+
+  @GuardedBy("this")
+  private boolean closed;
+
+  /**
+   * @param bootstrap the bootstrap of the connection, whose handler is replaced
+   * @param sslCtx the TLS context, which must negotiate {@code h2} via ALPN, or {@code null} for
+   *     cleartext connections
+   */
+  Http2ChannelPool(Bootstrap bootstrap, @Nullable SslContext sslCtx, String host, int port) {
+    this.bootstrap =
+        bootstrap
+            .clone()
+            .handler(
+                new ChannelInitializer<Channel>() {
+                  @Override
+                  protected void initChannel(Channel ch) {
+                    ChannelPipeline p = ch.pipeline();
+                    if (sslCtx != null) {
+                      p.addLast("ssl-handler", sslCtx.newHandler(ch.alloc(), host, port));
+                    }
+                    p.addLast(
+                        Http2MultiplexCodecBuilder.forClient(new PushRejectingHandler())
+                            .initialSettings(
+                                Http2Settings.defaultSettings()
+                                    .pushEnabled(false)
+                                    .initialWindowSize(STREAM_WINDOW_SIZE))
+                            .encoderEnforceMaxConcurrentStreams(true)
+                            .build());
+                  }
+                });
+  }
+
+  @Override
+  public Future<Channel> acquire() {
+    return acquire(bootstrap.config().group().next().newPromise());
+  }
+
+  @Override
+  public Future<Channel> acquire(Promise<Channel> promise) {
+    getConnection()
+        .addListener(
+            (Future<Channel> connected) -> {
+              if (!connected.isSuccess()) {
+                promise.setFailure(connected.cause());
+                return;
+              }
+              new Http2StreamChannelBootstrap(connected.getNow())
+                  .open()
+                  .addListener(
+                      (Future<Http2StreamChannel> opened) -> {
+                        if (opened.isSuccess()) {
+                          promise.setSuccess(opened.getNow());
+                        } else {
+                          promise.setFailure(opened.cause());
+                        }
+                      });
+            });
+    return promise;
+  }
+
+  @Override
+  public Future<Void> release(Channel channel) {
+    return release(channel, channel.eventLoop().newPromise());
+  }
+
+  @Override
+  public Future<Void> release(Channel channel, Promise<Void> promise) {
+    // Streams can't be reused, so a released stream is closed. This resets it if the response
+    // hasn't been received completely.
+    channel
+        .close()
+        .addListener(
+            (ChannelFuture f) -> {
+              if (f.isSuccess()) {
+                promise.setSuccess(null);
+              } else {
+                promise.setFailure(f.cause());
+              }
+            });
+    return promise;
+  }
+
+  @Override
+  @SuppressWarnings("FutureReturnValueIgnored")
+  public synchronized void close() {
+    closed = true;
+    if (connection != null) {
+      connection.addListener(
+          (Future<Channel> connected) -> {
+            if (connected.isSuccess()) {
+              connected.getNow().close();
+            }
+          });
+    }
+  }
+
+  /** Returns the HTTP/2 connection, establishing a new one if there is none or it was closed. */
+  private synchronized Future<Channel> getConnection() {
+    if (closed) {
+      return bootstrap.config().group().next().newFailedFuture(new ClosedChannelException());
+    }
+    if (connection == null
+        || (connection.isDone()
+            && (!connection.isSuccess() || !connection.getNow().isActive()))) {
+      connection = connect();
+    }
+    return connection;
+  }
+
+  private Future<Channel> connect() {
+    ChannelFuture connected = bootstrap.connect();
+    Promise<Channel> ready = connected.channel().eventLoop().newPromise();
+    connected.addListener(
+        (ChannelFuture f) -> {
+          if (!f.isSuccess()) {
+            ready.setFailure(f.cause());
+            return;
+          }
+          Channel ch = f.channel();
+          SslHandler sslHandler = ch.pipeline().get(SslHandler.class);
+          if (sslHandler == null) {
+            // The connection preface is only sent once the channel has become active, which
+            // happens after this listener ran.
+            ch.eventLoop().execute(() -> onConnected(ch, ready));
+            return;
+          }
+          sslHandler
+              .handshakeFuture()
+              .addListener(
+                  (Future<Channel> handshake) -> {
+                    if (!handshake.isSuccess()) {
+                      ready.setFailure(handshake.cause());
+                    } else if (!ApplicationProtocolNames.HTTP_2.equals(
+                        sslHandler.applicationProtocol())) {
+                      ch.close();
+                      ready.setFailure(
+                          new IOException(
+                              "The remote cache does not support HTTP/2, negotiated protocol: "
+                                  + sslHandler.applicationProtocol()));
+                    } else {
+                      onConnected(ch, ready);
+                    }
+                  });
+        });
+    return ready;
+  }
+
+  /**
+   * Enlarges the connection's flow control window, which must happen after the connection preface
+   * has been sent. Runs in the connection's event loop.
+   */
+  private static void onConnected(Channel ch, Promise<Channel> ready) {
+    try {
+      Http2Connection connection = ch.pipeline().get(Http2MultiplexCodec.class).connection();
+      Http2LocalFlowController flowController = connection.local().flowController();
+      flowController.incrementWindowSize(
+          connection.connectionStream(),
+          CONNECTION_WINDOW_SIZE - flowController.windowSize(connection.connectionStream()));
+      ready.setSuccess(ch);
+    } catch (Exception e) {
+      ch.close();
+      ready.setFailure(e);
+    }
+  }
+
+  /** Rejects streams initiated by the server, as server push is disabled anyway. */
+  @Sharable
+  private static final class PushRejectingHandler extends ChannelInboundHandlerAdapter {
+    @Override
+    @SuppressWarnings("FutureReturnValueIgnored")
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+      ReferenceCountUtil.release(msg);
+      ctx.channel().close();
+    }
+  }
+}
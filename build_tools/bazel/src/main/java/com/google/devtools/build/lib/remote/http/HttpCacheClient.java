@@ -19,6 +19,7 @@ import com.google.auth.Credentials;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.hash.HashingOutputStream;
+import com.google.common.io.ByteStreams;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
@@ -55,11 +56,19 @@ import io.netty.handler.codec.http.HttpRequestEncoder;
 import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseDecoder;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http2.Http2SecurityUtil;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolConfig.Protocol;
+import io.netty.handler.ssl.ApplicationProtocolConfig.SelectedListenerFailureBehavior;
+import io.netty.handler.ssl.ApplicationProtocolConfig.SelectorFailureBehavior;
+import io.netty.handler.ssl.ApplicationProtocolNames;
 import io.netty.handler.ssl.OpenSsl;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.ssl.SslHandler;
 import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.SupportedCipherSuiteFilter;
 import io.netty.handler.stream.ChunkedWriteHandler;
 import io.netty.handler.timeout.ReadTimeoutException;
 import io.netty.handler.timeout.WriteTimeoutException;
@@ -74,6 +83,7 @@ import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
@@ -88,7 +98,7 @@ import javax.annotation.concurrent.GuardedBy;
 import javax.net.ssl.SSLEngine;
 
 /**
- * Implementation of {@link RemoteCacheClient} that can talk to a HTTP/1.1 backend.
+ * Implementation of {@link RemoteCacheClient} that can talk to a HTTP/1.1 or HTTP/2 backend.
  *
  * <p>Blobs (Binary large objects) are uploaded using the {@code PUT} method. Action cache blobs are
  * stored under the path {@code /ac/base16-key}. CAS (Content Addressable Storage) blobs are stored
@@ -110,6 +120,11 @@ import javax.net.ssl.SSLEngine;
  * accepted.
  *
  * <p>The implementation currently does not support transfer encoding chunked.
+ *
+ * <p>With HTTP/2, all requests are multiplexed as streams over a single connection, which is
+ * negotiated via ALPN with HTTPS and assumed with HTTP. Blobs that already exist in the cache are
+ * detected with {@code HEAD} requests, which are answered with the same status codes as {@code
+ * GET} requests.
  */
 public final class HttpCacheClient implements RemoteCacheClient {
 
@@ -126,6 +141,7 @@ public final class HttpCacheClient implements RemoteCacheClient {
   private final int timeoutSeconds;
   private final ImmutableList<Entry<String, String>> extraHttpHeaders;
   private final boolean useTls;
+  private final boolean useHttp2;
   private final boolean verifyDownloads;
   private final DigestUtil digestUtil;
 
@@ -146,6 +162,7 @@ public final class HttpCacheClient implements RemoteCacheClient {
       URI uri,
       int timeoutSeconds,
       int remoteMaxConnections,
+      boolean useHttp2,
       boolean verifyDownloads,
       ImmutableList<Entry<String, String>> extraHttpHeaders,
       DigestUtil digestUtil,
@@ -157,6 +174,7 @@ public final class HttpCacheClient implements RemoteCacheClient {
         uri,
         timeoutSeconds,
         remoteMaxConnections,
+        useHttp2,
         verifyDownloads,
         extraHttpHeaders,
         digestUtil,
@@ -169,6 +187,7 @@ public final class HttpCacheClient implements RemoteCacheClient {
       URI uri,
       int timeoutSeconds,
       int remoteMaxConnections,
+      boolean useHttp2,
       boolean verifyDownloads,
       ImmutableList<Entry<String, String>> extraHttpHeaders,
       DigestUtil digestUtil,
@@ -182,6 +201,7 @@ public final class HttpCacheClient implements RemoteCacheClient {
           uri,
           timeoutSeconds,
           remoteMaxConnections,
+          useHttp2,
           verifyDownloads,
           extraHttpHeaders,
           digestUtil,
@@ -194,6 +214,7 @@ public final class HttpCacheClient implements RemoteCacheClient {
           uri,
           timeoutSeconds,
           remoteMaxConnections,
+          useHttp2,
           verifyDownloads,
           extraHttpHeaders,
           digestUtil,
@@ -210,6 +231,7 @@ public final class HttpCacheClient implements RemoteCacheClient {
       URI uri,
       int timeoutSeconds,
       int remoteMaxConnections,
+      boolean useHttp2,
       boolean verifyDownloads,
       ImmutableList<Entry<String, String>> extraHttpHeaders,
       DigestUtil digestUtil,
@@ -239,7 +261,18 @@ public final class HttpCacheClient implements RemoteCacheClient {
       // OpenSsl gives us a > 2x speed improvement on fast networks, but requires netty tcnative
       // to be there which is not available on all platforms and environments.
       SslProvider sslProvider = OpenSsl.isAvailable() ? SslProvider.OPENSSL : SslProvider.JDK;
-      sslCtx = SslContextBuilder.forClient().sslProvider(sslProvider).build();
+      SslContextBuilder sslCtxBuilder = SslContextBuilder.forClient().sslProvider(sslProvider);
+      if (useHttp2) {
+        sslCtxBuilder
+            .ciphers(Http2SecurityUtil.CIPHERS, SupportedCipherSuiteFilter.INSTANCE)
+            .applicationProtocolConfig(
+                new ApplicationProtocolConfig(
+                    Protocol.ALPN,
+                    SelectorFailureBehavior.NO_ADVERTISE,
+                    SelectedListenerFailureBehavior.ACCEPT,
+                    ApplicationProtocolNames.HTTP_2));
+      }
+      sslCtx = sslCtxBuilder.build();
     } else {
       sslCtx = null;
     }
@@ -271,7 +304,10 @@ public final class HttpCacheClient implements RemoteCacheClient {
             }
           }
         };
-    if (remoteMaxConnections > 0) {
+    this.useHttp2 = useHttp2;
+    if (useHttp2) {
+      channelPool = new Http2ChannelPool(clientBootstrap, sslCtx, hostname, port);
+    } else if (remoteMaxConnections > 0) {
       channelPool = new FixedChannelPool(clientBootstrap, channelPoolHandler, remoteMaxConnections);
     } else {
       channelPool = new SimpleChannelPool(clientBootstrap, channelPoolHandler);
@@ -308,14 +344,18 @@ public final class HttpCacheClient implements RemoteCacheClient {
                 p.addFirst(
                     "timeout-handler",
                     new IdleTimeoutHandler(timeoutSeconds, WriteTimeoutException.INSTANCE));
-                p.addLast(new HttpResponseDecoder());
+                if (useHttp2) {
+                  p.addLast(new Http2StreamFrameToHttpObjectCodec(/* isServer= */ false));
+                } else {
+                  p.addLast(new HttpResponseDecoder());
+                  p.addLast(new HttpRequestEncoder());
+                }
                 // The 10KiB limit was chosen arbitrarily. We only expect HTTP servers to respond
                 // with an error message in the body, and that should always be less than 10KiB. If
                 // the response is larger than 10KiB, HttpUploadHandler will catch the
                 // TooLongFrameException that HttpObjectAggregator throws and convert it to an
                 // IOException.
                 p.addLast(new HttpObjectAggregator(10 * 1024));
-                p.addLast(new HttpRequestEncoder());
                 p.addLast(new ChunkedWriteHandler());
                 synchronized (credentialsLock) {
                   p.addLast(new HttpUploadHandler(creds, extraHttpHeaders));
@@ -346,7 +386,7 @@ public final class HttpCacheClient implements RemoteCacheClient {
 
   @SuppressWarnings("FutureReturnValueIgnored")
   private void releaseUploadChannel(Channel ch) {
-    if (ch.isOpen()) {
+    if (ch.isOpen() && !useHttp2) {
       try {
         ch.pipeline().remove(IdleTimeoutHandler.class);
         ch.pipeline().remove(HttpResponseDecoder.class);
@@ -388,7 +428,11 @@ public final class HttpCacheClient implements RemoteCacheClient {
                 p.addFirst(
                     "timeout-handler",
                     new IdleTimeoutHandler(timeoutSeconds, ReadTimeoutException.INSTANCE));
-                p.addLast(new HttpClientCodec());
+                if (useHttp2) {
+                  p.addLast(new Http2StreamFrameToHttpObjectCodec(/* isServer= */ false));
+                } else {
+                  p.addLast(new HttpClientCodec());
+                }
                 synchronized (credentialsLock) {
                   p.addLast(new HttpDownloadHandler(creds, extraHttpHeaders));
                 }
@@ -413,7 +457,8 @@ public final class HttpCacheClient implements RemoteCacheClient {
 
   @SuppressWarnings("FutureReturnValueIgnored")
   private void releaseDownloadChannel(Channel ch) {
-    if (ch.isOpen()) {
+    // HTTP/2 streams are closed on release, so there's no need to restore their pipeline.
+    if (ch.isOpen() && !useHttp2) {
       // The channel might have been closed due to an error, in which case its pipeline
       // has already been cleared. Closed channels can't be reused.
       try {
@@ -442,7 +487,11 @@ public final class HttpCacheClient implements RemoteCacheClient {
     final HashingOutputStream hashOut =
         verifyDownloads ? digestUtil.newHashingOutputStream(out) : null;
     return Futures.transformAsync(
-        get(digest, hashOut != null ? hashOut : out, /* casDownload= */ true),
+        get(
+            digest,
+            hashOut != null ? hashOut : out,
+            /* casDownload= */ true,
+            /* existenceCheck= */ false),
         (v) -> {
           try {
             if (hashOut != null) {
@@ -459,7 +508,8 @@ public final class HttpCacheClient implements RemoteCacheClient {
   }
 
   @SuppressWarnings("FutureReturnValueIgnored")
-  private ListenableFuture<Void> get(Digest digest, final OutputStream out, boolean casDownload) {
+  private ListenableFuture<Void> get(
+      Digest digest, final OutputStream out, boolean casDownload, boolean existenceCheck) {
     final AtomicBoolean dataWritten = new AtomicBoolean();
     OutputStream wrappedOut =
         new OutputStream() {
@@ -484,7 +534,8 @@ public final class HttpCacheClient implements RemoteCacheClient {
             out.flush();
           }
         };
-    DownloadCommand downloadCmd = new DownloadCommand(uri, casDownload, digest, wrappedOut);
+    DownloadCommand downloadCmd =
+        new DownloadCommand(uri, casDownload, digest, wrappedOut, existenceCheck);
     SettableFuture<Void> outerF = SettableFuture.create();
     acquireDownloadChannel()
         .addListener(
@@ -569,7 +620,9 @@ public final class HttpCacheClient implements RemoteCacheClient {
   public ListenableFuture<ActionResult> downloadActionResult(
       ActionKey actionKey, boolean inlineOutErr) {
     return Utils.downloadAsActionResult(
-        actionKey, (digest, out) -> get(digest, out, /* casDownload= */ false));
+        actionKey,
+        (digest, out) ->
+            get(digest, out, /* casDownload= */ false, /* existenceCheck= */ false));
   }
 
   @SuppressWarnings("FutureReturnValueIgnored")
@@ -644,9 +697,46 @@ public final class HttpCacheClient implements RemoteCacheClient {
     return Futures.immediateFuture(null);
   }
 
+  /**
+   * With HTTP/2, checks which blobs exist with a {@code HEAD} request per blob, which are
+   * multiplexed over the same connection. A blob whose check fails for any reason is reported as
+   * missing, as uploading it again is always safe. With HTTP/1.1 all blobs are reported as
+   * missing.
+   */
   @Override
   public ListenableFuture<ImmutableSet<Digest>> findMissingDigests(Iterable<Digest> digests) {
-    return Futures.immediateFuture(ImmutableSet.copyOf(digests));
+    ImmutableSet<Digest> uniqueDigests = ImmutableSet.copyOf(digests);
+    if (!useHttp2) {
+      return Futures.immediateFuture(uniqueDigests);
+    }
+    List<ListenableFuture<Boolean>> lookups = new ArrayList<>(uniqueDigests.size());
+    for (Digest digest : uniqueDigests) {
+      ListenableFuture<Boolean> exists =
+          Futures.transform(
+              get(
+                  digest,
+                  ByteStreams.nullOutputStream(),
+                  /* casDownload= */ true,
+                  /* existenceCheck= */ true),
+              (v) -> true,
+              MoreExecutors.directExecutor());
+      lookups.add(
+          Futures.catching(
+              exists, Exception.class, (e) -> false, MoreExecutors.directExecutor()));
+    }
+    return Futures.transform(
+        Futures.allAsList(lookups),
+        (found) -> {
+          ImmutableSet.Builder<Digest> missing = ImmutableSet.builder();
+          int i = 0;
+          for (Digest digest : uniqueDigests) {
+            if (!found.get(i++)) {
+              missing.add(digest);
+            }
+          }
+          return missing.build();
+        },
+        MoreExecutors.directExecutor());
   }
 
   @SuppressWarnings("FutureReturnValueIgnored")
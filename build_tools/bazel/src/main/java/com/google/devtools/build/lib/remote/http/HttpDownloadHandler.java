@@ -51,6 +51,8 @@ final class HttpDownloadHandler extends AbstractHttpHandler<HttpObject> {
   private long contentLength = -1;
   /** the path header in the http request */
   private String path;
+  /** whether the request is a HEAD request, whose response has no content */
+  private boolean existenceCheck;
 
   public HttpDownloadHandler(
       Credentials credentials, ImmutableList<Entry<String, String>> extraHttpHeaders) {
@@ -82,7 +84,9 @@ final class HttpDownloadHandler extends AbstractHttpHandler<HttpObject> {
         return;
       }
       boolean contentLengthSet = HttpUtil.isContentLengthSet(response);
-      if (!contentLengthSet && !HttpUtil.isTransferEncodingChunked(response)) {
+      if (!contentLengthSet
+          && !HttpUtil.isTransferEncodingChunked(response)
+          && !existenceCheck) {
         HttpException error =
             new HttpException(
                 response, "Missing 'Content-Length' or 'Transfer-Encoding: chunked' header", null);
@@ -137,7 +141,10 @@ final class HttpDownloadHandler extends AbstractHttpHandler<HttpObject> {
     DownloadCommand cmd = (DownloadCommand) msg;
     out = cmd.out();
     path = constructPath(cmd.uri(), cmd.digest().getHash(), cmd.casDownload());
-    HttpRequest request = buildRequest(path, constructHost(cmd.uri()));
+    existenceCheck = cmd.existenceCheck();
+    HttpRequest request =
+        buildRequest(
+            existenceCheck ? HttpMethod.HEAD : HttpMethod.GET, path, constructHost(cmd.uri()));
     addCredentialHeaders(request, cmd.uri());
     addExtraRemoteHeaders(request);
     addUserAgentHeader(request);
@@ -159,9 +166,8 @@ final class HttpDownloadHandler extends AbstractHttpHandler<HttpObject> {
     }
   }
 
-  private HttpRequest buildRequest(String path, String host) {
-    HttpRequest httpRequest =
-        new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, path);
+  private HttpRequest buildRequest(HttpMethod method, String path, String host) {
+    HttpRequest httpRequest = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, method, path);
     httpRequest.headers().set(HttpHeaderNames.HOST, host);
     httpRequest.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
     httpRequest.headers().set(HttpHeaderNames.ACCEPT, "*/*");
@@ -30,10 +30,15 @@ import com.google.devtools.build.lib.vfs.Path;
 import com.google.devtools.build.lib.vfs.PathFragment;
 import com.google.protobuf.ByteString;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 import javax.annotation.Nullable;
 
 /** A merkle tree representation as defined by the remote execution api. */
@@ -118,6 +123,42 @@ public class MerkleTree {
     return Iterables.concat(digestDirectoryMap.keySet(), digestFileMap.keySet());
   }
 
+  /** Returns the hashes of all {@link Directory} protobufs of the merkle tree. */
+  public Iterable<Digest> getDirectoryDigests() {
+    return digestDirectoryMap.keySet();
+  }
+
+  /**
+   * Returns the hashes of all nodes and leafs of the merkle tree, except for the ones that are
+   * only reachable through directories for which {@code skipSubtree} returns true.
+   *
+   * <p>This allows callers to not look up the contents of subtrees again that they already know to
+   * be complete, e.g. in a remote cache.
+   */
+  public Iterable<Digest> getAllDigests(Predicate<Digest> skipSubtree) {
+    Set<Digest> digests = new HashSet<>();
+    Deque<Digest> queue = new ArrayDeque<>();
+    if (!skipSubtree.test(rootDigest)) {
+      queue.add(rootDigest);
+    }
+    while (!queue.isEmpty()) {
+      Digest dirDigest = queue.remove();
+      Directory dir = digestDirectoryMap.get(dirDigest);
+      if (dir == null || !digests.add(dirDigest)) {
+        continue;
+      }
+      for (FileNode file : dir.getFilesList()) {
+        digests.add(file.getDigest());
+      }
+      for (DirectoryNode subDir : dir.getDirectoriesList()) {
+        if (!skipSubtree.test(subDir.getDigest())) {
+          queue.add(subDir.getDigest());
+        }
+      }
+    }
+    return digests;
+  }
+
   /**
    * Constructs a merkle tree from a lexicographically sorted map of inputs (files).
    *
@@ -0,0 +1,64 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.lib.remote.merkletree;
+
+import build.bazel.remote.execution.v2.Digest;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.devtools.build.lib.concurrent.ThreadSafety.ThreadSafe;
+
+/**
+ * Remembers which input directories are known to be present in the remote cache.
+ *
+ * <p>Most actions share large parts of their input trees, e.g. toolchains and common headers. Once
+ * a directory and everything reachable from it has been found in or uploaded to the remote cache,
+ * its contents don't need to be looked up again for the following actions.
+ *
+ * <p>An instance is meant to live for a single build. It is bounded by the number of directories.
+ */
+@ThreadSafe
+public final class MerkleTreeCache {
+
+  private final Cache<Digest, Boolean> presentDirectories;
+
+  public MerkleTreeCache(long maxDirectories) {
+    this.presentDirectories = CacheBuilder.newBuilder().maximumSize(maxDirectories).build();
+  }
+
+  /**
+   * Returns true if the directory with the given digest, and everything reachable from it, has
+   * been found in or uploaded to the remote cache during this build.
+   */
+  public boolean isPresent(Digest directoryDigest) {
+    return presentDirectories.getIfPresent(directoryDigest) != null;
+  }
+
+  /**
+   * Records that all directories of {@code merkleTree}, and thus all files, are present in the
+   * remote cache.
+   */
+  public void markPresent(MerkleTree merkleTree) {
+    for (Digest directoryDigest : merkleTree.getDirectoryDigests()) {
+      presentDirectories.put(directoryDigest, Boolean.TRUE);
+    }
+  }
+
+  /**
+   * Forgets that the directories of {@code merkleTree} are present in the remote cache, e.g.
+   * because the remote cache evicted some of their contents.
+   */
+  public void invalidate(MerkleTree merkleTree) {
+    presentDirectories.invalidateAll(merkleTree.getDirectoryDigests());
+  }
+}
@@ -245,6 +245,53 @@ public final class RemoteOptions extends OptionsBase {
               + "If the directory does not exist, it will be created.")
   public PathFragment diskCache;
 
+  @Option(
+      name = "experimental_disk_cache_max_size",
+      defaultValue = "0",
+      documentationCategory = OptionDocumentationCategory.UNCATEGORIZED,
+      effectTags = {OptionEffectTag.HOST_MACHINE_RESOURCE_OPTIMIZATIONS},
+      help =
+          "The maximum size of the --disk_cache in bytes. When the cache grows beyond this size, "
+              + "the least recently used entries are deleted in the background until the cache "
+              + "has shrunk to 90% of the limit. If set to 0, the size of the disk cache is not "
+              + "limited.")
+  public long diskCacheMaxSize;
+
+  @Option(
+      name = "experimental_disk_cache_fsync",
+      defaultValue = "false",
+      documentationCategory = OptionDocumentationCategory.UNCATEGORIZED,
+      effectTags = {OptionEffectTag.EXECUTION},
+      help =
+          "If set to true, entries written to the --disk_cache are flushed to disk before they "
+              + "become visible, so that the cache is not corrupted by a machine crash. Flushes "
+              + "of concurrent writes are batched.")
+  public boolean diskCacheFsync;
+
+  @Option(
+      name = "experimental_disk_cache_io_threads",
+      defaultValue = "16",
+      documentationCategory = OptionDocumentationCategory.UNCATEGORIZED,
+      effectTags = {OptionEffectTag.HOST_MACHINE_RESOURCE_OPTIMIZATIONS},
+      help =
+          "The number of threads used to read and write entries of the --disk_cache. Reads and "
+              + "writes run asynchronously on these threads, so that the outputs of many actions "
+              + "can be fetched from the disk cache at the same time.")
+  public int diskCacheIoThreads;
+
+  @Option(
+      name = "experimental_disk_cache_write_behind_queue_size",
+      defaultValue = "0",
+      documentationCategory = OptionDocumentationCategory.UNCATEGORIZED,
+      effectTags = {OptionEffectTag.EXECUTION},
+      help =
+          "If greater than 0 and both --disk_cache and a remote cache are used, local results "
+              + "are only written to the --disk_cache before the action completes, and uploaded "
+              + "to the remote cache in the background, with at most this many uploads queued. "
+              + "Actions wait while the queue is full. The remaining uploads are finished at the "
+              + "end of the build.")
+  public int diskCacheWriteBehindQueueSize;
+
   @Option(
       name = "experimental_guard_against_concurrent_changes",
       defaultValue = "false",
@@ -420,6 +467,212 @@ public final class RemoteOptions extends OptionsBase {
               + "if an execution platform does not already set exec_properties.")
   public List<Map.Entry<String, String>> remoteDefaultExecProperties;
 
+  @Option(
+      name = "experimental_remote_batch_blob_size",
+      defaultValue = "16384",
+      documentationCategory = OptionDocumentationCategory.REMOTE,
+      effectTags = {OptionEffectTag.UNKNOWN},
+      help =
+          "Blobs of at most this many bytes are uploaded to and downloaded from a gRPC remote "
+              + "cache with the BatchUpdateBlobs and BatchReadBlobs calls instead of ByteStream. "
+              + "Concurrent transfers are coalesced into batches of at most the size advertised "
+              + "by the server, which saves round trips for the many small outputs of typical "
+              + "actions. Set to 0 to disable batching.")
+  public long remoteBatchBlobSize;
+
+  @Option(
+      name = "experimental_remote_cache_compression",
+      defaultValue = "false",
+      documentationCategory = OptionDocumentationCategory.REMOTE,
+      effectTags = {OptionEffectTag.UNKNOWN},
+      help =
+          "If enabled, blobs that are streamed to and from a gRPC remote cache are compressed "
+              + "with DEFLATE, provided that the server advertises support for it. This reduces "
+              + "the bytes sent over the network at the cost of some CPU time. Blobs sent with "
+              + "the batch calls are never compressed.")
+  public boolean cacheCompression;
+
+  @Option(
+      name = "experimental_remote_merkle_tree_cache",
+      defaultValue = "false",
+      documentationCategory = OptionDocumentationCategory.REMOTE,
+      effectTags = {OptionEffectTag.UNKNOWN},
+      help =
+          "If enabled, the input directories that are known to be present in the remote cache "
+              + "are remembered across the actions of a build, and their contents are not looked "
+              + "up again. This speeds up builds whose actions share large input trees, e.g. "
+              + "toolchains. The memory used is bounded by "
+              + "--experimental_remote_merkle_tree_cache_size.")
+  public boolean remoteMerkleTreeCache;
+
+  @Option(
+      name = "experimental_remote_merkle_tree_cache_size",
+      defaultValue = "10000",
+      documentationCategory = OptionDocumentationCategory.REMOTE,
+      effectTags = {OptionEffectTag.UNKNOWN},
+      help =
+          "The maximum number of input directories remembered by "
+              + "--experimental_remote_merkle_tree_cache.")
+  public long remoteMerkleTreeCacheSize;
+
+  @Option(
+      name = "experimental_remote_existence_cache_size",
+      defaultValue = "0",
+      documentationCategory = OptionDocumentationCategory.REMOTE,
+      effectTags = {OptionEffectTag.UNKNOWN},
+      help =
+          "The maximum number of blobs that are remembered as present in the gRPC remote cache "
+              + "after they were found with FindMissingBlobs, uploaded or downloaded. These blobs "
+              + "are not looked up again, which saves FindMissingBlobs calls. Set to 0 to "
+              + "disable.")
+  public long remoteExistenceCacheSize;
+
+  @Option(
+      name = "experimental_remote_existence_cache_ttl",
+      defaultValue = "600",
+      documentationCategory = OptionDocumentationCategory.REMOTE,
+      effectTags = {OptionEffectTag.UNKNOWN},
+      help =
+          "The number of seconds for which a blob is remembered as present by "
+              + "--experimental_remote_existence_cache_size. This should be well below the time "
+              + "after which the remote cache may evict blobs.")
+  public int remoteExistenceCacheTtl;
+
+  @Option(
+      name = "experimental_remote_existence_cache_persist",
+      defaultValue = "false",
+      documentationCategory = OptionDocumentationCategory.REMOTE,
+      effectTags = {OptionEffectTag.UNKNOWN},
+      help =
+          "If enabled, the blobs remembered by --experimental_remote_existence_cache_size are "
+              + "saved in the output base at the end of each invocation and reused by the next "
+              + "invocation against the same remote cache.")
+  public boolean remoteExistenceCachePersist;
+
+  @Option(
+      name = "experimental_remote_action_result_cache_size",
+      defaultValue = "0",
+      documentationCategory = OptionDocumentationCategory.REMOTE,
+      effectTags = {OptionEffectTag.UNKNOWN},
+      help =
+          "The maximum number of action cache lookups whose results are remembered in memory for "
+              + "the lifetime of the server, so that looking up the same action again, e.g. in the "
+              + "next build, doesn't require a round trip to the remote cache. Results are "
+              + "forgotten when they are uploaded again or their outputs are missing from the "
+              + "remote cache. Set to 0 to disable.")
+  public long remoteActionResultCacheSize;
+
+  @Option(
+      name = "experimental_remote_action_result_cache_negative_ttl",
+      defaultValue = "60",
+      documentationCategory = OptionDocumentationCategory.REMOTE,
+      effectTags = {OptionEffectTag.UNKNOWN},
+      help =
+          "The number of seconds for which --experimental_remote_action_result_cache_size "
+              + "remembers that an action isn't in the remote cache.")
+  public int remoteActionResultCacheNegativeTtl;
+
+  @Option(
+      name = "experimental_remote_action_result_cache_ttl",
+      defaultValue = "3600",
+      documentationCategory = OptionDocumentationCategory.REMOTE,
+      effectTags = {OptionEffectTag.UNKNOWN},
+      help =
+          "The number of seconds for which --experimental_remote_action_result_cache_size "
+              + "remembers the result of an action that was found in the remote cache. Unless "
+              + "--remote_download_outputs=all is set, the outputs of a remembered result are also "
+              + "checked to still be in the remote cache before it is used again.")
+  public int remoteActionResultCacheTtl;
+
+  @Option(
+      name = "experimental_remote_action_result_cache_validation_interval",
+      defaultValue = "300",
+      documentationCategory = OptionDocumentationCategory.REMOTE,
+      effectTags = {OptionEffectTag.UNKNOWN},
+      help =
+          "The number of seconds for which a result remembered by "
+              + "--experimental_remote_action_result_cache_size is used without checking that its "
+              + "outputs are still in the remote cache, after it was looked up or checked. Set to "
+              + "0 to check the outputs each time the result is used.")
+  public int remoteActionResultCacheValidationInterval;
+
+  @Option(
+      name = "experimental_remote_top_down_cache",
+      defaultValue = "false",
+      documentationCategory = OptionDocumentationCategory.REMOTE,
+      effectTags = {OptionEffectTag.EXECUTION},
+      help =
+          "If enabled, actions are also looked up in the remote cache by a transitive key that is "
+              + "known before their inputs are built, so that the inputs of cached actions don't "
+              + "have to be built at all. The results are written to the remote action cache "
+              + "under the transitive keys of actions whose outputs are in the remote cache. Only "
+              + "has an effect with --remote_download_minimal.")
+  public boolean remoteTopDownCache;
+
+  @Option(
+      name = "experimental_remote_download_chunk_size",
+      defaultValue = "0",
+      documentationCategory = OptionDocumentationCategory.REMOTE,
+      effectTags = {OptionEffectTag.UNKNOWN},
+      help =
+          "If greater than 0, files larger than this many bytes are downloaded from a gRPC remote "
+              + "cache in chunks of this size, with up to --remote_max_connections chunks in "
+              + "parallel. A chunk that fails to download is resumed after the last byte "
+              + "received. Has no effect on blobs that are downloaded with "
+              + "--experimental_remote_cache_compression.")
+  public long remoteDownloadChunkSize;
+
+  @Option(
+      name = "experimental_remote_background_prefetch_bytes",
+      defaultValue = "0",
+      documentationCategory = OptionDocumentationCategory.REMOTE,
+      effectTags = {OptionEffectTag.UNKNOWN},
+      help =
+          "If greater than 0, remote inputs of an action that will execute locally start "
+              + "downloading while the action waits for local resources, with at most this many "
+              + "bytes downloading ahead of time. Only has an effect with "
+              + "--remote_download_outputs=minimal or toplevel.")
+  public long remoteBackgroundPrefetchBytes;
+
+  @Option(
+      name = "experimental_remote_cache_http2",
+      defaultValue = "false",
+      documentationCategory = OptionDocumentationCategory.REMOTE,
+      effectTags = {OptionEffectTag.UNKNOWN},
+      help =
+          "If enabled, an HTTP remote cache is accessed via HTTP/2, with all requests multiplexed "
+              + "over a single connection instead of --remote_max_connections connections, and "
+              + "blobs that already exist in the cache are detected with HEAD requests instead of "
+              + "being uploaded again. With HTTPS the server must support HTTP/2 via ALPN, with "
+              + "HTTP it must accept HTTP/2 with prior knowledge.")
+  public boolean remoteCacheHttp2;
+
+  @Option(
+      name = "experimental_remote_execution_progress",
+      defaultValue = "false",
+      documentationCategory = OptionDocumentationCategory.REMOTE,
+      effectTags = {OptionEffectTag.UNKNOWN},
+      help =
+          "If enabled, remotely executed actions are shown as scheduling until the remote "
+              + "execution service reports that they started executing, and their standard "
+              + "output and error are streamed while they run if the service supports it, so "
+              + "that e.g. test logs can be followed before a test completes.")
+  public boolean remoteExecutionProgress;
+
+  @Option(
+      name = "experimental_remote_adaptive_concurrency_limit",
+      defaultValue = "0",
+      documentationCategory = OptionDocumentationCategory.REMOTE,
+      effectTags = {OptionEffectTag.HOST_MACHINE_RESOURCE_OPTIMIZATIONS},
+      help =
+          "If set to a positive number, the number of concurrent gRPC calls to the remote cache "
+              + "and executor is limited adaptively, up to this number: the limit starts at "
+              + "--remote_max_connections, or 100 if that is 0, grows while calls succeed and "
+              + "shrinks when the service reports overload or its latency increases. Calls "
+              + "beyond the limit are queued. Execute and WaitExecution calls are not limited. "
+              + "The limit and the queuing time are recorded in the JSON profile.")
+  public int remoteAdaptiveConcurrencyLimit;
+
   @Option(
       name = "remote_verify_downloads",
       defaultValue = "true",
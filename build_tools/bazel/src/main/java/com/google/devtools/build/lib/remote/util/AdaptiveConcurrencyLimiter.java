@@ -0,0 +1,377 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.lib.remote.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import build.bazel.remote.execution.v2.ExecutionGrpc;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.devtools.build.lib.clock.BlazeClock;
+import com.google.devtools.build.lib.clock.Clock;
+import com.google.devtools.build.lib.concurrent.ThreadSafety.ThreadSafe;
+import com.google.devtools.build.lib.profiler.Profiler;
+import com.google.devtools.build.lib.profiler.ProfilerTask;
+import io.grpc.Attributes;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.Deadline;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.MethodDescriptor.MethodType;
+import io.grpc.Status;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * A grpc interceptor that limits the number of concurrent calls to a remote service, adapting the
+ * limit to how the service copes with the load.
+ *
+ * <p>The limit is adjusted with additive increase and multiplicative decrease: it grows by one per
+ * limit's worth of successful calls made while at least half of the permits were in use, and
+ * shrinks by a constant factor when a call fails because the service is overloaded or a unary call
+ * takes much longer than the service's latency without load for the same method. The limit is
+ * decreased at most once per round trip, i.e. only by calls that started after the previous
+ * decrease.
+ *
+ * <p>Calls beyond the limit are queued without blocking the caller and started in order as earlier
+ * calls complete. {@code Execute} and {@code WaitExecution} are not limited, as their duration
+ * depends on the executed action rather than on the load of the service. Neither are calls with the
+ * {@link #UNLIMITED} option, e.g. streams that follow the output of a running action.
+ */
+@ThreadSafe
+public final class AdaptiveConcurrencyLimiter implements ClientInterceptor {
+
+  /**
+   * A call option that exempts a call from the limit. To be set on calls that stay open for reasons
+   * unrelated to the load of the service, so that they don't hold a permit all that time.
+   */
+  public static final CallOptions.Key<Boolean> UNLIMITED =
+      CallOptions.Key.createWithDefault("adaptive-concurrency-limiter-unlimited", false);
+
+  /** The factor by which the limit is multiplied when the service is overloaded. */
+  private static final double BACKOFF_RATIO = 0.9;
+
+  /**
+   * How many times the latency without load a unary call may take before the service is considered
+   * overloaded.
+   */
+  private static final double LATENCY_TOLERANCE = 2.0;
+
+  /**
+   * The fraction of the difference by which the latency without load moves towards the latency of
+   * each unary call that took longer, so that it recovers from outliers and follows slow changes
+   * of the service.
+   */
+  private static final double MIN_LATENCY_DECAY = 0.01;
+
+  private final Clock clock;
+  private final int minLimit;
+  private final int maxLimit;
+
+  @GuardedBy("this")
+  private double limit;
+
+  @GuardedBy("this")
+  private int inFlight;
+
+  @GuardedBy("this")
+  private final ArrayDeque<LimitedCall<?, ?>> queue = new ArrayDeque<>();
+
+  @GuardedBy("this")
+  private long lastDecreaseNanos;
+
+  /** The latency without load of each unary method by its full name, in nanoseconds. */
+  @GuardedBy("this")
+  private final Map<String, Double> minLatencyNanos = new HashMap<>();
+
+  private final AtomicLong totalQueueTimeNanos = new AtomicLong();
+
+  public AdaptiveConcurrencyLimiter(int initialLimit, int maxLimit) {
+    this(BlazeClock.instance(), initialLimit, /* minLimit= */ 1, maxLimit);
+  }
+
+  @VisibleForTesting
+  public AdaptiveConcurrencyLimiter(Clock clock, int initialLimit, int minLimit, int maxLimit) {
+    checkArgument(0 < minLimit && minLimit <= initialLimit && initialLimit <= maxLimit);
+    this.clock = clock;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.limit = initialLimit;
+    this.lastDecreaseNanos = clock.nanoTime();
+  }
+
+  /** Returns the current maximum number of concurrent calls. */
+  public synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  /** Returns the number of calls that are started and not yet closed. */
+  public synchronized int getInFlight() {
+    return inFlight;
+  }
+
+  /** Returns the number of calls that are waiting for others to complete. */
+  public synchronized int getQueued() {
+    return queue.size();
+  }
+
+  /** Returns the total time in nanoseconds that calls spent waiting for others to complete. */
+  public long getTotalQueueTimeNanos() {
+    return totalQueueTimeNanos.get();
+  }
+
+  @Override
+  public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+      MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+    ClientCall<ReqT, RespT> call = next.newCall(method, callOptions);
+    if (method == ExecutionGrpc.getExecuteMethod()
+        || method == ExecutionGrpc.getWaitExecutionMethod()
+        || callOptions.getOption(UNLIMITED)) {
+      return call;
+    }
+    return new LimitedCall<>(
+        call,
+        method.getFullMethodName(),
+        method.getType() == MethodType.UNARY,
+        callOptions.getDeadline());
+  }
+
+  /** Starts {@code call} if there's a permit left and queues it otherwise. */
+  private void startOrQueue(LimitedCall<?, ?> call) {
+    synchronized (this) {
+      if (!queue.isEmpty() || inFlight >= (int) limit) {
+        call.queuedAtNanos = clock.nanoTime();
+        queue.add(call);
+        return;
+      }
+      inFlight++;
+      call.startedAtNanos = clock.nanoTime();
+      call.inFlightAtStart = inFlight;
+    }
+    call.startDelegate(/* holdsPermit= */ true);
+  }
+
+  /** Removes {@code call} from the queue, returning false if it wasn't queued. */
+  private synchronized boolean dequeue(LimitedCall<?, ?> call) {
+    return queue.remove(call);
+  }
+
+  /**
+   * Adapts the limit to the outcome of {@code call}, releases its permit and starts queued calls.
+   */
+  private void onClose(LimitedCall<?, ?> call, Status status) {
+    long now = clock.nanoTime();
+    List<LimitedCall<?, ?>> toStart = new ArrayList<>();
+    List<LimitedCall<?, ?>> expired = new ArrayList<>();
+    int oldLimit;
+    int newLimit;
+    synchronized (this) {
+      oldLimit = (int) limit;
+      inFlight--;
+      long latencyNanos = now - call.startedAtNanos;
+      boolean overloaded = isOverload(status);
+      if (call.isUnary && status.isOk()) {
+        Double minLatency = minLatencyNanos.get(call.methodName);
+        if (minLatency == null || latencyNanos < minLatency) {
+          minLatencyNanos.put(call.methodName, (double) latencyNanos);
+        } else {
+          minLatency += (latencyNanos - minLatency) * MIN_LATENCY_DECAY;
+          minLatencyNanos.put(call.methodName, minLatency);
+          overloaded = latencyNanos > minLatency * LATENCY_TOLERANCE;
+        }
+      }
+      if (overloaded) {
+        if (call.startedAtNanos >= lastDecreaseNanos) {
+          limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+          lastDecreaseNanos = now;
+        }
+      } else if (status.isOk() && call.inFlightAtStart * 2 >= (int) limit) {
+        limit = Math.min(maxLimit, limit + 1 / limit);
+      }
+      newLimit = (int) limit;
+      while (!queue.isEmpty() && inFlight < newLimit) {
+        LimitedCall<?, ?> next = queue.poll();
+        if (next.deadline != null && next.deadline.isExpired()) {
+          // The call fails right away, which must not be mistaken for an overload.
+          expired.add(next);
+          continue;
+        }
+        inFlight++;
+        next.startedAtNanos = now;
+        next.inFlightAtStart = inFlight;
+        toStart.add(next);
+      }
+    }
+    if (newLimit != oldLimit) {
+      Profiler.instance()
+          .logEventAtTime(now, ProfilerTask.REMOTE_CONCURRENCY_LIMIT, String.valueOf(newLimit));
+    }
+    for (LimitedCall<?, ?> next : expired) {
+      next.startDelegate(/* holdsPermit= */ false);
+    }
+    for (LimitedCall<?, ?> next : toStart) {
+      totalQueueTimeNanos.addAndGet(now - next.queuedAtNanos);
+      Profiler.instance()
+          .logSimpleTask(next.queuedAtNanos, now, ProfilerTask.REMOTE_CALL_QUEUE, "queued call");
+      next.startDelegate(/* holdsPermit= */ true);
+    }
+  }
+
+  private static boolean isOverload(Status status) {
+    switch (status.getCode()) {
+      case UNAVAILABLE:
+      case RESOURCE_EXHAUSTED:
+      case DEADLINE_EXCEEDED:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * A call that is started once a permit is available. Until then, the caller's operations are
+   * buffered and replayed in order when the call starts.
+   */
+  private final class LimitedCall<ReqT, RespT> extends ClientCall<ReqT, RespT> {
+    private final ClientCall<ReqT, RespT> delegate;
+    private final String methodName;
+    private final boolean isUnary;
+    @Nullable private final Deadline deadline;
+
+    private Listener<RespT> listener;
+    private Metadata headers;
+
+    // Set under the limiter's lock when the call is queued or started, respectively.
+    private long queuedAtNanos;
+    private long startedAtNanos;
+    private int inFlightAtStart;
+
+    @GuardedBy("this")
+    private boolean started;
+
+    @GuardedBy("this")
+    private List<Runnable> pending = new ArrayList<>();
+
+    LimitedCall(
+        ClientCall<ReqT, RespT> delegate,
+        String methodName,
+        boolean isUnary,
+        @Nullable Deadline deadline) {
+      this.delegate = delegate;
+      this.methodName = methodName;
+      this.isUnary = isUnary;
+      this.deadline = deadline;
+    }
+
+    @Override
+    public void start(Listener<RespT> listener, Metadata headers) {
+      this.listener = listener;
+      this.headers = headers;
+      startOrQueue(this);
+    }
+
+    private void startDelegate(boolean holdsPermit) {
+      Listener<RespT> delegateListener = listener;
+      if (holdsPermit) {
+        delegateListener =
+            new ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT>(listener) {
+              @Override
+              public void onClose(Status status, Metadata trailers) {
+                AdaptiveConcurrencyLimiter.this.onClose(LimitedCall.this, status);
+                super.onClose(status, trailers);
+              }
+            };
+      }
+      delegate.start(delegateListener, headers);
+      while (true) {
+        List<Runnable> toRun;
+        synchronized (this) {
+          if (pending.isEmpty()) {
+            started = true;
+            pending = null;
+            return;
+          }
+          toRun = pending;
+          pending = new ArrayList<>();
+        }
+        for (Runnable r : toRun) {
+          r.run();
+        }
+      }
+    }
+
+    private void runOrBuffer(Runnable r) {
+      synchronized (this) {
+        if (!started) {
+          pending.add(r);
+          return;
+        }
+      }
+      r.run();
+    }
+
+    @Override
+    public void request(int numMessages) {
+      runOrBuffer(() -> delegate.request(numMessages));
+    }
+
+    @Override
+    public void cancel(@Nullable String message, @Nullable Throwable cause) {
+      if (listener == null) {
+        // Not started by the caller.
+        delegate.cancel(message, cause);
+        return;
+      }
+      if (dequeue(this)) {
+        // Let the underlying call report the cancellation to the listener.
+        startDelegate(/* holdsPermit= */ false);
+      }
+      runOrBuffer(() -> delegate.cancel(message, cause));
+    }
+
+    @Override
+    public void halfClose() {
+      runOrBuffer(delegate::halfClose);
+    }
+
+    @Override
+    public void sendMessage(ReqT message) {
+      runOrBuffer(() -> delegate.sendMessage(message));
+    }
+
+    @Override
+    public void setMessageCompression(boolean enabled) {
+      runOrBuffer(() -> delegate.setMessageCompression(enabled));
+    }
+
+    @Override
+    public synchronized boolean isReady() {
+      return started && delegate.isReady();
+    }
+
+    @Override
+    public Attributes getAttributes() {
+      return delegate.getAttributes();
+    }
+  }
+}
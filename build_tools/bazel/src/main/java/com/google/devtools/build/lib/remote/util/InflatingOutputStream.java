@@ -0,0 +1,105 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.lib.remote.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * An {@link OutputStream} that decompresses raw DEFLATE (RFC 1951) data and writes the result to
+ * another stream.
+ *
+ * <p>Unlike {@link java.util.zip.InflaterOutputStream}, {@link #finish()} fails if the compressed
+ * data ended prematurely, and neither it nor {@link #close()} close the underlying stream, which
+ * remains owned by the caller.
+ */
+public final class InflatingOutputStream extends OutputStream {
+
+  private final OutputStream out;
+  private final Inflater inflater = new Inflater(/* nowrap= */ true);
+  private final byte[] buffer = new byte[16 * 1024];
+  private long compressedBytes;
+  private long uncompressedBytes;
+  private boolean closed;
+
+  public InflatingOutputStream(OutputStream out) {
+    this.out = out;
+  }
+
+  /** Returns the number of decompressed bytes written to the underlying stream so far. */
+  public long getUncompressedBytes() {
+    return uncompressedBytes;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[] {(byte) b}, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+    if (len == 0) {
+      return;
+    }
+    if (inflater.finished()) {
+      throw new IOException("Unexpected data after the end of the compressed stream");
+    }
+    inflater.setInput(b, off, len);
+    compressedBytes += len;
+    try {
+      while (!inflater.needsInput() && !inflater.finished()) {
+        int n = inflater.inflate(buffer);
+        if (n == 0 && inflater.needsDictionary()) {
+          throw new IOException("Compressed stream requires a preset dictionary");
+        }
+        out.write(buffer, 0, n);
+        uncompressedBytes += n;
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Invalid compressed data: " + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  /**
+   * Checks that the complete compressed stream has been written and flushes the underlying stream.
+   *
+   * @throws IOException if the compressed stream is incomplete
+   */
+  public void finish() throws IOException {
+    if (!inflater.finished()) {
+      throw new IOException(
+          "Compressed stream ended prematurely after " + compressedBytes + " bytes");
+    }
+    out.flush();
+  }
+
+  /** Releases the native resources of the decompressor. Doesn't close the underlying stream. */
+  @Override
+  public void close() {
+    if (!closed) {
+      closed = true;
+      inflater.end();
+    }
+  }
+}
@@ -21,10 +21,12 @@ import com.google.common.flogger.GoogleLogger;
 import com.google.devtools.build.lib.actions.ActionKeyContext;
 import com.google.devtools.build.lib.actions.ActionResultReceivedEvent;
 import com.google.devtools.build.lib.buildtool.BuildRequest;
+import com.google.devtools.build.lib.buildtool.BuildRequestOptions;
 import com.google.devtools.build.lib.buildtool.buildevent.BuildCompleteEvent;
 import com.google.devtools.build.lib.buildtool.buildevent.ExecutionStartingEvent;
 import com.google.devtools.build.lib.buildtool.buildevent.ProfilerStartedEvent;
 import com.google.devtools.build.lib.clock.BlazeClock;
+import com.google.devtools.build.lib.cmdline.Label;
 import com.google.devtools.build.lib.events.Event;
 import com.google.devtools.build.lib.events.Reporter;
 import com.google.devtools.build.lib.exec.ExecutionOptions;
@@ -32,10 +34,13 @@ import com.google.devtools.build.lib.exec.ExecutorBuilder;
 import com.google.devtools.build.lib.profiler.Profiler;
 import com.google.devtools.build.lib.profiler.ProfilerTask;
 import com.google.devtools.build.lib.profiler.SilentCloseable;
+import com.google.devtools.build.lib.skyframe.CriticalPathHistory;
 import com.google.devtools.build.lib.skyframe.ExecutionFinishedEvent;
+import com.google.devtools.build.lib.util.Pair;
 import com.google.devtools.build.lib.vfs.Path;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -51,6 +56,8 @@ public class BuildSummaryStatsModule extends BlazeModule {
   private EventBus eventBus;
   private Reporter reporter;
   private boolean enabled;
+  private boolean criticalPathScheduling;
+  private Path outputBase;
 
   private boolean statsSummary;
   private long commandStartMillis;
@@ -80,6 +87,9 @@ public class BuildSummaryStatsModule extends BlazeModule {
   @Override
   public void executorInit(CommandEnvironment env, BuildRequest request, ExecutorBuilder builder) {
     enabled = env.getOptions().getOptions(ExecutionOptions.class).enableCriticalPathProfiling;
+    criticalPathScheduling =
+        env.getOptions().getOptions(BuildRequestOptions.class).criticalPathScheduling;
+    outputBase = env.getOutputBase();
   }
 
   @Subscribe
@@ -144,6 +154,9 @@ public class BuildSummaryStatsModule extends BlazeModule {
                     ProfilerTask.CRITICAL_PATH_COMPONENT,
                     stat.prettyPrintAction());
           }
+          if (criticalPathScheduling) {
+            saveCriticalPath(criticalPath);
+          }
         }
       }
       if (profilePath != null) {
@@ -196,4 +209,12 @@ public class BuildSummaryStatsModule extends BlazeModule {
       profilePath = null;
     }
   }
+
+  private void saveCriticalPath(AggregatedCriticalPath criticalPath) {
+    List<Pair<Label, Duration>> actions = new ArrayList<>();
+    for (CriticalPathComponent stat : criticalPath.components().reverse()) {
+      actions.add(Pair.of(stat.getOwner(), stat.getElapsedTime()));
+    }
+    CriticalPathHistory.write(outputBase, actions);
+  }
 }
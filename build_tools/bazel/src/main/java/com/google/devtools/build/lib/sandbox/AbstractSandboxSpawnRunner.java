@@ -77,6 +77,8 @@ abstract class AbstractSandboxSpawnRunner implements SpawnRunner {
       throws ExecException, IOException, InterruptedException {
     ActionExecutionMetadata owner = spawn.getResourceOwner();
     context.report(ProgressStatus.SCHEDULING, getName());
+    context.startPrefetchingInputs(
+        sandboxOptions.symlinkedSandboxExpandsTreeArtifactsInRunfilesTree);
     try (ResourceHandle ignored =
         resourceManager.acquireResources(owner, spawn.getLocalResources())) {
       context.report(ProgressStatus.EXECUTING, getName());
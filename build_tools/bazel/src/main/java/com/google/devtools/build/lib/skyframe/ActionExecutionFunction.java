@@ -166,14 +166,19 @@ public class ActionExecutionFunction implements SkyFunction {
 
     ActionSketch sketch = null;
     TopDownActionCache topDownActionCache = skyframeActionExecutor.getTopDownActionCache();
-    if (topDownActionCache != null) {
-      sketch = (ActionSketch) env.getValue(ActionSketchFunction.key(actionLookupData));
-      if (sketch == null) {
+    // Actions that must run every time, e.g. tests and workspace status actions, are never cached.
+    if (topDownActionCache != null && !action.isVolatile() && !action.executeUnconditionally()) {
+      ActionSketch actionSketch =
+          (ActionSketch) env.getValue(ActionSketchFunction.key(actionLookupData));
+      if (actionSketch == null) {
         return null;
       }
-      ActionExecutionValue actionExecutionValue = topDownActionCache.get(sketch);
-      if (actionExecutionValue != null) {
-        return actionExecutionValue.transformForSharedAction(action.getOutputs());
+      if (actionSketch.coversAllSources()) {
+        sketch = actionSketch;
+        ActionExecutionValue actionExecutionValue = topDownActionCache.get(sketch, action);
+        if (actionExecutionValue != null) {
+          return actionExecutionValue.transformForSharedAction(action.getOutputs());
+        }
       }
     }
 
@@ -326,7 +331,7 @@ public class ActionExecutionFunction implements SkyFunction {
     // Remove action from state map in case it's there (won't be unless it discovers inputs).
     stateMap.remove(action);
     if (sketch != null && result.dataIsShareable()) {
-      topDownActionCache.put(sketch, result);
+      topDownActionCache.put(sketch, action, result);
     }
     return result;
   }
@@ -16,6 +16,7 @@ package com.google.devtools.build.lib.skyframe;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Iterables;
 import com.google.devtools.build.lib.actions.Action;
 import com.google.devtools.build.lib.actions.ActionKeyContext;
 import com.google.devtools.build.lib.actions.ActionLookupData;
@@ -37,11 +38,14 @@ import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import javax.annotation.Nullable;
 
 /**
  * {@link ActionSketchFunction} computes an {@link ActionSketch} for the given Action. This is a
- * transitive hash of the dependent action keys and source file content hashes.
+ * transitive hash of the dependent action keys, including their inherited client environment, and
+ * of the exec paths and content digests of the source files.
  */
 public final class ActionSketchFunction implements SkyFunction {
   private final ActionKeyContext actionKeyContext;
@@ -108,19 +112,36 @@ public final class ActionSketchFunction implements SkyFunction {
 
     Map<SkyKey, SkyValue> srcArtifactValues = env.getValues(srcArtifacts);
     Map<SkyKey, SkyValue> depSketchValues = env.getValues(depActions);
+    Map<SkyKey, SkyValue> clientEnvValues =
+        env.getValues(
+            Iterables.transform(
+                action.getClientEnvironmentVariables(), ClientEnvironmentFunction::key));
     if (env.valuesMissing()) {
       return null;
     }
 
-    BigInteger transitiveActionKeyHash = Sketches.computeActionKey(action, actionKeyContext);
+    // The inherited environment isn't part of the action key, but changes the result.
+    SortedMap<String, String> clientEnv = new TreeMap<>();
+    for (Map.Entry<SkyKey, SkyValue> entry : clientEnvValues.entrySet()) {
+      String value = ((ClientEnvironmentValue) entry.getValue()).getValue();
+      if (value != null) {
+        clientEnv.put((String) entry.getKey().argument(), value);
+      }
+    }
+    BigInteger transitiveActionKeyHash =
+        Sketches.computeActionKey(action, actionKeyContext, clientEnv);
     BigInteger transitiveSourceHash = BigInteger.ZERO;
 
-    // Incorporate the direct source values.
-    for (SkyValue val : srcArtifactValues.values()) {
-      FileArtifactValue fileArtifactValue = (FileArtifactValue) val;
+    // Incorporate the direct source values. Sources whose contents aren't known by digest can't be
+    // covered by the sketch, which null conveys.
+    for (Map.Entry<SkyKey, SkyValue> entry : srcArtifactValues.entrySet()) {
+      byte[] digest = ((FileArtifactValue) entry.getValue()).getDigest();
       transitiveSourceHash =
-          BigIntegerFingerprintUtils.compose(
-              transitiveSourceHash, fileArtifactValue.getValueFingerprint());
+          BigIntegerFingerprintUtils.composeNullable(
+              transitiveSourceHash,
+              digest != null
+                  ? Sketches.computeSourceHash(((Artifact) entry.getKey()).getExecPath(), digest)
+                  : null);
     }
 
     // Incorporate the transitive action key and source values.
@@ -130,7 +151,7 @@ public final class ActionSketchFunction implements SkyFunction {
           BigIntegerFingerprintUtils.compose(
               transitiveActionKeyHash, depSketch.transitiveActionLookupHash());
       transitiveSourceHash =
-          BigIntegerFingerprintUtils.compose(
+          BigIntegerFingerprintUtils.composeNullable(
               transitiveSourceHash, depSketch.transitiveSourceHash());
     }
 
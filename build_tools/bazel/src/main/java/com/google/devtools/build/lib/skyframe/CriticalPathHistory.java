@@ -0,0 +1,128 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.lib.skyframe;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.flogger.GoogleLogger;
+import com.google.devtools.build.lib.actions.ActionLookupData;
+import com.google.devtools.build.lib.actions.Artifact;
+import com.google.devtools.build.lib.cmdline.Label;
+import com.google.devtools.build.lib.cmdline.LabelSyntaxException;
+import com.google.devtools.build.lib.util.Pair;
+import com.google.devtools.build.lib.vfs.FileSystemUtils;
+import com.google.devtools.build.lib.vfs.Path;
+import com.google.devtools.build.skyframe.EvaluationPrioritizer;
+import com.google.devtools.build.skyframe.SkyKey;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The critical path of the last build, kept in the output base to schedule the next one. See
+ * {@code --experimental_critical_path_scheduling}.
+ *
+ * <p>Each owner of an action on the critical path gets the time from the start of that action to
+ * the end of the critical path as its priority, so that the earliest actions of the path, and all
+ * the actions they wait for, are executed first. Actions are identified by the label of their
+ * owner, since action keys aren't stable across servers. Other actions of the same owner get the
+ * same priority, which is mostly harmless since they tend to be on the critical path as well.
+ */
+public final class CriticalPathHistory implements EvaluationPrioritizer {
+  private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
+
+  private static final String FILE_NAME = "critical_path_history";
+
+  static final CriticalPathHistory EMPTY = new CriticalPathHistory(ImmutableMap.of());
+
+  private final ImmutableMap<Label, Long> remainingMillis;
+
+  private CriticalPathHistory(ImmutableMap<Label, Long> remainingMillis) {
+    this.remainingMillis = remainingMillis;
+  }
+
+  @Override
+  public long getPriority(SkyKey key) {
+    if (key instanceof Artifact.DerivedArtifact) {
+      // Tree artifacts are requested by their artifact instead of their generating action.
+      key = ((Artifact.DerivedArtifact) key).getGeneratingActionKey();
+    }
+    if (!(key instanceof ActionLookupData)) {
+      return 0;
+    }
+    Label owner = ((ActionLookupData) key).getLabel();
+    Long priority = owner != null ? remainingMillis.get(owner) : null;
+    return priority != null ? priority : 0;
+  }
+
+  /** Returns the critical path saved in {@code outputBase}, or an empty one if there is none. */
+  static CriticalPathHistory read(Path outputBase) {
+    Path path = outputBase.getChild(FILE_NAME);
+    if (!path.exists()) {
+      return EMPTY;
+    }
+    try {
+      ImmutableMap.Builder<Label, Long> remainingMillis = ImmutableMap.builder();
+      for (String line : FileSystemUtils.readLines(path, UTF_8)) {
+        int space = line.indexOf(' ');
+        remainingMillis.put(
+            Label.parseAbsolute(line.substring(space + 1), ImmutableMap.of()),
+            Long.parseLong(line.substring(0, space)));
+      }
+      return new CriticalPathHistory(remainingMillis.build());
+    } catch (IOException | LabelSyntaxException | RuntimeException e) {
+      logger.atWarning().withCause(e).log("Failed to read critical path from %s", path);
+      return EMPTY;
+    }
+  }
+
+  /**
+   * Saves the critical path of a build in {@code outputBase}, replacing the previous one.
+   *
+   * @param criticalPath the owners of the actions on the critical path and the time each action
+   *     took, in the order in which they were executed. Actions without an owner are left out, but
+   *     their time still counts.
+   */
+  public static void write(Path outputBase, List<Pair<Label, Duration>> criticalPath) {
+    Map<Label, Long> remainingMillis = computeRemainingMillis(criticalPath);
+    List<String> lines = new ArrayList<>(remainingMillis.size());
+    for (Map.Entry<Label, Long> entry : remainingMillis.entrySet()) {
+      lines.add(entry.getValue() + " " + entry.getKey());
+    }
+    Path path = outputBase.getChild(FILE_NAME);
+    try {
+      FileSystemUtils.writeLinesAs(path, UTF_8, lines);
+    } catch (IOException e) {
+      logger.atWarning().withCause(e).log("Failed to save critical path to %s", path);
+    }
+  }
+
+  private static Map<Label, Long> computeRemainingMillis(
+      List<Pair<Label, Duration>> criticalPath) {
+    Map<Label, Long> remainingMillis = new HashMap<>();
+    long millis = 0;
+    for (int i = criticalPath.size() - 1; i >= 0; i--) {
+      Pair<Label, Duration> action = criticalPath.get(i);
+      millis += action.getSecond().toMillis();
+      if (action.getFirst() != null) {
+        remainingMillis.merge(action.getFirst(), millis, Math::max);
+      }
+    }
+    return remainingMillis;
+  }
+}
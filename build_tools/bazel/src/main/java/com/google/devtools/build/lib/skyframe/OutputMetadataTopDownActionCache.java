@@ -0,0 +1,111 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.lib.skyframe;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.devtools.build.lib.actions.Action;
+import com.google.devtools.build.lib.actions.Artifact;
+import com.google.devtools.build.lib.actions.FileArtifactValue;
+import com.google.devtools.build.lib.actions.FileStateType;
+import com.google.devtools.build.lib.actionsketch.ActionSketch;
+import com.google.devtools.build.lib.vfs.PathFragment;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link TopDownActionCache} that stores the metadata of the outputs of an action by their exec
+ * path instead of the {@link ActionExecutionValue} itself, so that it can be kept outside of the
+ * server, e.g. in a remote cache.
+ *
+ * <p>Only actions whose outputs are all regular files are cached, i.e. not actions that output tree
+ * artifacts, filesets or discover modules.
+ */
+public abstract class OutputMetadataTopDownActionCache implements TopDownActionCache {
+
+  /**
+   * Returns the metadata of the outputs of the action with the given sketch, keyed by their exec
+   * path, or null if it isn't cached.
+   */
+  @Nullable
+  protected abstract Map<PathFragment, FileArtifactValue> getOutputMetadata(ActionSketch sketch);
+
+  /**
+   * Stores the metadata of the outputs of the action with the given sketch. May complete
+   * asynchronously.
+   */
+  protected abstract void putOutputMetadata(
+      ActionSketch sketch, ImmutableMap<PathFragment, FileArtifactValue> metadata);
+
+  /**
+   * Returns whether the result of {@code action} may be stored in this cache, e.g. based on its
+   * execution requirements.
+   */
+  protected boolean mayBeCached(Action action) {
+    return true;
+  }
+
+  @Nullable
+  @Override
+  public final ActionExecutionValue get(ActionSketch sketch, Action action) {
+    if (!mayBeCached(action)) {
+      return null;
+    }
+    ImmutableSet<Artifact> outputs = action.getOutputs();
+    for (Artifact output : outputs) {
+      if (output.isTreeArtifact() || output.isFileset()) {
+        return null;
+      }
+    }
+    Map<PathFragment, FileArtifactValue> metadata = getOutputMetadata(sketch);
+    if (metadata == null) {
+      return null;
+    }
+    ImmutableMap.Builder<Artifact, FileArtifactValue> artifactData =
+        ImmutableMap.builderWithExpectedSize(outputs.size());
+    for (Artifact output : outputs) {
+      FileArtifactValue value = metadata.get(output.getExecPath());
+      if (value == null) {
+        // The outputs of the action changed without changing its sketch, e.g. in a new version.
+        return null;
+      }
+      artifactData.put(output, value);
+    }
+    return ActionExecutionValue.create(
+        artifactData.build(),
+        /*treeArtifactData=*/ ImmutableMap.of(),
+        /*outputSymlinks=*/ null,
+        /*discoveredModules=*/ null,
+        /*actionDependsOnBuildId=*/ false);
+  }
+
+  @Override
+  public final void put(ActionSketch sketch, Action action, ActionExecutionValue value) {
+    if (!mayBeCached(action)
+        || !value.getAllTreeArtifactValues().isEmpty()
+        || value.getOutputSymlinks() != null
+        || (value.getDiscoveredModules() != null && !value.getDiscoveredModules().isEmpty())) {
+      return;
+    }
+    ImmutableMap.Builder<PathFragment, FileArtifactValue> metadata =
+        ImmutableMap.builderWithExpectedSize(value.getAllFileValues().size());
+    for (Map.Entry<Artifact, FileArtifactValue> entry : value.getAllFileValues().entrySet()) {
+      if (entry.getValue().getType() != FileStateType.REGULAR_FILE) {
+        return;
+      }
+      metadata.put(entry.getKey().getExecPath(), entry.getValue());
+    }
+    putOutputMetadata(sketch, metadata.build());
+  }
+}
@@ -178,6 +178,7 @@ import com.google.devtools.build.skyframe.Differencer;
 import com.google.devtools.build.skyframe.Differencer.DiffWithDelta.Delta;
 import com.google.devtools.build.skyframe.ErrorInfo;
 import com.google.devtools.build.skyframe.EvaluationContext;
+import com.google.devtools.build.skyframe.EvaluationPrioritizer;
 import com.google.devtools.build.skyframe.EvaluationProgressReceiver;
 import com.google.devtools.build.skyframe.EvaluationResult;
 import com.google.devtools.build.skyframe.EventFilter;
@@ -1601,6 +1602,10 @@ public abstract class SkyframeExecutor implements WalkableGraphFactory, Configur
               .setUseForkJoinPool(options.getOptions(BuildRequestOptions.class).useForkJoinPool)
               .setEventHander(reporter)
               .setExecutionPhase()
+              .setPrioritizer(
+                  options.getOptions(BuildRequestOptions.class).criticalPathScheduling
+                      ? CriticalPathHistory.read(directories.getOutputBase())
+                      : EvaluationPrioritizer.NONE)
               .build();
       return buildDriver.evaluate(
           Iterables.concat(Artifact.keys(artifactsToBuild), targetKeys, aspectKeys, testKeys),
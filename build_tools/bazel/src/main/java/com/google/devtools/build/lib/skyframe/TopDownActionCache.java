@@ -13,6 +13,7 @@
 // limitations under the License.
 package com.google.devtools.build.lib.skyframe;
 
+import com.google.devtools.build.lib.actions.Action;
 import com.google.devtools.build.lib.actionsketch.ActionSketch;
 import javax.annotation.Nullable;
 
@@ -24,10 +25,16 @@ import javax.annotation.Nullable;
  */
 public interface TopDownActionCache {
 
-  /** Retrieves the cached value for the given action sketch, or null. */
+  /**
+   * Retrieves the cached value for the given action sketch, or null. {@code action} is the action
+   * that the sketch was computed for.
+   */
   @Nullable
-  ActionExecutionValue get(ActionSketch sketch);
+  ActionExecutionValue get(ActionSketch sketch, Action action);
 
-  /** Puts the sketch into the top-down cache. May complete asynchronously. */
-  void put(ActionSketch sketch, ActionExecutionValue value);
+  /**
+   * Puts the value of {@code action} into the top-down cache under its sketch. May complete
+   * asynchronously.
+   */
+  void put(ActionSketch sketch, Action action, ActionExecutionValue value);
 }
@@ -51,6 +51,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -72,6 +73,12 @@ abstract class AbstractParallelEvaluator {
   final ParallelEvaluatorContext evaluatorContext;
   protected final CycleDetector cycleDetector;
   private final AtomicInteger globalEnqueuedIndex;
+  private final EvaluationPrioritizer prioritizer;
+  /**
+   * Priorities that nodes inherited from the parents that scheduled them, if larger than their own.
+   * Null if there is no {@link EvaluationPrioritizer}, so that the default order costs nothing.
+   */
+  @Nullable private final ConcurrentHashMap<SkyKey, Long> inheritedPriorities;
 
   AbstractParallelEvaluator(
       ProcessableGraph graph,
@@ -86,7 +93,8 @@ abstract class AbstractParallelEvaluator {
       GraphInconsistencyReceiver graphInconsistencyReceiver,
       Supplier<ExecutorService> executorService,
       CycleDetector cycleDetector,
-      EvaluationVersionBehavior evaluationVersionBehavior) {
+      EvaluationVersionBehavior evaluationVersionBehavior,
+      EvaluationPrioritizer prioritizer) {
     this.graph = graph;
     this.cycleDetector = cycleDetector;
     evaluatorContext =
@@ -111,6 +119,9 @@ abstract class AbstractParallelEvaluator {
                     (skyKey, evaluationPriority) -> new Evaluate(evaluationPriority, skyKey)),
             evaluationVersionBehavior);
     this.globalEnqueuedIndex = new AtomicInteger();
+    this.prioritizer = prioritizer;
+    this.inheritedPriorities =
+        prioritizer == EvaluationPrioritizer.NONE ? null : new ConcurrentHashMap<>();
   }
 
   /**
@@ -124,6 +135,12 @@ abstract class AbstractParallelEvaluator {
     }
   }
 
+  private long computePathPriority(SkyKey key) {
+    long priority = prioritizer.getPriority(key);
+    Long inherited = inheritedPriorities.get(key);
+    return inherited != null ? Math.max(priority, inherited) : priority;
+  }
+
   enum DirtyOutcome {
     ALREADY_PROCESSED,
     NEEDS_EVALUATION
@@ -138,23 +155,40 @@ abstract class AbstractParallelEvaluator {
    * it for comparisons: later enqueuings should be evaluated earlier, to do a depth-first search,
    * except for re-enqueued nodes, which always get top priority.
    *
+   * <p>If there is an {@link EvaluationPrioritizer}, its {@link #pathPriority} comes before the
+   * enqueuing order, but still after re-enqueuing. A node has the larger of its own priority and
+   * the priority of the parent that first scheduled it, so that the whole subgraph below a
+   * prioritized node is prioritized.
+   *
    * <p>This is not applicable when using a {@link ForkJoinPool}, since it does not allow for easy
    * work prioritization.
    */
   private class Evaluate implements ParallelEvaluatorContext.ComparableRunnable {
     private final int evaluationPriority;
+    private final long pathPriority;
     /** The name of the value to be evaluated. */
     private final SkyKey skyKey;
 
     private Evaluate(int evaluationPriority, SkyKey skyKey) {
       this.evaluationPriority = evaluationPriority;
       this.skyKey = skyKey;
+      this.pathPriority = inheritedPriorities == null ? 0 : computePathPriority(skyKey);
     }
 
     @Override
     public int compareTo(ParallelEvaluatorContext.ComparableRunnable other) {
+      Evaluate that = (Evaluate) other;
       // Put other one first, so larger values come first in priority queue.
-      return Integer.compare(((Evaluate) other).evaluationPriority, this.evaluationPriority);
+      int result =
+          Boolean.compare(
+              that.evaluationPriority == Integer.MAX_VALUE,
+              this.evaluationPriority == Integer.MAX_VALUE);
+      if (result == 0) {
+        result = Long.compare(that.pathPriority, this.pathPriority);
+      }
+      return result != 0
+          ? result
+          : Integer.compare(that.evaluationPriority, this.evaluationPriority);
     }
 
     private void enqueueChild(
@@ -188,6 +222,10 @@ abstract class AbstractParallelEvaluator {
         case ALREADY_EVALUATING:
           break;
         case NEEDS_SCHEDULING:
+          if (pathPriority > 0) {
+            // Only this thread schedules the child, so its evaluation can't have been created yet.
+            inheritedPriorities.put(child, pathPriority);
+          }
           evaluatorContext.getVisitor().enqueueEvaluation(child, childEvaluationPriority);
           break;
       }
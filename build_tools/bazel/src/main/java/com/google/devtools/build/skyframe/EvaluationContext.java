@@ -33,6 +33,7 @@ public class EvaluationContext {
   private final ExtendedEventHandler eventHandler;
   private final boolean useForkJoinPool;
   private final boolean isExecutionPhase;
+  private final EvaluationPrioritizer prioritizer;
 
   protected EvaluationContext(
       int numThreads,
@@ -40,7 +41,8 @@ public class EvaluationContext {
       boolean keepGoing,
       ExtendedEventHandler eventHandler,
       boolean useForkJoinPool,
-      boolean isExecutionPhase) {
+      boolean isExecutionPhase,
+      EvaluationPrioritizer prioritizer) {
     Preconditions.checkArgument(0 < numThreads, "numThreads must be positive");
     this.numThreads = numThreads;
     this.executorServiceSupplier = executorServiceSupplier;
@@ -48,6 +50,7 @@ public class EvaluationContext {
     this.eventHandler = Preconditions.checkNotNull(eventHandler);
     this.useForkJoinPool = useForkJoinPool;
     this.isExecutionPhase = isExecutionPhase;
+    this.prioritizer = Preconditions.checkNotNull(prioritizer);
   }
 
   public int getParallelism() {
@@ -76,7 +79,8 @@ public class EvaluationContext {
           keepGoing,
           this.eventHandler,
           this.useForkJoinPool,
-          this.isExecutionPhase);
+          this.isExecutionPhase,
+          this.prioritizer);
     }
   }
 
@@ -88,6 +92,10 @@ public class EvaluationContext {
     return isExecutionPhase;
   }
 
+  public EvaluationPrioritizer getPrioritizer() {
+    return prioritizer;
+  }
+
   public static Builder newBuilder() {
     return new Builder();
   }
@@ -100,6 +108,7 @@ public class EvaluationContext {
     private ExtendedEventHandler eventHandler;
     private boolean useForkJoinPool;
     private boolean isExecutionPhase = false;
+    private EvaluationPrioritizer prioritizer = EvaluationPrioritizer.NONE;
 
     private Builder() {}
 
@@ -108,6 +117,7 @@ public class EvaluationContext {
       this.executorServiceSupplier = evaluationContext.executorServiceSupplier;
       this.keepGoing = evaluationContext.keepGoing;
       this.eventHandler = evaluationContext.eventHandler;
+      this.prioritizer = evaluationContext.prioritizer;
       return this;
     }
 
@@ -141,6 +151,11 @@ public class EvaluationContext {
       return this;
     }
 
+    public Builder setPrioritizer(EvaluationPrioritizer prioritizer) {
+      this.prioritizer = prioritizer;
+      return this;
+    }
+
     public EvaluationContext build() {
       return new EvaluationContext(
           numThreads,
@@ -148,7 +163,8 @@ public class EvaluationContext {
           keepGoing,
           eventHandler,
           useForkJoinPool,
-          isExecutionPhase);
+          isExecutionPhase,
+          prioritizer);
     }
   }
 }
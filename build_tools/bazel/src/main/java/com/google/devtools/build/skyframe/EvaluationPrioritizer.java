@@ -0,0 +1,39 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.skyframe;
+
+import com.google.devtools.build.lib.concurrent.ThreadSafety.ThreadSafe;
+
+/**
+ * Hints which nodes the parallel evaluator should evaluate first when more nodes are ready than
+ * there are threads to evaluate them.
+ *
+ * <p>A node is evaluated with the larger of its own priority and the priority of the parent that
+ * scheduled it, so a priority applies to the subgraph that a node is waiting on. Nodes with a
+ * larger priority are taken from the queue first. Nodes with the same priority keep the default
+ * order of the evaluator. Does not apply when the evaluator uses a {@link
+ * java.util.concurrent.ForkJoinPool}.
+ *
+ * <p>A typical priority is the predicted time from the start of a node until the end of the
+ * evaluation, so that the predicted critical path is never waiting for a thread.
+ */
+@ThreadSafe
+@FunctionalInterface
+public interface EvaluationPrioritizer {
+  /** Keeps the default evaluation order. */
+  EvaluationPrioritizer NONE = key -> 0;
+
+  /** Returns the priority of {@code key}, or 0 if it has none. Must not be negative. */
+  long getPriority(SkyKey key);
+}
@@ -201,7 +201,8 @@ public final class InMemoryMemoizingEvaluator implements MemoizingEvaluator {
                             AbstractQueueVisitor.createExecutorService(
                                 evaluationContext.getParallelism(), "skyframe-evaluator")),
                 new SimpleCycleDetector(),
-                EvaluationVersionBehavior.GRAPH_VERSION);
+                EvaluationVersionBehavior.GRAPH_VERSION,
+                evaluationContext.getPrioritizer());
         result = evaluator.eval(roots);
       }
       return EvaluationResult.<T>builder()
@@ -273,13 +274,17 @@ public final class InMemoryMemoizingEvaluator implements MemoizingEvaluator {
   }
 
   private void performInvalidation() throws InterruptedException {
-    EagerInvalidator.delete(graph, valuesToDelete, progressReceiver, deleterState, keepEdges);
+    try (SilentCloseable c = Profiler.instance().profile("EagerInvalidator.delete")) {
+      EagerInvalidator.delete(graph, valuesToDelete, progressReceiver, deleterState, keepEdges);
+    }
     // Note that clearing the valuesToDelete would not do an internal resizing. Therefore, if any
     // build has a large set of dirty values, subsequent operations (even clearing) will be slower.
     // Instead, just start afresh with a new LinkedHashSet.
     valuesToDelete = new LinkedHashSet<>();
 
-    EagerInvalidator.invalidate(graph, valuesToDirty, progressReceiver, invalidatorState);
+    try (SilentCloseable c = Profiler.instance().profile("EagerInvalidator.invalidate")) {
+      EagerInvalidator.invalidate(graph, valuesToDirty, progressReceiver, invalidatorState);
+    }
     // Ditto.
     valuesToDirty = new LinkedHashSet<>();
   }
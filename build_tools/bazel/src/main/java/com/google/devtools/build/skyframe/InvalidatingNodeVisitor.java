@@ -16,10 +16,15 @@ package com.google.devtools.build.skyframe;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.flogger.GoogleLogger;
+import com.google.common.math.IntMath;
 import com.google.devtools.build.lib.concurrent.AbstractQueueVisitor;
 import com.google.devtools.build.lib.concurrent.ErrorClassifier;
 import com.google.devtools.build.lib.concurrent.ForkJoinQuiescingExecutor;
@@ -29,14 +34,17 @@ import com.google.devtools.build.lib.util.Pair;
 import com.google.devtools.build.skyframe.QueryableGraph.Reason;
 import com.google.devtools.build.skyframe.ThinNodeEntry.DirtyType;
 import com.google.devtools.build.skyframe.ThinNodeEntry.MarkedDirtyResult;
+import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 
 /**
@@ -59,6 +67,7 @@ import javax.annotation.Nullable;
  * <p>This is intended only for use in alternative {@code MemoizingEvaluator} implementations.
  */
 public abstract class InvalidatingNodeVisitor<GraphT extends QueryableGraph> {
+  private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
 
   // Default thread count is equal to the number of cores to exploit
   // that level of hardware parallelism, since invalidation should be CPU-bound.
@@ -66,6 +75,7 @@ public abstract class InvalidatingNodeVisitor<GraphT extends QueryableGraph> {
   private static final int DEFAULT_THREAD_COUNT = Runtime.getRuntime().availableProcessors();
   private static final int EXPECTED_PENDING_SET_SIZE = DEFAULT_THREAD_COUNT * 8;
   private static final int EXPECTED_VISITED_SET_SIZE = 1024;
+  private static final int MAX_BATCH_SIZE = 256;
 
   private static final ErrorClassifier errorClassifier =
       new ErrorClassifier() {
@@ -117,15 +127,15 @@ public abstract class InvalidatingNodeVisitor<GraphT extends QueryableGraph> {
     // Make a copy to avoid concurrent modification confusing us as to which nodes were passed by
     // the caller, and which are added by other threads during the run. Since no tasks have been
     // started yet (the queueDirtying calls start them), this is thread-safe.
-    for (final Pair<SkyKey, InvalidationType> visitData :
-        ImmutableList.copyOf(pendingVisitations)) {
-      executor.execute(
-          new Runnable() {
-            @Override
-            public void run() {
-              visit(ImmutableList.of(visitData.first), visitData.second);
-            }
-          });
+    ListMultimap<InvalidationType, SkyKey> keysByType = ArrayListMultimap.create();
+    for (Pair<SkyKey, InvalidationType> visitData : ImmutableList.copyOf(pendingVisitations)) {
+      keysByType.put(visitData.second, visitData.first);
+    }
+    for (InvalidationType invalidationType : keysByType.keySet()) {
+      List<SkyKey> keys = keysByType.get(invalidationType);
+      for (List<SkyKey> batch : Lists.partition(keys, batchSize(keys.size()))) {
+        executor.execute(() -> visit(batch, invalidationType));
+      }
     }
     try {
       executor.awaitQuiescence(/*interruptWorkers=*/ true);
@@ -142,6 +152,16 @@ public abstract class InvalidatingNodeVisitor<GraphT extends QueryableGraph> {
 
   protected abstract boolean getSupportInterruptions();
 
+  /**
+   * Returns the number of nodes to process in each task when {@code numNodes} nodes are visited
+   * together. Nodes are processed in batches to save the overhead of a task and a graph lookup per
+   * node, but in enough batches to keep all threads busy.
+   */
+  static int batchSize(int numNodes) {
+    int perThread = IntMath.divide(numNodes, DEFAULT_THREAD_COUNT, RoundingMode.CEILING);
+    return Math.max(1, Math.min(MAX_BATCH_SIZE, perThread));
+  }
+
   @VisibleForTesting
   CountDownLatch getInterruptionLatchForTestingOnly() {
     return executor.getInterruptionLatchForTestingOnly();
@@ -346,6 +366,8 @@ public abstract class InvalidatingNodeVisitor<GraphT extends QueryableGraph> {
             new ConcurrentHashMap<SkyKey, Boolean>(
                 EXPECTED_VISITED_SET_SIZE, .75f, DEFAULT_THREAD_COUNT));
     private final boolean supportInterruptions;
+    private final AtomicInteger numDirtied = new AtomicInteger();
+    private final AtomicInteger numAlreadyDirty = new AtomicInteger();
 
     protected DirtyingNodeVisitor(
         QueryableGraph graph,
@@ -374,6 +396,17 @@ public abstract class InvalidatingNodeVisitor<GraphT extends QueryableGraph> {
       return supportInterruptions;
     }
 
+    @Override
+    void run() throws InterruptedException {
+      try {
+        super.run();
+      } finally {
+        logger.atFine().log(
+            "Dirtied %d nodes, reached %d nodes that were already dirty",
+            numDirtied.get(), numAlreadyDirty.get());
+      }
+    }
+
     @Override
     void visit(Iterable<SkyKey> keys, InvalidationType invalidationType) {
       Preconditions.checkState(invalidationType != InvalidationType.DELETED, keys);
@@ -381,7 +414,8 @@ public abstract class InvalidatingNodeVisitor<GraphT extends QueryableGraph> {
     }
 
     /**
-     * Queues a task to dirty the nodes named by {@param keys}. May be called from multiple threads.
+     * Queues tasks to dirty the nodes named by {@param keys}, in batches. May be called from
+     * multiple threads.
      * It is possible that the same node is enqueued many times. However, we require that a node
      * is only actually marked dirty/changed once, with two exceptions:
      *
@@ -410,7 +444,7 @@ public abstract class InvalidatingNodeVisitor<GraphT extends QueryableGraph> {
     private void visit(
         Iterable<SkyKey> keys,
         final InvalidationType invalidationType,
-        @Nullable SkyKey enqueueingKeyForExistenceCheck) {
+        @Nullable List<SkyKey> enqueueingKeysForExistenceCheck) {
       final boolean isChanged = (invalidationType == InvalidationType.CHANGED);
       Set<SkyKey> setToCheck = isChanged ? changed : dirtied;
       int size = Iterables.size(keys);
@@ -438,68 +472,102 @@ public abstract class InvalidatingNodeVisitor<GraphT extends QueryableGraph> {
         // we can resume next time.
         return;
       }
-      if (enqueueingKeyForExistenceCheck != null && entries.size() != keysToGet.size()) {
+      if (enqueueingKeysForExistenceCheck != null && entries.size() != keysToGet.size()) {
         Set<SkyKey> missingKeys = Sets.difference(ImmutableSet.copyOf(keysToGet), entries.keySet());
         throw new IllegalStateException(
             String.format(
-                "key(s) %s not in the graph, but enqueued for dirtying by %s",
-                Iterables.limit(missingKeys, 10), enqueueingKeyForExistenceCheck));
+                "key(s) %s not in the graph, but enqueued for dirtying by one of %s",
+                Iterables.limit(missingKeys, 10),
+                Iterables.limit(enqueueingKeysForExistenceCheck, 10)));
       }
-      for (final SkyKey key : keysToGet) {
-        executor.execute(
-            () -> {
-              ThinNodeEntry entry = entries.get(key);
+      ArrayList<SkyKey> keysToDirty = new ArrayList<>(keysToGet.size());
+      for (SkyKey key : keysToGet) {
+        ThinNodeEntry entry = entries.get(key);
+        if (entry != null && !entry.isChanged() && (isChanged || !entry.isDirty())) {
+          keysToDirty.add(key);
+          continue;
+        }
+        // The node doesn't exist, or it is already marked changed, or we are only marking it
+        // dirty, and it already is: move along. Checked before enqueueing, so that the reverse deps
+        // that are already dirty, which are most of them for a large invalidation, don't cost a
+        // task each.
+        if (entry != null) {
+          numAlreadyDirty.incrementAndGet();
+        }
+        if (supportInterruptions) {
+          pendingVisitations.remove(Pair.of(key, invalidationType));
+        }
+      }
+      for (List<SkyKey> batch : Lists.partition(keysToDirty, batchSize(keysToDirty.size()))) {
+        executor.execute(() -> markDirty(batch, entries, invalidationType));
+      }
+    }
 
-              if (entry == null) {
-                if (supportInterruptions) {
-                  pendingVisitations.remove(Pair.of(key, invalidationType));
-                }
-                return;
-              }
+    /**
+     * Marks the nodes named by {@code keys} dirty/changed, and then visits the reverse deps of all
+     * of them together.
+     */
+    private void markDirty(
+        List<SkyKey> keys,
+        Map<SkyKey, ? extends ThinNodeEntry> entries,
+        InvalidationType invalidationType) {
+      boolean isChanged = (invalidationType == InvalidationType.CHANGED);
+      List<SkyKey> dirtiedKeys = new ArrayList<>(keys.size());
+      List<SkyKey> reverseDeps = new ArrayList<>();
+      for (SkyKey key : keys) {
+        // It is not safe to interrupt the logic from this point until the end of the method.
+        // Any exception thrown should be unrecoverable.
+        // This entry remains in the graph in this dirty state until it is re-evaluated.
+        MarkedDirtyResult markedDirtyResult;
+        try {
+          markedDirtyResult =
+              entries.get(key).markDirty(isChanged ? DirtyType.CHANGE : DirtyType.DIRTY);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          // This can only happen if the main thread has been interrupted, and so the
+          // AbstractQueueVisitor is shutting down. We haven't yet removed the pending visitations
+          // of the remaining nodes, so we can resume next time. The reverse deps of the nodes that
+          // were already marked dirty are still visited below, so that they are pending as well.
+          break;
+        } catch (IllegalStateException e) {
+          // Debugging for #10912.
+          throw new IllegalStateException("Crash caused by " + key, e);
+        }
+        if (markedDirtyResult == null) {
+          // Another thread has already dirtied this node. Don't do anything in this thread.
+          if (supportInterruptions) {
+            pendingVisitations.remove(Pair.of(key, invalidationType));
+          }
+          continue;
+        }
+        Iterables.addAll(reverseDeps, markedDirtyResult.getReverseDepsUnsafe());
+        dirtiedKeys.add(key);
+      }
+      numDirtied.addAndGet(dirtiedKeys.size());
+      // Propagate dirtiness upwards and mark these nodes dirty/changed. Reverse deps should only be
+      // marked dirty (because only a dependency of theirs has changed).
+      visit(reverseDeps, InvalidationType.DIRTIED, dirtiedKeys);
+
+      for (SkyKey key : dirtiedKeys) {
+        progressReceiver.invalidated(key, EvaluationProgressReceiver.InvalidationState.DIRTY);
+        // Remove the node from the set as the last operation.
+        if (supportInterruptions) {
+          pendingVisitations.remove(Pair.of(key, invalidationType));
+        }
+      }
+    }
 
-              if (entry.isChanged() || (!isChanged && entry.isDirty())) {
-                // If this node is already marked changed, or we are only marking this node
-                // dirty, and it already is, move along.
-                if (supportInterruptions) {
-                  pendingVisitations.remove(Pair.of(key, invalidationType));
-                }
-                return;
-              }
+    /** Returns the number of nodes that this visitor marked dirty or changed. */
+    int getNumDirtied() {
+      return numDirtied.get();
+    }
 
-              // It is not safe to interrupt the logic from this point until the end of the method.
-              // Any exception thrown should be unrecoverable.
-              // This entry remains in the graph in this dirty state until it is re-evaluated.
-              MarkedDirtyResult markedDirtyResult;
-              try {
-                markedDirtyResult = entry.markDirty(isChanged ? DirtyType.CHANGE : DirtyType.DIRTY);
-              } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                // This can only happen if the main thread has been interrupted, and so the
-                // AbstractQueueVisitor is shutting down. We haven't yet removed the pending
-                // visitation, so we can resume next time.
-                return;
-              } catch (IllegalStateException e) {
-                // Debugging for #10912.
-                throw new IllegalStateException("Crash caused by " + key, e);
-              }
-              if (markedDirtyResult == null) {
-                // Another thread has already dirtied this node. Don't do anything in this thread.
-                if (supportInterruptions) {
-                  pendingVisitations.remove(Pair.of(key, invalidationType));
-                }
-                return;
-              }
-              // Propagate dirtiness upwards and mark this node dirty/changed. Reverse deps should
-              // only be marked dirty (because only a dependency of theirs has changed).
-              visit(markedDirtyResult.getReverseDepsUnsafe(), InvalidationType.DIRTIED, key);
-
-              progressReceiver.invalidated(key, EvaluationProgressReceiver.InvalidationState.DIRTY);
-              // Remove the node from the set as the last operation.
-              if (supportInterruptions) {
-                pendingVisitations.remove(Pair.of(key, invalidationType));
-              }
-            });
-      }
+    /**
+     * Returns the number of times that this visitor reached a node that was already dirty, and so
+     * didn't visit its reverse deps again.
+     */
+    int getNumAlreadyDirty() {
+      return numAlreadyDirty.get();
     }
   }
 }
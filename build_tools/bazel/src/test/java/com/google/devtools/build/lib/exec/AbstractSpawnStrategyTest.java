@@ -14,6 +14,7 @@
 package com.google.devtools.build.lib.exec;
 
 import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
 import static org.junit.Assert.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -22,12 +23,14 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.devtools.build.lib.actions.ActionExecutionContext;
 import com.google.devtools.build.lib.actions.Artifact;
 import com.google.devtools.build.lib.actions.ArtifactRoot;
 import com.google.devtools.build.lib.actions.FutureSpawn;
 import com.google.devtools.build.lib.actions.MetadataProvider;
 import com.google.devtools.build.lib.actions.Spawn;
+import com.google.devtools.build.lib.actions.SpawnContinuation;
 import com.google.devtools.build.lib.actions.SpawnResult;
 import com.google.devtools.build.lib.actions.SpawnResult.Status;
 import com.google.devtools.build.lib.actions.util.ActionsTestUtil;
@@ -52,6 +55,7 @@ import com.google.devtools.build.lib.vfs.Path;
 import com.google.devtools.build.lib.vfs.Root;
 import com.google.devtools.build.lib.vfs.inmemoryfs.InMemoryFileSystem;
 import com.google.devtools.common.options.Options;
+import java.io.ByteArrayOutputStream;
 import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
@@ -206,6 +210,54 @@ public class AbstractSpawnStrategyTest {
     verify(entry).store(eq(result));
   }
 
+  @Test
+  public void testBeginExecutionSuspendsOnPendingExecution() throws Exception {
+    when(spawnRunner.handlesCaching()).thenReturn(true);
+    when(actionExecutionContext.getExecRoot()).thenReturn(execRoot);
+    SettableFuture<SpawnResult> execution = SettableFuture.create();
+    when(spawnRunner.execAsync(any(Spawn.class), any(SpawnExecutionContext.class)))
+        .thenReturn(new FutureSpawn(execution));
+
+    SpawnContinuation continuation =
+        new TestedSpawnStrategy(execRoot, spawnRunner)
+            .beginExecution(SIMPLE_SPAWN, actionExecutionContext);
+
+    assertThat(continuation.isDone()).isFalse();
+    assertThat(continuation.getFuture().isDone()).isFalse();
+    SpawnResult spawnResult =
+        new SpawnResult.Builder().setStatus(Status.SUCCESS).setRunnerName("test").build();
+    execution.set(spawnResult);
+    assertThat(continuation.getFuture().isDone()).isTrue();
+    SpawnContinuation next = continuation.execute();
+    assertThat(next.isDone()).isTrue();
+    assertThat(next.get()).containsExactly(spawnResult);
+    verify(spawnRunner).execAsync(any(Spawn.class), any(SpawnExecutionContext.class));
+  }
+
+  @Test
+  public void testBeginExecutionWithNonZeroExitAfterSuspending() throws Exception {
+    when(spawnRunner.handlesCaching()).thenReturn(true);
+    when(actionExecutionContext.getExecRoot()).thenReturn(execRoot);
+    SettableFuture<SpawnResult> execution = SettableFuture.create();
+    when(spawnRunner.execAsync(any(Spawn.class), any(SpawnExecutionContext.class)))
+        .thenReturn(new FutureSpawn(execution));
+
+    SpawnContinuation continuation =
+        new TestedSpawnStrategy(execRoot, spawnRunner)
+            .beginExecution(SIMPLE_SPAWN, actionExecutionContext);
+
+    assertThat(continuation.isDone()).isFalse();
+    SpawnResult result =
+        new SpawnResult.Builder()
+            .setStatus(Status.NON_ZERO_EXIT)
+            .setExitCode(1)
+            .setRunnerName("test")
+            .build();
+    execution.set(result);
+    SpawnExecException e = assertThrows(SpawnExecException.class, continuation::execute);
+    assertThat(e.getSpawnResult()).isSameInstanceAs(result);
+  }
+
   @Test
   public void testLogSpawn() throws Exception {
     setUpExecutionContext(/* remoteOptions= */ null);
@@ -280,6 +332,41 @@ public class AbstractSpawnStrategyTest {
     verify(messageOutput).write(expectedSpawnLog);
   }
 
+  @Test
+  public void testLogSpawn_compactLog() throws Exception {
+    ByteArrayOutputStream compactLog = new ByteArrayOutputStream();
+    setUpExecutionContext(/* remoteOptions= */ null);
+    SpawnLogContext spawnLogContext =
+        new SpawnLogContext(
+            execRoot,
+            messageOutput,
+            new CompactSpawnLogWriter(compactLog),
+            /* remoteOptions= */ null);
+    when(actionExecutionContext.getContext(eq(SpawnLogContext.class)))
+        .thenReturn(spawnLogContext);
+
+    Artifact input = ActionsTestUtil.createArtifact(rootDir, scratch.file("/execroot/foo", "1"));
+    Spawn spawn = new SpawnBuilder("cmd").withInput(input).build();
+    assertThrows(
+        SpawnExecException.class,
+        () -> new TestedSpawnStrategy(execRoot, spawnRunner).exec(spawn, actionExecutionContext));
+    spawnLogContext.close();
+
+    // The full log is unaffected by the compact log.
+    Digest digest =
+        Digest.newBuilder()
+            .setHash("4355a46b19d348dc2f57c046f8ef63d4538ebb936000f3c9ee954a27460dd865")
+            .setSizeBytes(2)
+            .setHashFunctionName("SHA-256")
+            .build();
+    verify(messageOutput)
+        .write(
+            defaultSpawnExecBuilder("cmd")
+                .addInputs(File.newBuilder().setPath("foo").setDigest(digest))
+                .build());
+    assertThat(new String(compactLog.toByteArray(), 0, 8, ISO_8859_1)).isEqualTo("BZLCXLOG");
+  }
+
   @Test
   public void testLogSpawn_noPlatform_noLoggedPlatform() throws Exception {
     setUpExecutionContext(/* remoteOptions= */ null);
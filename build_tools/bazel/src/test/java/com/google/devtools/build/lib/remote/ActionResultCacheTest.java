@@ -0,0 +1,174 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.lib.remote;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import build.bazel.remote.execution.v2.ActionResult;
+import com.google.devtools.build.lib.remote.common.RemoteCacheClient.ActionKey;
+import com.google.devtools.build.lib.remote.util.DigestUtil;
+import com.google.devtools.build.lib.testutil.ManualClock;
+import com.google.devtools.build.lib.vfs.DigestHashFunction;
+import com.google.protobuf.ByteString;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link ActionResultCache}. */
+@RunWith(JUnit4.class)
+public class ActionResultCacheTest {
+
+  private static final DigestUtil DIGEST_UTIL = new DigestUtil(DigestHashFunction.SHA256);
+  private static final ActionKey KEY = new ActionKey(DIGEST_UTIL.computeAsUtf8("action"));
+
+  private final ManualClock clock = new ManualClock();
+  private final ActionResultCache cache =
+      new ActionResultCache(
+          clock,
+          /* maxSize= */ 10,
+          Duration.ofHours(1),
+          Duration.ofMinutes(1),
+          /* validationInterval= */ Duration.ofMinutes(5));
+
+  /** Counts the lookups in the remote cache, which return a fixed result. */
+  private static final class CountingLookup implements ActionResultCache.Lookup {
+    @Nullable private final ActionResult result;
+    int count;
+
+    CountingLookup(@Nullable ActionResult result) {
+      this.result = result;
+    }
+
+    @Override
+    public ActionResult get() {
+      count++;
+      return result;
+    }
+  }
+
+  @Test
+  public void foundResultsAreRemembered() throws Exception {
+    ActionResult result =
+        ActionResult.newBuilder().setStdoutRaw(ByteString.copyFromUtf8("out")).build();
+    CountingLookup lookup = new CountingLookup(result);
+
+    assertThat(cache.get(KEY, lookup)).isEqualTo(result);
+    clock.advanceMillis(Duration.ofMinutes(59).toMillis());
+    assertThat(cache.get(KEY, lookup)).isEqualTo(result);
+
+    assertThat(lookup.count).isEqualTo(1);
+    assertThat(cache.getHitCount()).isEqualTo(1);
+    assertThat(cache.getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void foundResultsExpire() throws Exception {
+    CountingLookup lookup = new CountingLookup(ActionResult.getDefaultInstance());
+
+    cache.get(KEY, lookup);
+    clock.advanceMillis(Duration.ofHours(1).toMillis());
+    cache.get(KEY, lookup);
+
+    assertThat(lookup.count).isEqualTo(2);
+  }
+
+  @Test
+  public void rejectedResultsAreLookedUpAgain() throws Exception {
+    CountingLookup lookup = new CountingLookup(ActionResult.getDefaultInstance());
+
+    cache.get(KEY, lookup, result -> false);
+    clock.advanceMillis(Duration.ofMinutes(5).toMillis());
+    cache.get(KEY, lookup, result -> false);
+    clock.advanceMillis(Duration.ofMinutes(5).toMillis());
+    cache.get(KEY, lookup, result -> true);
+
+    assertThat(lookup.count).isEqualTo(2);
+    assertThat(cache.getHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void recentlyValidatedResultsAreNotValidatedAgain() throws Exception {
+    CountingLookup lookup = new CountingLookup(ActionResult.getDefaultInstance());
+    AtomicInteger validations = new AtomicInteger();
+    ActionResultCache.Validator validator =
+        result -> {
+          validations.incrementAndGet();
+          return true;
+        };
+
+    // The lookup counts as a validation.
+    cache.get(KEY, lookup, validator);
+    clock.advanceMillis(Duration.ofMinutes(4).toMillis());
+    cache.get(KEY, lookup, validator);
+    assertThat(validations.get()).isEqualTo(0);
+
+    clock.advanceMillis(Duration.ofMinutes(1).toMillis());
+    cache.get(KEY, lookup, validator);
+    clock.advanceMillis(Duration.ofMinutes(4).toMillis());
+    cache.get(KEY, lookup, validator);
+
+    assertThat(validations.get()).isEqualTo(1);
+    assertThat(lookup.count).isEqualTo(1);
+    assertThat(cache.getHitCount()).isEqualTo(3);
+    assertThat(cache.getValidationCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void missesExpire() throws Exception {
+    CountingLookup lookup = new CountingLookup(null);
+
+    assertThat(cache.get(KEY, lookup)).isNull();
+    clock.advanceMillis(Duration.ofSeconds(59).toMillis());
+    assertThat(cache.get(KEY, lookup)).isNull();
+    assertThat(lookup.count).isEqualTo(1);
+
+    clock.advanceMillis(Duration.ofSeconds(1).toMillis());
+    assertThat(cache.get(KEY, lookup)).isNull();
+    assertThat(lookup.count).isEqualTo(2);
+  }
+
+  @Test
+  public void failedResultsAreNotRemembered() throws Exception {
+    CountingLookup lookup = new CountingLookup(ActionResult.newBuilder().setExitCode(1).build());
+
+    cache.get(KEY, lookup);
+    cache.get(KEY, lookup);
+
+    assertThat(lookup.count).isEqualTo(2);
+  }
+
+  @Test
+  public void invalidatedResultsAreLookedUpAgain() throws Exception {
+    CountingLookup lookup = new CountingLookup(ActionResult.getDefaultInstance());
+
+    cache.get(KEY, lookup);
+    cache.invalidate(KEY);
+    cache.get(KEY, lookup);
+
+    assertThat(lookup.count).isEqualTo(2);
+  }
+
+  @Test
+  public void putReplacesMisses() throws Exception {
+    ActionResult result = ActionResult.newBuilder().setExitCode(0).build();
+    cache.get(KEY, new CountingLookup(null));
+
+    cache.put(KEY, result);
+
+    assertThat(cache.get(KEY, new CountingLookup(null))).isEqualTo(result);
+  }
+}
@@ -0,0 +1,278 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.lib.remote;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import build.bazel.remote.execution.v2.ActionCacheGrpc;
+import build.bazel.remote.execution.v2.ActionResult;
+import build.bazel.remote.execution.v2.ContentAddressableStorageGrpc;
+import build.bazel.remote.execution.v2.ExecutionGrpc;
+import build.bazel.remote.execution.v2.FindMissingBlobsRequest;
+import build.bazel.remote.execution.v2.FindMissingBlobsResponse;
+import com.google.bytestream.ByteStreamGrpc;
+import com.google.bytestream.ByteStreamProto.ReadResponse;
+import com.google.devtools.build.lib.remote.util.AdaptiveConcurrencyLimiter;
+import com.google.devtools.build.lib.testutil.ManualClock;
+import com.google.longrunning.Operation;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptors;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link AdaptiveConcurrencyLimiter}. */
+@RunWith(JUnit4.class)
+public class AdaptiveConcurrencyLimiterTest {
+
+  private final ManualClock clock = new ManualClock();
+  private final FakeChannel fakeChannel = new FakeChannel();
+
+  @Before
+  public void setUp() {
+    clock.advanceMillis(1000);
+  }
+
+  @Test
+  public void callsBeyondTheLimitAreQueued() {
+    AdaptiveConcurrencyLimiter limiter =
+        new AdaptiveConcurrencyLimiter(clock, /* initialLimit= */ 2, /* minLimit= */ 1, 10);
+    Channel channel = ClientInterceptors.intercept(fakeChannel, limiter);
+
+    ClientCall<FindMissingBlobsRequest, FindMissingBlobsResponse> first = startCall(channel);
+    startCall(channel);
+    ClientCall<FindMissingBlobsRequest, FindMissingBlobsResponse> third = startCall(channel);
+    third.sendMessage(FindMissingBlobsRequest.getDefaultInstance());
+    third.halfClose();
+
+    assertThat(fakeChannel.calls).hasSize(3);
+    assertThat(fakeChannel.calls.get(2).started).isFalse();
+    assertThat(third.isReady()).isFalse();
+    assertThat(limiter.getQueued()).isEqualTo(1);
+
+    clock.advanceMillis(100);
+    fakeChannel.calls.get(0).close(Status.OK);
+
+    FakeCall started = fakeChannel.calls.get(2);
+    assertThat(started.started).isTrue();
+    assertThat(started.messages).isEqualTo(1);
+    assertThat(started.halfClosed).isTrue();
+    assertThat(limiter.getQueued()).isEqualTo(0);
+    assertThat(limiter.getInFlight()).isEqualTo(2);
+    assertThat(limiter.getTotalQueueTimeNanos()).isEqualTo(100_000_000L);
+    assertThat(first.isReady()).isTrue();
+  }
+
+  @Test
+  public void cancelledQueuedCallsAreClosedWithoutAPermit() {
+    AdaptiveConcurrencyLimiter limiter =
+        new AdaptiveConcurrencyLimiter(clock, /* initialLimit= */ 1, /* minLimit= */ 1, 10);
+    Channel channel = ClientInterceptors.intercept(fakeChannel, limiter);
+
+    startCall(channel);
+    ClientCall<FindMissingBlobsRequest, FindMissingBlobsResponse> queued = startCall(channel);
+    queued.cancel("cancelled", null);
+
+    FakeCall cancelled = fakeChannel.calls.get(1);
+    assertThat(cancelled.started).isTrue();
+    assertThat(cancelled.cancelled).isTrue();
+    assertThat(limiter.getQueued()).isEqualTo(0);
+    assertThat(limiter.getInFlight()).isEqualTo(1);
+  }
+
+  @Test
+  public void limitDecreasesOncePerRoundOnOverload() {
+    AdaptiveConcurrencyLimiter limiter =
+        new AdaptiveConcurrencyLimiter(clock, /* initialLimit= */ 10, /* minLimit= */ 1, 10);
+    Channel channel = ClientInterceptors.intercept(fakeChannel, limiter);
+    startCall(channel);
+    startCall(channel);
+    clock.advanceMillis(10);
+
+    fakeChannel.calls.get(0).close(Status.RESOURCE_EXHAUSTED);
+    fakeChannel.calls.get(1).close(Status.UNAVAILABLE);
+
+    assertThat(limiter.getLimit()).isEqualTo(9);
+
+    clock.advanceMillis(10);
+    startCall(channel);
+    clock.advanceMillis(10);
+    fakeChannel.calls.get(2).close(Status.UNAVAILABLE);
+
+    assertThat(limiter.getLimit()).isEqualTo(8);
+  }
+
+  @Test
+  public void limitDecreasesWhenLatencyIncreases() {
+    AdaptiveConcurrencyLimiter limiter =
+        new AdaptiveConcurrencyLimiter(clock, /* initialLimit= */ 4, /* minLimit= */ 1, 10);
+    Channel channel = ClientInterceptors.intercept(fakeChannel, limiter);
+    startCall(channel);
+    clock.advanceMillis(10);
+    fakeChannel.calls.get(0).close(Status.OK);
+
+    startCall(channel);
+    clock.advanceMillis(100);
+    fakeChannel.calls.get(1).close(Status.OK);
+
+    assertThat(limiter.getLimit()).isEqualTo(3);
+  }
+
+  @Test
+  public void limitIncreasesWhileCallsSucceedUnderLoad() {
+    AdaptiveConcurrencyLimiter limiter =
+        new AdaptiveConcurrencyLimiter(clock, /* initialLimit= */ 2, /* minLimit= */ 1, 3);
+    Channel channel = ClientInterceptors.intercept(fakeChannel, limiter);
+
+    for (int i = 0; i < 10; i++) {
+      startCall(channel);
+      startCall(channel);
+      clock.advanceMillis(10);
+      fakeChannel.calls.get(2 * i).close(Status.OK);
+      fakeChannel.calls.get(2 * i + 1).close(Status.OK);
+    }
+
+    assertThat(limiter.getLimit()).isEqualTo(3);
+  }
+
+  @Test
+  public void executeCallsAreNotLimited() {
+    AdaptiveConcurrencyLimiter limiter =
+        new AdaptiveConcurrencyLimiter(clock, /* initialLimit= */ 1, /* minLimit= */ 1, 10);
+    Channel channel = ClientInterceptors.intercept(fakeChannel, limiter);
+
+    startCall(channel);
+    channel
+        .newCall(ExecutionGrpc.getExecuteMethod(), CallOptions.DEFAULT)
+        .start(new ClientCall.Listener<Operation>() {}, new Metadata());
+
+    assertThat(fakeChannel.calls.get(1).started).isTrue();
+    assertThat(limiter.getQueued()).isEqualTo(0);
+  }
+
+  @Test
+  public void callsWithTheUnlimitedOptionAreNotLimited() {
+    AdaptiveConcurrencyLimiter limiter =
+        new AdaptiveConcurrencyLimiter(clock, /* initialLimit= */ 1, /* minLimit= */ 1, 10);
+    Channel channel = ClientInterceptors.intercept(fakeChannel, limiter);
+
+    startCall(channel);
+    channel
+        .newCall(
+            ByteStreamGrpc.getReadMethod(),
+            CallOptions.DEFAULT.withOption(AdaptiveConcurrencyLimiter.UNLIMITED, true))
+        .start(new ClientCall.Listener<ReadResponse>() {}, new Metadata());
+
+    assertThat(fakeChannel.calls.get(1).started).isTrue();
+    assertThat(limiter.getQueued()).isEqualTo(0);
+    assertThat(limiter.getInFlight()).isEqualTo(1);
+  }
+
+  @Test
+  public void latencyWithoutLoadIsTrackedPerMethod() {
+    AdaptiveConcurrencyLimiter limiter =
+        new AdaptiveConcurrencyLimiter(clock, /* initialLimit= */ 4, /* minLimit= */ 1, 10);
+    Channel channel = ClientInterceptors.intercept(fakeChannel, limiter);
+    startCall(channel);
+    clock.advanceMillis(10);
+    fakeChannel.calls.get(0).close(Status.OK);
+
+    // A slower method isn't compared to the latency of a faster one.
+    channel
+        .newCall(ActionCacheGrpc.getGetActionResultMethod(), CallOptions.DEFAULT)
+        .start(new ClientCall.Listener<ActionResult>() {}, new Metadata());
+    clock.advanceMillis(100);
+    fakeChannel.calls.get(1).close(Status.OK);
+
+    assertThat(limiter.getLimit()).isEqualTo(4);
+  }
+
+  private static ClientCall<FindMissingBlobsRequest, FindMissingBlobsResponse> startCall(
+      Channel channel) {
+    ClientCall<FindMissingBlobsRequest, FindMissingBlobsResponse> call =
+        channel.newCall(
+            ContentAddressableStorageGrpc.getFindMissingBlobsMethod(), CallOptions.DEFAULT);
+    call.start(new ClientCall.Listener<FindMissingBlobsResponse>() {}, new Metadata());
+    return call;
+  }
+
+  private static final class FakeChannel extends Channel {
+    final List<FakeCall> calls = new ArrayList<>();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(
+        MethodDescriptor<ReqT, RespT> method, CallOptions callOptions) {
+      FakeCall call = new FakeCall();
+      calls.add(call);
+      return (ClientCall<ReqT, RespT>) call;
+    }
+
+    @Override
+    public String authority() {
+      return "localhost";
+    }
+  }
+
+  private static final class FakeCall extends ClientCall<Object, Object> {
+    private Listener<Object> listener;
+    boolean started;
+    boolean cancelled;
+    boolean halfClosed;
+    int messages;
+
+    @Override
+    public void start(Listener<Object> listener, Metadata headers) {
+      this.listener = listener;
+      started = true;
+    }
+
+    void close(Status status) {
+      listener.onClose(status, new Metadata());
+    }
+
+    @Override
+    public void request(int numMessages) {}
+
+    @Override
+    public void cancel(@Nullable String message, @Nullable Throwable cause) {
+      cancelled = true;
+      close(Status.CANCELLED);
+    }
+
+    @Override
+    public void halfClose() {
+      halfClosed = true;
+    }
+
+    @Override
+    public void sendMessage(Object message) {
+      messages++;
+    }
+
+    @Override
+    public boolean isReady() {
+      return true;
+    }
+  }
+}
@@ -34,6 +34,7 @@ import com.google.common.util.concurrent.ListeningScheduledExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.devtools.build.lib.analysis.BlazeVersionInfo;
 import com.google.devtools.build.lib.remote.util.DigestUtil;
+import com.google.devtools.build.lib.remote.util.InflatingOutputStream;
 import com.google.devtools.build.lib.remote.util.TestUtils;
 import com.google.devtools.build.lib.remote.util.TracingMetadataUtils;
 import com.google.devtools.build.lib.vfs.DigestHashFunction;
@@ -58,6 +59,7 @@ import io.grpc.stub.MetadataUtils;
 import io.grpc.stub.StreamObserver;
 import io.grpc.util.MutableHandlerRegistry;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -215,6 +217,200 @@ public class ByteStreamUploaderTest {
     withEmptyMetadata.detach(prevContext);
   }
 
+  @Test
+  public void compressedUploadShouldWork() throws Exception {
+    Context prevContext = withEmptyMetadata.attach();
+    RemoteRetrier retrier =
+        TestUtils.newRemoteRetrier(() -> mockBackoff, (e) -> true, retryService);
+    ByteStreamUploader uploader =
+        new ByteStreamUploader(
+            INSTANCE_NAME, new ReferenceCountedChannel(channel), null, 60, retrier);
+
+    byte[] blob = new byte[CHUNK_SIZE * 10];
+    for (int i = 0; i < blob.length; i++) {
+      blob[i] = (byte) (i % 7);
+    }
+    Chunker chunker =
+        Chunker.builder().setInput(blob).setChunkSize(CHUNK_SIZE).setCompressed(true).build();
+    HashCode hash = HashCode.fromString(DIGEST_UTIL.compute(blob).getHash());
+
+    ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+    serviceRegistry.addService(
+        new ByteStreamImplBase() {
+          @Override
+          public StreamObserver<WriteRequest> write(StreamObserver<WriteResponse> streamObserver) {
+            return new StreamObserver<WriteRequest>() {
+              private final InflatingOutputStream inflatingOut =
+                  new InflatingOutputStream(decompressed);
+              private long nextOffset = 0;
+
+              @Override
+              public void onNext(WriteRequest writeRequest) {
+                if (nextOffset == 0) {
+                  assertThat(writeRequest.getResourceName())
+                      .endsWith("/compressed-blobs/deflate/" + hash + "/" + blob.length);
+                }
+                assertThat(writeRequest.getWriteOffset()).isEqualTo(nextOffset);
+                try {
+                  writeRequest.getData().writeTo(inflatingOut);
+                } catch (IOException e) {
+                  throw new AssertionError(e);
+                }
+                nextOffset += writeRequest.getData().size();
+              }
+
+              @Override
+              public void onError(Throwable throwable) {
+                fail("onError should never be called.");
+              }
+
+              @Override
+              public void onCompleted() {
+                try {
+                  inflatingOut.finish();
+                } catch (IOException e) {
+                  throw new AssertionError(e);
+                }
+                inflatingOut.close();
+                streamObserver.onNext(
+                    WriteResponse.newBuilder().setCommittedSize(nextOffset).build());
+                streamObserver.onCompleted();
+              }
+            };
+          }
+        });
+
+    uploader.uploadBlob(hash, chunker, true);
+
+    assertThat(decompressed.toByteArray()).isEqualTo(blob);
+    assertThat(chunker.getOffset()).isLessThan((long) blob.length);
+    Mockito.verifyZeroInteractions(mockBackoff);
+
+    blockUntilInternalStateConsistent(uploader);
+
+    withEmptyMetadata.detach(prevContext);
+  }
+
+  @Test
+  public void compressedUploadOfExistingBlobShouldSucceed() throws Exception {
+    Context prevContext = withEmptyMetadata.attach();
+    RemoteRetrier retrier =
+        TestUtils.newRemoteRetrier(() -> mockBackoff, (e) -> true, retryService);
+    ByteStreamUploader uploader =
+        new ByteStreamUploader(
+            INSTANCE_NAME, new ReferenceCountedChannel(channel), null, 60, retrier);
+
+    byte[] blob = new byte[CHUNK_SIZE * 2 + 1];
+    new Random().nextBytes(blob);
+    Chunker chunker =
+        Chunker.builder().setInput(blob).setChunkSize(CHUNK_SIZE).setCompressed(true).build();
+    HashCode hash = HashCode.fromString(DIGEST_UTIL.compute(blob).getHash());
+
+    serviceRegistry.addService(
+        new ByteStreamImplBase() {
+          @Override
+          public StreamObserver<WriteRequest> write(StreamObserver<WriteResponse> streamObserver) {
+            // The blob already exists, which servers report as -1 for compressed uploads.
+            streamObserver.onNext(WriteResponse.newBuilder().setCommittedSize(-1).build());
+            streamObserver.onCompleted();
+            return new NoopStreamObserver();
+          }
+        });
+
+    uploader.uploadBlob(hash, chunker, true);
+
+    Mockito.verifyZeroInteractions(mockBackoff);
+
+    blockUntilInternalStateConsistent(uploader);
+
+    withEmptyMetadata.detach(prevContext);
+  }
+
+  @Test
+  public void failedCompressedUploadIsRestartedFromTheBeginning() throws Exception {
+    // The committed size of a partial compressed upload isn't defined by the REAPI, so a failed
+    // compressed upload must be restarted at write offset 0 instead of being resumed.
+    Context prevContext = withEmptyMetadata.attach();
+    RemoteRetrier retrier =
+        TestUtils.newRemoteRetrier(() -> new FixedBackoff(1, 0), (e) -> true, retryService);
+    ByteStreamUploader uploader =
+        new ByteStreamUploader(
+            INSTANCE_NAME, new ReferenceCountedChannel(channel), null, 60, retrier);
+
+    byte[] blob = new byte[CHUNK_SIZE * 10];
+    new Random().nextBytes(blob);
+    Chunker chunker =
+        Chunker.builder().setInput(blob).setChunkSize(CHUNK_SIZE).setCompressed(true).build();
+    HashCode hash = HashCode.fromString(DIGEST_UTIL.compute(blob).getHash());
+
+    AtomicInteger writeCalls = new AtomicInteger();
+    ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+    serviceRegistry.addService(
+        new ByteStreamImplBase() {
+          @Override
+          public StreamObserver<WriteRequest> write(StreamObserver<WriteResponse> streamObserver) {
+            boolean fail = writeCalls.incrementAndGet() == 1;
+            return new StreamObserver<WriteRequest>() {
+              private final InflatingOutputStream inflatingOut =
+                  new InflatingOutputStream(decompressed);
+              private long nextOffset = 0;
+              private boolean failed;
+
+              @Override
+              public void onNext(WriteRequest writeRequest) {
+                if (failed) {
+                  return;
+                }
+                assertThat(writeRequest.getWriteOffset()).isEqualTo(nextOffset);
+                nextOffset += writeRequest.getData().size();
+                if (fail) {
+                  // Fail after the first chunk has been received.
+                  failed = true;
+                  streamObserver.onError(Status.UNAVAILABLE.asException());
+                  return;
+                }
+                try {
+                  writeRequest.getData().writeTo(inflatingOut);
+                } catch (IOException e) {
+                  throw new AssertionError(e);
+                }
+              }
+
+              @Override
+              public void onError(Throwable throwable) {}
+
+              @Override
+              public void onCompleted() {
+                try {
+                  inflatingOut.finish();
+                } catch (IOException e) {
+                  throw new AssertionError(e);
+                }
+                inflatingOut.close();
+                streamObserver.onNext(
+                    WriteResponse.newBuilder().setCommittedSize(nextOffset).build());
+                streamObserver.onCompleted();
+              }
+            };
+          }
+
+          @Override
+          public void queryWriteStatus(
+              QueryWriteStatusRequest request, StreamObserver<QueryWriteStatusResponse> response) {
+            fail("The status of compressed uploads should never be queried.");
+          }
+        });
+
+    uploader.uploadBlob(hash, chunker, true);
+
+    assertThat(writeCalls.get()).isEqualTo(2);
+    assertThat(decompressed.toByteArray()).isEqualTo(blob);
+
+    blockUntilInternalStateConsistent(uploader);
+
+    withEmptyMetadata.detach(prevContext);
+  }
+
   @Test
   public void progressiveUploadShouldWork() throws Exception {
     Context prevContext = withEmptyMetadata.attach();
@@ -17,11 +17,13 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertThrows;
 
 import com.google.devtools.build.lib.remote.Chunker.Chunk;
+import com.google.devtools.build.lib.remote.util.InflatingOutputStream;
 import com.google.protobuf.ByteString;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.NoSuchElementException;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicReference;
@@ -130,7 +132,7 @@ public class ChunkerTest {
       return in.get();
     };
 
-    Chunker chunker = new Chunker(supplier, data.length, 1);
+    Chunker chunker = new Chunker(supplier, data.length, 1, /* compressed= */ false);
     assertThat(in.get()).isNull();
     assertNextEquals(chunker, (byte) 1);
     Mockito.verify(in.get(), Mockito.never()).close();
@@ -173,6 +175,70 @@ public class ChunkerTest {
     assertThat(next.getData()).hasSize(8);
   }
 
+  @Test
+  public void compressedChunkingShouldWork() throws Exception {
+    byte[] data = new byte[1000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (i % 10);
+    }
+    Chunker chunker =
+        Chunker.builder().setInput(data).setChunkSize(10).setCompressed(true).build();
+
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    while (chunker.hasNext()) {
+      Chunk next = chunker.next();
+      assertThat(next.getOffset()).isEqualTo(compressed.size());
+      next.getData().writeTo(compressed);
+    }
+
+    assertThat(chunker.isCompressed()).isTrue();
+    assertThat(chunker.getSize()).isEqualTo(data.length);
+    assertThat(chunker.getOffset()).isEqualTo(compressed.size());
+    assertThat(compressed.size()).isLessThan(data.length);
+    assertThat(inflate(compressed.toByteArray())).isEqualTo(data);
+  }
+
+  @Test
+  public void compressedEmptyData() throws Exception {
+    Chunker chunker = Chunker.builder().setInput(new byte[0]).setCompressed(true).build();
+
+    assertThat(chunker.hasNext()).isTrue();
+    Chunk next = chunker.next();
+    assertThat(chunker.hasNext()).isFalse();
+    assertThat(inflate(next.getData().toByteArray())).isEmpty();
+  }
+
+  @Test
+  public void compressedSeek() throws Exception {
+    byte[] data = new byte[100];
+    new Random().nextBytes(data);
+    Chunker chunker =
+        Chunker.builder().setInput(data).setChunkSize(7).setCompressed(true).build();
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    while (chunker.hasNext()) {
+      chunker.next().getData().writeTo(compressed);
+    }
+
+    chunker.seek(20);
+
+    ByteArrayOutputStream rest = new ByteArrayOutputStream();
+    while (chunker.hasNext()) {
+      chunker.next().getData().writeTo(rest);
+    }
+    byte[] expected = compressed.toByteArray();
+    assertThat(rest.toByteArray())
+        .isEqualTo(Arrays.copyOfRange(expected, 20, expected.length));
+  }
+
+  private static byte[] inflate(byte[] compressed) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (InflatingOutputStream inflatingOut = new InflatingOutputStream(out)) {
+      inflatingOut.write(compressed);
+      inflatingOut.finish();
+    }
+    return out.toByteArray();
+  }
+
   private void assertNextEquals(Chunker chunker, byte... data) throws IOException {
     assertThat(chunker.hasNext()).isTrue();
     ByteString next = chunker.next().getData();
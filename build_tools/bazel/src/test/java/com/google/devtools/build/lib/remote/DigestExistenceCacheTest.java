@@ -0,0 +1,107 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.lib.remote;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import build.bazel.remote.execution.v2.Digest;
+import com.google.devtools.build.lib.clock.JavaClock;
+import com.google.devtools.build.lib.remote.util.DigestUtil;
+import com.google.devtools.build.lib.testutil.ManualClock;
+import com.google.devtools.build.lib.vfs.DigestHashFunction;
+import com.google.devtools.build.lib.vfs.Path;
+import com.google.devtools.build.lib.vfs.inmemoryfs.InMemoryFileSystem;
+import java.time.Duration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link DigestExistenceCache}. */
+@RunWith(JUnit4.class)
+public class DigestExistenceCacheTest {
+
+  private static final DigestUtil DIGEST_UTIL = new DigestUtil(DigestHashFunction.SHA256);
+
+  private final ManualClock clock = new ManualClock();
+  private Path file;
+
+  @Before
+  public void setUp() throws Exception {
+    InMemoryFileSystem fs = new InMemoryFileSystem(new JavaClock(), DigestHashFunction.SHA256);
+    Path outputBase = fs.getPath("/output_base");
+    outputBase.createDirectoryAndParents();
+    file = outputBase.getChild("existence_cache");
+  }
+
+  @Test
+  public void entriesExpire() {
+    DigestExistenceCache cache =
+        new DigestExistenceCache(clock, /* maxSize= */ 10, Duration.ofMinutes(10));
+    Digest digest = DIGEST_UTIL.computeAsUtf8("foo");
+
+    cache.add(digest);
+    clock.advanceMillis(Duration.ofMinutes(9).toMillis());
+    assertThat(cache.contains(digest)).isTrue();
+    clock.advanceMillis(Duration.ofMinutes(1).toMillis());
+    assertThat(cache.contains(digest)).isFalse();
+  }
+
+  @Test
+  public void removedEntriesAreForgotten() {
+    DigestExistenceCache cache =
+        new DigestExistenceCache(clock, /* maxSize= */ 10, Duration.ofMinutes(10));
+    Digest digest = DIGEST_UTIL.computeAsUtf8("foo");
+
+    cache.add(digest);
+    cache.remove(digest);
+
+    assertThat(cache.contains(digest)).isFalse();
+  }
+
+  @Test
+  public void entriesArePersisted() throws Exception {
+    DigestExistenceCache cache =
+        new DigestExistenceCache(clock, /* maxSize= */ 10, Duration.ofMinutes(10));
+    Digest foo = DIGEST_UTIL.computeAsUtf8("foo");
+    Digest bar = DIGEST_UTIL.computeAsUtf8("bar");
+    cache.add(foo);
+    clock.advanceMillis(Duration.ofMinutes(5).toMillis());
+    cache.add(bar);
+    cache.writeTo(file, "grpc://cache");
+
+    clock.advanceMillis(Duration.ofMinutes(6).toMillis());
+    DigestExistenceCache restored =
+        new DigestExistenceCache(clock, /* maxSize= */ 10, Duration.ofMinutes(10));
+    restored.readFrom(file, "grpc://cache");
+
+    assertThat(restored.contains(foo)).isFalse();
+    assertThat(restored.contains(bar)).isTrue();
+  }
+
+  @Test
+  public void entriesOfOtherCachesAreIgnored() throws Exception {
+    DigestExistenceCache cache =
+        new DigestExistenceCache(clock, /* maxSize= */ 10, Duration.ofMinutes(10));
+    Digest foo = DIGEST_UTIL.computeAsUtf8("foo");
+    cache.add(foo);
+    cache.writeTo(file, "grpc://cache");
+
+    DigestExistenceCache restored =
+        new DigestExistenceCache(clock, /* maxSize= */ 10, Duration.ofMinutes(10));
+    restored.readFrom(file, "grpc://other-cache");
+
+    assertThat(restored.contains(foo)).isFalse();
+  }
+}
@@ -26,6 +26,12 @@ import static org.mockito.Mockito.when;
 import build.bazel.remote.execution.v2.Action;
 import build.bazel.remote.execution.v2.ActionCacheGrpc.ActionCacheImplBase;
 import build.bazel.remote.execution.v2.ActionResult;
+import build.bazel.remote.execution.v2.BatchReadBlobsRequest;
+import build.bazel.remote.execution.v2.BatchReadBlobsResponse;
+import build.bazel.remote.execution.v2.BatchUpdateBlobsRequest;
+import build.bazel.remote.execution.v2.BatchUpdateBlobsResponse;
+import build.bazel.remote.execution.v2.CacheCapabilities;
+import build.bazel.remote.execution.v2.Compressor;
 import build.bazel.remote.execution.v2.Command;
 import build.bazel.remote.execution.v2.ContentAddressableStorageGrpc.ContentAddressableStorageImplBase;
 import build.bazel.remote.execution.v2.Digest;
@@ -46,6 +52,7 @@ import com.google.bytestream.ByteStreamProto.ReadRequest;
 import com.google.bytestream.ByteStreamProto.ReadResponse;
 import com.google.bytestream.ByteStreamProto.WriteRequest;
 import com.google.bytestream.ByteStreamProto.WriteResponse;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSortedMap;
@@ -59,10 +66,12 @@ import com.google.devtools.build.lib.authandtls.GoogleAuthUtils;
 import com.google.devtools.build.lib.clock.JavaClock;
 import com.google.devtools.build.lib.remote.RemoteRetrier.ExponentialBackoff;
 import com.google.devtools.build.lib.remote.Retrier.Backoff;
+import com.google.devtools.build.lib.remote.common.CacheNotFoundException;
 import com.google.devtools.build.lib.remote.common.RemoteCacheClient.ActionKey;
 import com.google.devtools.build.lib.remote.merkletree.MerkleTree;
 import com.google.devtools.build.lib.remote.options.RemoteOptions;
 import com.google.devtools.build.lib.remote.util.DigestUtil;
+import com.google.devtools.build.lib.remote.util.InflatingOutputStream;
 import com.google.devtools.build.lib.remote.util.StringActionInput;
 import com.google.devtools.build.lib.remote.util.TestUtils;
 import com.google.devtools.build.lib.remote.util.TracingMetadataUtils;
@@ -71,6 +80,7 @@ import com.google.devtools.build.lib.util.io.FileOutErr;
 import com.google.devtools.build.lib.vfs.DigestHashFunction;
 import com.google.devtools.build.lib.vfs.FileSystem;
 import com.google.devtools.build.lib.vfs.FileSystemUtils;
+import com.google.devtools.build.lib.vfs.JavaIoFileSystem;
 import com.google.devtools.build.lib.vfs.Path;
 import com.google.devtools.build.lib.vfs.PathFragment;
 import com.google.devtools.build.lib.vfs.inmemoryfs.InMemoryFileSystem;
@@ -98,12 +108,18 @@ import io.grpc.util.MutableHandlerRegistry;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
+import java.util.zip.Deflater;
+import javax.annotation.Nullable;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -197,6 +213,32 @@ public class GrpcCacheClientTest {
 
   private GrpcCacheClient newClient(RemoteOptions remoteOptions, Supplier<Backoff> backoffSupplier)
       throws IOException {
+    return newClient(remoteOptions, backoffSupplier, /* cacheCapabilities= */ null);
+  }
+
+  private GrpcCacheClient newBatchingClient() throws IOException {
+    RemoteOptions remoteOptions = Options.getDefaults(RemoteOptions.class);
+    return newClient(
+        remoteOptions,
+        () -> new ExponentialBackoff(remoteOptions),
+        CacheCapabilities.newBuilder().setMaxBatchTotalSizeBytes(1024 * 1024).build());
+  }
+
+  private GrpcCacheClient newClient(
+      RemoteOptions remoteOptions,
+      Supplier<Backoff> backoffSupplier,
+      @Nullable CacheCapabilities cacheCapabilities)
+      throws IOException {
+    return newClient(
+        remoteOptions, backoffSupplier, cacheCapabilities, /* existenceCache= */ null);
+  }
+
+  private GrpcCacheClient newClient(
+      RemoteOptions remoteOptions,
+      Supplier<Backoff> backoffSupplier,
+      @Nullable CacheCapabilities cacheCapabilities,
+      @Nullable DigestExistenceCache existenceCache)
+      throws IOException {
     AuthAndTLSOptions authTlsOptions = Options.getDefaults(AuthAndTLSOptions.class);
     authTlsOptions.useGoogleDefaultCredentials = true;
     authTlsOptions.googleCredentials = "/exec/root/creds.json";
@@ -233,7 +275,14 @@ public class GrpcCacheClientTest {
             remoteOptions.remoteTimeout,
             retrier);
     return new GrpcCacheClient(
-        channel.retain(), creds, remoteOptions, retrier, DIGEST_UTIL, uploader);
+        channel.retain(),
+        creds,
+        remoteOptions,
+        retrier,
+        DIGEST_UTIL,
+        uploader,
+        cacheCapabilities,
+        existenceCache);
   }
 
   private static byte[] downloadBlob(GrpcCacheClient cacheClient, Digest digest)
@@ -314,6 +363,95 @@ public class GrpcCacheClientTest {
     assertThat(downloadBlob(client, emptyDigest)).isEmpty();
   }
 
+  @Test
+  public void existenceCacheSkipsKnownDigests() throws Exception {
+    RemoteOptions remoteOptions = Options.getDefaults(RemoteOptions.class);
+    DigestExistenceCache existenceCache =
+        new DigestExistenceCache(new JavaClock(), /* maxSize= */ 100, Duration.ofMinutes(10));
+    GrpcCacheClient client =
+        newClient(
+            remoteOptions,
+            () -> new ExponentialBackoff(remoteOptions),
+            /* cacheCapabilities= */ null,
+            existenceCache);
+    Digest foo = DIGEST_UTIL.computeAsUtf8("foo");
+    Digest bar = DIGEST_UTIL.computeAsUtf8("bar");
+    Digest baz = DIGEST_UTIL.computeAsUtf8("baz");
+    List<List<Digest>> requests = new ArrayList<>();
+    serviceRegistry.addService(
+        new ContentAddressableStorageImplBase() {
+          @Override
+          public void findMissingBlobs(
+              FindMissingBlobsRequest request,
+              StreamObserver<FindMissingBlobsResponse> responseObserver) {
+            requests.add(request.getBlobDigestsList());
+            responseObserver.onNext(
+                FindMissingBlobsResponse.newBuilder().addMissingBlobDigests(bar).build());
+            responseObserver.onCompleted();
+          }
+        });
+    serviceRegistry.addService(
+        new ByteStreamImplBase() {
+          @Override
+          public void read(ReadRequest request, StreamObserver<ReadResponse> responseObserver) {
+            responseObserver.onNext(
+                ReadResponse.newBuilder().setData(ByteString.copyFromUtf8("baz")).build());
+            responseObserver.onCompleted();
+          }
+        });
+
+    assertThat(getFromFuture(client.findMissingDigests(ImmutableList.of(foo, bar))))
+        .containsExactly(bar);
+    assertThat(new String(downloadBlob(client, baz), UTF_8)).isEqualTo("baz");
+    assertThat(getFromFuture(client.findMissingDigests(ImmutableList.of(foo, bar, baz))))
+        .containsExactly(bar);
+
+    // foo was found by the first lookup and baz was downloaded, so only bar is looked up again.
+    assertThat(requests).containsExactly(ImmutableList.of(foo, bar), ImmutableList.of(bar));
+    assertThat(existenceCache.contains(foo)).isTrue();
+    assertThat(existenceCache.contains(bar)).isFalse();
+  }
+
+  @Test
+  public void downloadFileInParallelChunksResumesFailedChunk() throws Exception {
+    RemoteOptions remoteOptions = Options.getDefaults(RemoteOptions.class);
+    remoteOptions.remoteDownloadChunkSize = 3;
+    remoteOptions.remoteMaxConnections = 2;
+    GrpcCacheClient client = newClient(remoteOptions);
+    ByteString blob = ByteString.copyFromUtf8("0123456789");
+    Digest digest = DIGEST_UTIL.compute(blob.toByteArray());
+    List<String> reads = Collections.synchronizedList(new ArrayList<>());
+    AtomicBoolean failedOnce = new AtomicBoolean();
+    serviceRegistry.addService(
+        new ByteStreamImplBase() {
+          @Override
+          public void read(ReadRequest request, StreamObserver<ReadResponse> responseObserver) {
+            int offset = (int) request.getReadOffset();
+            int limit = (int) request.getReadLimit();
+            reads.add(offset + "+" + limit);
+            if (offset == 3 && !failedOnce.getAndSet(true)) {
+              responseObserver.onNext(
+                  ReadResponse.newBuilder().setData(blob.substring(3, 4)).build());
+              responseObserver.onError(Status.UNAVAILABLE.asRuntimeException());
+              return;
+            }
+            responseObserver.onNext(
+                ReadResponse.newBuilder().setData(blob.substring(offset, offset + limit)).build());
+            responseObserver.onCompleted();
+          }
+        });
+    Path file =
+        new JavaIoFileSystem(DigestHashFunction.SHA256)
+            .getPath(com.google.devtools.build.lib.testutil.TestUtils.makeTempDir().getPath())
+            .getChild("file");
+
+    getFromFuture(client.downloadFile(digest, file));
+
+    assertThat(FileSystemUtils.readContent(file)).isEqualTo(blob.toByteArray());
+    // The second chunk is resumed after the byte that was received before the failure.
+    assertThat(reads).containsExactly("0+3", "3+3", "4+2", "6+3", "9+1");
+  }
+
   @Test
   public void testDownloadBlobSingleChunk() throws Exception {
     final GrpcCacheClient client = newClient();
@@ -1149,6 +1287,280 @@ public class GrpcCacheClientTest {
     assertThat(downloadBlob(client, digest)).isEqualTo(downloadContents.toByteArray());
   }
 
+  @Test
+  public void testUploadSmallBlobsWithBatchUpdateBlobs() throws Exception {
+    GrpcCacheClient client = newBatchingClient();
+    ByteString foo = ByteString.copyFromUtf8("foo");
+    ByteString bar = ByteString.copyFromUtf8("bar");
+    Digest fooDigest = DIGEST_UTIL.compute(foo.toByteArray());
+    Digest barDigest = DIGEST_UTIL.compute(bar.toByteArray());
+    List<BatchUpdateBlobsRequest> requests = new ArrayList<>();
+    serviceRegistry.addService(
+        new ContentAddressableStorageImplBase() {
+          @Override
+          public void batchUpdateBlobs(
+              BatchUpdateBlobsRequest request,
+              StreamObserver<BatchUpdateBlobsResponse> responseObserver) {
+            requests.add(request);
+            BatchUpdateBlobsResponse.Builder response = BatchUpdateBlobsResponse.newBuilder();
+            for (BatchUpdateBlobsRequest.Request r : request.getRequestsList()) {
+              response.addResponsesBuilder().setDigest(r.getDigest());
+            }
+            responseObserver.onNext(response.build());
+            responseObserver.onCompleted();
+          }
+        });
+
+    getFromFuture(client.uploadBlob(fooDigest, foo));
+    getFromFuture(client.uploadBlob(barDigest, bar));
+
+    assertThat(requests).hasSize(2);
+    assertThat(requests.get(0).getRequests(0).getData()).isEqualTo(foo);
+    assertThat(requests.get(1).getRequests(0).getData()).isEqualTo(bar);
+  }
+
+  @Test
+  public void testDownloadSmallBlobWithBatchReadBlobs() throws Exception {
+    GrpcCacheClient client = newBatchingClient();
+    Digest digest = DIGEST_UTIL.computeAsUtf8("abcdefg");
+    Digest missingDigest = DIGEST_UTIL.computeAsUtf8("missing");
+    serviceRegistry.addService(
+        new ContentAddressableStorageImplBase() {
+          @Override
+          public void batchReadBlobs(
+              BatchReadBlobsRequest request,
+              StreamObserver<BatchReadBlobsResponse> responseObserver) {
+            BatchReadBlobsResponse.Builder response = BatchReadBlobsResponse.newBuilder();
+            for (Digest d : request.getDigestsList()) {
+              if (d.equals(digest)) {
+                response
+                    .addResponsesBuilder()
+                    .setDigest(d)
+                    .setData(ByteString.copyFromUtf8("abcdefg"));
+              } else {
+                response
+                    .addResponsesBuilder()
+                    .setDigest(d)
+                    .getStatusBuilder()
+                    .setCode(com.google.rpc.Code.NOT_FOUND.getNumber());
+              }
+            }
+            responseObserver.onNext(response.build());
+            responseObserver.onCompleted();
+          }
+        });
+
+    assertThat(new String(downloadBlob(client, digest), UTF_8)).isEqualTo("abcdefg");
+    assertThrows(CacheNotFoundException.class, () -> downloadBlob(client, missingDigest));
+  }
+
+  @Test
+  public void testBatchFallsBackToByteStreamWhenUnimplemented() throws Exception {
+    GrpcCacheClient client = newBatchingClient();
+    Digest digest = DIGEST_UTIL.computeAsUtf8("abcdefg");
+    serviceRegistry.addService(new ContentAddressableStorageImplBase() {});
+    serviceRegistry.addService(
+        new ByteStreamImplBase() {
+          @Override
+          public void read(ReadRequest request, StreamObserver<ReadResponse> responseObserver) {
+            responseObserver.onNext(
+                ReadResponse.newBuilder().setData(ByteString.copyFromUtf8("abcdefg")).build());
+            responseObserver.onCompleted();
+          }
+        });
+
+    assertThat(new String(downloadBlob(client, digest), UTF_8)).isEqualTo("abcdefg");
+  }
+
+  @Test
+  public void testBatchRetriesRejectedBlobWithByteStream() throws Exception {
+    GrpcCacheClient client = newBatchingClient();
+    ByteString blob = ByteString.copyFromUtf8("foo");
+    Digest digest = DIGEST_UTIL.compute(blob.toByteArray());
+    serviceRegistry.addService(
+        new ContentAddressableStorageImplBase() {
+          @Override
+          public void batchUpdateBlobs(
+              BatchUpdateBlobsRequest request,
+              StreamObserver<BatchUpdateBlobsResponse> responseObserver) {
+            BatchUpdateBlobsResponse.Builder response = BatchUpdateBlobsResponse.newBuilder();
+            response
+                .addResponsesBuilder()
+                .setDigest(digest)
+                .getStatusBuilder()
+                .setCode(com.google.rpc.Code.RESOURCE_EXHAUSTED.getNumber());
+            responseObserver.onNext(response.build());
+            responseObserver.onCompleted();
+          }
+        });
+    AtomicBoolean writeCalled = new AtomicBoolean();
+    serviceRegistry.addService(
+        new ByteStreamImplBase() {
+          @Override
+          public StreamObserver<WriteRequest> write(
+              StreamObserver<WriteResponse> responseObserver) {
+            writeCalled.set(true);
+            return new StreamObserver<WriteRequest>() {
+              @Override
+              public void onNext(WriteRequest request) {}
+
+              @Override
+              public void onError(Throwable t) {}
+
+              @Override
+              public void onCompleted() {
+                responseObserver.onNext(
+                    WriteResponse.newBuilder().setCommittedSize(blob.size()).build());
+                responseObserver.onCompleted();
+              }
+            };
+          }
+        });
+
+    getFromFuture(client.uploadBlob(digest, blob));
+
+    assertThat(writeCalled.get()).isTrue();
+  }
+
+  @Test
+  public void testCompressedDownloadAndUpload() throws Exception {
+    RemoteOptions remoteOptions = Options.getDefaults(RemoteOptions.class);
+    remoteOptions.cacheCompression = true;
+    remoteOptions.remoteBatchBlobSize = 0;
+    GrpcCacheClient client =
+        newClient(
+            remoteOptions,
+            () -> new ExponentialBackoff(remoteOptions),
+            CacheCapabilities.newBuilder()
+                .addSupportedCompressors(Compressor.Value.DEFLATE)
+                .build());
+    byte[] blob = Strings.repeat("abcdefg", 1000).getBytes(UTF_8);
+    Digest digest = DIGEST_UTIL.compute(blob);
+    byte[] compressed = deflate(blob);
+    ByteArrayOutputStream uploaded = new ByteArrayOutputStream();
+    serviceRegistry.addService(
+        new ByteStreamImplBase() {
+          @Override
+          public void read(ReadRequest request, StreamObserver<ReadResponse> responseObserver) {
+            assertThat(request.getResourceName())
+                .isEqualTo("compressed-blobs/deflate/" + DigestUtil.toString(digest));
+            int half = compressed.length / 2;
+            responseObserver.onNext(
+                ReadResponse.newBuilder()
+                    .setData(ByteString.copyFrom(compressed, 0, half))
+                    .build());
+            responseObserver.onNext(
+                ReadResponse.newBuilder()
+                    .setData(ByteString.copyFrom(compressed, half, compressed.length - half))
+                    .build());
+            responseObserver.onCompleted();
+          }
+
+          @Override
+          public StreamObserver<WriteRequest> write(
+              StreamObserver<WriteResponse> responseObserver) {
+            return new StreamObserver<WriteRequest>() {
+              private long committedSize;
+
+              @Override
+              public void onNext(WriteRequest request) {
+                if (committedSize == 0) {
+                  assertThat(request.getResourceName())
+                      .contains("/compressed-blobs/deflate/" + DigestUtil.toString(digest));
+                }
+                try {
+                  request.getData().writeTo(uploaded);
+                } catch (IOException e) {
+                  throw new AssertionError(e);
+                }
+                committedSize += request.getData().size();
+              }
+
+              @Override
+              public void onError(Throwable t) {}
+
+              @Override
+              public void onCompleted() {
+                responseObserver.onNext(
+                    WriteResponse.newBuilder().setCommittedSize(committedSize).build());
+                responseObserver.onCompleted();
+              }
+            };
+          }
+        });
+
+    assertThat(downloadBlob(client, digest)).isEqualTo(blob);
+    getFromFuture(client.uploadBlob(digest, ByteString.copyFrom(blob)));
+
+    assertThat(uploaded.size()).isLessThan(blob.length);
+    ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+    try (InflatingOutputStream inflatingOut = new InflatingOutputStream(decompressed)) {
+      uploaded.writeTo(inflatingOut);
+      inflatingOut.finish();
+    }
+    assertThat(decompressed.toByteArray()).isEqualTo(blob);
+  }
+
+  @Test
+  public void testCompressedDownloadResumesAtUncompressedOffset() throws Exception {
+    RemoteOptions remoteOptions = Options.getDefaults(RemoteOptions.class);
+    remoteOptions.cacheCompression = true;
+    remoteOptions.remoteBatchBlobSize = 0;
+    GrpcCacheClient client =
+        newClient(
+            remoteOptions,
+            () -> new ExponentialBackoff(remoteOptions),
+            CacheCapabilities.newBuilder()
+                .addSupportedCompressors(Compressor.Value.DEFLATE)
+                .build());
+    byte[] blob = Strings.repeat("abcdefg", 1000).getBytes(UTF_8);
+    Digest digest = DIGEST_UTIL.compute(blob);
+    int half = blob.length / 2;
+    AtomicInteger reads = new AtomicInteger();
+    serviceRegistry.addService(
+        new ByteStreamImplBase() {
+          @Override
+          public void read(ReadRequest request, StreamObserver<ReadResponse> responseObserver) {
+            if (reads.incrementAndGet() == 1) {
+              assertThat(request.getReadOffset()).isEqualTo(0);
+              // A complete compressed block of the first half, then the stream breaks.
+              Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, /* nowrap= */ true);
+              deflater.setInput(blob, 0, half);
+              byte[] buffer = new byte[blob.length];
+              int n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+              deflater.end();
+              responseObserver.onNext(
+                  ReadResponse.newBuilder().setData(ByteString.copyFrom(buffer, 0, n)).build());
+              responseObserver.onError(Status.UNAVAILABLE.asRuntimeException());
+              return;
+            }
+            // The offset refers to the uncompressed blob, and the response is a new compressed
+            // stream of the rest of the blob.
+            assertThat(request.getReadOffset()).isEqualTo(half);
+            byte[] rest = Arrays.copyOfRange(blob, half, blob.length);
+            responseObserver.onNext(
+                ReadResponse.newBuilder().setData(ByteString.copyFrom(deflate(rest))).build());
+            responseObserver.onCompleted();
+          }
+        });
+
+    assertThat(downloadBlob(client, digest)).isEqualTo(blob);
+    assertThat(reads.get()).isEqualTo(2);
+  }
+
+  private static byte[] deflate(byte[] data) {
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, /* nowrap= */ true);
+    deflater.setInput(data);
+    deflater.finish();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[1024];
+    while (!deflater.finished()) {
+      out.write(buffer, 0, deflater.deflate(buffer));
+    }
+    deflater.end();
+    return out.toByteArray();
+  }
+
   @Test
   public void isRemoteCacheOptionsWhenGrpcEnabled() {
     RemoteOptions options = Options.getDefaults(RemoteOptions.class);
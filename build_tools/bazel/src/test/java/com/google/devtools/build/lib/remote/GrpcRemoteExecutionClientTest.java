@@ -100,6 +100,10 @@ import io.grpc.inprocess.InProcessChannelBuilder;
 import io.grpc.inprocess.InProcessServerBuilder;
 import io.grpc.stub.StreamObserver;
 import io.grpc.util.MutableHandlerRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -131,6 +135,7 @@ public class GrpcRemoteExecutionClientTest {
   private Digest cmdDigest;
   private Command command;
   private RemoteSpawnRunner client;
+  private RemoteSpawnRunner asyncClient;
   private FileOutErr outErr;
   private RemoteOptions remoteOptions;
   private Server fakeServer;
@@ -268,21 +273,8 @@ public class GrpcRemoteExecutionClientTest {
         new GrpcCacheClient(channel.retain(), creds, remoteOptions, retrier, DIGEST_UTIL, uploader);
     RemoteExecutionCache remoteCache =
         new RemoteExecutionCache(cacheProtocol, remoteOptions, DIGEST_UTIL);
-    client =
-        new RemoteSpawnRunner(
-            execRoot,
-            remoteOptions,
-            Options.getDefaults(ExecutionOptions.class),
-            /* verboseFailures= */ true,
-            /*cmdlineReporter=*/ null,
-            "build-req-id",
-            "command-id",
-            remoteCache,
-            executor,
-            retryService,
-            DIGEST_UTIL,
-            logDir,
-            /* filesToDownload= */ ImmutableSet.of());
+    client = newSpawnRunner(/* asyncExecution= */ false, remoteCache, executor);
+    asyncClient = newSpawnRunner(/* asyncExecution= */ true, remoteCache, executor);
 
     inputDigest =
         fakeFileCache.createScratchInput(simpleSpawn.getInputFiles().getSingleton(), "xyz");
@@ -300,6 +292,25 @@ public class GrpcRemoteExecutionClientTest {
     channel.release();
   }
 
+  private RemoteSpawnRunner newSpawnRunner(
+      boolean asyncExecution, RemoteExecutionCache remoteCache, GrpcRemoteExecutor executor) {
+    return new RemoteSpawnRunner(
+        execRoot,
+        remoteOptions,
+        Options.getDefaults(ExecutionOptions.class),
+        /* verboseFailures= */ true,
+        asyncExecution,
+        /*cmdlineReporter=*/ null,
+        "build-req-id",
+        "command-id",
+        remoteCache,
+        executor,
+        retryService,
+        DIGEST_UTIL,
+        logDir,
+        /* filesToDownload= */ ImmutableSet.of());
+  }
+
   @After
   public void tearDown() throws Exception {
     retryService.shutdownNow();
@@ -958,6 +969,115 @@ public class GrpcRemoteExecutionClientTest {
         .write(ArgumentMatchers.<StreamObserver<WriteResponse>>any());
   }
 
+  @Test
+  public void asyncRemotelyExecuteRetriesWaitResult() throws Exception {
+    // Same flow as remotelyExecuteRetriesWaitResult, but the retries happen on the async stub.
+    serviceRegistry.addService(
+        new ActionCacheImplBase() {
+          @Override
+          public void getActionResult(
+              GetActionResultRequest request, StreamObserver<ActionResult> responseObserver) {
+            responseObserver.onError(Status.NOT_FOUND.asRuntimeException());
+          }
+        });
+    final Digest resultDigest = DIGEST_UTIL.compute("bla".getBytes(UTF_8));
+    final ActionResult actionResult =
+        ActionResult.newBuilder()
+            .setStdoutRaw(ByteString.copyFromUtf8("stdout"))
+            .setStderrRaw(ByteString.copyFromUtf8("stderr"))
+            .addOutputFiles(OutputFile.newBuilder().setPath("foo").setDigest(resultDigest).build())
+            .build();
+    final String opName = "operations/xyz";
+
+    Operation unfinishedOperation = Operation.newBuilder().setName(opName).build();
+    Operation opSuccess =
+        Operation.newBuilder()
+            .setName(opName)
+            .setDone(true)
+            .setResponse(Any.pack(ExecuteResponse.newBuilder().setResult(actionResult).build()))
+            .build();
+
+    ExecutionImplBase mockExecutionImpl = Mockito.mock(ExecutionImplBase.class);
+    // Flow of this test:
+    // - call execute, get an Operation, then a retriable gRPC error
+    // - retry: call waitExecute, get NOT_FOUND (operation lost)
+    // - retry: call execute, get NOT_FOUND (operation lost)
+    // - retry: call execute, get an Operation, then a retriable gRPC error
+    // - retry: call waitExecute, get successful operation, ignore further errors.
+    Mockito.doAnswer(answerWith(unfinishedOperation, Status.UNAVAILABLE))
+        .doAnswer(answerWith(unfinishedOperation, Status.NOT_FOUND))
+        .doAnswer(answerWith(unfinishedOperation, Status.UNAVAILABLE))
+        .when(mockExecutionImpl)
+        .execute(
+            ArgumentMatchers.<ExecuteRequest>any(),
+            ArgumentMatchers.<StreamObserver<Operation>>any());
+    Mockito.doAnswer(answerWith(unfinishedOperation, Status.NOT_FOUND))
+        .doAnswer(answerWith(opSuccess, Status.UNAVAILABLE)) // This error is ignored.
+        .when(mockExecutionImpl)
+        .waitExecution(
+            ArgumentMatchers.<WaitExecutionRequest>any(),
+            ArgumentMatchers.<StreamObserver<Operation>>any());
+    serviceRegistry.addService(mockExecutionImpl);
+
+    serviceRegistry.addService(
+        new ContentAddressableStorageImplBase() {
+
+          @Override
+          public void findMissingBlobs(
+              FindMissingBlobsRequest request,
+              StreamObserver<FindMissingBlobsResponse> responseObserver) {
+            final Set<Digest> requested = ImmutableSet.copyOf(request.getBlobDigestsList());
+            assertThat(requested).contains(cmdDigest);
+            assertThat(requested).contains(inputDigest);
+            responseObserver.onNext(
+                FindMissingBlobsResponse.newBuilder().addMissingBlobDigests(inputDigest).build());
+            responseObserver.onCompleted();
+          }
+        });
+
+    ByteStreamImplBase mockByteStreamImpl = Mockito.mock(ByteStreamImplBase.class);
+    when(mockByteStreamImpl.write(ArgumentMatchers.<StreamObserver<WriteResponse>>any()))
+        .thenAnswer(blobWriteAnswer("xyz".getBytes(UTF_8))); // Upload input file successfully.
+    Mockito.doAnswer(
+            invocationOnMock -> {
+              @SuppressWarnings("unchecked")
+              StreamObserver<ReadResponse> responseObserver =
+                  (StreamObserver<ReadResponse>) invocationOnMock.getArguments()[1];
+              responseObserver.onNext(
+                  ReadResponse.newBuilder().setData(ByteString.copyFromUtf8("bla")).build());
+              responseObserver.onCompleted();
+              return null;
+            })
+        .when(mockByteStreamImpl)
+        .read(
+            ArgumentMatchers.<ReadRequest>any(),
+            ArgumentMatchers.<StreamObserver<ReadResponse>>any());
+    serviceRegistry.addService(mockByteStreamImpl);
+
+    FakeSpawnExecutionContext policy =
+        new FakeSpawnExecutionContext(simpleSpawn, fakeFileCache, execRoot, outErr);
+    SpawnResult result = asyncClient.execAsync(simpleSpawn, policy).get();
+    assertThat(result.setupSuccess()).isTrue();
+    assertThat(result.exitCode()).isEqualTo(0);
+    assertThat(result.isCacheHit()).isFalse();
+    assertThat(outErr.outAsLatin1()).isEqualTo("stdout");
+    assertThat(outErr.errAsLatin1()).isEqualTo("stderr");
+    verify(mockExecutionImpl, Mockito.times(3))
+        .execute(
+            ArgumentMatchers.<ExecuteRequest>any(),
+            ArgumentMatchers.<StreamObserver<Operation>>any());
+    verify(mockExecutionImpl, Mockito.times(2))
+        .waitExecution(
+            ArgumentMatchers.<WaitExecutionRequest>any(),
+            ArgumentMatchers.<StreamObserver<Operation>>any());
+    verify(mockByteStreamImpl)
+        .read(
+            ArgumentMatchers.<ReadRequest>any(),
+            ArgumentMatchers.<StreamObserver<ReadResponse>>any());
+    verify(mockByteStreamImpl, Mockito.times(1))
+        .write(ArgumentMatchers.<StreamObserver<WriteResponse>>any());
+  }
+
   @Test
   public void passUnavailableErrorWithStackTrace() throws Exception {
     serviceRegistry.addService(
@@ -1402,6 +1522,121 @@ public class GrpcRemoteExecutionClientTest {
     assertThat(numExecuteCalls.get()).isEqualTo(2);
   }
 
+  @Test
+  public void missingInputsAreLookedUpAgainDespiteExistenceCache() throws Exception {
+    RemoteRetrier retrier =
+        TestUtils.newRemoteRetrier(
+            () -> new ExponentialBackoff(remoteOptions),
+            RemoteRetrier.RETRIABLE_GRPC_EXEC_ERRORS,
+            retryService);
+    ReferenceCountedChannel channel =
+        new ReferenceCountedChannel(
+            InProcessChannelBuilder.forName("fake server for " + getClass())
+                .directExecutor()
+                .build());
+    GrpcRemoteExecutor executor =
+        new GrpcRemoteExecutor(channel.retain(), null, retrier, remoteOptions);
+    ByteStreamUploader uploader =
+        new ByteStreamUploader(
+            remoteOptions.remoteInstanceName,
+            channel.retain(),
+            null,
+            remoteOptions.remoteTimeout,
+            retrier);
+    DigestExistenceCache existenceCache =
+        new DigestExistenceCache(new JavaClock(), /* maxSize= */ 100, Duration.ofHours(1));
+    GrpcCacheClient cacheProtocol =
+        new GrpcCacheClient(
+            channel.retain(),
+            null,
+            remoteOptions,
+            retrier,
+            DIGEST_UTIL,
+            uploader,
+            /* cacheCapabilities= */ null,
+            existenceCache);
+    RemoteExecutionCache remoteCache =
+        new RemoteExecutionCache(
+            cacheProtocol,
+            remoteOptions,
+            DIGEST_UTIL,
+            /* actionResultCache= */ null,
+            existenceCache);
+    RemoteSpawnRunner client = newSpawnRunner(/* asyncExecution= */ false, remoteCache, executor);
+    channel.release();
+
+    serviceRegistry.addService(
+        new ActionCacheImplBase() {
+          @Override
+          public void getActionResult(
+              GetActionResultRequest request, StreamObserver<ActionResult> responseObserver) {
+            responseObserver.onError(Status.NOT_FOUND.asRuntimeException());
+          }
+        });
+    serviceRegistry.addService(
+        new ByteStreamImplBase() {
+          @Override
+          public void read(ReadRequest request, StreamObserver<ReadResponse> responseObserver) {
+            responseObserver.onNext(
+                ReadResponse.newBuilder().setData(ByteString.copyFromUtf8("bla")).build());
+            responseObserver.onCompleted();
+          }
+        });
+    AtomicInteger numExecuteCalls = new AtomicInteger();
+    serviceRegistry.addService(
+        new ExecutionImplBase() {
+          @Override
+          public void execute(ExecuteRequest request, StreamObserver<Operation> responseObserver) {
+            ExecuteResponse.Builder response = ExecuteResponse.newBuilder();
+            if (numExecuteCalls.incrementAndGet() == 1) {
+              // The input has been evicted since it was found.
+              Violation viol =
+                  Violation.newBuilder()
+                      .setType("MISSING")
+                      .setSubject(
+                          "blobs/" + inputDigest.getHash() + "/" + inputDigest.getSizeBytes())
+                      .build();
+              response.setStatus(
+                  com.google.rpc.Status.newBuilder()
+                      .setCode(Code.FAILED_PRECONDITION.getNumber())
+                      .addDetails(
+                          Any.pack(PreconditionFailure.newBuilder().addViolations(viol).build())));
+            } else {
+              response.setResult(ActionResult.newBuilder().addOutputFiles(DUMMY_OUTPUT));
+            }
+            responseObserver.onNext(
+                Operation.newBuilder()
+                    .setDone(true)
+                    .setResponse(Any.pack(response.build()))
+                    .build());
+            responseObserver.onCompleted();
+          }
+        });
+    List<Digest> lookedUp = Collections.synchronizedList(new ArrayList<>());
+    serviceRegistry.addService(
+        new ContentAddressableStorageImplBase() {
+          @Override
+          public void findMissingBlobs(
+              FindMissingBlobsRequest request,
+              StreamObserver<FindMissingBlobsResponse> responseObserver) {
+            lookedUp.addAll(request.getBlobDigestsList());
+            // Nothing is missing.
+            responseObserver.onNext(FindMissingBlobsResponse.getDefaultInstance());
+            responseObserver.onCompleted();
+          }
+        });
+
+    FakeSpawnExecutionContext policy =
+        new FakeSpawnExecutionContext(simpleSpawn, fakeFileCache, execRoot, outErr);
+
+    SpawnResult result = client.exec(simpleSpawn, policy);
+    assertThat(result.exitCode()).isEqualTo(0);
+    assertThat(numExecuteCalls.get()).isEqualTo(2);
+    // Without invalidation, the second attempt would have trusted the existence cache.
+    assertThat(Collections.frequency(lookedUp, inputDigest)).isEqualTo(2);
+    assertThat(existenceCache.contains(inputDigest)).isTrue();
+  }
+
   @Test
   public void execWaitsOnUnfinishedCompletion() throws Exception {
     serviceRegistry.addService(
@@ -1483,4 +1718,86 @@ public class GrpcRemoteExecutionClientTest {
         .waitExecution(
             Mockito.eq(waitExecutionRequest), ArgumentMatchers.<StreamObserver<Operation>>any());
   }
+
+  @Test
+  public void asyncExecWaitsOnUnfinishedCompletion() throws Exception {
+    serviceRegistry.addService(
+        new ActionCacheImplBase() {
+          @Override
+          public void getActionResult(
+              GetActionResultRequest request, StreamObserver<ActionResult> responseObserver) {
+            responseObserver.onError(Status.NOT_FOUND.asRuntimeException());
+          }
+        });
+
+    final String opName = "operations/xyz";
+    final Digest resultDigest = DIGEST_UTIL.compute("bla".getBytes(UTF_8));
+    serviceRegistry.addService(
+        new ByteStreamImplBase() {
+          @Override
+          public void read(ReadRequest request, StreamObserver<ReadResponse> responseObserver) {
+            responseObserver.onNext(
+                ReadResponse.newBuilder().setData(ByteString.copyFromUtf8("bla")).build());
+            responseObserver.onCompleted();
+          }
+        });
+    final ActionResult actionResult =
+        ActionResult.newBuilder()
+            .setStdoutRaw(ByteString.copyFromUtf8("stdout"))
+            .setStderrRaw(ByteString.copyFromUtf8("stderr"))
+            .addOutputFiles(OutputFile.newBuilder().setPath("foo").setDigest(resultDigest).build())
+            .build();
+    final Operation unfinishedOperation = Operation.newBuilder().setName(opName).build();
+    final Operation completeOperation =
+        unfinishedOperation.toBuilder()
+            .setDone(true)
+            .setResponse(Any.pack(ExecuteResponse.newBuilder().setResult(actionResult).build()))
+            .build();
+    final WaitExecutionRequest waitExecutionRequest =
+        WaitExecutionRequest.newBuilder().setName(opName).build();
+    ExecutionImplBase mockExecutionImpl = Mockito.mock(ExecutionImplBase.class);
+    // Flow of this test:
+    // - call execute, get an unfinished Operation, then the stream completes
+    // - call waitExecute, get an unfinished Operation, then the stream completes
+    // - call waitExecute, get a finished Operation
+    Mockito.doAnswer(answerWith(unfinishedOperation, Status.OK))
+        .when(mockExecutionImpl)
+        .execute(
+            ArgumentMatchers.<ExecuteRequest>any(),
+            ArgumentMatchers.<StreamObserver<Operation>>any());
+    Mockito.doAnswer(answerWith(unfinishedOperation, Status.OK))
+        .doAnswer(answerWith(completeOperation, Status.OK))
+        .when(mockExecutionImpl)
+        .waitExecution(
+            ArgumentMatchers.eq(waitExecutionRequest),
+            ArgumentMatchers.<StreamObserver<Operation>>any());
+    serviceRegistry.addService(mockExecutionImpl);
+
+    serviceRegistry.addService(
+        new ContentAddressableStorageImplBase() {
+
+          @Override
+          public void findMissingBlobs(
+              FindMissingBlobsRequest request,
+              StreamObserver<FindMissingBlobsResponse> responseObserver) {
+            responseObserver.onNext(FindMissingBlobsResponse.getDefaultInstance());
+            responseObserver.onCompleted();
+          }
+        });
+
+    FakeSpawnExecutionContext policy =
+        new FakeSpawnExecutionContext(simpleSpawn, fakeFileCache, execRoot, outErr);
+
+    SpawnResult result = asyncClient.execAsync(simpleSpawn, policy).get();
+    assertThat(result.setupSuccess()).isTrue();
+    assertThat(result.exitCode()).isEqualTo(0);
+    assertThat(result.isCacheHit()).isFalse();
+    verify(mockExecutionImpl, Mockito.times(1))
+        .execute(
+            ArgumentMatchers.<ExecuteRequest>any(),
+            ArgumentMatchers.<StreamObserver<Operation>>any());
+    verify(mockExecutionImpl, Mockito.times(2))
+        .waitExecution(
+            Mockito.eq(waitExecutionRequest), ArgumentMatchers.<StreamObserver<Operation>>any());
+  }
 }
@@ -188,6 +188,39 @@ public class RemoteActionInputFetcherTest {
     assertThat(a1.getPath().isWritable()).isTrue();
   }
 
+  @Test
+  public void testPrefetchInBackgroundWithinBudget() throws Exception {
+    // arrange
+    Map<ActionInput, FileArtifactValue> metadata = new HashMap<>();
+    Map<Digest, ByteString> cacheEntries = new HashMap<>();
+    Artifact a1 = createRemoteArtifact("file1", "fizz buzz", metadata, cacheEntries);
+    Artifact a2 = createRemoteArtifact("file2", "hello world", metadata, cacheEntries);
+    MetadataProvider metadataProvider = new StaticMetadataProvider(metadata);
+    RemoteCache remoteCache = newCache(options, digestUtil, cacheEntries);
+    RemoteActionInputFetcher actionInputFetcher =
+        new RemoteActionInputFetcher(
+            remoteCache,
+            execRoot,
+            RequestMetadata.getDefaultInstance(),
+            /* maxBackgroundBytes= */ 10);
+
+    // act
+    actionInputFetcher.prefetchFilesInBackground(ImmutableList.of(a1, a2), metadataProvider);
+
+    // assert
+    assertThat(actionInputFetcher.downloadedFiles()).containsExactly(a1.getPath());
+    assertThat(a2.getPath().exists()).isFalse();
+
+    // act
+    actionInputFetcher.prefetchFiles(ImmutableList.of(a1, a2), metadataProvider);
+
+    // assert
+    assertThat(FileSystemUtils.readContent(a2.getPath(), StandardCharsets.UTF_8))
+        .isEqualTo("hello world");
+    assertThat(actionInputFetcher.downloadedFiles()).containsExactly(a1.getPath(), a2.getPath());
+    assertThat(actionInputFetcher.downloadsInProgress).isEmpty();
+  }
+
   private Artifact createRemoteArtifact(
       String pathFragment,
       String contents,
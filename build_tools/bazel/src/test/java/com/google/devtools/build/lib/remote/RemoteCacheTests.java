@@ -41,8 +41,11 @@ import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningScheduledExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.devtools.build.lib.actions.ActionInputHelper;
 import com.google.devtools.build.lib.actions.Artifact;
 import com.google.devtools.build.lib.actions.Artifact.SpecialArtifact;
@@ -53,14 +56,18 @@ import com.google.devtools.build.lib.actions.FileArtifactValue.RemoteFileArtifac
 import com.google.devtools.build.lib.actions.cache.MetadataInjector;
 import com.google.devtools.build.lib.actions.util.ActionsTestUtil;
 import com.google.devtools.build.lib.clock.JavaClock;
+import com.google.devtools.build.lib.metrics.ActionResultCacheStatsEvent;
 import com.google.devtools.build.lib.remote.RemoteCache.OutputFilesLocker;
 import com.google.devtools.build.lib.remote.RemoteCache.UploadManifest;
+import com.google.devtools.build.lib.remote.common.CacheNotFoundException;
 import com.google.devtools.build.lib.remote.common.RemoteCacheClient.ActionKey;
 import com.google.devtools.build.lib.remote.options.RemoteOptions;
+import com.google.devtools.build.lib.remote.options.RemoteOutputsMode;
 import com.google.devtools.build.lib.remote.util.DigestUtil;
 import com.google.devtools.build.lib.remote.util.InMemoryCacheClient;
 import com.google.devtools.build.lib.remote.util.Utils;
 import com.google.devtools.build.lib.remote.util.Utils.InMemoryOutput;
+import com.google.devtools.build.lib.testutil.ManualClock;
 import com.google.devtools.build.lib.testutil.TestUtils;
 import com.google.devtools.build.lib.util.io.FileOutErr;
 import com.google.devtools.build.lib.util.io.RecordingOutErr;
@@ -77,6 +84,7 @@ import com.google.protobuf.Message;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -1506,6 +1514,109 @@ public class RemoteCacheTests {
     assertThat(remoteCache.findMissingDigests(toQuery)).isEmpty();
   }
 
+  @Test
+  public void concurrentDownloadsOfTheSameBlobAreShared() throws Exception {
+    byte[] data = "content".getBytes(UTF_8);
+    Digest digest = digestUtil.compute(data);
+    BlockingCacheClient client = new BlockingCacheClient(ImmutableMap.of(digest, data));
+    RemoteCache cache =
+        new RemoteCache(client, Options.getDefaults(RemoteOptions.class), digestUtil);
+    Path foo = execRoot.getRelative("foo");
+    Path bar = execRoot.getRelative("bar");
+
+    ListenableFuture<Void> fooDownload = cache.downloadFile(foo, digest);
+    ListenableFuture<Void> barDownload = cache.downloadFile(bar, digest);
+    client.release();
+    fooDownload.get();
+    barDownload.get();
+
+    assertThat(client.getNumSuccessfulDownloads()).isEqualTo(1);
+    assertThat(FileSystemUtils.readContent(foo)).isEqualTo(data);
+    assertThat(FileSystemUtils.readContent(bar)).isEqualTo(data);
+    // The file is hard linked rather than copied.
+    assertThat(bar.stat().getNodeId()).isEqualTo(foo.stat().getNodeId());
+  }
+
+  @Test
+  public void sharedDownloadContinuesIfTheFirstCallerCancels() throws Exception {
+    byte[] data = "content".getBytes(UTF_8);
+    Digest digest = digestUtil.compute(data);
+    BlockingCacheClient client = new BlockingCacheClient(ImmutableMap.of(digest, data));
+    RemoteCache cache =
+        new RemoteCache(client, Options.getDefaults(RemoteOptions.class), digestUtil);
+    Path foo = execRoot.getRelative("foo");
+    Path bar = execRoot.getRelative("bar");
+
+    ListenableFuture<Void> fooDownload = cache.downloadFile(foo, digest);
+    ListenableFuture<Void> barDownload = cache.downloadFile(bar, digest);
+    fooDownload.cancel(true);
+    client.release();
+    barDownload.get();
+
+    assertThat(client.getNumSuccessfulDownloads()).isEqualTo(1);
+    assertThat(FileSystemUtils.readContent(bar)).isEqualTo(data);
+    assertThat(foo.exists()).isFalse();
+  }
+
+  @Test
+  public void sharedDownloadOfAMissingBlobFailsForAllCallers() throws Exception {
+    Digest digest = digestUtil.computeAsUtf8("missing");
+    BlockingCacheClient client = new BlockingCacheClient(ImmutableMap.of());
+    RemoteCache cache =
+        new RemoteCache(client, Options.getDefaults(RemoteOptions.class), digestUtil);
+
+    ListenableFuture<Void> fooDownload = cache.downloadFile(execRoot.getRelative("foo"), digest);
+    ListenableFuture<Void> barDownload = cache.downloadFile(execRoot.getRelative("bar"), digest);
+    client.release();
+
+    assertThrows(CacheNotFoundException.class, () -> Utils.getFromFuture(fooDownload));
+    assertThrows(CacheNotFoundException.class, () -> Utils.getFromFuture(barDownload));
+  }
+
+  @Test
+  public void rememberedResultsWithMissingOutputsAreLookedUpAgain() throws Exception {
+    InMemoryCacheClient client = new InMemoryCacheClient();
+    ActionKey actionKey = new ActionKey(digestUtil.computeAsUtf8("action"));
+    Digest present = digestUtil.computeAsUtf8("present");
+    Utils.getFromFuture(client.uploadBlob(present, ByteString.copyFromUtf8("present")));
+    client.uploadActionResult(
+        actionKey,
+        ActionResult.newBuilder()
+            .addOutputFiles(OutputFile.newBuilder().setPath("foo").setDigest(present))
+            .build());
+    ActionKey evictedKey = new ActionKey(digestUtil.computeAsUtf8("evicted"));
+    client.uploadActionResult(
+        evictedKey,
+        ActionResult.newBuilder()
+            .addOutputFiles(
+                OutputFile.newBuilder()
+                    .setPath("bar")
+                    .setDigest(digestUtil.computeAsUtf8("evicted")))
+            .build());
+    RemoteOptions options = Options.getDefaults(RemoteOptions.class);
+    options.remoteOutputsMode = RemoteOutputsMode.MINIMAL;
+    ActionResultCache actionResultCache =
+        new ActionResultCache(
+            new ManualClock(),
+            /* maxSize= */ 10,
+            Duration.ofHours(1),
+            Duration.ofMinutes(1),
+            /* validationInterval= */ Duration.ZERO);
+    RemoteCache cache = new RemoteCache(client, options, digestUtil, actionResultCache);
+
+    for (int i = 0; i < 2; i++) {
+      cache.downloadActionResult(actionKey, /* inlineOutErr= */ false);
+      cache.downloadActionResult(evictedKey, /* inlineOutErr= */ false);
+    }
+
+    assertThat(actionResultCache.getHitCount()).isEqualTo(1);
+    assertThat(actionResultCache.getMissCount()).isEqualTo(3);
+    ActionResultCacheStatsEvent stats = cache.getActionResultCacheStats();
+    assertThat(stats.getHits()).isEqualTo(1);
+    assertThat(stats.getMisses()).isEqualTo(3);
+    assertThat(stats.getValidations()).isEqualTo(2);
+  }
+
   private InMemoryRemoteCache newRemoteCache(Map<Digest, byte[]> casEntries) {
     RemoteOptions options = Options.getDefaults(RemoteOptions.class);
     return new InMemoryRemoteCache(casEntries, options, digestUtil);
@@ -1516,6 +1627,25 @@ public class RemoteCacheTests {
     return new InMemoryRemoteCache(options, digestUtil);
   }
 
+  /** A cache client whose downloads only complete once they are released. */
+  private static class BlockingCacheClient extends InMemoryCacheClient {
+    private final SettableFuture<Void> released = SettableFuture.create();
+
+    BlockingCacheClient(Map<Digest, byte[]> casEntries) {
+      super(casEntries);
+    }
+
+    void release() {
+      released.set(null);
+    }
+
+    @Override
+    public ListenableFuture<Void> downloadBlob(Digest digest, OutputStream out) {
+      return Futures.transformAsync(
+          released, (v) -> super.downloadBlob(digest, out), MoreExecutors.directExecutor());
+    }
+  }
+
   private static class InMemoryRemoteCache extends RemoteCache {
 
     InMemoryRemoteCache(
@@ -15,12 +15,14 @@ package com.google.devtools.build.lib.remote;
 
 import static com.google.common.truth.Truth.assertThat;
 import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -30,9 +32,11 @@ import static org.mockito.Mockito.when;
 
 import build.bazel.remote.execution.v2.ActionResult;
 import build.bazel.remote.execution.v2.Digest;
+import build.bazel.remote.execution.v2.ExecuteOperationMetadata;
 import build.bazel.remote.execution.v2.ExecuteRequest;
 import build.bazel.remote.execution.v2.ExecuteResponse;
 import build.bazel.remote.execution.v2.ExecutedActionMetadata;
+import build.bazel.remote.execution.v2.ExecutionStage;
 import build.bazel.remote.execution.v2.LogFile;
 import com.google.common.collect.ClassToInstanceMap;
 import com.google.common.collect.ImmutableClassToInstanceMap;
@@ -41,6 +45,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.eventbus.EventBus;
 import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListeningScheduledExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.SettableFuture;
@@ -69,8 +74,11 @@ import com.google.devtools.build.lib.exec.AbstractSpawnStrategy;
 import com.google.devtools.build.lib.exec.ExecutionOptions;
 import com.google.devtools.build.lib.exec.RemoteLocalFallbackRegistry;
 import com.google.devtools.build.lib.exec.SpawnRunner;
+import com.google.devtools.build.lib.exec.SpawnRunner.ProgressStatus;
 import com.google.devtools.build.lib.exec.SpawnRunner.SpawnExecutionContext;
 import com.google.devtools.build.lib.exec.util.FakeOwner;
+import com.google.devtools.build.lib.profiler.SilentCloseable;
+import com.google.devtools.build.lib.remote.GrpcRemoteExecutor.ExecutionObserver;
 import com.google.devtools.build.lib.remote.common.CacheNotFoundException;
 import com.google.devtools.build.lib.remote.common.RemoteCacheClient.ActionKey;
 import com.google.devtools.build.lib.remote.options.RemoteOptions;
@@ -93,6 +101,7 @@ import com.google.protobuf.util.Timestamps;
 import com.google.rpc.Code;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.List;
@@ -105,6 +114,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
@@ -666,6 +676,66 @@ public class RemoteSpawnRunnerTest {
     assertThat(requests.get(1).getSkipCacheLookup()).isTrue();
   }
 
+  @Test
+  public void asyncExecutionRetriableFailureExecutesAgain() throws Exception {
+    // If the asynchronous execution fails with an error that exec() retries, the spawn should be
+    // executed again through exec().
+
+    RemoteSpawnRunner runner = newAsyncSpawnRunner();
+
+    when(cache.downloadActionResult(any(ActionKey.class), /* inlineOutErr= */ eq(false)))
+        .thenReturn(null);
+    Exception executionFailure =
+        new BulkTransferException(new CacheNotFoundException(Digest.getDefaultInstance()));
+    when(executor.executeRemotelyAsync(any(ExecuteRequest.class), any()))
+        .thenReturn(Futures.immediateFailedFuture(executionFailure));
+    ActionResult execResult = ActionResult.newBuilder().setExitCode(31).build();
+    when(executor.executeRemotely(any(ExecuteRequest.class)))
+        .thenReturn(ExecuteResponse.newBuilder().setResult(execResult).build());
+
+    Spawn spawn = newSimpleSpawn();
+    SpawnExecutionContext policy = getSpawnContext(spawn);
+
+    SpawnResult res = runner.execAsync(spawn, policy).get();
+    assertThat(res.status()).isEqualTo(Status.NON_ZERO_EXIT);
+    assertThat(res.exitCode()).isEqualTo(31);
+
+    verify(executor).executeRemotelyAsync(any(ExecuteRequest.class), any());
+    verify(executor).executeRemotely(any(ExecuteRequest.class));
+    verify(localRunner, never()).exec(any(Spawn.class), any(SpawnExecutionContext.class));
+  }
+
+  @Test
+  public void asyncExecutionFailureFallsBackToLocal() throws Exception {
+    // If the asynchronous execution fails with an error that exec() doesn't retry, the spawn
+    // should fall back to local execution like it does in exec().
+    remoteOptions.remoteLocalFallback = true;
+
+    RemoteSpawnRunner runner = newAsyncSpawnRunner();
+
+    when(cache.downloadActionResult(any(ActionKey.class), /* inlineOutErr= */ eq(false)))
+        .thenReturn(null);
+    when(executor.executeRemotelyAsync(any(ExecuteRequest.class), any()))
+        .thenReturn(Futures.immediateFailedFuture(new IOException("remote execution error")));
+
+    Spawn spawn = newSimpleSpawn();
+    SpawnExecutionContext policy = getSpawnContext(spawn);
+
+    SpawnResult res =
+        new SpawnResult.Builder()
+            .setStatus(Status.SUCCESS)
+            .setExitCode(0)
+            .setRunnerName("test")
+            .build();
+    when(localRunner.exec(eq(spawn), eq(policy))).thenReturn(res);
+
+    SpawnResult result = runner.execAsync(spawn, policy).get();
+    assertThat(result).isSameInstanceAs(res);
+
+    verify(localRunner).exec(eq(spawn), eq(policy));
+    verify(executor, never()).executeRemotely(any(ExecuteRequest.class));
+  }
+
   @Test
   public void testRemoteExecutionTimeout() throws Exception {
     // If remote execution times out the SpawnResult status should be TIMEOUT.
@@ -822,6 +892,7 @@ public class RemoteSpawnRunnerTest {
             Options.getDefaults(RemoteOptions.class),
             executionOptions,
             true,
+            /* asyncExecution= */ false,
             /*cmdlineReporter=*/ null,
             "build-req-id",
             "command-id",
@@ -917,6 +988,51 @@ public class RemoteSpawnRunnerTest {
     verify(cache, never()).download(any(ActionResult.class), any(Path.class), eq(outErr), any());
   }
 
+  @Test
+  public void executionProgress_reportsStagesAndDiscardsStreamedOutput() throws Exception {
+    remoteOptions.remoteExecutionProgress = true;
+    ExecuteResponse succeeded =
+        ExecuteResponse.newBuilder()
+            .setResult(ActionResult.newBuilder().setExitCode(0).build())
+            .build();
+    when(executor.executeRemotely(any(ExecuteRequest.class), any()))
+        .thenAnswer(
+            invocation -> {
+              ExecutionObserver observer = invocation.getArgument(1);
+              observer.onUpdate(
+                  ExecuteOperationMetadata.newBuilder()
+                      .setStage(ExecutionStage.Value.QUEUED)
+                      .build());
+              observer.onUpdate(
+                  ExecuteOperationMetadata.newBuilder()
+                      .setStage(ExecutionStage.Value.EXECUTING)
+                      .setStdoutStreamName("stdout")
+                      .build());
+              return succeeded;
+            });
+    when(executor.streamOutput(eq("stdout"), any()))
+        .thenAnswer(
+            invocation -> {
+              OutputStream out = invocation.getArgument(1);
+              out.write("partial output".getBytes(UTF_8));
+              return (SilentCloseable) () -> {};
+            });
+
+    RemoteSpawnRunner runner = newSpawnRunner();
+    Spawn spawn = newSimpleSpawn();
+    FakeSpawnExecutionContext policy = spy(getSpawnContext(spawn));
+
+    SpawnResult result = runner.exec(spawn, policy);
+
+    assertThat(result.status()).isEqualTo(Status.SUCCESS);
+    InOrder inOrder = inOrder(policy, executor);
+    inOrder.verify(policy).report(ProgressStatus.SCHEDULING, "remote");
+    inOrder.verify(executor).executeRemotely(any(ExecuteRequest.class), any());
+    inOrder.verify(policy).report(ProgressStatus.EXECUTING, "remote");
+    // The streamed output was replaced by the output of the action result.
+    assertThat(outErr.hasRecordedStdout()).isFalse();
+  }
+
   @Test
   public void testDownloadMinimalIoError() throws Exception {
     // arrange
@@ -1040,6 +1156,16 @@ public class RemoteSpawnRunnerTest {
   private RemoteSpawnRunner newSpawnRunner() {
     return newSpawnRunner(
         /* verboseFailures= */ false,
+        /* asyncExecution= */ false,
+        executor,
+        /* reporter= */ null,
+        /* topLevelOutputs= */ ImmutableSet.of());
+  }
+
+  private RemoteSpawnRunner newAsyncSpawnRunner() {
+    return newSpawnRunner(
+        /* verboseFailures= */ false,
+        /* asyncExecution= */ true,
         executor,
         /* reporter= */ null,
         /* topLevelOutputs= */ ImmutableSet.of());
@@ -1047,16 +1173,25 @@ public class RemoteSpawnRunnerTest {
 
   private RemoteSpawnRunner newSpawnRunner(Reporter reporter) {
     return newSpawnRunner(
-        /* verboseFailures= */ false, executor, reporter, /* topLevelOutputs= */ ImmutableSet.of());
+        /* verboseFailures= */ false,
+        /* asyncExecution= */ false,
+        executor,
+        reporter,
+        /* topLevelOutputs= */ ImmutableSet.of());
   }
 
   private RemoteSpawnRunner newSpawnRunner(ImmutableSet<ActionInput> topLevelOutputs) {
     return newSpawnRunner(
-        /* verboseFailures= */ false, executor, /* reporter= */ null, topLevelOutputs);
+        /* verboseFailures= */ false,
+        /* asyncExecution= */ false,
+        executor,
+        /* reporter= */ null,
+        topLevelOutputs);
   }
 
   private RemoteSpawnRunner newSpawnRunner(
       boolean verboseFailures,
+      boolean asyncExecution,
       @Nullable GrpcRemoteExecutor executor,
       @Nullable Reporter reporter,
       ImmutableSet<ActionInput> topLevelOutputs) {
@@ -1065,6 +1200,7 @@ public class RemoteSpawnRunnerTest {
         remoteOptions,
         Options.getDefaults(ExecutionOptions.class),
         verboseFailures,
+        asyncExecution,
         reporter,
         "build-req-id",
         "command-id",
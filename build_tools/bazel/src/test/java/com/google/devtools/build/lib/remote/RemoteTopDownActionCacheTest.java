@@ -0,0 +1,120 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.lib.remote;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import build.bazel.remote.execution.v2.Digest;
+import com.google.common.collect.ImmutableMap;
+import com.google.devtools.build.lib.actions.Action;
+import com.google.devtools.build.lib.actions.FileArtifactValue;
+import com.google.devtools.build.lib.actions.FileArtifactValue.RemoteFileArtifactValue;
+import com.google.devtools.build.lib.actionsketch.ActionSketch;
+import com.google.devtools.build.lib.remote.options.RemoteOptions;
+import com.google.devtools.build.lib.remote.util.DigestUtil;
+import com.google.devtools.build.lib.remote.util.InMemoryCacheClient;
+import com.google.devtools.build.lib.remote.util.Utils;
+import com.google.devtools.build.lib.vfs.DigestHashFunction;
+import com.google.devtools.build.lib.vfs.PathFragment;
+import com.google.devtools.common.options.Options;
+import com.google.protobuf.ByteString;
+import java.math.BigInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link RemoteTopDownActionCache}. */
+@RunWith(JUnit4.class)
+public class RemoteTopDownActionCacheTest {
+
+  private static final DigestUtil DIGEST_UTIL = new DigestUtil(DigestHashFunction.SHA256);
+  private static final ActionSketch SKETCH =
+      ActionSketch.builder()
+          .setTransitiveSourceHash(BigInteger.ONE)
+          .setTransitiveActionLookupHash(BigInteger.TEN)
+          .build();
+  private static final PathFragment OUTPUT = PathFragment.create("bazel-out/bin/foo");
+
+  private final InMemoryCacheClient cacheClient = new InMemoryCacheClient();
+  private final RemoteTopDownActionCache cache =
+      new RemoteTopDownActionCache(
+          new RemoteCache(cacheClient, Options.getDefaults(RemoteOptions.class), DIGEST_UTIL),
+          DIGEST_UTIL,
+          "build-request-id",
+          "command-id");
+
+  private static RemoteFileArtifactValue remoteValue(Digest digest) {
+    return new RemoteFileArtifactValue(
+        DigestUtil.toBinaryDigest(digest), digest.getSizeBytes(), /* locationIndex= */ 1);
+  }
+
+  private Digest uploadBlob(String contents) throws Exception {
+    Digest digest = DIGEST_UTIL.computeAsUtf8(contents);
+    Utils.getFromFuture(cacheClient.uploadBlob(digest, ByteString.copyFromUtf8(contents)));
+    return digest;
+  }
+
+  @Test
+  public void outputMetadataIsFoundBySketch() throws Exception {
+    Digest digest = uploadBlob("foo");
+    cache.putOutputMetadata(SKETCH, ImmutableMap.of(OUTPUT, remoteValue(digest)));
+
+    assertThat(cache.getOutputMetadata(SKETCH)).containsExactly(OUTPUT, remoteValue(digest));
+    assertThat(
+            cache.getOutputMetadata(
+                SKETCH.toBuilder().setTransitiveSourceHash(BigInteger.valueOf(2)).build()))
+        .isNull();
+  }
+
+  @Test
+  public void evictedOutputsAreNotFound() throws Exception {
+    Digest digest = DIGEST_UTIL.computeAsUtf8("foo");
+    cache.putOutputMetadata(SKETCH, ImmutableMap.of(OUTPUT, remoteValue(digest)));
+
+    assertThat(cache.getOutputMetadata(SKETCH)).isNull();
+  }
+
+  @Test
+  public void localOutputsAreNotStored() throws Exception {
+    Digest digest = uploadBlob("foo");
+    cache.putOutputMetadata(
+        SKETCH,
+        ImmutableMap.of(
+            OUTPUT,
+            remoteValue(digest),
+            PathFragment.create("bazel-out/bin/bar"),
+            FileArtifactValue.createForNormalFile(
+                DigestUtil.toBinaryDigest(digest),
+                /* proxy= */ null,
+                digest.getSizeBytes(),
+                /* isShareable= */ true)));
+
+    assertThat(cache.getOutputMetadata(SKETCH)).isNull();
+  }
+
+  @Test
+  public void actionsThatMayNotBeCachedRemotelyAreSkipped() {
+    Action action = mock(Action.class);
+    when(action.getExecutionInfo()).thenReturn(ImmutableMap.of());
+    assertThat(cache.mayBeCached(action)).isTrue();
+
+    when(action.getExecutionInfo()).thenReturn(ImmutableMap.of("no-remote-cache", ""));
+    assertThat(cache.mayBeCached(action)).isFalse();
+
+    when(action.getExecutionInfo()).thenReturn(ImmutableMap.of("no-cache", ""));
+    assertThat(cache.mayBeCached(action)).isFalse();
+  }
+}
@@ -0,0 +1,189 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.lib.remote.disk;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import build.bazel.remote.execution.v2.ActionResult;
+import build.bazel.remote.execution.v2.Digest;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.devtools.build.lib.metrics.DiskCacheStatsEvent;
+import com.google.devtools.build.lib.remote.common.RemoteCacheClient;
+import com.google.devtools.build.lib.remote.common.RemoteCacheClient.ActionKey;
+import com.google.devtools.build.lib.remote.options.RemoteOptions;
+import com.google.devtools.build.lib.remote.util.DigestUtil;
+import com.google.devtools.build.lib.testutil.TestUtils;
+import com.google.devtools.build.lib.vfs.DigestHashFunction;
+import com.google.devtools.build.lib.vfs.JavaIoFileSystem;
+import com.google.devtools.build.lib.vfs.Path;
+import com.google.devtools.common.options.Options;
+import com.google.protobuf.ByteString;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link DiskAndRemoteCacheClient}. */
+@RunWith(JUnit4.class)
+public class DiskAndRemoteCacheClientTest {
+
+  private static final DigestUtil DIGEST_UTIL = new DigestUtil(DigestHashFunction.SHA256);
+
+  private DiskCacheClient diskCache;
+  private final RemoteCacheClient remoteCache = mock(RemoteCacheClient.class);
+  private final SettableFuture<Void> remoteUpload = SettableFuture.create();
+
+  @Before
+  public void setUp() throws Exception {
+    JavaIoFileSystem fs = new JavaIoFileSystem(DigestHashFunction.SHA256);
+    Path root = fs.getPath(TestUtils.makeTempDir().getAbsolutePath()).getChild("disk_cache");
+    root.createDirectoryAndParents();
+    diskCache = new DiskCacheClient(root, /* verifyDownloads= */ true, DIGEST_UTIL);
+    when(remoteCache.uploadBlob(any(), any())).thenReturn(remoteUpload);
+  }
+
+  private DiskAndRemoteCacheClient newClient(int writeBehindQueueSize) {
+    RemoteOptions options = Options.getDefaults(RemoteOptions.class);
+    options.diskCacheWriteBehindQueueSize = writeBehindQueueSize;
+    return new DiskAndRemoteCacheClient(diskCache, remoteCache, options);
+  }
+
+  @Test
+  public void writeBehind_uploadsToRemoteCacheInBackground() throws Exception {
+    DiskAndRemoteCacheClient client = newClient(/* writeBehindQueueSize= */ 2);
+    ByteString data = ByteString.copyFromUtf8("hello");
+    Digest digest = DIGEST_UTIL.compute(data.toByteArray());
+    ActionKey actionKey = new ActionKey(DIGEST_UTIL.computeAsUtf8("action"));
+    ActionResult actionResult = ActionResult.newBuilder().setExitCode(0).build();
+
+    // Neither call waits for the remote cache.
+    client.uploadBlob(digest, data).get();
+    client.uploadActionResult(actionKey, actionResult);
+
+    assertThat(diskCache.contains(digest)).isTrue();
+    assertThat(diskCache.containsActionResult(actionKey)).isTrue();
+    verify(remoteCache, never()).uploadActionResult(any(), any());
+
+    remoteUpload.set(null);
+    client.close();
+
+    verify(remoteCache).uploadActionResult(actionKey, actionResult);
+    DiskCacheStatsEvent stats = client.getStats();
+    assertThat(stats.getWriteBehindUploads()).isEqualTo(2);
+    assertThat(stats.getWriteBehindMaxQueueDepth()).isEqualTo(2);
+  }
+
+  @Test
+  public void writeBehind_actionResultIsNotUploadedIfBlobUploadFailed() throws Exception {
+    DiskAndRemoteCacheClient client = newClient(/* writeBehindQueueSize= */ 2);
+    ByteString data = ByteString.copyFromUtf8("hello");
+    Digest digest = DIGEST_UTIL.compute(data.toByteArray());
+    ActionKey actionKey = new ActionKey(DIGEST_UTIL.computeAsUtf8("action"));
+
+    client.uploadBlob(digest, data).get();
+    client.uploadActionResult(actionKey, ActionResult.getDefaultInstance());
+    remoteUpload.setException(new IOException("remote cache unavailable"));
+    client.close();
+
+    verify(remoteCache, never()).uploadActionResult(any(), any());
+    assertThat(diskCache.containsActionResult(actionKey)).isTrue();
+    assertThat(client.getStats().getWriteBehindUploads()).isEqualTo(0);
+  }
+
+  @Test
+  public void writeBehind_actionResultIsNotUploadedAfterBlobUploadFailed() throws Exception {
+    DiskAndRemoteCacheClient client = newClient(/* writeBehindQueueSize= */ 2);
+    ByteString data = ByteString.copyFromUtf8("hello");
+    Digest digest = DIGEST_UTIL.compute(data.toByteArray());
+    ActionKey actionKey = new ActionKey(DIGEST_UTIL.computeAsUtf8("action"));
+
+    client.uploadBlob(digest, data).get();
+    // The failed upload is no longer pending when the action result is queued.
+    remoteUpload.setException(new IOException("remote cache unavailable"));
+    client.uploadActionResult(actionKey, ActionResult.getDefaultInstance());
+    client.close();
+
+    verify(remoteCache, never()).uploadActionResult(any(), any());
+    assertThat(diskCache.containsActionResult(actionKey)).isTrue();
+    assertThat(client.getStats().getWriteBehindUploads()).isEqualTo(0);
+  }
+
+  @Test
+  public void withoutWriteBehind_waitsForRemoteCache() throws Exception {
+    DiskAndRemoteCacheClient client = newClient(/* writeBehindQueueSize= */ 0);
+    ByteString data = ByteString.copyFromUtf8("hello");
+    Digest digest = DIGEST_UTIL.compute(data.toByteArray());
+    remoteUpload.setException(new IOException("remote cache unavailable"));
+
+    assertThat(client.uploadBlob(digest, data).isDone()).isTrue();
+    client.close();
+
+    assertThat(client.getStats().getWriteBehindUploads()).isEqualTo(0);
+  }
+
+  @Test
+  public void downloadCountsDiskCacheHitsOnce() throws Exception {
+    DiskAndRemoteCacheClient client = newClient(/* writeBehindQueueSize= */ 0);
+    ByteString data = ByteString.copyFromUtf8("hello");
+    Digest digest = DIGEST_UTIL.compute(data.toByteArray());
+    ActionKey actionKey = new ActionKey(DIGEST_UTIL.computeAsUtf8("action"));
+    ActionResult actionResult = ActionResult.newBuilder().setExitCode(0).build();
+    diskCache.uploadBlob(digest, data).get();
+    diskCache.uploadActionResult(actionKey, actionResult);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    client.downloadBlob(digest, out).get();
+    assertThat(client.downloadActionResult(actionKey, /* inlineOutErr= */ false).get())
+        .isEqualTo(actionResult);
+
+    assertThat(out.toByteArray()).isEqualTo(data.toByteArray());
+    DiskCacheStatsEvent stats = client.getStats();
+    assertThat(stats.getHits()).isEqualTo(2);
+    assertThat(stats.getMisses()).isEqualTo(0);
+    verify(remoteCache, never()).downloadBlob(any(), any());
+  }
+
+  @Test
+  public void downloadCountsDiskCacheMissesOnce() throws Exception {
+    DiskAndRemoteCacheClient client = newClient(/* writeBehindQueueSize= */ 0);
+    ByteString data = ByteString.copyFromUtf8("hello");
+    Digest digest = DIGEST_UTIL.compute(data.toByteArray());
+    when(remoteCache.downloadBlob(eq(digest), any()))
+        .thenAnswer(
+            invocation -> {
+              OutputStream out = invocation.getArgument(1);
+              data.writeTo(out);
+              return Futures.immediateFuture(null);
+            });
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    client.downloadBlob(digest, out).get();
+
+    assertThat(out.toByteArray()).isEqualTo(data.toByteArray());
+    DiskCacheStatsEvent stats = client.getStats();
+    assertThat(stats.getHits()).isEqualTo(0);
+    assertThat(stats.getMisses()).isEqualTo(1);
+    assertThat(diskCache.contains(digest)).isTrue();
+  }
+}
@@ -0,0 +1,183 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.lib.remote.disk;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertThrows;
+
+import build.bazel.remote.execution.v2.ActionResult;
+import build.bazel.remote.execution.v2.Digest;
+import com.google.devtools.build.lib.remote.common.CacheNotFoundException;
+import com.google.devtools.build.lib.remote.common.RemoteCacheClient.ActionKey;
+import com.google.devtools.build.lib.remote.util.DigestUtil;
+import com.google.devtools.build.lib.testutil.TestUtils;
+import com.google.devtools.build.lib.vfs.DigestHashFunction;
+import com.google.devtools.build.lib.vfs.FileSystemUtils;
+import com.google.devtools.build.lib.vfs.JavaIoFileSystem;
+import com.google.devtools.build.lib.vfs.Path;
+import com.google.protobuf.ByteString;
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link DiskCacheClient}. */
+@RunWith(JUnit4.class)
+public class DiskCacheClientTest {
+
+  private static final DigestUtil DIGEST_UTIL = new DigestUtil(DigestHashFunction.SHA256);
+
+  private Path root;
+
+  @Before
+  public void setUp() throws Exception {
+    JavaIoFileSystem fs = new JavaIoFileSystem(DigestHashFunction.SHA256);
+    root = fs.getPath(TestUtils.makeTempDir().getAbsolutePath()).getChild("disk_cache");
+    root.createDirectoryAndParents();
+  }
+
+  private DiskCacheClient newClient(boolean fsync) {
+    return new DiskCacheClient(
+        root,
+        /* verifyDownloads= */ true,
+        DIGEST_UTIL,
+        /* maxSizeBytes= */ 0,
+        fsync,
+        /* ioThreads= */ 2);
+  }
+
+  private static byte[] download(DiskCacheClient client, Digest digest) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    client.downloadBlob(digest, out).get();
+    return out.toByteArray();
+  }
+
+  @Test
+  public void entriesAreShardedByHashPrefix() throws Exception {
+    DiskCacheClient client = newClient(/* fsync= */ false);
+    ByteString data = ByteString.copyFromUtf8("hello");
+    Digest digest = DIGEST_UTIL.compute(data.toByteArray());
+    ActionKey actionKey = new ActionKey(DIGEST_UTIL.computeAsUtf8("action"));
+
+    client.uploadBlob(digest, data).get();
+    client.uploadActionResult(actionKey, ActionResult.getDefaultInstance());
+
+    String hash = digest.getHash();
+    String actionHash = actionKey.getDigest().getHash();
+    assertThat(root.getRelative("cas/" + hash.substring(0, 2) + "/" + hash).exists()).isTrue();
+    assertThat(
+            root.getRelative("ac/" + actionHash.substring(0, 2) + "/" + actionHash).exists())
+        .isTrue();
+    assertThat(client.contains(digest)).isTrue();
+    assertThat(client.containsActionResult(actionKey)).isTrue();
+    assertThat(download(client, digest)).isEqualTo(data.toByteArray());
+  }
+
+  @Test
+  public void legacyLayoutIsMigrated() throws Exception {
+    byte[] data = "hello".getBytes(UTF_8);
+    Digest digest = DIGEST_UTIL.compute(data);
+    ActionKey actionKey = new ActionKey(DIGEST_UTIL.computeAsUtf8("action"));
+    FileSystemUtils.writeContent(root.getChild(digest.getHash()), data);
+    FileSystemUtils.writeContent(
+        root.getChild("ac_" + actionKey.getDigest().getHash()),
+        ActionResult.getDefaultInstance().toByteArray());
+    Path leftoverTemp = root.getChild("0f3b2a1c-7d4e-4f5a-9b8c-1d2e3f4a5b6c");
+    FileSystemUtils.writeContent(leftoverTemp, data);
+
+    DiskCacheClient client = newClient(/* fsync= */ false);
+
+    assertThat(root.getChild(digest.getHash()).exists()).isFalse();
+    assertThat(leftoverTemp.exists()).isFalse();
+    assertThat(client.contains(digest)).isTrue();
+    assertThat(client.containsActionResult(actionKey)).isTrue();
+    assertThat(download(client, digest)).isEqualTo(data);
+  }
+
+  @Test
+  public void staleTempFilesAreDeleted() throws Exception {
+    Path tempDir = root.getChild(DiskCacheClient.TEMP_DIRECTORY);
+    tempDir.createDirectory();
+    Path staleTemp = tempDir.getChild("stale");
+    Path recentTemp = tempDir.getChild("recent");
+    FileSystemUtils.writeContent(staleTemp, "stale".getBytes(UTF_8));
+    FileSystemUtils.writeContent(recentTemp, "recent".getBytes(UTF_8));
+    staleTemp.setLastModifiedTime(System.currentTimeMillis() - Duration.ofDays(1).toMillis());
+
+    DiskCacheClient client = newClient(/* fsync= */ false);
+    client.close();
+
+    assertThat(staleTemp.exists()).isFalse();
+    assertThat(recentTemp.exists()).isTrue();
+  }
+
+  @Test
+  public void uploadWithFsync() throws Exception {
+    DiskCacheClient client = newClient(/* fsync= */ true);
+    Path file = root.getParentDirectory().getChild("file");
+    FileSystemUtils.writeContent(file, "contents".getBytes(UTF_8));
+    Digest digest = DIGEST_UTIL.compute(file);
+
+    client.uploadFile(digest, file).get();
+
+    assertThat(client.contains(digest)).isTrue();
+    assertThat(download(client, digest)).isEqualTo("contents".getBytes(UTF_8));
+    assertThat(root.getChild(DiskCacheClient.TEMP_DIRECTORY).getDirectoryEntries()).isEmpty();
+  }
+
+  @Test
+  public void downloadFile() throws Exception {
+    DiskCacheClient client = newClient(/* fsync= */ false);
+    ByteString data = ByteString.copyFromUtf8("contents");
+    Digest digest = DIGEST_UTIL.compute(data.toByteArray());
+    client.uploadBlob(digest, data).get();
+    Path file = root.getParentDirectory().getChild("file");
+
+    client.downloadFile(digest, file).get();
+
+    assertThat(FileSystemUtils.readContent(file)).isEqualTo(data.toByteArray());
+  }
+
+  @Test
+  public void downloadFile_missingEntry() throws Exception {
+    DiskCacheClient client = newClient(/* fsync= */ false);
+    Digest digest = DIGEST_UTIL.computeAsUtf8("missing");
+    Path file = root.getParentDirectory().getChild("file");
+
+    ExecutionException e =
+        assertThrows(ExecutionException.class, () -> client.downloadFile(digest, file).get());
+    assertThat(e).hasCauseThat().isInstanceOf(CacheNotFoundException.class);
+    assertThat(file.exists()).isFalse();
+  }
+
+  @Test
+  public void containsCountsHitsAndMisses() throws Exception {
+    DiskCacheClient client = newClient(/* fsync= */ false);
+    ByteString data = ByteString.copyFromUtf8("contents");
+    Digest digest = DIGEST_UTIL.compute(data.toByteArray());
+    ActionKey actionKey = new ActionKey(DIGEST_UTIL.computeAsUtf8("action"));
+    client.uploadBlob(digest, data).get();
+
+    assertThat(client.contains(digest)).isTrue();
+    assertThat(client.contains(DIGEST_UTIL.computeAsUtf8("missing"))).isFalse();
+    assertThat(client.containsActionResult(actionKey)).isFalse();
+
+    assertThat(client.getStats().getHits()).isEqualTo(1);
+    assertThat(client.getStats().getMisses()).isEqualTo(2);
+  }
+}
@@ -0,0 +1,148 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.lib.remote.disk;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.devtools.build.lib.testutil.ManualClock;
+import com.google.devtools.build.lib.testutil.TestUtils;
+import com.google.devtools.build.lib.vfs.DigestHashFunction;
+import com.google.devtools.build.lib.vfs.FileSystemUtils;
+import com.google.devtools.build.lib.vfs.JavaIoFileSystem;
+import com.google.devtools.build.lib.vfs.Path;
+import java.io.IOException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link DiskCacheGarbageCollector}. */
+@RunWith(JUnit4.class)
+public class DiskCacheGarbageCollectorTest {
+
+  private final ManualClock clock = new ManualClock();
+  private Path root;
+
+  @Before
+  public void setUp() throws Exception {
+    JavaIoFileSystem fs = new JavaIoFileSystem(DigestHashFunction.SHA256);
+    root = fs.getPath(TestUtils.makeTempDir().getAbsolutePath()).getChild("disk_cache");
+    root.createDirectoryAndParents();
+  }
+
+  private void writeEntry(DiskCacheGarbageCollector gc, String key, int size) throws IOException {
+    Path path = root.getRelative(key);
+    path.getParentDirectory().createDirectoryAndParents();
+    FileSystemUtils.writeContent(path, new byte[size]);
+    gc.recordInsertion(key, size);
+    clock.advanceMillis(1);
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsedEntries() throws Exception {
+    DiskCacheGarbageCollector gc = DiskCacheGarbageCollector.create(root, 100, clock);
+    writeEntry(gc, "a", 40);
+    writeEntry(gc, "b", 40);
+    gc.recordAccess("a");
+    writeEntry(gc, "c", 40);
+    gc.shutdown();
+
+    assertThat(root.getChild("a").exists()).isTrue();
+    assertThat(root.getChild("b").exists()).isFalse();
+    assertThat(root.getChild("c").exists()).isTrue();
+    assertThat(gc.getTotalSize()).isEqualTo(80);
+    assertThat(gc.getBytesEvicted()).isEqualTo(40);
+    assertThat(gc.getEntriesEvicted()).isEqualTo(1);
+  }
+
+  @Test
+  public void doesNotEvictBelowMaxSize() throws Exception {
+    DiskCacheGarbageCollector gc = DiskCacheGarbageCollector.create(root, 100, clock);
+    writeEntry(gc, "a", 50);
+    writeEntry(gc, "b", 50);
+    gc.shutdown();
+
+    assertThat(root.getChild("a").exists()).isTrue();
+    assertThat(root.getChild("b").exists()).isTrue();
+    assertThat(gc.getBytesEvicted()).isEqualTo(0);
+  }
+
+  @Test
+  public void indexIsPersistedAcrossInstances() throws Exception {
+    DiskCacheGarbageCollector gc = DiskCacheGarbageCollector.create(root, 100, clock);
+    writeEntry(gc, "a", 30);
+    writeEntry(gc, "b", 30);
+    gc.shutdown();
+
+    assertThat(root.getChild(DiskCacheGarbageCollector.INDEX_FILE_NAME).exists()).isTrue();
+    gc = DiskCacheGarbageCollector.create(root, 100, clock);
+    assertThat(gc.getTotalSize()).isEqualTo(60);
+    // "a" is older than "b" according to the persisted index.
+    writeEntry(gc, "c", 50);
+    gc.shutdown();
+
+    assertThat(root.getChild("a").exists()).isFalse();
+    assertThat(root.getChild("b").exists()).isTrue();
+    assertThat(root.getChild("c").exists()).isTrue();
+  }
+
+  @Test
+  public void indexesOfServersSharingTheCacheAreMerged() throws Exception {
+    DiskCacheGarbageCollector first = DiskCacheGarbageCollector.create(root, 100, clock);
+    DiskCacheGarbageCollector second = DiskCacheGarbageCollector.create(root, 100, clock);
+    writeEntry(first, "a", 20);
+    writeEntry(first, "b", 20);
+    writeEntry(second, "c", 30);
+    first.shutdown();
+    // Deleted by a third server, so it must not be brought back into the index.
+    root.getChild("b").delete();
+    second.shutdown();
+
+    DiskCacheGarbageCollector gc = DiskCacheGarbageCollector.create(root, 100, clock);
+    assertThat(gc.getTotalSize()).isEqualTo(50);
+    writeEntry(gc, "d", 60);
+    gc.shutdown();
+
+    // "a" is the least recently used entry, even though it was inserted by the first server.
+    assertThat(root.getChild("a").exists()).isFalse();
+    assertThat(root.getChild("c").exists()).isTrue();
+    assertThat(root.getChild("d").exists()).isTrue();
+  }
+
+  @Test
+  public void indexIsRebuiltFromCacheDirectory() throws Exception {
+    root.getRelative("cas/aa").createDirectoryAndParents();
+    root.getRelative("ac/bb").createDirectoryAndParents();
+    FileSystemUtils.writeContent(root.getRelative("cas/aa/aa01"), new byte[20]);
+    FileSystemUtils.writeContent(root.getRelative("ac/bb/bb01"), new byte[30]);
+
+    DiskCacheGarbageCollector gc = DiskCacheGarbageCollector.create(root, 100, clock);
+    gc.shutdown();
+
+    assertThat(gc.getTotalSize()).isEqualTo(50);
+  }
+
+  @Test
+  public void corruptIndexIsRebuilt() throws Exception {
+    root.getRelative("cas/aa").createDirectoryAndParents();
+    FileSystemUtils.writeContent(root.getRelative("cas/aa/aa01"), new byte[20]);
+    FileSystemUtils.writeContent(
+        root.getChild(DiskCacheGarbageCollector.INDEX_FILE_NAME), new byte[] {1, 2, 3});
+
+    DiskCacheGarbageCollector gc = DiskCacheGarbageCollector.create(root, 100, clock);
+    gc.shutdown();
+
+    assertThat(gc.getTotalSize()).isEqualTo(20);
+  }
+}
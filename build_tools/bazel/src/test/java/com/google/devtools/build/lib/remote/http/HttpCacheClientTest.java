@@ -18,6 +18,7 @@ import static com.google.devtools.build.lib.remote.util.Utils.getFromFuture;
 import static java.util.Collections.singletonList;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -32,6 +33,7 @@ import com.google.auth.Credentials;
 import com.google.common.base.Charsets;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.devtools.build.lib.remote.util.DigestUtil;
 import com.google.devtools.build.lib.vfs.DigestHashFunction;
 import com.google.devtools.build.remote.worker.http.HttpCacheServerHandler;
@@ -69,6 +71,8 @@ import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http2.Http2MultiplexCodecBuilder;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
@@ -85,6 +89,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.IntFunction;
 import javax.annotation.Nullable;
 import org.junit.Test;
@@ -263,6 +268,7 @@ public class HttpCacheClientTest {
           uri,
           timeoutSeconds,
           /* remoteMaxConnections= */ 0,
+          /* useHttp2= */ false,
           remoteVerifyDownloads,
           ImmutableList.of(),
           DIGEST_UTIL,
@@ -274,6 +280,7 @@ public class HttpCacheClientTest {
           uri,
           timeoutSeconds,
           /* remoteMaxConnections= */ 0,
+          /* useHttp2= */ false,
           remoteVerifyDownloads,
           ImmutableList.of(),
           DIGEST_UTIL,
@@ -323,6 +330,73 @@ public class HttpCacheClientTest {
     }
   }
 
+  @Test
+  public void http2RequestsShareOneConnection() throws Exception {
+    // The HTTP/2 server below only listens on a TCP socket.
+    assumeTrue(testServer instanceof InetTestServer);
+    ConcurrentHashMap<String, byte[]> cacheContents = new ConcurrentHashMap<>();
+    AtomicInteger connections = new AtomicInteger();
+    EventLoopGroup eventLoop = new NioEventLoopGroup(1);
+    ServerBootstrap sb =
+        new ServerBootstrap()
+            .group(eventLoop)
+            .channel(NioServerSocketChannel.class)
+            .childHandler(
+                new ChannelInitializer<Channel>() {
+                  @Override
+                  protected void initChannel(Channel ch) {
+                    connections.incrementAndGet();
+                    ch.pipeline()
+                        .addLast(
+                            Http2MultiplexCodecBuilder.forServer(
+                                    new ChannelInitializer<Channel>() {
+                                      @Override
+                                      protected void initChannel(Channel stream) {
+                                        stream
+                                            .pipeline()
+                                            .addLast(new Http2StreamFrameToHttpObjectCodec(true))
+                                            .addLast(new HttpObjectAggregator(1000))
+                                            .addLast(new HttpCacheServerHandler(cacheContents));
+                                      }
+                                    })
+                                .build());
+                  }
+                });
+    ServerChannel server =
+        (ServerChannel) sb.bind(new InetSocketAddress("localhost", 0)).sync().channel();
+    try {
+      HttpCacheClient blobStore =
+          HttpCacheClient.create(
+              new URI("http://localhost:" + ((InetSocketAddress) server.localAddress()).getPort()),
+              /* timeoutSeconds= */ 1,
+              /* remoteMaxConnections= */ 0,
+              /* useHttp2= */ true,
+              /* verifyDownloads= */ true,
+              ImmutableList.of(),
+              DIGEST_UTIL,
+              /* creds= */ null);
+      ByteString foo = ByteString.copyFromUtf8("foo");
+      ByteString bar = ByteString.copyFromUtf8("bar");
+      Digest fooDigest = DIGEST_UTIL.compute(foo.toByteArray());
+      Digest barDigest = DIGEST_UTIL.compute(bar.toByteArray());
+
+      getFromFuture(blobStore.uploadBlob(fooDigest, foo));
+      ImmutableSet<Digest> missing =
+          getFromFuture(blobStore.findMissingDigests(ImmutableList.of(fooDigest, barDigest)));
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      getFromFuture(blobStore.downloadBlob(fooDigest, out));
+      blobStore.close();
+
+      assertThat(cacheContents).containsKey("/cas/" + fooDigest.getHash());
+      assertThat(missing).containsExactly(barDigest);
+      assertThat(out.toByteArray()).isEqualTo(foo.toByteArray());
+      assertThat(connections.get()).isEqualTo(1);
+    } finally {
+      server.close().sync();
+      eventLoop.shutdownGracefully().sync();
+    }
+  }
+
   @Test(expected = ConnectException.class, timeout = 30000)
   public void connectTimeout() throws Exception {
     ServerChannel server = testServer.start(new ChannelInboundHandlerAdapter() {});
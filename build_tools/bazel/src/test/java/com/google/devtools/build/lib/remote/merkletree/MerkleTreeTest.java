@@ -137,6 +137,45 @@ public class MerkleTreeTest {
     assertThat(allDigests).asList().containsAtLeastElementsIn(inputDigests);
   }
 
+  @Test
+  public void sharedSubtreesAreSkippedOncePresent() throws IOException {
+    MerkleTreeCache cache = new MerkleTreeCache(/* maxDirectories= */ 100);
+    SortedMap<PathFragment, ActionInput> firstInputs = new TreeMap<>();
+    SortedMap<PathFragment, ActionInput> secondInputs = new TreeMap<>();
+    Map<ActionInput, FileArtifactValue> metadata = new HashMap<>();
+    addFile("srcs/toolchain/cc", "cc", firstInputs, metadata);
+    addFile("srcs/toolchain/ld", "ld", firstInputs, metadata);
+    addFile("srcs/foo.cc", "foo", firstInputs, metadata);
+    secondInputs.putAll(firstInputs);
+    secondInputs.remove(PathFragment.create("srcs/foo.cc"));
+    addFile("srcs/bar.cc", "bar", secondInputs, metadata);
+    StaticMetadataProvider metadataProvider = new StaticMetadataProvider(metadata);
+
+    MerkleTree first = MerkleTree.build(firstInputs, metadataProvider, execRoot, digestUtil);
+    assertThat(first.getAllDigests(cache::isPresent))
+        .containsExactlyElementsIn(first.getAllDigests());
+    cache.markPresent(first);
+    MerkleTree second = MerkleTree.build(secondInputs, metadataProvider, execRoot, digestUtil);
+
+    Directory toolchainDir =
+        Directory.newBuilder()
+            .addFiles(newFileNode("cc", digestUtil.computeAsUtf8("cc")))
+            .addFiles(newFileNode("ld", digestUtil.computeAsUtf8("ld")))
+            .build();
+    Digest toolchainDigest = digestUtil.compute(toolchainDir);
+    assertThat(second.getDirectoryByDigest(toolchainDigest)).isEqualTo(toolchainDir);
+    // The toolchain directory and its files were already found, the rest of the tree is new.
+    assertThat(second.getAllDigests(cache::isPresent))
+        .containsNoneOf(
+            toolchainDigest, digestUtil.computeAsUtf8("cc"), digestUtil.computeAsUtf8("ld"));
+    assertThat(second.getAllDigests(cache::isPresent))
+        .containsAtLeast(second.getRootDigest(), digestUtil.computeAsUtf8("bar"));
+
+    cache.invalidate(second);
+    assertThat(second.getAllDigests(cache::isPresent))
+        .containsExactlyElementsIn(second.getAllDigests());
+  }
+
   private Artifact addFile(
       String path,
       String content,
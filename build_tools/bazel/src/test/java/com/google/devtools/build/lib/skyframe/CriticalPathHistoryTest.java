@@ -0,0 +1,73 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.lib.skyframe;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.devtools.build.lib.actions.ActionLookupData;
+import com.google.devtools.build.lib.cmdline.Label;
+import com.google.devtools.build.lib.util.Pair;
+import com.google.devtools.build.lib.vfs.FileSystemUtils;
+import com.google.devtools.build.lib.vfs.Path;
+import com.google.devtools.build.lib.vfs.inmemoryfs.InMemoryFileSystem;
+import java.time.Duration;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link CriticalPathHistory}. */
+@RunWith(JUnit4.class)
+public class CriticalPathHistoryTest {
+  private final Path outputBase = new InMemoryFileSystem().getPath("/output_base");
+
+  private static ActionLookupData action(String label, int index) {
+    return ActionLookupData.create(
+        ConfiguredTargetKey.of(
+            Label.parseAbsoluteUnchecked(label), /*configurationKey=*/ null, false),
+        index);
+  }
+
+  @Test
+  public void ownersGetTheRemainingTimeOfTheCriticalPath() throws Exception {
+    outputBase.createDirectoryAndParents();
+    CriticalPathHistory.write(
+        outputBase,
+        ImmutableList.of(
+            Pair.of(Label.parseAbsoluteUnchecked("//a:lib"), Duration.ofMillis(1000)),
+            Pair.of(Label.parseAbsoluteUnchecked("//b:gen"), Duration.ofMillis(300)),
+            Pair.of(null, Duration.ofMillis(20)),
+            Pair.of(Label.parseAbsoluteUnchecked("//a:lib"), Duration.ofMillis(100)),
+            Pair.of(Label.parseAbsoluteUnchecked("//c:bin"), Duration.ofMillis(5))));
+
+    CriticalPathHistory history = CriticalPathHistory.read(outputBase);
+
+    assertThat(history.getPriority(action("//a:lib", 0))).isEqualTo(1425);
+    assertThat(history.getPriority(action("//a:lib", 3))).isEqualTo(1425);
+    assertThat(history.getPriority(action("//b:gen", 0))).isEqualTo(425);
+    assertThat(history.getPriority(action("//c:bin", 0))).isEqualTo(5);
+    assertThat(history.getPriority(action("//d:other", 0))).isEqualTo(0);
+    // Only actions are prioritized directly. Other nodes inherit the priority of their parents.
+    assertThat(history.getPriority(action("//a:lib", 0).getActionLookupKey())).isEqualTo(0);
+  }
+
+  @Test
+  public void missingOrCorruptHistoryIsEmpty() throws Exception {
+    assertThat(CriticalPathHistory.read(outputBase)).isSameInstanceAs(CriticalPathHistory.EMPTY);
+
+    outputBase.createDirectoryAndParents();
+    FileSystemUtils.writeContentAsLatin1(outputBase.getChild("critical_path_history"), "12\n");
+    assertThat(CriticalPathHistory.read(outputBase)).isSameInstanceAs(CriticalPathHistory.EMPTY);
+  }
+}
@@ -18,6 +18,7 @@ import static com.google.common.truth.Truth.assertThat;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableSet;
+import com.google.devtools.build.lib.actions.Action;
 import com.google.devtools.build.lib.actions.ActionKeyContext;
 import com.google.devtools.build.lib.actions.Artifact;
 import com.google.devtools.build.lib.actions.util.TestAction;
@@ -171,18 +172,40 @@ public class TopDownActionCacheTest extends TimestampBuilderTestCase {
     assertThat(button.pressed).isFalse(); // top-down cached
   }
 
+  @Test
+  public void testSourceContentsSwapped() throws Exception {
+    Artifact hello = createSourceArtifact("hello");
+    Artifact world = createSourceArtifact("world");
+    hello.getPath().getParentDirectory().createDirectoryAndParents();
+    FileSystemUtils.writeContentAsLatin1(hello.getPath(), "content1");
+    FileSystemUtils.writeContentAsLatin1(world.getPath(), "content2");
+
+    Artifact goodbye = createDerivedArtifact("goodbye");
+    Button button = createActionButton(asNestedSet(hello, world), ImmutableSet.of(goodbye));
+
+    button.pressed = false;
+    buildArtifacts(goodbye);
+    assertThat(button.pressed).isTrue();
+
+    FileSystemUtils.writeContentAsLatin1(hello.getPath(), "content2");
+    FileSystemUtils.writeContentAsLatin1(world.getPath(), "content1");
+    button.pressed = false;
+    buildArtifacts(goodbye);
+    assertThat(button.pressed).isTrue(); // rebuilt
+  }
+
   private static class InMemoryTopDownActionCache implements TopDownActionCache {
     private final Cache<ActionSketch, ActionExecutionValue> cache =
         CacheBuilder.newBuilder().build();
 
     @Nullable
     @Override
-    public ActionExecutionValue get(ActionSketch sketch) {
+    public ActionExecutionValue get(ActionSketch sketch, Action action) {
       return cache.getIfPresent(sketch);
     }
 
     @Override
-    public void put(ActionSketch sketch, ActionExecutionValue value) {
+    public void put(ActionSketch sketch, Action action, ActionExecutionValue value) {
       cache.put(sketch, value);
     }
   }
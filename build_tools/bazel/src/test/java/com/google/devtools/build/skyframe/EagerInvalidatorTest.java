@@ -15,6 +15,7 @@ package com.google.devtools.build.skyframe;
 
 import static com.google.common.truth.Truth.assertThat;
 import static com.google.devtools.build.skyframe.GraphTester.CONCATENATE;
+import static com.google.devtools.build.skyframe.GraphTester.COPY;
 import static com.google.devtools.build.skyframe.GraphTester.NODE_TYPE;
 import static org.junit.Assert.assertThrows;
 
@@ -624,5 +625,42 @@ public class EagerInvalidatorTest {
       invalidate(graph, receiver, GraphTester.nonHermeticKey("a"));
       assertThat(receiver.getUnenqueuedDirtyKeys()).hasSize(2);
     }
+
+    @Test
+    public void wideInvalidationDirtiesAllReverseDepsOnce() throws Exception {
+      graph = new InMemoryGraphImpl();
+      SkyKey leafKey = GraphTester.nonHermeticKey("leaf");
+      tester.set(leafKey, new StringValue("leaf"));
+      SkyKey[] parents = new SkyKey[1000];
+      for (int i = 0; i < parents.length; i++) {
+        parents[i] = skyKey("parent" + i);
+        tester.getOrCreate(parents[i]).addDependency(leafKey).setComputedValue(COPY);
+      }
+      SkyKey topKey = skyKey("top");
+      tester.getOrCreate(topKey).addDependency(parents[0]).setComputedValue(COPY);
+      eval(/*keepGoing=*/ false, parents);
+      eval(/*keepGoing=*/ false, topKey);
+
+      invalidateWithoutError(progressReceiver, leafKey);
+      DirtyingNodeVisitor dirtyingNodeVisitor = (DirtyingNodeVisitor) visitor.get();
+      assertThat(dirtyingNodeVisitor.getNumDirtied()).isEqualTo(parents.length + 2);
+      for (SkyKey parent : parents) {
+        assertThat(graph.get(null, Reason.OTHER, parent).isDirty()).isTrue();
+      }
+      assertThat(graph.get(null, Reason.OTHER, topKey).isDirty()).isTrue();
+
+      // The leaf is already changed, so its reverse deps aren't visited again.
+      invalidateWithoutError(progressReceiver, leafKey);
+      dirtyingNodeVisitor = (DirtyingNodeVisitor) visitor.get();
+      assertThat(dirtyingNodeVisitor.getNumDirtied()).isEqualTo(0);
+      assertThat(dirtyingNodeVisitor.getNumAlreadyDirty()).isEqualTo(1);
+    }
+
+    @Test
+    public void batchSize() {
+      assertThat(InvalidatingNodeVisitor.batchSize(0)).isEqualTo(1);
+      assertThat(InvalidatingNodeVisitor.batchSize(1)).isEqualTo(1);
+      assertThat(InvalidatingNodeVisitor.batchSize(Integer.MAX_VALUE)).isEqualTo(256);
+    }
   }
 }
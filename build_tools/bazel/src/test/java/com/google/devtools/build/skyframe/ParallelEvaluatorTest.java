@@ -164,6 +164,74 @@ public class ParallelEvaluatorTest {
     assertThat(storedEventHandler.getPosts()).isEmpty();
   }
 
+  /**
+   * Evaluates "top", which depends on "a" and "b" in the same group, which each depend on a leaf,
+   * with a single thread. Returns the leaves in the order they were evaluated.
+   */
+  private List<SkyKey> evalLeavesWithPrioritizer(EvaluationPrioritizer prioritizer)
+      throws InterruptedException {
+    List<SkyKey> evaluatedLeaves = new ArrayList<>();
+    SkyFunction leafFunction =
+        new SkyFunction() {
+          @Override
+          public SkyValue compute(SkyKey skyKey, Environment env) {
+            evaluatedLeaves.add(skyKey);
+            return new StringValue(skyKey.argument().toString());
+          }
+
+          @Override
+          public String extractTag(SkyKey skyKey) {
+            return null;
+          }
+        };
+    tester.getOrCreate("a1").setBuilder(leafFunction);
+    tester.getOrCreate("b1").setBuilder(leafFunction);
+    tester.getOrCreate("a").addDependency("a1").setComputedValue(CONCATENATE);
+    tester.getOrCreate("b").addDependency("b1").setComputedValue(CONCATENATE);
+    tester.getOrCreate("top").addDependency("a").addDependency("b").setComputedValue(CONCATENATE);
+    graph = new InMemoryGraphImpl();
+    ParallelEvaluator evaluator =
+        new ParallelEvaluator(
+            graph,
+            graphVersion,
+            tester.getSkyFunctionMap(),
+            storedEventHandler,
+            new MemoizingEvaluator.EmittedEventState(),
+            InMemoryMemoizingEvaluator.DEFAULT_STORED_EVENT_FILTER,
+            ErrorInfoManager.UseChildErrorInfoIfNecessary.INSTANCE,
+            /*keepGoing=*/ false,
+            revalidationReceiver,
+            GraphInconsistencyReceiver.THROWING,
+            () -> AbstractQueueVisitor.createExecutorService(1, "test-pool"),
+            new SimpleCycleDetector(),
+            EvaluationVersionBehavior.MAX_CHILD_VERSIONS,
+            prioritizer);
+    SkyKey topKey = GraphTester.toSkyKey("top");
+    assertThat(evaluator.eval(ImmutableList.of(topKey)).get(topKey))
+        .isEqualTo(new StringValue("a1b1"));
+    return evaluatedLeaves;
+  }
+
+  @Test
+  public void prioritizedNodeAndItsDepsAreEvaluatedFirst() throws Exception {
+    SkyKey a = GraphTester.toSkyKey("a");
+    List<SkyKey> evaluatedLeaves = evalLeavesWithPrioritizer(key -> key.equals(a) ? 10 : 0);
+    assertThat(evaluatedLeaves)
+        .containsExactly(GraphTester.toSkyKey("a1"), GraphTester.toSkyKey("b1"))
+        .inOrder();
+  }
+
+  @Test
+  public void nodeWithLargerPriorityIsEvaluatedFirst() throws Exception {
+    SkyKey a = GraphTester.toSkyKey("a");
+    SkyKey b = GraphTester.toSkyKey("b");
+    List<SkyKey> evaluatedLeaves =
+        evalLeavesWithPrioritizer(key -> key.equals(a) ? 10 : key.equals(b) ? 20 : 0);
+    assertThat(evaluatedLeaves)
+        .containsExactly(GraphTester.toSkyKey("b1"), GraphTester.toSkyKey("a1"))
+        .inOrder();
+  }
+
   @Test
   public void enqueueDoneFuture() throws Exception {
     final SkyKey parentKey = GraphTester.toSkyKey("parentKey");
@@ -0,0 +1,547 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.execlog;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.devtools.build.lib.exec.Protos.Digest;
+import com.google.devtools.build.lib.exec.Protos.EnvironmentVariable;
+import com.google.devtools.build.lib.exec.Protos.File;
+import com.google.devtools.build.lib.exec.Protos.SpawnExec;
+import com.google.protobuf.CodedInputStream;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import javax.annotation.Nullable;
+
+/**
+ * Reads an execution log in the compact format written by {@code CompactSpawnLogWriter}, whose
+ * class documentation describes the format.
+ *
+ * <p>The log is read as a stream: the blocks following the one being read are decompressed and
+ * decoded in parallel, and only the strings, files and input sets are retained, which are
+ * typically a small fraction of the spawns' flattened inputs. While reading, fingerprints of the
+ * files, input sets and spawns are computed, so that spawns can be compared without flattening
+ * their inputs.
+ */
+final class CompactLogReader implements AutoCloseable {
+
+  // Must be kept in sync with CompactSpawnLogWriter.
+  private static final byte[] MAGIC = "BZLCXLOG".getBytes(US_ASCII);
+  private static final int VERSION = 1;
+  private static final int STRING = 1;
+  private static final int FILE = 2;
+  private static final int INPUT_SET = 3;
+  private static final int SPAWN = 4;
+
+  private static final HashFunction FINGERPRINT = Hashing.murmur3_128();
+
+  /** A file of the log. */
+  static final class LoggedFile {
+    final String path;
+    final Digest digest;
+    final HashCode fingerprint;
+
+    private LoggedFile(String path, Digest digest) {
+      this.path = path;
+      this.digest = digest;
+      this.fingerprint =
+          FINGERPRINT
+              .newHasher()
+              .putString(path, UTF_8)
+              .putString(digest.getHash(), UTF_8)
+              .putLong(digest.getSizeBytes())
+              .hash();
+    }
+
+    File toProto() {
+      return File.newBuilder().setPath(path).setDigest(digest).build();
+    }
+  }
+
+  /** A set of input files, which also contains the files of other input sets. */
+  private static final class InputSet {
+    final int[] fileIds;
+    final int[] inputSetIds;
+    final HashCode fingerprint;
+
+    private InputSet(int[] fileIds, int[] inputSetIds, HashCode fingerprint) {
+      this.fileIds = fileIds;
+      this.inputSetIds = inputSetIds;
+      this.fingerprint = fingerprint;
+    }
+  }
+
+  /** A spawn of the log. */
+  static final class LoggedSpawn {
+    /** The spawn without its inputs. */
+    final SpawnExec exec;
+
+    final int inputSetId;
+
+    /** The fingerprint of the inputs of the spawn. */
+    final HashCode inputsFingerprint;
+
+    /**
+     * The fingerprint of everything that determines the remote cache key of the spawn: the
+     * arguments, environment, platform, inputs and outputs.
+     */
+    final HashCode cacheKeyFingerprint;
+
+    private LoggedSpawn(SpawnExec exec, int inputSetId, HashCode inputsFingerprint) {
+      this.exec = exec;
+      this.inputSetId = inputSetId;
+      this.inputsFingerprint = inputsFingerprint;
+      Hasher hasher = FINGERPRINT.newHasher();
+      for (String arg : exec.getCommandArgsList()) {
+        hasher.putString(arg, UTF_8).putByte((byte) 0);
+      }
+      for (EnvironmentVariable var : exec.getEnvironmentVariablesList()) {
+        hasher.putString(var.getName(), UTF_8).putByte((byte) 0);
+        hasher.putString(var.getValue(), UTF_8).putByte((byte) 0);
+      }
+      hasher.putBytes(exec.getPlatform().toByteArray());
+      hasher.putBytes(inputsFingerprint.asBytes());
+      for (String output : exec.getListedOutputsList()) {
+        hasher.putString(output, UTF_8).putByte((byte) 0);
+      }
+      this.cacheKeyFingerprint = hasher.hash();
+    }
+
+    /** Returns the first listed output, which identifies the spawn across builds, if any. */
+    @Nullable
+    String getKey() {
+      return exec.getListedOutputsCount() > 0 ? exec.getListedOutputs(0) : null;
+    }
+  }
+
+  /** An entry as decoded from a block, whose references haven't been resolved yet. */
+  private static final class RawEntry {
+    final int kind;
+    @Nullable final String string;
+    @Nullable final byte[] hash;
+    final long size;
+    final int[] ids;
+
+    RawEntry(int kind, @Nullable String string, @Nullable byte[] hash, long size, int[] ids) {
+      this.kind = kind;
+      this.string = string;
+      this.hash = hash;
+      this.size = size;
+      this.ids = ids;
+    }
+  }
+
+  private final InputStream in;
+  private final ExecutorService executor;
+  private final int maxPendingBlocks;
+  private final ArrayDeque<Future<List<RawEntry>>> pendingBlocks = new ArrayDeque<>();
+  private boolean endOfInput;
+  /** The number of entries of the blocks read so far, including the pending ones. */
+  private int readEntryCount;
+
+  /** The strings, files and input sets of the log, indexed by their identifiers. */
+  private Object[] entries = new Object[1024];
+
+  private int nextId = 1;
+  @Nullable private List<RawEntry> currentBlock;
+  private int currentIndex;
+
+  /**
+   * @param executor the executor to decompress and decode blocks with, which isn't shut down by
+   *     this reader
+   * @param maxPendingBlocks the maximum number of blocks to decode ahead of the one being read
+   */
+  CompactLogReader(InputStream in, ExecutorService executor, int maxPendingBlocks)
+      throws IOException {
+    this.in = in.markSupported() ? in : new BufferedInputStream(in);
+    this.executor = executor;
+    this.maxPendingBlocks = maxPendingBlocks;
+    if (!Arrays.equals(readFully(MAGIC.length), MAGIC)) {
+      throw new IOException("Not an execution log in the compact format");
+    }
+    int version = readVarint();
+    if (version != VERSION) {
+      throw new IOException("Unsupported version of the compact execution log: " + version);
+    }
+  }
+
+  /** Returns true if {@code in}, which must support marks, starts like a compact execution log. */
+  static boolean isCompactLog(BufferedInputStream in) throws IOException {
+    in.mark(MAGIC.length);
+    try {
+      byte[] magic = new byte[MAGIC.length];
+      int n = 0;
+      while (n < magic.length) {
+        int read = in.read(magic, n, magic.length - n);
+        if (read < 0) {
+          return false;
+        }
+        n += read;
+      }
+      return Arrays.equals(magic, MAGIC);
+    } finally {
+      in.reset();
+    }
+  }
+
+  /** Returns the next spawn of the log, or {@code null} if there are no more spawns. */
+  @Nullable
+  LoggedSpawn next() throws IOException {
+    while (true) {
+      if (currentBlock == null || currentIndex == currentBlock.size()) {
+        currentBlock = nextBlock();
+        currentIndex = 0;
+        if (currentBlock == null) {
+          return null;
+        }
+        continue;
+      }
+      RawEntry entry = currentBlock.get(currentIndex++);
+      int id = nextId++;
+      if (entry.kind == SPAWN) {
+        return resolveSpawn(entry);
+      }
+      if (id >= entries.length) {
+        entries = Arrays.copyOf(entries, Math.max(id + 1, entries.length * 2));
+      }
+      entries[id] = resolve(entry);
+    }
+  }
+
+  /**
+   * Returns the flattened inputs of a spawn, without duplicates and sorted by path. May only be
+   * called for spawns that have been returned by {@link #next}.
+   */
+  List<LoggedFile> getInputs(LoggedSpawn spawn) {
+    Map<String, LoggedFile> files = new TreeMap<>();
+    if (spawn.inputSetId != 0) {
+      collectInputs(spawn.inputSetId, files, new BitSet());
+    }
+    return new ArrayList<>(files.values());
+  }
+
+  private void collectInputs(int inputSetId, Map<String, LoggedFile> files, BitSet visited) {
+    if (visited.get(inputSetId)) {
+      return;
+    }
+    visited.set(inputSetId);
+    InputSet inputSet = (InputSet) entries[inputSetId];
+    for (int fileId : inputSet.fileIds) {
+      LoggedFile file = (LoggedFile) entries[fileId];
+      files.putIfAbsent(file.path, file);
+    }
+    for (int childId : inputSet.inputSetIds) {
+      collectInputs(childId, files, visited);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (Future<List<RawEntry>> block : pendingBlocks) {
+      block.cancel(true);
+    }
+    in.close();
+  }
+
+  private Object resolve(RawEntry entry) throws IOException {
+    switch (entry.kind) {
+      case STRING:
+        return entry.string;
+      case FILE:
+        return new LoggedFile(
+            getString(entry.ids[0]),
+            Digest.newBuilder()
+                .setHashFunctionName(getString(entry.ids[1]))
+                .setHash(HashCode.fromBytes(entry.hash).toString())
+                .setSizeBytes(entry.size)
+                .build());
+      case INPUT_SET:
+        int fileCount = entry.ids[0];
+        int[] fileIds = Arrays.copyOfRange(entry.ids, 1, 1 + fileCount);
+        int[] inputSetIds = Arrays.copyOfRange(entry.ids, 2 + fileCount, entry.ids.length);
+        Hasher hasher = FINGERPRINT.newHasher();
+        for (int fileId : fileIds) {
+          hasher.putBytes(((LoggedFile) get(fileId, LoggedFile.class)).fingerprint.asBytes());
+        }
+        hasher.putByte((byte) 0);
+        for (int inputSetId : inputSetIds) {
+          hasher.putBytes(((InputSet) get(inputSetId, InputSet.class)).fingerprint.asBytes());
+        }
+        return new InputSet(fileIds, inputSetIds, hasher.hash());
+      default:
+        throw new IOException("Unknown entry kind " + entry.kind);
+    }
+  }
+
+  private LoggedSpawn resolveSpawn(RawEntry entry) throws IOException {
+    int[] ids = entry.ids;
+    int i = 0;
+    SpawnExec.Builder spawn = SpawnExec.newBuilder();
+    for (int n = ids[i++]; n > 0; n--) {
+      spawn.addCommandArgs(getString(ids[i++]));
+    }
+    for (int n = ids[i++]; n > 0; n--) {
+      spawn
+          .addEnvironmentVariablesBuilder()
+          .setName(getString(ids[i++]))
+          .setValue(getString(ids[i++]));
+    }
+    int platformProperties = ids[i++];
+    for (int n = platformProperties; n > 0; n--) {
+      spawn
+          .getPlatformBuilder()
+          .addPropertiesBuilder()
+          .setName(getString(ids[i++]))
+          .setValue(getString(ids[i++]));
+    }
+    int inputSetId = ids[i++];
+    for (int n = ids[i++]; n > 0; n--) {
+      spawn.addListedOutputs(getString(ids[i++]));
+    }
+    for (int n = ids[i++]; n > 0; n--) {
+      spawn.addActualOutputs(((LoggedFile) get(ids[i++], LoggedFile.class)).toProto());
+    }
+    spawn.setRemotable(ids[i++] != 0);
+    spawn.setCacheable(ids[i++] != 0);
+    spawn.setTimeoutMillis(entry.size);
+    spawn.setProgressMessage(getString(ids[i++]));
+    spawn.setMnemonic(getString(ids[i++]));
+    spawn.setRunner(getString(ids[i++]));
+    spawn.setRemoteCacheHit(ids[i++] != 0);
+    spawn.setStatus(getString(ids[i++]));
+    spawn.setExitCode(ids[i++]);
+    HashCode inputsFingerprint =
+        inputSetId == 0
+            ? FINGERPRINT.hashInt(0)
+            : ((InputSet) get(inputSetId, InputSet.class)).fingerprint;
+    return new LoggedSpawn(spawn.build(), inputSetId, inputsFingerprint);
+  }
+
+  private String getString(int id) throws IOException {
+    return id == 0 ? "" : (String) get(id, String.class);
+  }
+
+  private Object get(int id, Class<?> type) throws IOException {
+    Object entry = id < nextId && id < entries.length ? entries[id] : null;
+    if (!type.isInstance(entry)) {
+      throw new IOException(
+          String.format("Entry %d is not a %s: %s", id, type.getSimpleName(), entry));
+    }
+    return entry;
+  }
+
+  /** Returns the entries of the next block, or {@code null} at the end of the log. */
+  @Nullable
+  private List<RawEntry> nextBlock() throws IOException {
+    while (!endOfInput && pendingBlocks.size() <= maxPendingBlocks) {
+      Future<List<RawEntry>> block = readBlock();
+      if (block == null) {
+        endOfInput = true;
+      } else {
+        pendingBlocks.add(block);
+      }
+    }
+    Future<List<RawEntry>> block = pendingBlocks.poll();
+    if (block == null) {
+      return null;
+    }
+    try {
+      return block.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while reading the execution log", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  /** Reads the next block and schedules its decoding, or returns {@code null} at the end. */
+  @Nullable
+  private Future<List<RawEntry>> readBlock() throws IOException {
+    in.mark(1);
+    if (in.read() < 0) {
+      return null;
+    }
+    in.reset();
+    int firstId = readVarint();
+    int entryCount = readVarint();
+    int size = readVarint();
+    byte[] compressed = readFully(readVarint());
+    if (firstId != readEntryCount + 1) {
+      throw new IOException(
+          String.format(
+              "Corrupt execution log: block starts at entry %d, not %d",
+              firstId, readEntryCount + 1));
+    }
+    readEntryCount += entryCount;
+    return executor.submit(() -> decodeBlock(compressed, size, entryCount));
+  }
+
+  private static List<RawEntry> decodeBlock(byte[] compressed, int size, int entryCount)
+      throws IOException {
+    byte[] uncompressed = new byte[size];
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(compressed);
+      int n = 0;
+      while (n < size) {
+        int inflated = inflater.inflate(uncompressed, n, size - n);
+        if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+          throw new IOException("Corrupt execution log: truncated block");
+        }
+        n += inflated;
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupt execution log", e);
+    } finally {
+      inflater.end();
+    }
+    CodedInputStream in = CodedInputStream.newInstance(uncompressed);
+    in.setSizeLimit(Integer.MAX_VALUE);
+    List<RawEntry> entries = new ArrayList<>(entryCount);
+    for (int i = 0; i < entryCount; i++) {
+      entries.add(decodeEntry(in));
+    }
+    if (!in.isAtEnd()) {
+      throw new IOException("Corrupt execution log: unexpected data at the end of a block");
+    }
+    return entries;
+  }
+
+  private static RawEntry decodeEntry(CodedInputStream in) throws IOException {
+    int kind = in.readUInt32();
+    switch (kind) {
+      case STRING:
+        return new RawEntry(kind, in.readString(), null, 0, null);
+      case FILE:
+        {
+          int pathId = in.readUInt32();
+          int hashFunctionId = in.readUInt32();
+          byte[] hash = in.readByteArray();
+          long size = in.readUInt64();
+          return new RawEntry(kind, null, hash, size, new int[] {pathId, hashFunctionId});
+        }
+      case INPUT_SET:
+        {
+          int[] files = readIds(in);
+          int[] inputSets = readIds(in);
+          int[] ids = new int[files.length + inputSets.length + 2];
+          ids[0] = files.length;
+          System.arraycopy(files, 0, ids, 1, files.length);
+          ids[files.length + 1] = inputSets.length;
+          System.arraycopy(inputSets, 0, ids, files.length + 2, inputSets.length);
+          return new RawEntry(kind, null, null, 0, ids);
+        }
+      case SPAWN:
+        {
+          // Everything but the timeout is decoded into a list of integers, see resolveSpawn.
+          IntList ids = new IntList();
+          ids.addCountAndIds(in, 1);
+          ids.addCountAndIds(in, 2);
+          ids.addCountAndIds(in, 2);
+          ids.add(in.readUInt32());
+          ids.addCountAndIds(in, 1);
+          ids.addCountAndIds(in, 1);
+          ids.add(in.readBool() ? 1 : 0);
+          ids.add(in.readBool() ? 1 : 0);
+          long timeoutMillis = in.readUInt64();
+          ids.add(in.readUInt32());
+          ids.add(in.readUInt32());
+          ids.add(in.readUInt32());
+          ids.add(in.readBool() ? 1 : 0);
+          ids.add(in.readUInt32());
+          ids.add(in.readSInt32());
+          return new RawEntry(kind, null, null, timeoutMillis, ids.toArray());
+        }
+      default:
+        throw new IOException("Corrupt execution log: unknown entry kind " + kind);
+    }
+  }
+
+  private static int[] readIds(CodedInputStream in) throws IOException {
+    int[] ids = new int[in.readUInt32()];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = in.readUInt32();
+    }
+    return ids;
+  }
+
+  /** A growable list of integers. */
+  private static final class IntList {
+    private int[] values = new int[32];
+    private int size;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    /** Reads a count followed by count times {@code idsPerElement} identifiers. */
+    void addCountAndIds(CodedInputStream in, int idsPerElement) throws IOException {
+      int count = in.readUInt32();
+      add(count);
+      for (int i = 0; i < count * idsPerElement; i++) {
+        add(in.readUInt32());
+      }
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(values, size);
+    }
+  }
+
+  private int readVarint() throws IOException {
+    int firstByte = in.read();
+    if (firstByte < 0) {
+      throw new IOException("Corrupt execution log: unexpected end of file");
+    }
+    return CodedInputStream.readRawVarint32(firstByte, in);
+  }
+
+  private byte[] readFully(int length) throws IOException {
+    byte[] bytes = new byte[length];
+    int n = 0;
+    while (n < length) {
+      int read = in.read(bytes, n, length - n);
+      if (read < 0) {
+        throw new IOException("Corrupt execution log: unexpected end of file");
+      }
+      n += read;
+    }
+    return bytes;
+  }
+}
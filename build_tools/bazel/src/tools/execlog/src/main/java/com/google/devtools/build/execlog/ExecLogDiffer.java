@@ -0,0 +1,245 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.execlog;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.common.collect.ImmutableList;
+import com.google.devtools.build.execlog.CompactLogReader.LoggedFile;
+import com.google.devtools.build.execlog.CompactLogReader.LoggedSpawn;
+import com.google.devtools.build.lib.exec.Protos.Digest;
+import com.google.devtools.build.lib.exec.Protos.EnvironmentVariable;
+import com.google.devtools.build.lib.exec.Protos.SpawnExec;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import javax.annotation.Nullable;
+
+/**
+ * Finds the actions whose remote cache keys differ between two builds, given their execution logs
+ * in the compact format.
+ *
+ * <p>Both logs are read concurrently, and spawns are matched by their first output, like {@link
+ * ExecLogParser.ReorderingParser} does. Matched spawns are first compared by fingerprint, which
+ * doesn't require flattening their inputs. Only the spawns whose fingerprints differ are compared in
+ * detail, in parallel.
+ */
+final class ExecLogDiffer {
+
+  /** The spawns of a log, with the reader that resolves their inputs. */
+  private static final class ReadLog {
+    final CompactLogReader reader;
+    final Map<String, LoggedSpawn> spawns;
+
+    ReadLog(CompactLogReader reader, Map<String, LoggedSpawn> spawns) {
+      this.reader = reader;
+      this.spawns = spawns;
+    }
+  }
+
+  private ExecLogDiffer() {}
+
+  /**
+   * Prints the actions whose cache keys differ, and the actions that were only executed in one of
+   * the builds, and returns the number of actions whose cache keys differ.
+   */
+  static int diff(
+      CompactLogReader first, CompactLogReader second, ExecutorService executor, PrintWriter out)
+      throws IOException, InterruptedException {
+    Future<ReadLog> firstLog = executor.submit(() -> read(first));
+    ReadLog secondLog = read(second);
+    ReadLog log1 = getUnchecked(firstLog);
+
+    ImmutableList<String> differences =
+        log1.spawns.entrySet().parallelStream()
+            .filter(
+                e -> {
+                  LoggedSpawn other = secondLog.spawns.get(e.getKey());
+                  return other != null
+                      && !other.cacheKeyFingerprint.equals(e.getValue().cacheKeyFingerprint);
+                })
+            .map(Map.Entry::getKey)
+            .sorted()
+            .map(
+                key ->
+                    describe(
+                        key, log1, log1.spawns.get(key), secondLog, secondLog.spawns.get(key)))
+            .filter(Objects::nonNull)
+            .collect(toImmutableList());
+    for (String difference : differences) {
+      out.print(difference);
+    }
+
+    TreeSet<String> onlyInFirst = new TreeSet<>(log1.spawns.keySet());
+    onlyInFirst.removeAll(secondLog.spawns.keySet());
+    TreeSet<String> onlyInSecond = new TreeSet<>(secondLog.spawns.keySet());
+    onlyInSecond.removeAll(log1.spawns.keySet());
+    for (String key : onlyInFirst) {
+      out.println("Action " + key + " was only executed in the first build");
+    }
+    for (String key : onlyInSecond) {
+      out.println("Action " + key + " was only executed in the second build");
+    }
+    out.printf(
+        "%d of %d matching actions have different cache keys, %d and %d actions were only"
+            + " executed in the first and second build%n",
+        differences.size(),
+        log1.spawns.size() - onlyInFirst.size(),
+        onlyInFirst.size(),
+        onlyInSecond.size());
+    return differences.size();
+  }
+
+  private static ReadLog read(CompactLogReader reader) throws IOException {
+    Map<String, LoggedSpawn> spawns = new HashMap<>();
+    LoggedSpawn spawn;
+    while ((spawn = reader.next()) != null) {
+      String key = spawn.getKey();
+      if (key != null) {
+        spawns.put(key, spawn);
+      }
+    }
+    return new ReadLog(reader, spawns);
+  }
+
+  private static ReadLog getUnchecked(Future<ReadLog> future)
+      throws IOException, InterruptedException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Describes how the cache keys of two spawns differ, or returns {@code null} if they only differ
+   * in the structure of their inputs.
+   */
+  @Nullable
+  private static String describe(
+      String key, ReadLog log1, LoggedSpawn spawn1, ReadLog log2, LoggedSpawn spawn2) {
+    StringBuilder sb = new StringBuilder();
+    SpawnExec exec1 = spawn1.exec;
+    SpawnExec exec2 = spawn2.exec;
+
+    if (!exec1.getCommandArgsList().equals(exec2.getCommandArgsList())) {
+      int n = Math.min(exec1.getCommandArgsCount(), exec2.getCommandArgsCount());
+      int i = 0;
+      while (i < n && exec1.getCommandArgs(i).equals(exec2.getCommandArgs(i))) {
+        i++;
+      }
+      if (i < n) {
+        sb.append(
+            String.format(
+                "  argument %d: '%s' != '%s'\n",
+                i, exec1.getCommandArgs(i), exec2.getCommandArgs(i)));
+      } else {
+        sb.append(
+            String.format(
+                "  argument count: %d != %d\n",
+                exec1.getCommandArgsCount(), exec2.getCommandArgsCount()));
+      }
+    }
+
+    Map<String, String> env1 = envToMap(exec1.getEnvironmentVariablesList());
+    Map<String, String> env2 = envToMap(exec2.getEnvironmentVariablesList());
+    TreeSet<String> names = new TreeSet<>(env1.keySet());
+    names.addAll(env2.keySet());
+    for (String name : names) {
+      if (!Objects.equals(env1.get(name), env2.get(name))) {
+        sb.append(
+            String.format(
+                "  environment variable %s: %s != %s\n",
+                name, quoteOrUnset(env1.get(name)), quoteOrUnset(env2.get(name))));
+      }
+    }
+
+    if (!exec1.getPlatform().equals(exec2.getPlatform())) {
+      sb.append("  platform: ")
+          .append(exec1.getPlatform().toString().replace('\n', ' ').trim())
+          .append(" != ")
+          .append(exec2.getPlatform().toString().replace('\n', ' ').trim())
+          .append('\n');
+    }
+
+    if (!exec1.getListedOutputsList().equals(exec2.getListedOutputsList())) {
+      sb.append("  listed outputs: ")
+          .append(exec1.getListedOutputsList())
+          .append(" != ")
+          .append(exec2.getListedOutputsList())
+          .append('\n');
+    }
+
+    if (!spawn1.inputsFingerprint.equals(spawn2.inputsFingerprint)) {
+      Map<String, Digest> inputs1 = inputsToMap(log1.reader.getInputs(spawn1));
+      Map<String, Digest> inputs2 = inputsToMap(log2.reader.getInputs(spawn2));
+      TreeSet<String> paths = new TreeSet<>(inputs1.keySet());
+      paths.addAll(inputs2.keySet());
+      for (String path : paths) {
+        Digest digest1 = inputs1.get(path);
+        Digest digest2 = inputs2.get(path);
+        if (digest1 == null) {
+          sb.append("  input ").append(path).append(": only in the second build\n");
+        } else if (digest2 == null) {
+          sb.append("  input ").append(path).append(": only in the first build\n");
+        } else if (!digest1.equals(digest2)) {
+          sb.append(
+              String.format(
+                  "  input %s: %s/%d != %s/%d\n",
+                  path,
+                  digest1.getHash(),
+                  digest1.getSizeBytes(),
+                  digest2.getHash(),
+                  digest2.getSizeBytes()));
+        }
+      }
+    }
+    if (sb.length() == 0) {
+      return null;
+    }
+    return String.format(
+        "Action %s (%s) has a different cache key:\n%s", key, exec1.getMnemonic(), sb);
+  }
+
+  private static Map<String, String> envToMap(List<EnvironmentVariable> env) {
+    Map<String, String> map = new HashMap<>();
+    for (EnvironmentVariable var : env) {
+      map.put(var.getName(), var.getValue());
+    }
+    return map;
+  }
+
+  private static Map<String, Digest> inputsToMap(List<LoggedFile> files) {
+    Map<String, Digest> map = new TreeMap<>();
+    for (LoggedFile file : files) {
+      map.put(file.path, file.digest);
+    }
+    return map;
+  }
+
+  private static String quoteOrUnset(String value) {
+    return value == null ? "<unset>" : "'" + value + "'";
+  }
+}
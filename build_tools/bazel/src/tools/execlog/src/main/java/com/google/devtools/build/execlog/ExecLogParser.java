@@ -16,9 +16,12 @@ package com.google.devtools.build.execlog;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.devtools.build.lib.exec.Protos.SpawnExec;
 import com.google.devtools.common.options.OptionsParser;
+import java.io.BufferedInputStream;
 import java.io.BufferedWriter;
+import java.io.FileDescriptor;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -32,12 +35,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * A tool to inspect and parse the Bazel execution log.
  */
 final class ExecLogParser {
 
+  /** The number of blocks of a compact log that are decoded ahead of the one being parsed. */
+  private static final int MAX_PENDING_BLOCKS = 2 * Runtime.getRuntime().availableProcessors();
+
   static final String DELIMITER = "\n---------------------------------------------------------\n";
 
   @VisibleForTesting
@@ -70,6 +78,37 @@ final class ExecLogParser {
     }
   }
 
+  /**
+   * Parses an execution log in the compact format, expanding the inputs of each spawn. The spawns
+   * are returned in the order in which they were logged.
+   */
+  @VisibleForTesting
+  static class CompactLogParser implements Parser {
+    final CompactLogReader reader;
+    final String restrictToRunner;
+
+    CompactLogParser(CompactLogReader reader, String restrictToRunner) {
+      this.reader = reader;
+      this.restrictToRunner = restrictToRunner;
+    }
+
+    @Override
+    public SpawnExec getNext() throws IOException {
+      CompactLogReader.LoggedSpawn spawn;
+      do {
+        spawn = reader.next();
+        if (spawn == null) {
+          return null;
+        }
+      } while (restrictToRunner != null && !restrictToRunner.equals(spawn.exec.getRunner()));
+      SpawnExec.Builder ex = spawn.exec.toBuilder();
+      for (CompactLogReader.LoggedFile input : reader.getInputs(spawn)) {
+        ex.addInputs(input.toProto());
+      }
+      return ex.build();
+    }
+  }
+
   static String getFirstOutput(SpawnExec e) {
     if (e.getListedOutputsCount() > 0) {
       return e.getListedOutputs(0);
@@ -168,6 +207,27 @@ final class ExecLogParser {
     }
   }
 
+  /** Returns a parser for {@code in}, which may be in either format. */
+  private static Parser newParser(
+      BufferedInputStream in, String restrictToRunner, ExecutorService executor)
+      throws IOException {
+    if (CompactLogReader.isCompactLog(in)) {
+      return new CompactLogParser(
+          new CompactLogReader(in, executor, MAX_PENDING_BLOCKS), restrictToRunner);
+    }
+    return new FilteringLogParser(in, restrictToRunner);
+  }
+
+  private static CompactLogReader openCompactLog(String path, ExecutorService executor)
+      throws IOException {
+    BufferedInputStream in = new BufferedInputStream(new FileInputStream(path));
+    if (!CompactLogReader.isCompactLog(in)) {
+      in.close();
+      throw new IOException(path + " is not an execution log in the compact format");
+    }
+    return new CompactLogReader(in, executor, MAX_PENDING_BLOCKS);
+  }
+
   public static void main(String[] args) throws Exception {
     OptionsParser op = OptionsParser.builder().optionsClasses(ParserOptions.class).build();
     op.parseAndExitUponError(args);
@@ -189,6 +249,31 @@ final class ExecLogParser {
       System.exit(1);
     }
 
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            new ThreadFactoryBuilder().setNameFormat("exec-log-parser-%d").setDaemon(true).build());
+    if (options.diff) {
+      if (options.logPath.size() != 2
+          || (options.outputPath != null && options.outputPath.size() > 1)) {
+        System.err.println("--diff requires two --log_path values and at most one --output_path.");
+        System.exit(1);
+      }
+      int differing;
+      try (CompactLogReader first = openCompactLog(options.logPath.get(0), executor);
+          CompactLogReader second = openCompactLog(options.logPath.get(1), executor);
+          OutputStream output =
+              options.outputPath == null || options.outputPath.isEmpty()
+                  ? new FileOutputStream(FileDescriptor.out)
+                  : new FileOutputStream(options.outputPath.get(0))) {
+        PrintWriter out =
+            new PrintWriter(new BufferedWriter(new OutputStreamWriter(output, UTF_8)));
+        differing = ExecLogDiffer.diff(first, second, executor, out);
+        out.flush();
+      }
+      System.exit(differing == 0 ? 0 : 2);
+    }
+
     String logPath = options.logPath.get(0);
     String secondPath = null;
     String output1 = null;
@@ -218,8 +303,8 @@ final class ExecLogParser {
       golden = new ReorderingParser.Golden();
     }
 
-    try (InputStream input = new FileInputStream(logPath)) {
-      Parser parser = new FilteringLogParser(input, options.restrictToRunner);
+    try (BufferedInputStream input = new BufferedInputStream(new FileInputStream(logPath))) {
+      Parser parser = newParser(input, options.restrictToRunner, executor);
 
       if (output1 == null) {
         output(parser, System.out, golden);
@@ -231,9 +316,9 @@ final class ExecLogParser {
     }
 
     if (secondPath != null) {
-      try (InputStream file2 = new FileInputStream(secondPath);
+      try (BufferedInputStream file2 = new BufferedInputStream(new FileInputStream(secondPath));
           OutputStream output = new FileOutputStream(output2)) {
-        Parser parser = new FilteringLogParser(file2, options.restrictToRunner);
+        Parser parser = newParser(file2, options.restrictToRunner, executor);
         // ReorderingParser will read the whole golden on initialization,
         // so it is safe to close after.
         parser = new ReorderingParser(golden, parser);
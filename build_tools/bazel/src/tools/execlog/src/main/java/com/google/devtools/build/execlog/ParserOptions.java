@@ -60,4 +60,19 @@ public class ParserOptions extends OptionsBase {
       effectTags = {OptionEffectTag.UNKNOWN},
       help = "If set, only output the executions that used the given runner.")
   public String restrictToRunner;
+
+  @Option(
+      name = "diff",
+      defaultValue = "false",
+      category = "logging",
+      documentationCategory = OptionDocumentationCategory.UNCATEGORIZED,
+      effectTags = {OptionEffectTag.UNKNOWN},
+      help =
+          "If set, two --log_path values in the compact format written with"
+              + " --experimental_execution_log_compact_file are compared instead of converted: the"
+              + " actions whose remote cache keys differ are printed with the arguments,"
+              + " environment variables and inputs that differ, followed by the actions that were"
+              + " only executed in one of the builds. The output goes to the single --output_path"
+              + " or to stdout. Exits with 2 if cache keys differ.")
+  public boolean diff;
 }
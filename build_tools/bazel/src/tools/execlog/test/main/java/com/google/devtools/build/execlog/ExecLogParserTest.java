@@ -14,17 +14,28 @@
 package com.google.devtools.build.execlog;
 
 import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
+import com.google.devtools.build.execlog.ExecLogParser.CompactLogParser;
 import com.google.devtools.build.execlog.ExecLogParser.FilteringLogParser;
 import com.google.devtools.build.execlog.ExecLogParser.Parser;
 import com.google.devtools.build.execlog.ExecLogParser.ReorderingParser;
+import com.google.devtools.build.lib.exec.CompactSpawnLogWriter;
+import com.google.devtools.build.lib.exec.Protos.Digest;
+import com.google.devtools.build.lib.exec.Protos.EnvironmentVariable;
+import com.google.devtools.build.lib.exec.Protos.File;
 import com.google.devtools.build.lib.exec.Protos.SpawnExec;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -308,5 +319,167 @@ public final class ExecLogParserTest {
     assertThat(p.getNext()).isEqualTo(c);
     assertThat(p.getNext()).isNull();
   }
-}
 
+  private static Digest digest(String hash) {
+    return Digest.newBuilder()
+        .setHash(hash)
+        .setSizeBytes(hash.length())
+        .setHashFunctionName("SHA-256")
+        .build();
+  }
+
+  private static CompactLogReader toCompactLog(ExecutorService executor, WriterCallback callback)
+      throws Exception {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (CompactSpawnLogWriter writer = new CompactSpawnLogWriter(bos)) {
+      callback.write(writer);
+    }
+    return new CompactLogReader(
+        new ByteArrayInputStream(bos.toByteArray()), executor, /* maxPendingBlocks= */ 2);
+  }
+
+  private interface WriterCallback {
+    void write(CompactSpawnLogWriter writer) throws Exception;
+  }
+
+  @Test
+  public void compactLogExpandsInputs() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      SpawnExec spawn =
+          SpawnExec.newBuilder()
+              .addCommandArgs("cc")
+              .addCommandArgs("-c")
+              .addEnvironmentVariables(
+                  EnvironmentVariable.newBuilder().setName("PATH").setValue("/bin"))
+              .addListedOutputs("a.o")
+              .addActualOutputs(File.newBuilder().setPath("a.o").setDigest(digest("00aa")))
+              .setMnemonic("CppCompile")
+              .setRunner("remote")
+              .setCacheable(true)
+              .setTimeoutMillis(1000)
+              .setExitCode(-1)
+              .build();
+      CompactLogReader reader =
+          toCompactLog(
+              executor,
+              writer -> {
+                int header = writer.getFileId("b.h", () -> digest("00bb"));
+                int shared = writer.addInputSet("shared", new int[] {header}, new int[0]);
+                int source = writer.getFileId("a.c", () -> digest("00cc"));
+                int inputs = writer.addInputSet(null, new int[] {source}, new int[] {shared});
+                writer.writeSpawn(spawn, inputs);
+                writer.writeSpawn(
+                    SpawnExec.newBuilder().addListedOutputs("b.o").setRunner("local").build(),
+                    writer.getInputSetId("shared"));
+              });
+      CompactLogParser p = new CompactLogParser(reader, "remote");
+
+      assertThat(p.getNext())
+          .isEqualTo(
+              spawn.toBuilder()
+                  .addInputs(File.newBuilder().setPath("a.c").setDigest(digest("00cc")))
+                  .addInputs(File.newBuilder().setPath("b.h").setDigest(digest("00bb")))
+                  .build());
+      assertThat(p.getNext()).isNull();
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void compactLogWithManyBlocks() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      String padding = String.join("", Collections.nCopies(100, "x"));
+      CompactLogReader reader =
+          toCompactLog(
+              executor,
+              writer -> {
+                for (int i = 0; i < 20000; i++) {
+                  int input = writer.getFileId("in" + i, () -> digest("00aa"));
+                  writer.writeSpawn(
+                      SpawnExec.newBuilder()
+                          .addCommandArgs(padding + i)
+                          .addListedOutputs("out" + i)
+                          .build(),
+                      writer.addInputSet(null, new int[] {input}, new int[0]));
+                }
+              });
+      CompactLogParser p = new CompactLogParser(reader, null);
+
+      for (int i = 0; i < 20000; i++) {
+        SpawnExec ex = p.getNext();
+        assertThat(ex.getCommandArgsList()).containsExactly(padding + i);
+        assertThat(ex.getInputs(0).getPath()).isEqualTo("in" + i);
+      }
+      assertThat(p.getNext()).isNull();
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void diffFindsDifferentCacheKeys() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      CompactLogReader first =
+          toCompactLog(
+              executor,
+              writer -> {
+                int header = writer.getFileId("a.h", () -> digest("00aa"));
+                int headers = writer.addInputSet("headers", new int[] {header}, new int[0]);
+                writer.writeSpawn(
+                    SpawnExec.newBuilder()
+                        .addCommandArgs("cc")
+                        .addListedOutputs("a.o")
+                        .setMnemonic("CppCompile")
+                        .build(),
+                    headers);
+                int lib = writer.getFileId("a.lib", () -> digest("00cc"));
+                writer.writeSpawn(
+                    SpawnExec.newBuilder().addCommandArgs("ld").addListedOutputs("a").build(),
+                    writer.addInputSet(null, new int[] {lib}, new int[0]));
+                writer.writeSpawn(SpawnExec.newBuilder().addListedOutputs("gone").build(), 0);
+              });
+      CompactLogReader second =
+          toCompactLog(
+              executor,
+              writer -> {
+                int header = writer.getFileId("a.h", () -> digest("00bb"));
+                int headers = writer.addInputSet("headers", new int[] {header}, new int[0]);
+                writer.writeSpawn(
+                    SpawnExec.newBuilder()
+                        .addCommandArgs("cc")
+                        .addListedOutputs("a.o")
+                        .setMnemonic("CppCompile")
+                        .build(),
+                    headers);
+                // The same inputs, in a different structure.
+                int lib = writer.getFileId("a.lib", () -> digest("00cc"));
+                int libs = writer.addInputSet(null, new int[] {lib}, new int[0]);
+                int same = writer.addInputSet(null, new int[0], new int[] {libs});
+                writer.writeSpawn(
+                    SpawnExec.newBuilder().addCommandArgs("ld").addListedOutputs("a").build(),
+                    same);
+              });
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      PrintWriter out = new PrintWriter(new OutputStreamWriter(output, UTF_8));
+
+      int differing = ExecLogDiffer.diff(first, second, executor, out);
+      out.flush();
+
+      assertThat(differing).isEqualTo(1);
+      assertThat(new String(output.toByteArray(), UTF_8))
+          .isEqualTo(
+              "Action a.o (CppCompile) has a different cache key:\n"
+                  + "  input a.h: 00aa/4 != 00bb/4\n"
+                  + "Action gone was only executed in the first build\n"
+                  + "1 of 2 matching actions have different cache keys, 1 and 0 actions were only"
+                  + " executed in the first and second build"
+                  + System.lineSeparator());
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
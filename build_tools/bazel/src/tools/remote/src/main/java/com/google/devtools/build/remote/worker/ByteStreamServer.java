@@ -24,16 +24,20 @@ import com.google.bytestream.ByteStreamProto.ReadRequest;
 import com.google.bytestream.ByteStreamProto.ReadResponse;
 import com.google.bytestream.ByteStreamProto.WriteRequest;
 import com.google.bytestream.ByteStreamProto.WriteResponse;
+import com.google.common.io.ByteStreams;
 import com.google.devtools.build.lib.remote.Chunker;
 import com.google.devtools.build.lib.remote.common.CacheNotFoundException;
 import com.google.devtools.build.lib.remote.util.DigestUtil;
+import com.google.devtools.build.lib.remote.util.InflatingOutputStream;
 import com.google.devtools.build.lib.vfs.FileSystemUtils;
 import com.google.devtools.build.lib.vfs.Path;
 import io.grpc.Status;
 import io.grpc.protobuf.StatusProto;
 import io.grpc.stub.StreamObserver;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.UUID;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
@@ -60,6 +64,17 @@ final class ByteStreamServer extends ByteStreamImplBase {
     }
   }
 
+  /**
+   * Returns true if the resource name refers to a DEFLATE compressed blob, i.e. it has the form
+   * {@code .../compressed-blobs/deflate/{hash}/{size}}.
+   */
+  static boolean isCompressedResourceName(String resourceName) {
+    String[] tokens = resourceName.split("/");
+    return tokens.length >= 4
+        && tokens[tokens.length - 4].equals("compressed-blobs")
+        && tokens[tokens.length - 3].equals("deflate");
+  }
+
   public ByteStreamServer(OnDiskBlobStoreCache cache, Path workPath, DigestUtil digestUtil) {
     this.cache = cache;
     this.workPath = workPath;
@@ -80,7 +95,15 @@ final class ByteStreamServer extends ByteStreamImplBase {
     try {
       // This still relies on the blob size to be small enough to fit in memory.
       // TODO(olaola): refactor to fix this if the need arises.
-      Chunker c = Chunker.builder().setInput(getFromFuture(cache.downloadBlob(digest))).build();
+      byte[] blob = getFromFuture(cache.downloadBlob(digest));
+      boolean compressed = isCompressedResourceName(request.getResourceName());
+      if (compressed && request.getReadOffset() > 0) {
+        // The read offset of a compressed read refers to the uncompressed blob, and the response
+        // is a new compressed stream of the rest of the blob.
+        int readOffset = (int) Math.min(request.getReadOffset(), blob.length);
+        blob = Arrays.copyOfRange(blob, readOffset, blob.length);
+      }
+      Chunker c = Chunker.builder().setInput(blob).setCompressed(compressed).build();
       while (c.hasNext()) {
         responseObserver.onNext(
             ReadResponse.newBuilder().setData(c.next().getData()).build());
@@ -111,6 +134,7 @@ final class ByteStreamServer extends ByteStreamImplBase {
       private Digest digest;
       private long offset;
       private String resourceName;
+      private boolean compressed;
       private boolean closed;
 
       @Override
@@ -122,6 +146,7 @@ final class ByteStreamServer extends ByteStreamImplBase {
         if (digest == null) {
           resourceName = request.getResourceName();
           digest = parseDigestFromResourceName(resourceName);
+          compressed = isCompressedResourceName(resourceName);
         }
 
         if (digest == null) {
@@ -135,8 +160,10 @@ final class ByteStreamServer extends ByteStreamImplBase {
 
         if (offset == 0) {
           if (cache.containsKey(digest)) {
+            // The size of the compressed blob is unknown, so report -1 for compressed uploads.
+            long committedSize = compressed ? -1 : digest.getSizeBytes();
             responseObserver.onNext(
-                WriteResponse.newBuilder().setCommittedSize(digest.getSizeBytes()).build());
+                WriteResponse.newBuilder().setCommittedSize(committedSize).build());
             responseObserver.onCompleted();
             closed = true;
             return;
@@ -175,9 +202,10 @@ final class ByteStreamServer extends ByteStreamImplBase {
           offset += size;
         }
 
+        // The size of a compressed blob is only known once all of it has been received.
         boolean shouldFinishWrite = offset == digest.getSizeBytes();
 
-        if (shouldFinishWrite != request.getFinishWrite()) {
+        if (!compressed && shouldFinishWrite != request.getFinishWrite()) {
           responseObserver.onError(
               StatusUtils.invalidArgumentError(
                   "finish_write",
@@ -206,7 +234,7 @@ final class ByteStreamServer extends ByteStreamImplBase {
           return;
         }
 
-        if (digest == null || offset != digest.getSizeBytes()) {
+        if (digest == null || (!compressed && offset != digest.getSizeBytes())) {
           responseObserver.onError(
               StatusProto.toStatusRuntimeException(
                   com.google.rpc.Status.newBuilder()
@@ -218,10 +246,12 @@ final class ByteStreamServer extends ByteStreamImplBase {
         }
 
         try {
-          Digest d = digestUtil.compute(temp);
-          getFromFuture(cache.uploadFile(d, temp));
+          Path blob = compressed ? decompress(temp) : temp;
+          Digest d = digestUtil.compute(blob);
+          getFromFuture(cache.uploadFile(d, blob));
           try {
             temp.delete();
+            blob.delete();
           } catch (IOException e) {
             logger.log(WARNING, "Could not delete temp file.", e);
           }
@@ -246,6 +276,18 @@ final class ByteStreamServer extends ByteStreamImplBase {
     };
   }
 
+  /** Decompresses the DEFLATE compressed {@code file} into a new file next to it. */
+  private static Path decompress(Path file) throws IOException {
+    Path decompressed = file.getParentDirectory().getChild(file.getBaseName() + ".decompressed");
+    try (InputStream in = file.getInputStream();
+        OutputStream out = decompressed.getOutputStream();
+        InflatingOutputStream inflatingOut = new InflatingOutputStream(out)) {
+      ByteStreams.copy(in, inflatingOut);
+      inflatingOut.finish();
+    }
+    return decompressed;
+  }
+
   private static class NoOpStreamObserver<T> implements StreamObserver<T> {
     @Override
     public void onNext(T value) {
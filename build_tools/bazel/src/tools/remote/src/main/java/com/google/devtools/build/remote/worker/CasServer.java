@@ -17,6 +17,8 @@ package com.google.devtools.build.remote.worker;
 import static com.google.devtools.build.lib.remote.util.Utils.getFromFuture;
 import static java.util.logging.Level.WARNING;
 
+import build.bazel.remote.execution.v2.BatchReadBlobsRequest;
+import build.bazel.remote.execution.v2.BatchReadBlobsResponse;
 import build.bazel.remote.execution.v2.BatchUpdateBlobsRequest;
 import build.bazel.remote.execution.v2.BatchUpdateBlobsResponse;
 import build.bazel.remote.execution.v2.ContentAddressableStorageGrpc.ContentAddressableStorageImplBase;
@@ -28,6 +30,7 @@ import build.bazel.remote.execution.v2.FindMissingBlobsResponse;
 import build.bazel.remote.execution.v2.GetTreeRequest;
 import build.bazel.remote.execution.v2.GetTreeResponse;
 import com.google.devtools.build.lib.remote.common.CacheNotFoundException;
+import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.rpc.Code;
 import io.grpc.stub.StreamObserver;
@@ -85,6 +88,31 @@ final class CasServer extends ContentAddressableStorageImplBase {
     responseObserver.onCompleted();
   }
 
+  @Override
+  public void batchReadBlobs(
+      BatchReadBlobsRequest request, StreamObserver<BatchReadBlobsResponse> responseObserver) {
+    BatchReadBlobsResponse.Builder batchResponse = BatchReadBlobsResponse.newBuilder();
+    for (Digest digest : request.getDigestsList()) {
+      BatchReadBlobsResponse.Response.Builder resp =
+          batchResponse.addResponsesBuilder().setDigest(digest);
+      try {
+        resp.setData(ByteString.copyFrom(getFromFuture(cache.downloadBlob(digest))));
+        resp.getStatusBuilder().setCode(Code.OK.getNumber());
+      } catch (CacheNotFoundException e) {
+        resp.setStatus(StatusUtils.notFoundStatus(digest));
+      } catch (InterruptedException e) {
+        responseObserver.onError(StatusUtils.interruptedError(digest));
+        Thread.currentThread().interrupt();
+        return;
+      } catch (Exception e) {
+        logger.log(WARNING, "Read request failed.", e);
+        resp.setStatus(StatusUtils.internalErrorStatus(e));
+      }
+    }
+    responseObserver.onNext(batchResponse.build());
+    responseObserver.onCompleted();
+  }
+
   @Override
   public void getTree(GetTreeRequest request, StreamObserver<GetTreeResponse> responseObserver) {
     // Directories are returned in depth-first order.  We store all previously-traversed digests so
@@ -0,0 +1,363 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.remote.worker;
+
+import static java.util.logging.Level.FINE;
+import static java.util.logging.Level.WARNING;
+
+import com.google.common.collect.ImmutableList;
+import com.google.devtools.build.lib.shell.BadExitStatusException;
+import com.google.devtools.build.lib.shell.Command;
+import com.google.devtools.build.lib.shell.CommandException;
+import com.google.devtools.build.lib.vfs.Path;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Keeps Docker containers running between actions, so that actions that request a container image
+ * don't pay for starting a new container each.
+ *
+ * <p>Containers are pooled by container image and platform. The number of containers in a pool,
+ * and thereby the number of actions that run in it concurrently, is bounded; actions wait for a
+ * container if all of them are in use. Each container only has its own staging directory below the
+ * work directory mounted, at the same path, so that actions are staged there and run in their exec
+ * root via {@code docker exec} without seeing the files of other actions. Before a container is
+ * reused, its tmpfs directories are emptied. Containers that still run processes of the previous
+ * action, that fail to be reset, or whose action didn't finish normally, are removed instead.
+ */
+final class ContainerPool {
+  private static final Logger logger = Logger.getLogger(ContainerPool.class.getName());
+
+  // How long to wait for docker commands that manage the containers.
+  private static final Duration dockerTimeout = Duration.ofMinutes(2);
+
+  // The exit code of the reset script if processes other than the keep-alive one are running.
+  private static final int PROCESSES_RUNNING_EXIT_CODE = 3;
+
+  /**
+   * Exits with {@link #PROCESSES_RUNNING_EXIT_CODE} if any process other than the keep-alive one,
+   * which is PID 1, and the script itself runs in the container, e.g. a daemon that the previous
+   * action started. Otherwise empties the directories passed as arguments.
+   */
+  private static final String RESET_SCRIPT =
+      "for pid in /proc/[0-9]*; do "
+          + "pid=${pid#/proc/}; "
+          + "if [ \"$pid\" != 1 ] && [ \"$pid\" != $$ ]; then exit "
+          + PROCESSES_RUNNING_EXIT_CODE
+          + "; fi; "
+          + "done; "
+          + "exec find \"$@\" -mindepth 1 -delete";
+
+  /** A container that is in use by an action. */
+  static final class Container {
+    private final Pool pool;
+    private final String id;
+    private final Path stagingDirectory;
+
+    private Container(Pool pool, String id, Path stagingDirectory) {
+      this.pool = pool;
+      this.id = id;
+      this.stagingDirectory = stagingDirectory;
+    }
+
+    /** Returns the identifier of the container, as understood by {@code docker exec}. */
+    String getId() {
+      return id;
+    }
+
+    /**
+     * Returns the only directory of the worker that is visible in the container, at the same path.
+     * Exec roots of actions that run in the container must be created in it.
+     */
+    Path getStagingDirectory() {
+      return stagingDirectory;
+    }
+  }
+
+  /** The containers of a container image and platform. */
+  private static final class Pool {
+    final String image;
+    final Semaphore permits;
+
+    @GuardedBy("this")
+    final Deque<Container> idle = new ArrayDeque<>();
+
+    final AtomicInteger inUse = new AtomicInteger();
+    final AtomicInteger queued = new AtomicInteger();
+    final AtomicLong acquisitions = new AtomicLong();
+    final AtomicLong containersStarted = new AtomicLong();
+    final AtomicLong queueTimeNanos = new AtomicLong();
+    final AtomicLong maxQueueTimeNanos = new AtomicLong();
+
+    Pool(String image, int maxContainers) {
+      this.image = image;
+      this.permits = new Semaphore(maxContainers, /* fair= */ true);
+    }
+  }
+
+  private final Path stagingRoot;
+  private final ImmutableList<String> tmpfsDirs;
+  private final int maxContainersPerPool;
+  private final long uid;
+  private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+  private final AtomicLong stagingDirectoryCount = new AtomicLong();
+
+  /**
+   * @param stagingRoot the directory in which the staging directories of the containers are
+   *     created, which must be on the same file system as the inputs of actions if they are
+   *     hardlinked. Its previous contents are deleted.
+   */
+  ContainerPool(Path stagingRoot, List<String> tmpfsDirs, int maxContainersPerPool)
+      throws IOException {
+    this.stagingRoot = stagingRoot;
+    stagingRoot.deleteTree();
+    stagingRoot.createDirectoryAndParents();
+    this.tmpfsDirs =
+        ImmutableList.<String>builder()
+            .add("/tmp")
+            .addAll(tmpfsDirs.stream().filter(dir -> !dir.equals("/tmp")).iterator())
+            .build();
+    this.maxContainersPerPool = maxContainersPerPool;
+    // -u doesn't currently make sense for Windows:
+    // https://github.com/docker/for-win/issues/636#issuecomment-293653788
+    this.uid = ExecutionServer.isWindows() ? -1 : ExecutionServer.getUid();
+  }
+
+  /**
+   * Returns a running container of {@code image} for the given platform, waiting for one to be
+   * released if all containers of the pool are in use. The container must be passed to {@link
+   * #release} once the action has finished.
+   */
+  Container acquire(String image, String platform) throws IOException, InterruptedException {
+    Pool pool =
+        pools.computeIfAbsent(
+            image + "|" + platform, unused -> new Pool(image, maxContainersPerPool));
+    long startNanos = System.nanoTime();
+    pool.queued.incrementAndGet();
+    try {
+      pool.permits.acquire();
+    } finally {
+      pool.queued.decrementAndGet();
+    }
+    long queueTimeNanos = System.nanoTime() - startNanos;
+    pool.acquisitions.incrementAndGet();
+    pool.queueTimeNanos.addAndGet(queueTimeNanos);
+    pool.maxQueueTimeNanos.accumulateAndGet(queueTimeNanos, Math::max);
+
+    Container container;
+    synchronized (pool) {
+      container = pool.idle.pollFirst();
+    }
+    if (container == null) {
+      try {
+        container = startContainer(pool);
+      } catch (IOException | RuntimeException e) {
+        pool.permits.release();
+        throw e;
+      }
+      pool.containersStarted.incrementAndGet();
+    }
+    pool.inUse.incrementAndGet();
+    return container;
+  }
+
+  /**
+   * Returns {@code container} to its pool. If {@code reusable} is false, e.g. because processes of
+   * the action may still be running, the container is removed. The exec root of the action must
+   * have been deleted from the container's staging directory, as the next action would see it.
+   */
+  void release(Container container, boolean reusable) {
+    Pool pool = container.pool;
+    try {
+      if (reusable && reset(container.id)) {
+        synchronized (pool) {
+          pool.idle.addFirst(container);
+        }
+      } else {
+        remove(ImmutableList.of(container));
+      }
+    } finally {
+      pool.inUse.decrementAndGet();
+      pool.permits.release();
+    }
+  }
+
+  /** Removes all idle containers. */
+  void shutdown() {
+    List<Container> containers = new ArrayList<>();
+    for (Pool pool : pools.values()) {
+      synchronized (pool) {
+        containers.addAll(pool.idle);
+        pool.idle.clear();
+      }
+    }
+    if (!containers.isEmpty()) {
+      remove(containers);
+    }
+  }
+
+  /**
+   * Returns the statistics of each pool, keyed by container image and platform: the number of
+   * containers that are idle and in use, the number of actions that wait for a container, and how
+   * long actions waited for a container.
+   */
+  Struct getStats() {
+    Struct.Builder stats = Struct.newBuilder();
+    for (Map.Entry<String, Pool> entry : pools.entrySet()) {
+      Pool pool = entry.getValue();
+      int idle;
+      synchronized (pool) {
+        idle = pool.idle.size();
+      }
+      long acquisitions = pool.acquisitions.get();
+      Struct poolStats =
+          Struct.newBuilder()
+              .putFields("image", stringValue(pool.image))
+              .putFields("max_containers", numberValue(maxContainersPerPool))
+              .putFields("idle", numberValue(idle))
+              .putFields("in_use", numberValue(pool.inUse.get()))
+              .putFields("queued", numberValue(pool.queued.get()))
+              .putFields("acquisitions", numberValue(acquisitions))
+              .putFields("containers_started", numberValue(pool.containersStarted.get()))
+              .putFields(
+                  "mean_queue_time_ms",
+                  numberValue(
+                      acquisitions == 0 ? 0 : pool.queueTimeNanos.get() / acquisitions / 1e6))
+              .putFields("max_queue_time_ms", numberValue(pool.maxQueueTimeNanos.get() / 1e6))
+              .build();
+      stats.putFields(entry.getKey(), Value.newBuilder().setStructValue(poolStats).build());
+    }
+    return stats.build();
+  }
+
+  private Container startContainer(Pool pool) throws IOException {
+    Path stagingDirectory =
+        stagingRoot.getChild(Long.toString(stagingDirectoryCount.incrementAndGet()));
+    stagingDirectory.createDirectory();
+    List<String> args = new ArrayList<>();
+    args.add("docker");
+    args.add("run");
+    args.add("--detach");
+    args.add("--rm");
+    if (uid >= 0) {
+      args.add("-u");
+      args.add(Long.toString(uid));
+    }
+    args.add("-v");
+    args.add(stagingDirectory.getPathString() + ":" + stagingDirectory.getPathString());
+    for (String dir : tmpfsDirs) {
+      args.add("--tmpfs");
+      args.add(dir);
+    }
+    // Keep the container alive until it's removed, regardless of the image's entrypoint.
+    args.add("--entrypoint");
+    args.add("sleep");
+    args.add(pool.image);
+    args.add(Integer.toString(Integer.MAX_VALUE));
+    try {
+      String id = runDocker(args).trim();
+      logger.log(FINE, "Started container {0} of {1}.", new Object[] {id, pool.image});
+      return new Container(pool, id, stagingDirectory);
+    } catch (CommandException e) {
+      stagingDirectory.deleteTree();
+      throw new IOException("Failed to start a container of " + pool.image, e);
+    }
+  }
+
+  private boolean reset(String id) {
+    List<String> args = new ArrayList<>();
+    args.add("docker");
+    args.add("exec");
+    args.add("-u");
+    args.add("0");
+    args.add(id);
+    args.add("sh");
+    args.add("-c");
+    args.add(RESET_SCRIPT);
+    args.add("sh");
+    args.addAll(tmpfsDirs);
+    try {
+      runDocker(args);
+      return true;
+    } catch (BadExitStatusException e) {
+      if (e.getResult().getTerminationStatus().getExitCode() == PROCESSES_RUNNING_EXIT_CODE) {
+        logger.log(FINE, "Container {0} still runs processes, removing it.", id);
+      } else {
+        logger.log(WARNING, "Failed to reset container " + id + ", removing it.", e);
+      }
+      return false;
+    } catch (CommandException e) {
+      logger.log(WARNING, "Failed to reset container " + id + ", removing it.", e);
+      return false;
+    }
+  }
+
+  private void remove(List<Container> containers) {
+    List<String> args = new ArrayList<>();
+    args.add("docker");
+    args.add("rm");
+    args.add("--force");
+    List<String> ids = new ArrayList<>();
+    for (Container container : containers) {
+      ids.add(container.id);
+    }
+    args.addAll(ids);
+    try {
+      runDocker(args);
+    } catch (CommandException e) {
+      logger.log(WARNING, "Failed to remove containers " + ids, e);
+    }
+    for (Container container : containers) {
+      try {
+        container.stagingDirectory.deleteTree();
+      } catch (IOException e) {
+        logger.log(WARNING, "Failed to delete " + container.stagingDirectory, e);
+      }
+    }
+  }
+
+  private static String runDocker(List<String> args) throws CommandException {
+    ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+    ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+    new Command(
+            args.toArray(new String[0]),
+            /*environmentVariables=*/ null,
+            /*workingDirectory=*/ null,
+            dockerTimeout)
+        .execute(stdout, stderr);
+    return stdout.toString();
+  }
+
+  private static Value stringValue(String value) {
+    return Value.newBuilder().setStringValue(value).build();
+  }
+
+  private static Value numberValue(double value) {
+    return Value.newBuilder().setNumberValue(value).build();
+  }
+}
@@ -99,9 +99,11 @@ final class ExecutionServer extends ExecutionImplBase {
   private final Path sandboxPath;
   private final RemoteWorkerOptions workerOptions;
   private final OnDiskBlobStoreCache cache;
+  private final InputTreeStager inputTreeStager;
   private final ConcurrentHashMap<String, ListenableFuture<ActionResult>> operationsCache;
   private final ListeningExecutorService executorService;
   private final DigestUtil digestUtil;
+  @Nullable private final ContainerPool containerPool;
 
   public ExecutionServer(
       Path workPath,
@@ -109,11 +111,20 @@ final class ExecutionServer extends ExecutionImplBase {
       RemoteWorkerOptions workerOptions,
       OnDiskBlobStoreCache cache,
       ConcurrentHashMap<String, ListenableFuture<ActionResult>> operationsCache,
-      DigestUtil digestUtil) {
+      DigestUtil digestUtil,
+      @Nullable ContainerPool containerPool)
+      throws IOException {
     this.workPath = workPath;
     this.sandboxPath = sandboxPath;
+    this.containerPool = containerPool;
     this.workerOptions = workerOptions;
     this.cache = cache;
+    this.inputTreeStager =
+        new InputTreeStager(
+            cache,
+            workerOptions.hardlinkInputs ? workPath.getChild("inputs") : null,
+            workerOptions.hardlinkInputsMaxSize,
+            workerOptions.inputTreeCacheSize);
     this.operationsCache = operationsCache;
     this.digestUtil = digestUtil;
     ThreadPoolExecutor realExecutor =
@@ -215,40 +226,24 @@ final class ExecutionServer extends ExecutionImplBase {
 
   private ActionResult execute(ExecuteRequest request, String id)
       throws IOException, InterruptedException, StatusException {
-    Path tempRoot = workPath.getRelative("build-" + id);
     String workDetails = "";
     try {
-      tempRoot.createDirectory();
       RequestMetadata meta = TracingMetadataUtils.fromCurrentContext();
       workDetails =
           String.format(
               "build-request-id: %s command-id: %s action-id: %s",
               meta.getCorrelatedInvocationsId(), meta.getToolInvocationId(), meta.getActionId());
       logger.log(FINE, "Received work for: {0}", workDetails);
-      ActionResult result = execute(request.getActionDigest(), tempRoot);
+      ActionResult result = execute(request.getActionDigest(), "build-" + id);
       logger.log(FINE, "Completed {0}.", workDetails);
       return result;
     } catch (Exception e) {
       logger.log(Level.SEVERE, "Work failed: {0} {1}.", new Object[] {workDetails, e});
       throw e;
-    } finally {
-      if (workerOptions.debug) {
-        logger.log(INFO, "Preserving work directory {0}.", tempRoot);
-      } else {
-        try {
-          tempRoot.deleteTree();
-        } catch (IOException e) {
-          logger.log(
-              SEVERE,
-              String.format(
-                  "Failed to delete tmp directory %s: %s",
-                  tempRoot, Throwables.getStackTraceAsString(e)));
-        }
-      }
     }
   }
 
-  private ActionResult execute(Digest actionDigest, Path execRoot)
+  private ActionResult execute(Digest actionDigest, String execRootName)
       throws IOException, InterruptedException, StatusException {
     Command command = null;
     Action action = null;
@@ -256,113 +251,168 @@ final class ExecutionServer extends ExecutionImplBase {
     try {
       action = Action.parseFrom(getFromFuture(cache.downloadBlob(actionDigest)));
       command = Command.parseFrom(getFromFuture(cache.downloadBlob(action.getCommandDigest())));
-      cache.downloadTree(action.getInputRootDigest(), execRoot);
     } catch (CacheNotFoundException e) {
       throw StatusUtils.notFoundError(e.getMissingDigest());
     }
 
-    List<Path> outputs = new ArrayList<>(command.getOutputFilesList().size());
-    for (String output : command.getOutputFilesList()) {
-      Path file = execRoot.getRelative(output);
-      if (file.exists()) {
-        throw new FileAlreadyExistsException("Output file already exists: " + file);
-      }
-      FileSystemUtils.createDirectoryAndParents(file.getParentDirectory());
-      outputs.add(file);
-    }
-    for (String output : command.getOutputDirectoriesList()) {
-      Path file = execRoot.getRelative(output);
-      if (file.exists()) {
-        throw new FileAlreadyExistsException("Output directory/file already exists: " + file);
-      }
-      FileSystemUtils.createDirectoryAndParents(file.getParentDirectory());
-      outputs.add(file);
+    String image = dockerContainer(command);
+    ContainerPool.Container container = null;
+    if (image != null && containerPool != null) {
+      container = containerPool.acquire(image, platformAsString(command.getPlatform()));
     }
-
-    // TODO(ulfjack): This is basically a copy of LocalSpawnRunner. Ideally, we'd use that
-    // implementation instead of copying it.
-    com.google.devtools.build.lib.shell.Command cmd = getCommand(command, execRoot.getPathString());
-    long startTime = System.currentTimeMillis();
-    CommandResult cmdResult = null;
-
-    String uuid = UUID.randomUUID().toString();
-    Path stdout = execRoot.getChild("stdout-" + uuid);
-    Path stderr = execRoot.getChild("stderr-" + uuid);
-    try (FileOutErr outErr = new FileOutErr(stdout, stderr)) {
-
-      FutureCommandResult futureCmdResult = null;
+    // A warm container only sees its staging directory, so the action is staged there.
+    Path execRoot =
+        (container != null ? container.getStagingDirectory() : workPath).getChild(execRootName);
+    boolean reusable = true;
+    try {
+      execRoot.createDirectory();
       try {
-        futureCmdResult = cmd.executeAsync(outErr.getOutputStream(), outErr.getErrorStream());
-      } catch (CommandException e) {
-        Throwables.throwIfInstanceOf(e.getCause(), IOException.class);
+        inputTreeStager.stage(action.getInputRootDigest(), execRoot);
+      } catch (CacheNotFoundException e) {
+        throw StatusUtils.notFoundError(e.getMissingDigest());
       }
 
-      if (futureCmdResult != null) {
-        try {
-          cmdResult = futureCmdResult.get();
-        } catch (AbnormalTerminationException e) {
-          cmdResult = e.getResult();
+      List<Path> outputs = new ArrayList<>(command.getOutputFilesList().size());
+      for (String output : command.getOutputFilesList()) {
+        Path file = execRoot.getRelative(output);
+        if (file.exists()) {
+          throw new FileAlreadyExistsException("Output file already exists: " + file);
         }
+        FileSystemUtils.createDirectoryAndParents(file.getParentDirectory());
+        outputs.add(file);
       }
-
-      long timeoutMillis =
-          action.hasTimeout()
-              ? Durations.toMillis(action.getTimeout())
-              : TimeUnit.MINUTES.toMillis(15);
-      boolean wasTimeout =
-          (cmdResult != null && cmdResult.getTerminationStatus().timedOut())
-              || wasTimeout(timeoutMillis, System.currentTimeMillis() - startTime);
-      final int exitCode;
-      Status errStatus = null;
-      ExecuteResponse.Builder resp = ExecuteResponse.newBuilder();
-      if (wasTimeout) {
-        final String errMessage =
-            String.format(
-                "Command:\n%s\nexceeded deadline of %f seconds.",
-                Arrays.toString(command.getArgumentsList().toArray()), timeoutMillis / 1000.0);
-        logger.warning(errMessage);
-        errStatus =
-            Status.newBuilder()
-                .setCode(Code.DEADLINE_EXCEEDED.getNumber())
-                .setMessage(errMessage)
-                .build();
-        exitCode = LOCAL_EXEC_ERROR;
-      } else if (cmdResult == null) {
-        exitCode = LOCAL_EXEC_ERROR;
-      } else {
-        exitCode = cmdResult.getTerminationStatus().getRawExitCode();
+      for (String output : command.getOutputDirectoriesList()) {
+        Path file = execRoot.getRelative(output);
+        if (file.exists()) {
+          throw new FileAlreadyExistsException("Output directory/file already exists: " + file);
+        }
+        FileSystemUtils.createDirectoryAndParents(file.getParentDirectory());
+        outputs.add(file);
       }
 
-      ActionResult result = null;
-      try {
-        result = cache.upload(actionKey, action, command, execRoot, outputs, outErr, exitCode);
-      } catch (ExecException e) {
-        if (errStatus == null) {
+      // TODO(ulfjack): This is basically a copy of LocalSpawnRunner. Ideally, we'd use that
+      // implementation instead of copying it.
+      long startTime = System.currentTimeMillis();
+      CommandResult cmdResult = null;
+
+      String uuid = UUID.randomUUID().toString();
+      Path stdout = execRoot.getChild("stdout-" + uuid);
+      Path stderr = execRoot.getChild("stderr-" + uuid);
+      try (FileOutErr outErr = new FileOutErr(stdout, stderr)) {
+
+        com.google.devtools.build.lib.shell.Command cmd =
+            getCommand(command, execRoot.getPathString(), image, container);
+        FutureCommandResult futureCmdResult = null;
+        // Processes of an action that was killed may still be running in its container.
+        reusable = false;
+        try {
+          futureCmdResult = cmd.executeAsync(outErr.getOutputStream(), outErr.getErrorStream());
+        } catch (CommandException e) {
+          Throwables.throwIfInstanceOf(e.getCause(), IOException.class);
+        }
+
+        if (futureCmdResult != null) {
+          try {
+            cmdResult = futureCmdResult.get();
+          } catch (AbnormalTerminationException e) {
+            cmdResult = e.getResult();
+          }
+        }
+        reusable = cmdResult != null && !cmdResult.getTerminationStatus().timedOut();
+
+        long timeoutMillis =
+            action.hasTimeout()
+                ? Durations.toMillis(action.getTimeout())
+                : TimeUnit.MINUTES.toMillis(15);
+        boolean wasTimeout =
+            (cmdResult != null && cmdResult.getTerminationStatus().timedOut())
+                || wasTimeout(timeoutMillis, System.currentTimeMillis() - startTime);
+        final int exitCode;
+        Status errStatus = null;
+        ExecuteResponse.Builder resp = ExecuteResponse.newBuilder();
+        if (wasTimeout) {
+          final String errMessage =
+              String.format(
+                  "Command:\n%s\nexceeded deadline of %f seconds.",
+                  Arrays.toString(command.getArgumentsList().toArray()), timeoutMillis / 1000.0);
+          logger.warning(errMessage);
           errStatus =
               Status.newBuilder()
-                  .setCode(Code.FAILED_PRECONDITION.getNumber())
-                  .setMessage(e.getMessage())
+                  .setCode(Code.DEADLINE_EXCEEDED.getNumber())
+                  .setMessage(errMessage)
                   .build();
+          exitCode = LOCAL_EXEC_ERROR;
+        } else if (cmdResult == null) {
+          exitCode = LOCAL_EXEC_ERROR;
+        } else {
+          exitCode = cmdResult.getTerminationStatus().getRawExitCode();
         }
-      }
 
-      if (result == null) {
-        result = ActionResult.newBuilder().setExitCode(exitCode).build();
-      }
+        ActionResult result = null;
+        try {
+          result = cache.upload(actionKey, action, command, execRoot, outputs, outErr, exitCode);
+        } catch (ExecException e) {
+          if (errStatus == null) {
+            errStatus =
+                Status.newBuilder()
+                    .setCode(Code.FAILED_PRECONDITION.getNumber())
+                    .setMessage(e.getMessage())
+                    .build();
+          }
+        }
 
-      resp.setResult(result);
+        if (result == null) {
+          result = ActionResult.newBuilder().setExitCode(exitCode).build();
+        }
 
-      if (errStatus != null) {
-        resp.setStatus(errStatus);
-        throw new ExecutionStatusException(errStatus, resp.build());
+        resp.setResult(result);
+
+        if (errStatus != null) {
+          resp.setStatus(errStatus);
+          throw new ExecutionStatusException(errStatus, resp.build());
+        }
+
+        return result;
       }
+    } finally {
+      // The exec root must be gone before the container is reused by another action.
+      deleteExecRoot(execRoot);
+      if (container != null) {
+        containerPool.release(container, reusable);
+      }
+    }
+  }
 
-      return result;
+  /**
+   * Deletes {@code execRoot}, or with --debug, preserves it in the work directory, where actions
+   * that run in a warm container can't see it.
+   */
+  private void deleteExecRoot(Path execRoot) {
+    if (workerOptions.debug) {
+      Path preserved = workPath.getChild(execRoot.getBaseName());
+      try {
+        if (!execRoot.equals(preserved)) {
+          execRoot.renameTo(preserved);
+        }
+        logger.log(INFO, "Preserving work directory {0}.", preserved);
+        return;
+      } catch (IOException e) {
+        logger.log(WARNING, "Failed to preserve work directory " + execRoot, e);
+      }
+    }
+    try {
+      execRoot.deleteTree();
+    } catch (IOException e) {
+      logger.log(
+          SEVERE,
+          String.format(
+              "Failed to delete tmp directory %s: %s",
+              execRoot, Throwables.getStackTraceAsString(e)));
     }
   }
 
   // Returns true if the OS being run on is Windows (or some close approximation thereof).
-  private static boolean isWindows() {
+  static boolean isWindows() {
     return System.getProperty("os.name").startsWith("Windows");
   }
 
@@ -384,7 +434,7 @@ final class ExecutionServer extends ExecutionImplBase {
   // This is used to set "-u UID" flag for commands running inside Docker containers. There are
   // only a small handful of cases where uid is vital (e.g., if strict permissions are set on the
   // output files), so most use cases would work without setting uid.
-  private static long getUid() {
+  static long getUid() {
     com.google.devtools.build.lib.shell.Command cmd =
         new com.google.devtools.build.lib.shell.Command(
             new String[] {"id", "-u"},
@@ -448,14 +498,36 @@ final class ExecutionServer extends ExecutionImplBase {
   // Converts the Command proto into the shell Command object.
   // If no docker container is specified, creates a Command straight from the
   // arguments. Otherwise, returns a Command that would run the specified command inside the
-  // specified docker container.
-  private com.google.devtools.build.lib.shell.Command getCommand(Command cmd, String pathString)
-      throws StatusException {
+  // specified docker container, reusing warmContainer if it is given.
+  private com.google.devtools.build.lib.shell.Command getCommand(
+      Command cmd,
+      String pathString,
+      @Nullable String container,
+      @Nullable ContainerPool.Container warmContainer) {
     Map<String, String> environmentVariables = getEnvironmentVariables(cmd);
     // This allows Bazel's integration tests to test for the remote platform.
     environmentVariables.put("BAZEL_REMOTE_PLATFORM", platformAsString(cmd.getPlatform()));
-    String container = dockerContainer(cmd);
-    if (container != null) {
+    if (warmContainer != null) {
+      // Run command inside a running docker container, which has the work directory mounted at
+      // the same path.
+      ArrayList<String> newCommandLineElements = new ArrayList<>(cmd.getArgumentsCount());
+      newCommandLineElements.add("docker");
+      newCommandLineElements.add("exec");
+      newCommandLineElements.add("-w");
+      newCommandLineElements.add(pathString);
+
+      for (Map.Entry<String, String> entry : environmentVariables.entrySet()) {
+        newCommandLineElements.add("-e");
+        newCommandLineElements.add(entry.getKey() + "=" + entry.getValue());
+      }
+
+      newCommandLineElements.add(warmContainer.getId());
+
+      newCommandLineElements.addAll(cmd.getArgumentsList());
+
+      return new com.google.devtools.build.lib.shell.Command(
+          newCommandLineElements.toArray(new String[0]), null, new File(pathString));
+    } else if (container != null) {
       // Run command inside a docker container.
       ArrayList<String> newCommandLineElements = new ArrayList<>(cmd.getArgumentsCount());
       newCommandLineElements.add("docker");
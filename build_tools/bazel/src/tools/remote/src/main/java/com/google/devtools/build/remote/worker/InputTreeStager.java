@@ -0,0 +1,226 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.remote.worker;
+
+import static com.google.devtools.build.lib.remote.util.Utils.getFromFuture;
+import static java.util.logging.Level.FINE;
+import static java.util.logging.Level.WARNING;
+
+import build.bazel.remote.execution.v2.Digest;
+import build.bazel.remote.execution.v2.Directory;
+import build.bazel.remote.execution.v2.DirectoryNode;
+import build.bazel.remote.execution.v2.FileNode;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
+import com.google.devtools.build.lib.vfs.Path;
+import com.google.devtools.build.lib.vfs.PathFragment;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+
+/**
+ * Materializes the input trees of actions in their exec roots.
+ *
+ * <p>The flattened contents of input directories are cached by their digest, so that the {@link
+ * Directory} protos of a subtree that was staged before, e.g. a toolchain, aren't read from the CAS
+ * and parsed again.
+ *
+ * <p>If enabled, input files are hardlinked into the exec root instead of being copied from the
+ * CAS. The links point to read-only copies of the files in a content-addressed store, with separate
+ * copies for executable and non-executable files, so that staging a file costs a single link once
+ * its copy exists. Since these files are shared by all actions, actions can't modify their inputs.
+ * The store is bounded by the total size of the copies, and the least recently used copies are
+ * deleted first. Exec roots keep their links to deleted copies.
+ */
+final class InputTreeStager {
+  private static final Logger logger = Logger.getLogger(InputTreeStager.class.getName());
+
+  private final OnDiskBlobStoreCache cache;
+  @Nullable private final Path linkStore;
+  /** The sizes of the copies in {@link #linkStore} by their name. */
+  private final Cache<String, Long> linkSources;
+  private final Cache<Digest, StagedTree> trees;
+
+  /** A file of a staged tree, relative to the root of the tree. */
+  private static final class StagedFile {
+    final PathFragment path;
+    final Digest digest;
+    final boolean isExecutable;
+
+    StagedFile(PathFragment path, Digest digest, boolean isExecutable) {
+      this.path = path;
+      this.digest = digest;
+      this.isExecutable = isExecutable;
+    }
+  }
+
+  /** The flattened contents of an input directory. */
+  private static final class StagedTree {
+    /** The subdirectories relative to the root of the tree, parents before their children. */
+    final ImmutableList<PathFragment> directories;
+
+    final ImmutableList<StagedFile> files;
+
+    StagedTree(ImmutableList<PathFragment> directories, ImmutableList<StagedFile> files) {
+      this.directories = directories;
+      this.files = files;
+    }
+
+    int size() {
+      return directories.size() + files.size();
+    }
+  }
+
+  /**
+   * @param linkStore the directory in which the files to hardlink are stored, which must be on the
+   *     same file system as the exec roots, or {@code null} to copy files instead. Its previous
+   *     contents are deleted.
+   * @param maxLinkStoreSize the maximum total size in bytes of the files in {@code linkStore}
+   * @param maxCachedEntries the maximum total number of files and directories of the cached trees
+   */
+  InputTreeStager(
+      OnDiskBlobStoreCache cache,
+      @Nullable Path linkStore,
+      long maxLinkStoreSize,
+      long maxCachedEntries)
+      throws IOException {
+    this.cache = cache;
+    this.linkStore = linkStore;
+    if (linkStore != null) {
+      // The copies of a previous run aren't accounted for.
+      linkStore.deleteTree();
+      linkStore.createDirectoryAndParents();
+    }
+    this.linkSources =
+        CacheBuilder.newBuilder()
+            .maximumWeight(maxLinkStoreSize)
+            // Empty files count as one byte, as entries that weigh nothing are never evicted.
+            .weigher((String name, Long size) -> Math.max(1, Ints.saturatedCast(size)))
+            .removalListener(
+                (RemovalNotification<String, Long> notification) -> {
+                  if (notification.wasEvicted()) {
+                    deleteLinkSource(notification.getKey());
+                  }
+                })
+            .build();
+    this.trees =
+        CacheBuilder.newBuilder()
+            .maximumWeight(maxCachedEntries)
+            .weigher((Digest digest, StagedTree tree) -> tree.size())
+            .build();
+  }
+
+  /** Creates {@code execRoot} and stages the input tree with the given digest in it. */
+  void stage(Digest rootDigest, Path execRoot) throws IOException, InterruptedException {
+    StagedTree tree = getTree(rootDigest);
+    execRoot.createDirectoryAndParents();
+    for (PathFragment directory : tree.directories) {
+      execRoot.getRelative(directory).createDirectory();
+    }
+    for (StagedFile file : tree.files) {
+      Path dst = execRoot.getRelative(file.path);
+      if (linkStore != null) {
+        // Failing to create the copy means that the CAS can't provide the file, don't try again.
+        Path source = getLinkSource(file);
+        try {
+          source.createHardLink(dst);
+          continue;
+        } catch (IOException e) {
+          // E.g. the copy has reached the maximum number of links of the file system, or has just
+          // been evicted.
+          logger.log(FINE, "Failed to hardlink {0}, copying instead: {1}", new Object[] {dst, e});
+        }
+      }
+      getFromFuture(cache.downloadFile(dst, file.digest));
+      dst.setExecutable(file.isExecutable);
+    }
+  }
+
+  @SuppressWarnings("ProtoParseWithRegistry")
+  private StagedTree getTree(Digest digest) throws IOException, InterruptedException {
+    StagedTree tree = trees.getIfPresent(digest);
+    if (tree != null) {
+      return tree;
+    }
+    Directory directory = Directory.parseFrom(getFromFuture(cache.downloadBlob(digest)));
+    ImmutableList.Builder<PathFragment> directories = ImmutableList.builder();
+    ImmutableList.Builder<StagedFile> files = ImmutableList.builder();
+    for (FileNode file : directory.getFilesList()) {
+      files.add(
+          new StagedFile(
+              PathFragment.create(file.getName()), file.getDigest(), file.getIsExecutable()));
+    }
+    for (DirectoryNode child : directory.getDirectoriesList()) {
+      PathFragment childPath = PathFragment.create(child.getName());
+      StagedTree childTree = getTree(child.getDigest());
+      directories.add(childPath);
+      for (PathFragment grandchild : childTree.directories) {
+        directories.add(childPath.getRelative(grandchild));
+      }
+      for (StagedFile file : childTree.files) {
+        files.add(
+            new StagedFile(childPath.getRelative(file.path), file.digest, file.isExecutable));
+      }
+    }
+    tree = new StagedTree(directories.build(), files.build());
+    trees.put(digest, tree);
+    return tree;
+  }
+
+  /** Returns the read-only copy of {@code file} in the link store, creating it if necessary. */
+  private Path getLinkSource(StagedFile file) throws IOException, InterruptedException {
+    String name = file.digest.getHash() + (file.isExecutable ? "-x" : "");
+    Path source = linkStore.getChild(name);
+    try {
+      // Concurrent actions that need the same copy wait for the first one to create it.
+      linkSources.get(
+          name,
+          () -> {
+            createLinkSource(file, source);
+            return file.digest.getSizeBytes();
+          });
+    } catch (ExecutionException e) {
+      Throwables.throwIfInstanceOf(e.getCause(), IOException.class);
+      Throwables.throwIfInstanceOf(e.getCause(), InterruptedException.class);
+      throw new IllegalStateException(e.getCause());
+    }
+    return source;
+  }
+
+  private void createLinkSource(StagedFile file, Path source)
+      throws IOException, InterruptedException {
+    Path tmp = linkStore.getChild(source.getBaseName() + ".tmp");
+    try {
+      getFromFuture(cache.downloadFile(tmp, file.digest));
+      tmp.setExecutable(file.isExecutable);
+      tmp.setWritable(false);
+      tmp.renameTo(source);
+    } finally {
+      tmp.delete();
+    }
+  }
+
+  private void deleteLinkSource(String name) {
+    try {
+      linkStore.getChild(name).delete();
+    } catch (IOException e) {
+      logger.log(WARNING, "Failed to delete " + name + " from the link store", e);
+    }
+  }
+}
@@ -13,49 +13,65 @@
 // limitations under the License.
 package com.google.devtools.build.remote.worker;
 
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+
 import build.bazel.remote.execution.v2.ActionResult;
 import build.bazel.remote.execution.v2.Digest;
-import build.bazel.remote.execution.v2.Directory;
-import build.bazel.remote.execution.v2.DirectoryNode;
-import build.bazel.remote.execution.v2.FileNode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.devtools.build.lib.remote.RemoteCache;
 import com.google.devtools.build.lib.remote.common.RemoteCacheClient.ActionKey;
 import com.google.devtools.build.lib.remote.disk.DiskCacheClient;
 import com.google.devtools.build.lib.remote.options.RemoteOptions;
 import com.google.devtools.build.lib.remote.util.DigestUtil;
-import com.google.devtools.build.lib.remote.util.Utils;
 import com.google.devtools.build.lib.vfs.Path;
 import com.google.protobuf.ByteString;
 import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
 
-/** A {@link RemoteCache} backed by an {@link DiskCacheClient}. */
+/**
+ * A {@link RemoteCache} backed by an {@link DiskCacheClient}.
+ *
+ * <p>Concurrent reads of the same blob into memory share a single read from disk, so that the many
+ * clients of a cache that is shared by a host don't all read a popular blob at once. Optionally,
+ * recently read and written blobs are kept in memory.
+ */
 class OnDiskBlobStoreCache extends RemoteCache {
 
-  public OnDiskBlobStoreCache(RemoteOptions options, Path cacheDir, DigestUtil digestUtil) {
+  /** The most recently used blobs, weighed by their size, or {@code null} if disabled. */
+  @Nullable private final Cache<Digest, byte[]> memoryCache;
+
+  private final ConcurrentHashMap<Digest, ListenableFuture<byte[]>> pendingDownloads =
+      new ConcurrentHashMap<>();
+
+  /**
+   * @param memoryCacheSizeBytes the maximum total size of the blobs that are kept in memory, or 0
+   *     to always read blobs from disk
+   */
+  public OnDiskBlobStoreCache(
+      RemoteOptions options, Path cacheDir, DigestUtil digestUtil, long memoryCacheSizeBytes) {
     super(
         new DiskCacheClient(cacheDir, /* verifyDownloads= */ true, digestUtil),
         options,
         digestUtil);
+    this.memoryCache =
+        memoryCacheSizeBytes > 0
+            ? CacheBuilder.newBuilder()
+                .maximumWeight(memoryCacheSizeBytes)
+                .weigher((Digest digest, byte[] data) -> data.length)
+                .build()
+            : null;
   }
 
   public boolean containsKey(Digest digest) {
-    return ((DiskCacheClient) cacheProtocol).contains(digest);
-  }
-
-  @SuppressWarnings("ProtoParseWithRegistry")
-  public void downloadTree(Digest rootDigest, Path rootLocation)
-      throws IOException, InterruptedException {
-    rootLocation.createDirectoryAndParents();
-    Directory directory = Directory.parseFrom(Utils.getFromFuture(downloadBlob(rootDigest)));
-    for (FileNode file : directory.getFilesList()) {
-      Path dst = rootLocation.getRelative(file.getName());
-      Utils.getFromFuture(downloadFile(dst, file.getDigest()));
-      dst.setExecutable(file.getIsExecutable());
-    }
-    for (DirectoryNode child : directory.getDirectoriesList()) {
-      downloadTree(child.getDigest(), rootLocation.getRelative(child.getName()));
+    if (memoryCache != null && memoryCache.getIfPresent(digest) != null) {
+      return true;
     }
+    return ((DiskCacheClient) cacheProtocol).contains(digest);
   }
 
   public ListenableFuture<Void> uploadFile(Digest digest, Path file) {
@@ -63,7 +79,48 @@ class OnDiskBlobStoreCache extends RemoteCache {
   }
 
   public ListenableFuture<Void> uploadBlob(Digest digest, ByteString data) {
-    return cacheProtocol.uploadBlob(digest, data);
+    ListenableFuture<Void> upload = cacheProtocol.uploadBlob(digest, data);
+    if (memoryCache != null) {
+      upload.addListener(
+          () -> {
+            if (isSuccessful(upload)) {
+              memoryCache.put(digest, data.toByteArray());
+            }
+          },
+          directExecutor());
+    }
+    return upload;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The returned contents may be shared with other callers and must not be modified.
+   */
+  @Override
+  public ListenableFuture<byte[]> downloadBlob(Digest digest) {
+    if (memoryCache != null) {
+      byte[] data = memoryCache.getIfPresent(digest);
+      if (data != null) {
+        return Futures.immediateFuture(data);
+      }
+    }
+    SettableFuture<byte[]> download = SettableFuture.create();
+    ListenableFuture<byte[]> pending = pendingDownloads.putIfAbsent(digest, download);
+    if (pending != null) {
+      // Cancelling one of the callers must not fail the download for the others.
+      return Futures.nonCancellationPropagating(pending);
+    }
+    download.setFuture(super.downloadBlob(digest));
+    download.addListener(
+        () -> {
+          pendingDownloads.remove(digest, download);
+          if (memoryCache != null && isSuccessful(download)) {
+            memoryCache.put(digest, Futures.getUnchecked(download));
+          }
+        },
+        directExecutor());
+    return Futures.nonCancellationPropagating(download);
   }
 
   public void uploadActionResult(ActionKey actionKey, ActionResult actionResult)
@@ -74,4 +131,13 @@ class OnDiskBlobStoreCache extends RemoteCache {
   public DigestUtil getDigestUtil() {
     return digestUtil;
   }
+
+  private static boolean isSuccessful(ListenableFuture<?> future) {
+    try {
+      Futures.getDone(future);
+      return true;
+    } catch (Exception e) {
+      return false;
+    }
+  }
 }
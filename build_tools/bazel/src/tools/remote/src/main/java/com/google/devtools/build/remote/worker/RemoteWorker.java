@@ -56,11 +56,24 @@ import io.grpc.ServerInterceptor;
 import io.grpc.ServerInterceptors;
 import io.grpc.netty.GrpcSslContexts;
 import io.grpc.netty.NettyServerBuilder;
+import io.netty.bootstrap.Bootstrap;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerDomainSocketChannel;
+import io.netty.channel.kqueue.KQueue;
+import io.netty.channel.kqueue.KQueueDomainSocketChannel;
+import io.netty.channel.kqueue.KQueueEventLoopGroup;
+import io.netty.channel.kqueue.KQueueServerDomainSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
 import io.netty.handler.ssl.ClientAuth;
@@ -75,6 +88,7 @@ import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.function.IntFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -96,6 +110,7 @@ public final class RemoteWorker {
   private final ContentAddressableStorageImplBase casServer;
   private final ExecutionImplBase execServer;
   private final CapabilitiesImplBase capabilitiesServer;
+  private final ContainerPool containerPool;
 
   static FileSystem getFileSystem() {
     final DigestHashFunction hashFunction;
@@ -141,10 +156,24 @@ public final class RemoteWorker {
       ConcurrentHashMap<String, ListenableFuture<ActionResult>> operationsCache =
           new ConcurrentHashMap<>();
       FileSystemUtils.createDirectoryAndParents(workPath);
+      containerPool =
+          workerOptions.warmContainers > 0
+              ? new ContainerPool(
+                  workPath.getChild("containers"),
+                  workerOptions.sandboxingTmpfsDirs,
+                  workerOptions.warmContainers)
+              : null;
       execServer =
           new ExecutionServer(
-              workPath, sandboxPath, workerOptions, cache, operationsCache, digestUtil);
+              workPath,
+              sandboxPath,
+              workerOptions,
+              cache,
+              operationsCache,
+              digestUtil,
+              containerPool);
     } else {
+      containerPool = null;
       execServer = null;
     }
     this.capabilitiesServer = new CapabilitiesServer(digestUtil, execServer != null);
@@ -153,7 +182,7 @@ public final class RemoteWorker {
   public Server startServer() throws IOException {
     ServerInterceptor headersInterceptor = new TracingMetadataUtils.ServerHeadersInterceptor();
     NettyServerBuilder b =
-        NettyServerBuilder.forPort(workerOptions.listenPort)
+        newServerBuilder()
             .addService(ServerInterceptors.intercept(actionCacheServer, headersInterceptor))
             .addService(ServerInterceptors.intercept(bsServer, headersInterceptor))
             .addService(ServerInterceptors.intercept(casServer, headersInterceptor))
@@ -165,17 +194,80 @@ public final class RemoteWorker {
 
     if (execServer != null) {
       b.addService(ServerInterceptors.intercept(execServer, headersInterceptor));
+      if (containerPool != null) {
+        b.addService(new WorkerStatusServer(containerPool));
+      }
     } else {
       logger.info("Execution disabled, only serving cache requests.");
     }
 
     Server server = b.build();
-    logger.log(INFO, "Starting gRPC server on port {0,number,#}.", workerOptions.listenPort);
+    if (workerOptions.listenSocket != null) {
+      logger.log(INFO, "Starting gRPC server on unix socket {0}.", workerOptions.listenSocket);
+    } else {
+      logger.log(INFO, "Starting gRPC server on port {0,number,#}.", workerOptions.listenPort);
+    }
     server.start();
 
     return server;
   }
 
+  private NettyServerBuilder newServerBuilder() throws IOException {
+    if (workerOptions.listenSocket == null) {
+      return NettyServerBuilder.forPort(workerOptions.listenPort);
+    }
+    Class<? extends ServerChannel> serverChannelType;
+    Class<? extends Channel> channelType;
+    IntFunction<EventLoopGroup> newEventLoopGroup;
+    if (KQueue.isAvailable()) {
+      serverChannelType = KQueueServerDomainSocketChannel.class;
+      channelType = KQueueDomainSocketChannel.class;
+      newEventLoopGroup = KQueueEventLoopGroup::new;
+    } else if (Epoll.isAvailable()) {
+      serverChannelType = EpollServerDomainSocketChannel.class;
+      channelType = EpollDomainSocketChannel.class;
+      newEventLoopGroup = EpollEventLoopGroup::new;
+    } else {
+      throw new IOException("Unix domain sockets are unsupported on this platform");
+    }
+    removeStaleSocket(workerOptions.listenSocket, channelType, newEventLoopGroup.apply(1));
+    return NettyServerBuilder.forAddress(new DomainSocketAddress(workerOptions.listenSocket))
+        .channelType(serverChannelType)
+        .bossEventLoopGroup(newEventLoopGroup.apply(1))
+        // 0 means the default number of threads.
+        .workerEventLoopGroup(newEventLoopGroup.apply(0));
+  }
+
+  /**
+   * Removes the socket file at {@code path} if it was left behind by a previous worker, which would
+   * make binding fail. Fails if another process still accepts connections on it.
+   */
+  private static void removeStaleSocket(
+      String path, Class<? extends Channel> channelType, EventLoopGroup group) throws IOException {
+    File socket = new File(path);
+    if (!socket.exists()) {
+      return;
+    }
+    try {
+      ChannelFuture connect =
+          new Bootstrap()
+              .group(group)
+              .channel(channelType)
+              .handler(new ChannelInboundHandlerAdapter())
+              .connect(new DomainSocketAddress(path))
+              .awaitUninterruptibly();
+      if (connect.isSuccess()) {
+        connect.channel().close().awaitUninterruptibly();
+        throw new IOException("Another process is listening on " + path);
+      }
+    } finally {
+      group.shutdownGracefully();
+    }
+    if (!socket.delete()) {
+      throw new IOException("Cannot remove stale socket " + socket);
+    }
+  }
+
   private SslContextBuilder getSslContextBuilder(RemoteWorkerOptions workerOptions) {
     SslContextBuilder sslContextBuilder =
         SslContextBuilder.forServer(
@@ -213,6 +305,20 @@ public final class RemoteWorker {
             });
   }
 
+  private void removeContainersOnShutdown() {
+    if (containerPool == null) {
+      return;
+    }
+    Runtime.getRuntime()
+        .addShutdownHook(
+            new Thread() {
+              @Override
+              public void run() {
+                containerPool.shutdown();
+              }
+            });
+  }
+
   @SuppressWarnings("FutureReturnValueIgnored")
   public static void main(String[] args) throws Exception {
     OptionsParser parser =
@@ -259,7 +365,9 @@ public final class RemoteWorker {
     Path casPath =
         remoteWorkerOptions.casPath != null ? fs.getPath(remoteWorkerOptions.casPath) : null;
     DigestUtil digestUtil = new DigestUtil(fs.getDigestFunction());
-    OnDiskBlobStoreCache cache = new OnDiskBlobStoreCache(remoteOptions, casPath, digestUtil);
+    OnDiskBlobStoreCache cache =
+        new OnDiskBlobStoreCache(
+            remoteOptions, casPath, digestUtil, remoteWorkerOptions.memoryCacheSize);
     ListeningScheduledExecutorService retryService =
         MoreExecutors.listeningDecorator(Executors.newScheduledThreadPool(1));
     RemoteWorker worker = new RemoteWorker(fs, remoteWorkerOptions, cache, sandboxPath, digestUtil);
@@ -287,6 +395,7 @@ public final class RemoteWorker {
     }
 
     worker.createPidFile();
+    worker.removeContainersOnShutdown();
 
     server.awaitTermination();
     if (ch != null) {
@@ -38,6 +38,18 @@ public class RemoteWorkerOptions extends OptionsBase {
   )
   public int listenPort;
 
+  @Option(
+      name = "listen_socket",
+      defaultValue = "null",
+      category = "build_worker",
+      documentationCategory = OptionDocumentationCategory.UNCATEGORIZED,
+      effectTags = {OptionEffectTag.UNKNOWN},
+      help =
+          "If set, the gRPC server listens on a unix domain socket at this path instead of on "
+              + "--listen_port, so that it can serve as a cache that is shared by the Bazel "
+              + "servers on a host. Bazel connects to it with --remote_proxy=unix:<path>.")
+  public String listenSocket;
+
   @Option(
     name = "work_path",
     defaultValue = "null",
@@ -138,6 +150,67 @@ public class RemoteWorkerOptions extends OptionsBase {
               + " are not allowed.")
   public int jobs;
 
+  @Option(
+      name = "experimental_hardlink_inputs",
+      defaultValue = "false",
+      category = "build_worker",
+      documentationCategory = OptionDocumentationCategory.UNCATEGORIZED,
+      effectTags = {OptionEffectTag.UNKNOWN},
+      help =
+          "If set, input files are hardlinked into the exec root of each action from read-only "
+              + "copies in the work path, instead of being copied from the CAS. Actions can't "
+              + "modify their input files then. The work path must be on a file system that "
+              + "supports hardlinks.")
+  public boolean hardlinkInputs;
+
+  @Option(
+      name = "experimental_hardlink_inputs_max_size",
+      defaultValue = "10737418240",
+      category = "build_worker",
+      documentationCategory = OptionDocumentationCategory.UNCATEGORIZED,
+      effectTags = {OptionEffectTag.UNKNOWN},
+      help =
+          "The maximum total size in bytes of the read-only copies of input files that are kept "
+              + "for --experimental_hardlink_inputs. The least recently used copies are deleted "
+              + "first.")
+  public long hardlinkInputsMaxSize;
+
+  @Option(
+      name = "experimental_input_tree_cache_size",
+      defaultValue = "1000000",
+      category = "build_worker",
+      documentationCategory = OptionDocumentationCategory.UNCATEGORIZED,
+      effectTags = {OptionEffectTag.UNKNOWN},
+      help =
+          "The maximum total number of files and directories of the input trees that are kept in "
+              + "memory, keyed by their digest, so that the Directory protos of input trees that "
+              + "were staged before don't have to be read again. Set to 0 to disable.")
+  public long inputTreeCacheSize;
+
+  @Option(
+      name = "experimental_memory_cache_size",
+      defaultValue = "0",
+      category = "build_worker",
+      documentationCategory = OptionDocumentationCategory.UNCATEGORIZED,
+      effectTags = {OptionEffectTag.UNKNOWN},
+      help =
+          "The maximum total size in bytes of the most recently read and written blobs that are "
+              + "kept in memory, in addition to being stored in --cas_path. Set to 0 to disable.")
+  public long memoryCacheSize;
+
+  @Option(
+      name = "experimental_warm_containers",
+      defaultValue = "0",
+      category = "build_worker",
+      documentationCategory = OptionDocumentationCategory.UNCATEGORIZED,
+      effectTags = {OptionEffectTag.UNKNOWN},
+      help =
+          "The maximum number of Docker containers that are kept running per container image and "
+              + "platform, and thereby the maximum number of actions that run in them "
+              + "concurrently. Actions that request a container image are run in one of these via "
+              + "docker exec instead of in a new container each. Set to 0 to disable.")
+  public int warmContainers;
+
   @Option(
       name = "http_listen_port",
       defaultValue = "0",
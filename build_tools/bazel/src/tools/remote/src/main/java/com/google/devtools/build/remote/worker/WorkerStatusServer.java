@@ -0,0 +1,62 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.remote.worker;
+
+import com.google.protobuf.Empty;
+import com.google.protobuf.Struct;
+import io.grpc.BindableService;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.protobuf.ProtoUtils;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * A status service that reports the statistics of the worker's {@link ContainerPool}.
+ *
+ * <p>The service is defined without a proto of its own: its only method, {@code
+ * build.remote.worker.WorkerStatus/GetExecutionPoolStats}, takes a {@code google.protobuf.Empty}
+ * and returns a {@code google.protobuf.Struct}, so that clients only need the well-known types.
+ */
+final class WorkerStatusServer implements BindableService {
+  static final String SERVICE_NAME = "build.remote.worker.WorkerStatus";
+
+  static final MethodDescriptor<Empty, Struct> GET_EXECUTION_POOL_STATS =
+      MethodDescriptor.<Empty, Struct>newBuilder()
+          .setType(MethodDescriptor.MethodType.UNARY)
+          .setFullMethodName(
+              MethodDescriptor.generateFullMethodName(SERVICE_NAME, "GetExecutionPoolStats"))
+          .setRequestMarshaller(ProtoUtils.marshaller(Empty.getDefaultInstance()))
+          .setResponseMarshaller(ProtoUtils.marshaller(Struct.getDefaultInstance()))
+          .build();
+
+  private final ContainerPool containerPool;
+
+  public WorkerStatusServer(ContainerPool containerPool) {
+    this.containerPool = containerPool;
+  }
+
+  private void getExecutionPoolStats(Empty request, StreamObserver<Struct> responseObserver) {
+    responseObserver.onNext(containerPool.getStats());
+    responseObserver.onCompleted();
+  }
+
+  @Override
+  public ServerServiceDefinition bindService() {
+    return ServerServiceDefinition.builder(SERVICE_NAME)
+        .addMethod(
+            GET_EXECUTION_POOL_STATS, ServerCalls.asyncUnaryCall(this::getExecutionPoolStats))
+        .build();
+  }
+}
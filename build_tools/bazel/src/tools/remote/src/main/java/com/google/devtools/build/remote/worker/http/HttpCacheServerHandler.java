@@ -63,6 +63,8 @@ public class HttpCacheServerHandler extends SimpleChannelInboundHandler<FullHttp
 
     if (request.method().equals(HttpMethod.GET)) {
       handleGet(ctx, request);
+    } else if (request.method().equals(HttpMethod.HEAD)) {
+      handleHead(ctx, request);
     } else if (request.method().equals(HttpMethod.PUT)) {
       handlePut(ctx, request);
     } else {
@@ -101,6 +103,24 @@ public class HttpCacheServerHandler extends SimpleChannelInboundHandler<FullHttp
     }
   }
 
+  private void handleHead(ChannelHandlerContext ctx, FullHttpRequest request) {
+    byte[] contents = isUriValid(request.uri()) ? cache.get(request.uri()) : null;
+    FullHttpResponse response;
+    if (contents == null) {
+      response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NOT_FOUND);
+    } else {
+      response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+      response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/octet-stream");
+    }
+    // The response to a HEAD request has no content, but the length of the content of a GET.
+    HttpUtil.setContentLength(response, contents == null ? 0 : contents.length);
+    ChannelFuture lastContentFuture = ctx.writeAndFlush(response);
+
+    if (!HttpUtil.isKeepAlive(request)) {
+      lastContentFuture.addListener(ChannelFutureListener.CLOSE);
+    }
+  }
+
   private void handlePut(ChannelHandlerContext ctx, FullHttpRequest request) {
     if (!request.decoderResult().isSuccess()) {
       sendError(ctx, request, HttpResponseStatus.INTERNAL_SERVER_ERROR);
@@ -0,0 +1,151 @@
+// Copyright 2020 The Bazel Authors. All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//    http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package com.google.devtools.build.remote.worker;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertThrows;
+
+import build.bazel.remote.execution.v2.Digest;
+import build.bazel.remote.execution.v2.Directory;
+import build.bazel.remote.execution.v2.FileNode;
+import com.google.common.base.Strings;
+import com.google.devtools.build.lib.remote.common.CacheNotFoundException;
+import com.google.devtools.build.lib.remote.options.RemoteOptions;
+import com.google.devtools.build.lib.remote.util.DigestUtil;
+import com.google.devtools.build.lib.testutil.TestUtils;
+import com.google.devtools.build.lib.vfs.DigestHashFunction;
+import com.google.devtools.build.lib.vfs.FileSystemUtils;
+import com.google.devtools.build.lib.vfs.JavaIoFileSystem;
+import com.google.devtools.build.lib.vfs.Path;
+import com.google.devtools.common.options.Options;
+import com.google.protobuf.ByteString;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link InputTreeStager}. */
+@RunWith(JUnit4.class)
+public class InputTreeStagerTest {
+
+  private static final DigestUtil DIGEST_UTIL = new DigestUtil(DigestHashFunction.SHA256);
+
+  private Path root;
+  private Path linkStore;
+  private OnDiskBlobStoreCache cache;
+
+  @Before
+  public void setUp() throws Exception {
+    JavaIoFileSystem fs = new JavaIoFileSystem(DigestHashFunction.SHA256);
+    root = fs.getPath(TestUtils.makeTempDir().getAbsolutePath());
+    linkStore = root.getChild("inputs");
+    Path cacheDir = root.getChild("cas");
+    cacheDir.createDirectoryAndParents();
+    cache =
+        new OnDiskBlobStoreCache(
+            Options.getDefaults(RemoteOptions.class),
+            cacheDir,
+            DIGEST_UTIL,
+            /* memoryCacheSizeBytes= */ 0);
+  }
+
+  private InputTreeStager newStager(long maxLinkStoreSize) throws Exception {
+    return new InputTreeStager(
+        cache, linkStore, maxLinkStoreSize, /* maxCachedEntries= */ 1000);
+  }
+
+  private FileNode uploadFile(String name, String content) throws Exception {
+    Digest digest = DIGEST_UTIL.computeAsUtf8(content);
+    cache.uploadBlob(digest, ByteString.copyFromUtf8(content)).get();
+    return FileNode.newBuilder().setName(name).setDigest(digest).build();
+  }
+
+  private Digest uploadDirectory(Directory directory) throws Exception {
+    Digest digest = DIGEST_UTIL.compute(directory);
+    cache.uploadBlob(digest, directory.toByteString()).get();
+    return digest;
+  }
+
+  @Test
+  public void stagesHardlinksToSharedCopies() throws Exception {
+    InputTreeStager stager = newStager(/* maxLinkStoreSize= */ 1000);
+    Digest rootDigest =
+        uploadDirectory(
+            Directory.newBuilder()
+                .addFiles(uploadFile("a", "hello"))
+                .addFiles(uploadFile("b", "world").toBuilder().setIsExecutable(true))
+                .build());
+
+    stager.stage(rootDigest, root.getChild("exec1"));
+    stager.stage(rootDigest, root.getChild("exec2"));
+
+    for (String execRoot : new String[] {"exec1", "exec2"}) {
+      Path a = root.getRelative(execRoot + "/a");
+      Path b = root.getRelative(execRoot + "/b");
+      assertThat(FileSystemUtils.readContent(a, UTF_8)).isEqualTo("hello");
+      assertThat(FileSystemUtils.readContent(b, UTF_8)).isEqualTo("world");
+      assertThat(a.isExecutable()).isFalse();
+      assertThat(b.isExecutable()).isTrue();
+    }
+    assertThat(linkStore.getDirectoryEntries()).hasSize(2);
+  }
+
+  @Test
+  public void linkStoreIsBounded() throws Exception {
+    InputTreeStager stager = newStager(/* maxLinkStoreSize= */ 1000);
+    Directory.Builder directory = Directory.newBuilder();
+    for (int i = 0; i < 20; i++) {
+      directory.addFiles(uploadFile("file" + i, i + Strings.repeat("x", 99)));
+    }
+
+    stager.stage(uploadDirectory(directory.build()), root.getChild("exec"));
+
+    assertThat(root.getChild("exec").getDirectoryEntries()).hasSize(20);
+    long storeSize = 0;
+    for (Path copy : linkStore.getDirectoryEntries()) {
+      storeSize += copy.getFileSize();
+    }
+    assertThat(storeSize).isAtMost(1000);
+  }
+
+  @Test
+  public void missingInputIsReported() throws Exception {
+    InputTreeStager stager = newStager(/* maxLinkStoreSize= */ 1000);
+    Digest missing = DIGEST_UTIL.computeAsUtf8("missing");
+    Digest rootDigest =
+        uploadDirectory(
+            Directory.newBuilder()
+                .addFiles(FileNode.newBuilder().setName("a").setDigest(missing))
+                .build());
+
+    CacheNotFoundException e =
+        assertThrows(
+            CacheNotFoundException.class, () -> stager.stage(rootDigest, root.getChild("exec")));
+
+    assertThat(e.getMissingDigest()).isEqualTo(missing);
+    // No partial copies are left behind.
+    assertThat(linkStore.getDirectoryEntries()).isEmpty();
+  }
+
+  @Test
+  public void previousCopiesAreDeleted() throws Exception {
+    linkStore.createDirectoryAndParents();
+    FileSystemUtils.writeContent(linkStore.getChild("stale"), UTF_8, "stale");
+
+    newStager(/* maxLinkStoreSize= */ 1000);
+
+    assertThat(linkStore.getDirectoryEntries()).isEmpty();
+  }
+}